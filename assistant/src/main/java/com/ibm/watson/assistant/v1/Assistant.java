@@ -17,7 +17,6 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
@@ -68,6 +67,7 @@ import com.ibm.watson.assistant.v1.model.ListMentionsOptions;
 import com.ibm.watson.assistant.v1.model.ListSynonymsOptions;
 import com.ibm.watson.assistant.v1.model.ListValuesOptions;
 import com.ibm.watson.assistant.v1.model.ListWorkspacesOptions;
+import com.ibm.watson.assistant.v1.model.Log;
 import com.ibm.watson.assistant.v1.model.LogCollection;
 import com.ibm.watson.assistant.v1.model.MessageOptions;
 import com.ibm.watson.assistant.v1.model.MessageResponse;
@@ -85,7 +85,10 @@ import com.ibm.watson.assistant.v1.model.Value;
 import com.ibm.watson.assistant.v1.model.ValueCollection;
 import com.ibm.watson.assistant.v1.model.Workspace;
 import com.ibm.watson.assistant.v1.model.WorkspaceCollection;
+import com.ibm.watson.common.Pager;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -96,7 +99,7 @@ import java.util.Map.Entry;
  * @version v1
  * @see <a href="http://www.ibm.com/watson/developercloud/assistant.html">Assistant</a>
  */
-public class Assistant extends BaseService {
+public class Assistant extends WatsonService {
 
   private static final String SERVICE_NAME = "assistant";
   private static final String URL = "https://gateway.watsonplatform.net/assistant/api";
@@ -265,6 +268,42 @@ public class Assistant extends BaseService {
     return listWorkspaces(null);
   }
 
+  /**
+   * List workspaces, following the pagination cursor.
+   *
+   * Returns the workspaces of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listWorkspaces(ListWorkspacesOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listWorkspacesOptions the {@link ListWorkspacesOptions} containing the options for the first page
+   * @return a {@link Pager} over the workspaces
+   */
+  public Pager<WorkspaceCollection, Workspace> listWorkspacesPager(final ListWorkspacesOptions listWorkspacesOptions) {
+    return new Pager<WorkspaceCollection, Workspace>() {
+      @Override
+      protected ServiceCall<WorkspaceCollection> call(String cursor) {
+        ListWorkspacesOptions.Builder builder = (listWorkspacesOptions != null) ? listWorkspacesOptions.newBuilder()
+            : new ListWorkspacesOptions.Builder();
+        if (cursor != null) {
+          builder.cursor(cursor);
+        }
+        return listWorkspaces(builder.build());
+      }
+
+      @Override
+      protected List<Workspace> items(WorkspaceCollection page) {
+        return page.getWorkspaces();
+      }
+
+      @Override
+      protected String nextCursor(WorkspaceCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create workspace.
    *
@@ -515,6 +554,39 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List intents, following the pagination cursor.
+   *
+   * Returns the intents of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listIntents(ListIntentsOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listIntentsOptions the {@link ListIntentsOptions} containing the options for the first page
+   * @return a {@link Pager} over the intents
+   */
+  public Pager<IntentCollection, Intent> listIntentsPager(final ListIntentsOptions listIntentsOptions) {
+    Validator.notNull(listIntentsOptions, "listIntentsOptions cannot be null");
+    return new Pager<IntentCollection, Intent>() {
+      @Override
+      protected ServiceCall<IntentCollection> call(String cursor) {
+        return listIntents((cursor != null) ? listIntentsOptions.newBuilder().cursor(cursor).build()
+            : listIntentsOptions);
+      }
+
+      @Override
+      protected List<Intent> items(IntentCollection page) {
+        return page.getIntents();
+      }
+
+      @Override
+      protected String nextCursor(IntentCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create intent.
    *
@@ -702,6 +774,39 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List user input examples, following the pagination cursor.
+   *
+   * Returns the user input examples of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listExamples(ListExamplesOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listExamplesOptions the {@link ListExamplesOptions} containing the options for the first page
+   * @return a {@link Pager} over the user input examples
+   */
+  public Pager<ExampleCollection, Example> listExamplesPager(final ListExamplesOptions listExamplesOptions) {
+    Validator.notNull(listExamplesOptions, "listExamplesOptions cannot be null");
+    return new Pager<ExampleCollection, Example>() {
+      @Override
+      protected ServiceCall<ExampleCollection> call(String cursor) {
+        return listExamples((cursor != null) ? listExamplesOptions.newBuilder().cursor(cursor).build()
+            : listExamplesOptions);
+      }
+
+      @Override
+      protected List<Example> items(ExampleCollection page) {
+        return page.getExamples();
+      }
+
+      @Override
+      protected String nextCursor(ExampleCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create user input example.
    *
@@ -881,6 +986,40 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List counterexamples, following the pagination cursor.
+   *
+   * Returns the counterexamples of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listCounterexamples(ListCounterexamplesOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listCounterexamplesOptions the {@link ListCounterexamplesOptions} containing the options for the first page
+   * @return a {@link Pager} over the counterexamples
+   */
+  public Pager<CounterexampleCollection, Counterexample> listCounterexamplesPager(
+      final ListCounterexamplesOptions listCounterexamplesOptions) {
+    Validator.notNull(listCounterexamplesOptions, "listCounterexamplesOptions cannot be null");
+    return new Pager<CounterexampleCollection, Counterexample>() {
+      @Override
+      protected ServiceCall<CounterexampleCollection> call(String cursor) {
+        return listCounterexamples((cursor != null) ? listCounterexamplesOptions.newBuilder().cursor(cursor).build()
+            : listCounterexamplesOptions);
+      }
+
+      @Override
+      protected List<Counterexample> items(CounterexampleCollection page) {
+        return page.getCounterexamples();
+      }
+
+      @Override
+      protected String nextCursor(CounterexampleCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create counterexample.
    *
@@ -1055,6 +1194,39 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List entities, following the pagination cursor.
+   *
+   * Returns the entities of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listEntities(ListEntitiesOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listEntitiesOptions the {@link ListEntitiesOptions} containing the options for the first page
+   * @return a {@link Pager} over the entities
+   */
+  public Pager<EntityCollection, Entity> listEntitiesPager(final ListEntitiesOptions listEntitiesOptions) {
+    Validator.notNull(listEntitiesOptions, "listEntitiesOptions cannot be null");
+    return new Pager<EntityCollection, Entity>() {
+      @Override
+      protected ServiceCall<EntityCollection> call(String cursor) {
+        return listEntities((cursor != null) ? listEntitiesOptions.newBuilder().cursor(cursor).build()
+            : listEntitiesOptions);
+      }
+
+      @Override
+      protected List<Entity> items(EntityCollection page) {
+        return page.getEntities();
+      }
+
+      @Override
+      protected String nextCursor(EntityCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create entity.
    *
@@ -1292,6 +1464,38 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List entity values, following the pagination cursor.
+   *
+   * Returns the entity values of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listValues(ListValuesOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listValuesOptions the {@link ListValuesOptions} containing the options for the first page
+   * @return a {@link Pager} over the entity values
+   */
+  public Pager<ValueCollection, Value> listValuesPager(final ListValuesOptions listValuesOptions) {
+    Validator.notNull(listValuesOptions, "listValuesOptions cannot be null");
+    return new Pager<ValueCollection, Value>() {
+      @Override
+      protected ServiceCall<ValueCollection> call(String cursor) {
+        return listValues((cursor != null) ? listValuesOptions.newBuilder().cursor(cursor).build() : listValuesOptions);
+      }
+
+      @Override
+      protected List<Value> items(ValueCollection page) {
+        return page.getValues();
+      }
+
+      @Override
+      protected String nextCursor(ValueCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create entity value.
    *
@@ -1493,6 +1697,39 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List entity value synonyms, following the pagination cursor.
+   *
+   * Returns the synonyms of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listSynonyms(ListSynonymsOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listSynonymsOptions the {@link ListSynonymsOptions} containing the options for the first page
+   * @return a {@link Pager} over the synonyms
+   */
+  public Pager<SynonymCollection, Synonym> listSynonymsPager(final ListSynonymsOptions listSynonymsOptions) {
+    Validator.notNull(listSynonymsOptions, "listSynonymsOptions cannot be null");
+    return new Pager<SynonymCollection, Synonym>() {
+      @Override
+      protected ServiceCall<SynonymCollection> call(String cursor) {
+        return listSynonyms((cursor != null) ? listSynonymsOptions.newBuilder().cursor(cursor).build()
+            : listSynonymsOptions);
+      }
+
+      @Override
+      protected List<Synonym> items(SynonymCollection page) {
+        return page.getSynonyms();
+      }
+
+      @Override
+      protected String nextCursor(SynonymCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create entity value synonym.
    *
@@ -1667,6 +1904,40 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List dialog nodes, following the pagination cursor.
+   *
+   * Returns the dialog nodes of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listDialogNodes(ListDialogNodesOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listDialogNodesOptions the {@link ListDialogNodesOptions} containing the options for the first page
+   * @return a {@link Pager} over the dialog nodes
+   */
+  public Pager<DialogNodeCollection, DialogNode> listDialogNodesPager(
+      final ListDialogNodesOptions listDialogNodesOptions) {
+    Validator.notNull(listDialogNodesOptions, "listDialogNodesOptions cannot be null");
+    return new Pager<DialogNodeCollection, DialogNode>() {
+      @Override
+      protected ServiceCall<DialogNodeCollection> call(String cursor) {
+        return listDialogNodes((cursor != null) ? listDialogNodesOptions.newBuilder().cursor(cursor).build()
+            : listDialogNodesOptions);
+      }
+
+      @Override
+      protected List<DialogNode> items(DialogNodeCollection page) {
+        return page.getDialogNodes();
+      }
+
+      @Override
+      protected String nextCursor(DialogNodeCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Create dialog node.
    *
@@ -1937,6 +2208,38 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List log events in a workspace, following the pagination cursor.
+   *
+   * Returns the log events of the workspace of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listLogs(ListLogsOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listLogsOptions the {@link ListLogsOptions} containing the options for the first page
+   * @return a {@link Pager} over the log events of the workspace
+   */
+  public Pager<LogCollection, Log> listLogsPager(final ListLogsOptions listLogsOptions) {
+    Validator.notNull(listLogsOptions, "listLogsOptions cannot be null");
+    return new Pager<LogCollection, Log>() {
+      @Override
+      protected ServiceCall<LogCollection> call(String cursor) {
+        return listLogs((cursor != null) ? listLogsOptions.newBuilder().cursor(cursor).build() : listLogsOptions);
+      }
+
+      @Override
+      protected List<Log> items(LogCollection page) {
+        return page.getLogs();
+      }
+
+      @Override
+      protected String nextCursor(LogCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * List log events in all workspaces.
    *
@@ -1974,6 +2277,39 @@ public class Assistant extends BaseService {
     return createServiceCall(builder.build(), responseConverter);
   }
 
+  /**
+   * List log events in all workspaces, following the pagination cursor.
+   *
+   * Returns the log events of all workspaces of all pages as an {@link Iterable}. The pages are requested with
+   * {@link #listAllLogs(ListAllLogsOptions)}.
+   *
+   * The page limit of the options sets the page size. The next page is requested in the background while the
+   * current page is being consumed.
+   *
+   * @param listAllLogsOptions the {@link ListAllLogsOptions} containing the options for the first page
+   * @return a {@link Pager} over the log events of all workspaces
+   */
+  public Pager<LogCollection, Log> listAllLogsPager(final ListAllLogsOptions listAllLogsOptions) {
+    Validator.notNull(listAllLogsOptions, "listAllLogsOptions cannot be null");
+    return new Pager<LogCollection, Log>() {
+      @Override
+      protected ServiceCall<LogCollection> call(String cursor) {
+        return listAllLogs((cursor != null) ? listAllLogsOptions.newBuilder().cursor(cursor).build()
+            : listAllLogsOptions);
+      }
+
+      @Override
+      protected List<Log> items(LogCollection page) {
+        return page.getLogs();
+      }
+
+      @Override
+      protected String nextCursor(LogCollection page) {
+        return (page.getPagination() != null) ? page.getPagination().getNextCursor() : null;
+      }
+    };
+  }
+
   /**
    * Delete labeled data.
    *
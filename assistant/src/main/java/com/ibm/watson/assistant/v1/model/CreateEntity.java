@@ -17,9 +17,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
 import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * CreateEntity.
@@ -31,7 +33,9 @@ public class CreateEntity extends GenericModel {
   private Map metadata;
   @SerializedName("fuzzy_match")
   private Boolean fuzzyMatch;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private List<CreateValue> values;
 
@@ -16,8 +16,10 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
 import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * CreateIntent.
@@ -26,7 +28,9 @@ public class CreateIntent extends GenericModel {
 
   private String intent;
   private String description;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private List<Example> examples;
 
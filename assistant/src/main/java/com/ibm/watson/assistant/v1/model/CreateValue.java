@@ -17,9 +17,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
 import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * CreateValue.
@@ -42,7 +44,9 @@ public class CreateValue extends GenericModel {
   private String valueType;
   private List<String> synonyms;
   private List<String> patterns;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
 
   /**
@@ -17,9 +17,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
 import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * DialogNode.
@@ -132,7 +134,9 @@ public class DialogNode extends GenericModel {
   @SerializedName("user_label")
   private String userLabel;
   private Boolean disabled;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
 
   /**
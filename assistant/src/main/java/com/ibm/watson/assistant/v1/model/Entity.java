@@ -16,8 +16,10 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Entity.
@@ -29,7 +31,9 @@ public class Entity extends GenericModel {
   private Map metadata;
   @SerializedName("fuzzy_match")
   private Boolean fuzzyMatch;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private List<Value> values;
 
@@ -15,7 +15,9 @@ package com.ibm.watson.assistant.v1.model;
 import java.util.Date;
 import java.util.List;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Intent.
@@ -24,7 +26,9 @@ public class Intent extends GenericModel {
 
   private String intent;
   private String description;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private List<Example> examples;
 
@@ -14,8 +14,10 @@ package com.ibm.watson.assistant.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
 import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Synonym.
@@ -23,7 +25,9 @@ import com.ibm.cloud.sdk.core.util.Validator;
 public class Synonym extends GenericModel {
 
   private String synonym;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
 
   /**
@@ -16,8 +16,10 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Workspace.
@@ -51,7 +53,9 @@ public class Workspace extends GenericModel {
   @SerializedName("workspace_id")
   private String workspaceId;
   private String status;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private List<Intent> intents;
   private List<Entity> entities;
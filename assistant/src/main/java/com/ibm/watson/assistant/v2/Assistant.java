@@ -17,7 +17,6 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
@@ -27,6 +26,7 @@ import com.ibm.watson.assistant.v2.model.MessageOptions;
 import com.ibm.watson.assistant.v2.model.MessageResponse;
 import com.ibm.watson.assistant.v2.model.SessionResponse;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -37,7 +37,7 @@ import java.util.Map.Entry;
  * @version v2
  * @see <a href="http://www.ibm.com/watson/developercloud/assistant.html">Assistant</a>
  */
-public class Assistant extends BaseService {
+public class Assistant extends WatsonService {
 
   private static final String SERVICE_NAME = "assistant";
   private static final String URL = "https://gateway.watsonplatform.net/assistant/api";
@@ -30,6 +30,7 @@ import com.ibm.watson.assistant.v1.model.DialogNode;
 import com.ibm.watson.assistant.v1.model.DialogNodeAction;
 import com.ibm.watson.assistant.v1.model.Example;
 import com.ibm.watson.assistant.v1.model.GetWorkspaceOptions;
+import com.ibm.watson.assistant.v1.model.ListWorkspacesOptions;
 import com.ibm.watson.assistant.v1.model.ListAllLogsOptions;
 import com.ibm.watson.assistant.v1.model.ListMentionsOptions;
 import com.ibm.watson.assistant.v1.model.Mention;
@@ -47,9 +48,12 @@ import com.ibm.watson.assistant.v1.model.UpdateExampleOptions;
 import com.ibm.watson.assistant.v1.model.UpdateIntentOptions;
 import com.ibm.watson.assistant.v1.model.UpdateValueOptions;
 import com.ibm.watson.assistant.v1.model.UpdateWorkspaceOptions;
+import com.ibm.watson.assistant.v1.model.Workspace;
+import com.ibm.watson.assistant.v1.model.WorkspaceCollection;
 import com.ibm.watson.assistant.v1.model.WorkspaceSystemSettings;
 import com.ibm.watson.assistant.v1.model.WorkspaceSystemSettingsDisambiguation;
 import com.ibm.watson.assistant.v1.model.WorkspaceSystemSettingsTooling;
+import com.ibm.watson.common.Pager;
 import com.ibm.watson.common.WatsonServiceUnitTest;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.apache.commons.lang3.StringUtils;
@@ -68,6 +72,7 @@ import java.util.Map;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -1070,4 +1075,55 @@ public class AssistantTest extends WatsonServiceUnitTest {
     assertEquals(testDate, createIntent.created());
     assertEquals(testDate, createIntent.updated());
   }
+
+  /**
+   * Test that the workspaces pager follows the cursor of every page until the last one.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testListWorkspacesPager() throws InterruptedException {
+    server.enqueue(jsonResponse(workspacePage("next-1", "w1", "w2")));
+    server.enqueue(jsonResponse(workspacePage("next-2", "w3")));
+    server.enqueue(jsonResponse(workspacePage(null, "w4", "w5")));
+
+    ListWorkspacesOptions options = new ListWorkspacesOptions.Builder()
+        .pageLimit(2)
+        .build();
+    Pager<WorkspaceCollection, Workspace> pager = service.listWorkspacesPager(options);
+    List<String> names = new ArrayList<>();
+    for (Workspace workspace : pager) {
+      names.add(workspace.getName());
+    }
+
+    assertEquals(Arrays.asList("w1", "w2", "w3", "w4", "w5"), names);
+    assertEquals(3, pager.getPagesFetched());
+    assertEquals(3, server.getRequestCount());
+
+    RecordedRequest first = server.takeRequest();
+    assertTrue(first.getPath().startsWith("/v1/workspaces?"));
+    assertTrue(first.getPath().contains("page_limit=2"));
+    assertFalse(first.getPath().contains("cursor="));
+    assertTrue(server.takeRequest().getPath().contains("cursor=next-1"));
+    assertTrue(server.takeRequest().getPath().contains("cursor=next-2"));
+  }
+
+  private static Map<String, Object> workspacePage(String nextCursor, String... names) {
+    List<Map<String, Object>> workspaces = new ArrayList<>();
+    for (String name : names) {
+      Map<String, Object> workspace = new HashMap<>();
+      workspace.put("name", name);
+      workspace.put("language", "en");
+      workspaces.add(workspace);
+    }
+    Map<String, Object> pagination = new HashMap<>();
+    pagination.put("refresh_url", "/v1/workspaces");
+    if (nextCursor != null) {
+      pagination.put("next_cursor", nextCursor);
+    }
+    Map<String, Object> page = new HashMap<>();
+    page.put("workspaces", workspaces);
+    page.put("pagination", pagination);
+    return page;
+  }
 }
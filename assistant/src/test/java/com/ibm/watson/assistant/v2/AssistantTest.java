@@ -32,6 +32,7 @@ import com.ibm.watson.assistant.v2.model.RuntimeEntity;
 import com.ibm.watson.assistant.v2.model.RuntimeIntent;
 import com.ibm.watson.assistant.v2.model.SessionResponse;
 import com.ibm.watson.common.WatsonServiceUnitTest;
+import com.ibm.watson.common.http.SharedTransport;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.Before;
@@ -46,6 +47,7 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -377,4 +379,17 @@ public class AssistantTest extends WatsonServiceUnitTest {
 
     assertEquals(DELETE_SESSION_PATH, request.getPath());
   }
+
+  @Test
+  public void testSharedTransport() {
+    BasicAuthConfig authConfig = new BasicAuthConfig.Builder()
+        .username("")
+        .password("")
+        .build();
+    Assistant other = new Assistant(VERSION, authConfig);
+
+    assertTrue(SharedTransport.getInstance().isShared(service.getClient()));
+    assertTrue(SharedTransport.getInstance().isShared(other.getClient()));
+    assertSame(service.getClient().connectionPool(), other.getClient().connectionPool());
+  }
 }
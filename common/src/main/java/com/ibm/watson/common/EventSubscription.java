@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the events of a WebSocket connection to a Reactive Streams {@link Subscriber}, as the subscriber requests
+ * them.<br>
+ * <br>
+ * The WebSocket listener hands every event to {@link #offer(Object)}. Events wait in a buffer until the subscriber has
+ * requested them; once the buffer is full, {@code offer} blocks the listener's thread, which stops reading from the
+ * socket, so TCP flow control slows the service down to the pace of the subscriber instead of events piling up in
+ * memory. Events are delivered on the listener's thread, or on the subscriber's thread when it requests events which
+ * are already buffered, one at a time.<br>
+ * <br>
+ * When the subscriber cancels, {@code offer} returns false and the handlers added with {@link #onCancel(Runnable)}
+ * run, for example to close the connection.
+ *
+ * @param <T> the type of the events
+ */
+public class EventSubscription<T> implements Subscription {
+  private static final Logger LOG = Logger.getLogger(EventSubscription.class.getName());
+
+  private final Subscriber<? super T> subscriber;
+  private final int bufferSize;
+  private final Queue<T> buffer = new ArrayDeque<>();
+  private List<Runnable> cancelHandlers = new ArrayList<>();
+  private long requested;
+  private boolean emitting;
+  private boolean cancelled;
+  private boolean completed;
+  private Throwable failure;
+
+  /**
+   * Instantiates a new event subscription.
+   *
+   * @param subscriber the subscriber
+   * @param bufferSize the number of events which are buffered before {@link #offer(Object)} blocks
+   */
+  public EventSubscription(Subscriber<? super T> subscriber, int bufferSize) {
+    Validator.notNull(subscriber, "subscriber cannot be null");
+    Validator.isTrue(bufferSize > 0, "bufferSize must be greater than 0");
+    this.subscriber = subscriber;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Hands an event to the subscriber, blocking while the buffer is full.
+   *
+   * @param event the event
+   * @return true if the event was accepted, false if the subscription was cancelled or has ended
+   */
+  public boolean offer(T event) {
+    Validator.notNull(event, "event cannot be null");
+    synchronized (this) {
+      try {
+        while (!isOver() && buffer.size() >= bufferSize) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      if (isOver()) {
+        return false;
+      }
+      buffer.add(event);
+    }
+    drain();
+    return true;
+  }
+
+  /**
+   * Completes the subscription once the buffered events have been delivered.
+   */
+  public void complete() {
+    synchronized (this) {
+      if (isOver()) {
+        return;
+      }
+      completed = true;
+    }
+    drain();
+  }
+
+  /**
+   * Fails the subscription once the buffered events have been delivered.
+   *
+   * @param cause the failure
+   */
+  public void fail(Throwable cause) {
+    Validator.notNull(cause, "cause cannot be null");
+    synchronized (this) {
+      if (isOver()) {
+        return;
+      }
+      failure = cause;
+    }
+    drain();
+  }
+
+  /**
+   * Adds a handler which runs when the subscriber cancels, or at once if it has already cancelled.
+   *
+   * @param handler the handler
+   */
+  public void onCancel(Runnable handler) {
+    Validator.notNull(handler, "handler cannot be null");
+    synchronized (this) {
+      if (!cancelled) {
+        cancelHandlers.add(handler);
+        return;
+      }
+    }
+    run(handler);
+  }
+
+  /**
+   * Checks whether the subscriber has cancelled.
+   *
+   * @return true if the subscriber has cancelled
+   */
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.reactivestreams.Subscription#request(long)
+   */
+  @Override
+  public void request(long n) {
+    if (n <= 0) {
+      reject();
+      return;
+    }
+    synchronized (this) {
+      requested += n;
+      if (requested < 0) {
+        requested = Long.MAX_VALUE;
+      }
+    }
+    drain();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.reactivestreams.Subscription#cancel()
+   */
+  @Override
+  public void cancel() {
+    List<Runnable> handlers;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      buffer.clear();
+      handlers = cancelHandlers;
+      cancelHandlers = null;
+      notifyAll();
+    }
+    for (Runnable handler : handlers) {
+      run(handler);
+    }
+  }
+
+  /**
+   * Ends the subscription with an error after a non-positive request, as the Reactive Streams specification requires
+   * (rule 3.9). The events which are not delivered yet are dropped and the cancel handlers run, since the subscriber
+   * will not receive anything else; the error itself is delivered by {@link #drain()}, so it never overlaps an
+   * {@code onNext} call on another thread (rule 1.3).
+   */
+  private void reject() {
+    List<Runnable> handlers;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      buffer.clear();
+      completed = false;
+      failure = new IllegalArgumentException("The number of requested events must be positive");
+      handlers = cancelHandlers;
+      cancelHandlers = new ArrayList<>();
+      notifyAll();
+    }
+    for (Runnable handler : handlers) {
+      run(handler);
+    }
+    drain();
+  }
+
+  /**
+   * Delivers the buffered events the subscriber has requested, and the end of the subscription once the buffer is
+   * empty. Only one thread delivers at a time; a thread which finds another one delivering leaves its events to it.
+   */
+  private void drain() {
+    synchronized (this) {
+      if (emitting) {
+        return;
+      }
+      emitting = true;
+    }
+    while (true) {
+      T event = null;
+      Throwable end = null;
+      synchronized (this) {
+        if (cancelled) {
+          emitting = false;
+          return;
+        }
+        if (!buffer.isEmpty() && requested > 0) {
+          event = buffer.poll();
+          if (requested != Long.MAX_VALUE) {
+            requested--;
+          }
+          notifyAll();
+        } else if (buffer.isEmpty() && (completed || failure != null)) {
+          end = failure;
+          // Nothing is delivered after the end, and offer stops waiting.
+          cancelled = true;
+          cancelHandlers = null;
+          notifyAll();
+        } else {
+          emitting = false;
+          return;
+        }
+      }
+      if (event != null) {
+        subscriber.onNext(event);
+      } else if (end != null) {
+        subscriber.onError(end);
+        return;
+      } else {
+        subscriber.onComplete();
+        return;
+      }
+    }
+  }
+
+  private boolean isOver() {
+    return cancelled || completed || failure != null;
+  }
+
+  private static void run(Runnable handler) {
+    try {
+      handler.run();
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "A cancel handler of an EventSubscription failed", e);
+    }
+  }
+}
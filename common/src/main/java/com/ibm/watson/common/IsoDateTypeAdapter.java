@@ -0,0 +1,287 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.ibm.cloud.sdk.core.util.DateDeserializer;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Reads and writes the {@link Date} fields of the models without {@link SimpleDateFormat}. It is registered with a
+ * {@link com.google.gson.annotations.JsonAdapter} annotation on each date field.<br>
+ * <br>
+ * The timestamps the services return, such as {@code 2019-03-01T12:30:45.123Z}, {@code 2019-03-01T12:30:45Z} and
+ * {@code 2019-03-01T12:30:45+0100}, are parsed directly from their characters, as are numeric timestamps in seconds or
+ * milliseconds. Any other value, for example a time without a time zone, or a field out of range, is parsed by
+ * {@link DateDeserializer} as before, so every value results in the same date as with the default adapter of the
+ * SDK.<br>
+ * <br>
+ * Dates are written as {@code yyyy-MM-dd'T'HH:mm:ss.SSS} in the default time zone, the same as the default adapter.
+ */
+public class IsoDateTypeAdapter extends TypeAdapter<Date> {
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+  // Dates before the first full year of the Gregorian calendar, and after 9999, are left to the default adapter.
+  private static final int MIN_YEAR = 1583;
+  private static final int MAX_YEAR = 9999;
+
+  // Numbers below this are a time in seconds, the others a time in milliseconds.
+  private static final long MIN_MILLIS = 100000000000L;
+  private static final int MAX_NUMBER_LENGTH = 18;
+
+  private static final long NOT_PARSED = Long.MIN_VALUE;
+
+  private final TimeZone zone = TimeZone.getDefault();
+  private DateDeserializer deserializer;
+
+  /*
+   * (non-Javadoc)
+   * @see com.google.gson.TypeAdapter#read(com.google.gson.stream.JsonReader)
+   */
+  @Override
+  public Date read(JsonReader in) throws IOException {
+    JsonToken token = in.peek();
+    if (token == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+      return deserializer().deserialize(new JsonParser().parse(in), Date.class, null);
+    }
+    return parse(in.nextString());
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.google.gson.TypeAdapter#write(com.google.gson.stream.JsonWriter, java.lang.Object)
+   */
+  @Override
+  public void write(JsonWriter out, Date value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.value(format(value));
+  }
+
+  /**
+   * Parses a date.
+   *
+   * @param value the value of the date
+   * @return the date, or null if the value is empty or cannot be parsed
+   */
+  Date parse(String value) {
+    if (value.isEmpty()) {
+      return null;
+    }
+    long millis = parseNumber(value);
+    if (millis == NOT_PARSED) {
+      millis = parseTimestamp(value);
+    }
+    if (millis == NOT_PARSED) {
+      return deserializer().deserialize(new JsonPrimitive(value), Date.class, null);
+    }
+    return new Date(millis);
+  }
+
+  /**
+   * Formats a date as {@code yyyy-MM-dd'T'HH:mm:ss.SSS} in the default time zone.
+   *
+   * @param date the date
+   * @return the formatted date
+   */
+  String format(Date date) {
+    long time = date.getTime();
+    long local = time + zone.getOffset(time);
+    long days = floorDiv(local, MILLIS_PER_DAY);
+    int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+
+    // Converts the days since 1970-01-01 to a date in the proleptic Gregorian calendar.
+    long z = days + 719468;
+    long era = floorDiv(z, 146097);
+    int dayOfEra = (int) (z - era * 146097);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    if (year < MIN_YEAR || year > MAX_YEAR) {
+      SimpleDateFormat format = new SimpleDateFormat(DateDeserializer.DATE_UTC);
+      format.setTimeZone(zone);
+      return format.format(date);
+    }
+
+    char[] chars = new char[23];
+    put(chars, 0, (int) year, 4);
+    chars[4] = '-';
+    put(chars, 5, month, 2);
+    chars[7] = '-';
+    put(chars, 8, day, 2);
+    chars[10] = 'T';
+    put(chars, 11, millisOfDay / 3600000, 2);
+    chars[13] = ':';
+    put(chars, 14, millisOfDay / 60000 % 60, 2);
+    chars[16] = ':';
+    put(chars, 17, millisOfDay / 1000 % 60, 2);
+    chars[19] = '.';
+    put(chars, 20, millisOfDay % 1000, 3);
+    return new String(chars);
+  }
+
+  /**
+   * Parses a timestamp in seconds or milliseconds since 1970-01-01T00:00:00Z.
+   *
+   * @param value the value
+   * @return the time in milliseconds, or {@link #NOT_PARSED} if the value is not a number of up to 18 digits
+   */
+  private static long parseNumber(String value) {
+    if (value.length() > MAX_NUMBER_LENGTH) {
+      return NOT_PARSED;
+    }
+    long number = 0;
+    for (int i = 0; i < value.length(); i++) {
+      int digit = digit(value, i);
+      if (digit < 0) {
+        return NOT_PARSED;
+      }
+      number = number * 10 + digit;
+    }
+    return number < MIN_MILLIS ? number * 1000 : number;
+  }
+
+  /**
+   * Parses a timestamp with a time zone: {@code yyyy-MM-dd'T'HH:mm:ss.SSSZ}, {@code yyyy-MM-dd'T'HH:mm:ssZ} or
+   * {@code yyyy-MM-dd'T'HH:mm:ss+hhmm}, where Z is the letter.
+   *
+   * @param value the value
+   * @return the time in milliseconds, or {@link #NOT_PARSED} if the value has another format or a field is out of
+   *         range
+   */
+  private static long parseTimestamp(String value) {
+    int length = value.length();
+    if ((length != 20 && length != 24) || value.charAt(4) != '-' || value.charAt(7) != '-'
+        || value.charAt(10) != 'T' || value.charAt(13) != ':' || value.charAt(16) != ':') {
+      return NOT_PARSED;
+    }
+    int year = number(value, 0, 4);
+    int month = number(value, 5, 2);
+    int day = number(value, 8, 2);
+    int hour = number(value, 11, 2);
+    int minute = number(value, 14, 2);
+    int second = number(value, 17, 2);
+    if (year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+        || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return NOT_PARSED;
+    }
+
+    int millis = 0;
+    int offset = 0;
+    char separator = value.charAt(19);
+    if (length == 20) {
+      if (separator != 'Z') {
+        return NOT_PARSED;
+      }
+    } else if (separator == '.' && value.charAt(23) == 'Z') {
+      millis = number(value, 20, 3);
+      if (millis < 0) {
+        return NOT_PARSED;
+      }
+    } else if (separator == '+' || separator == '-') {
+      int offsetHours = number(value, 20, 2);
+      int offsetMinutes = number(value, 22, 2);
+      if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+        return NOT_PARSED;
+      }
+      offset = (offsetHours * 60 + offsetMinutes) * 60000;
+      if (separator == '-') {
+        offset = -offset;
+      }
+    } else {
+      return NOT_PARSED;
+    }
+
+    // Converts the date in the proleptic Gregorian calendar to the days since 1970-01-01.
+    int y = month <= 2 ? year - 1 : year;
+    int era = y / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    long days = era * 146097L + dayOfEra - 719468;
+    return days * MILLIS_PER_DAY + ((hour * 60 + minute) * 60 + second) * 1000L + millis - offset;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    if (month == 2) {
+      boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+      return leap ? 29 : 28;
+    }
+    return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+  }
+
+  /**
+   * Reads a number of ASCII digits.
+   *
+   * @param value the value
+   * @param start the index of the first digit
+   * @param count the number of digits
+   * @return the number, or -1 if a character is not a digit
+   */
+  private static int number(String value, int start, int count) {
+    int number = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = digit(value, i);
+      if (digit < 0) {
+        return -1;
+      }
+      number = number * 10 + digit;
+    }
+    return number;
+  }
+
+  private static int digit(String value, int index) {
+    char c = value.charAt(index);
+    return (c >= '0' && c <= '9') ? c - '0' : -1;
+  }
+
+  private static void put(char[] chars, int start, int number, int count) {
+    for (int i = start + count - 1; i >= start; i--) {
+      chars[i] = (char) ('0' + number % 10);
+      number /= 10;
+    }
+  }
+
+  private static long floorDiv(long x, long y) {
+    long quotient = x / y;
+    if ((x % y != 0) && ((x < 0) != (y < 0))) {
+      quotient--;
+    }
+    return quotient;
+  }
+
+  private synchronized DateDeserializer deserializer() {
+    if (deserializer == null) {
+      deserializer = new DateDeserializer();
+    }
+    return deserializer;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.http.Response;
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.http.ServiceCallback;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Iterates over the items of a paginated list operation, following the cursor of each page to the next one.<br>
+ * <br>
+ * Pages are requested lazily: the first page is requested when iteration starts. As soon as a page has arrived the
+ * request for the page after it is sent in the background with {@link ServiceCall#enqueue(ServiceCallback)}, so the
+ * next page is usually available by the time the items of the current page have been consumed. At most one page is
+ * requested ahead. The page size is the page limit of the list options.<br>
+ * <br>
+ * Every call to {@link #iterator()} starts again from the first page. Errors of a page request are thrown from
+ * {@link Iterator#hasNext()}.
+ *
+ * @param <P> the type of a page, for example a collection model
+ * @param <T> the type of the items of a page
+ */
+public abstract class Pager<P, T> implements Iterable<T> {
+  private final AtomicLong pagesFetched = new AtomicLong();
+
+  /**
+   * Creates the call which requests a page.
+   *
+   * @param cursor the cursor of the page, or null for the first page
+   * @return the call
+   */
+  protected abstract ServiceCall<P> call(String cursor);
+
+  /**
+   * Gets the items of a page.
+   *
+   * @param page the page
+   * @return the items, or null if the page has none
+   */
+  protected abstract List<T> items(P page);
+
+  /**
+   * Gets the cursor of the page after a page.
+   *
+   * @param page the page
+   * @return the cursor, or null if it is the last page
+   */
+  protected abstract String nextCursor(P page);
+
+  /**
+   * Gets the number of pages received by all iterators of this pager.
+   *
+   * @return the number of pages
+   */
+  public long getPagesFetched() {
+    return pagesFetched.get();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new PageIterator();
+  }
+
+  /**
+   * Iterates over the items of the pages, requesting each page as soon as the page before it has arrived.
+   */
+  private final class PageIterator implements Iterator<T> {
+    private Iterator<T> items = Collections.<T>emptyIterator();
+    private PendingPage pending;
+
+    private PageIterator() {
+      pending = new PendingPage(call(null));
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!items.hasNext()) {
+        if (pending == null) {
+          return false;
+        }
+        P page = pending.get();
+        pagesFetched.incrementAndGet();
+        String cursor = nextCursor(page);
+        pending = (cursor != null) ? new PendingPage(call(cursor)) : null;
+        List<T> pageItems = items(page);
+        items = (pageItems != null) ? pageItems.iterator() : Collections.<T>emptyIterator();
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return items.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A page which has been requested in the background.
+   */
+  private final class PendingPage implements ServiceCallback<P> {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private P page;
+    private Exception error;
+
+    private PendingPage(ServiceCall<P> call) {
+      call.enqueue(this);
+    }
+
+    @Override
+    public void onResponse(Response<P> response) {
+      page = response.getResult();
+      done.countDown();
+    }
+
+    @Override
+    public void onFailure(Exception e) {
+      error = e;
+      done.countDown();
+    }
+
+    /**
+     * Waits for the page.
+     *
+     * @return the page
+     */
+    private P get() {
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for the next page", e);
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error != null) {
+        throw new RuntimeException(error);
+      }
+      return page;
+    }
+  }
+}
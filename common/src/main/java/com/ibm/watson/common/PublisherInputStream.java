@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * An {@link InputStream} which reads the buffers of a Reactive Streams {@link Publisher}, for example audio to be sent
+ * to a service.<br>
+ * <br>
+ * The stream subscribes when it is first read, and requests a new buffer from the publisher each time it has read one,
+ * keeping at most {@code prefetch} buffers requested ahead. Whoever reads the stream therefore sets the pace of the
+ * publisher: a reader which waits for the network to drain, such as the audio upload of a WebSocket recognition, slows
+ * the publisher down by the same amount. Closing the stream cancels the subscription, and a reader which is waiting
+ * for a buffer then reaches the end of the stream.<br>
+ * <br>
+ * The buffers are read from their position to their limit without being changed, and are not kept after they have
+ * been read.
+ */
+public class PublisherInputStream extends InputStream {
+  private static final int DEFAULT_PREFETCH = 2;
+
+  private final Publisher<ByteBuffer> publisher;
+  private final int prefetch;
+  private final Queue<ByteBuffer> buffers = new ArrayDeque<>();
+  private ByteBuffer current;
+  private Subscription subscription;
+  private boolean subscribed;
+  private boolean completed;
+  private boolean closed;
+  private Throwable failure;
+
+  /**
+   * Instantiates a new publisher input stream which requests up to two buffers ahead.
+   *
+   * @param publisher the publisher of the buffers
+   */
+  public PublisherInputStream(Publisher<ByteBuffer> publisher) {
+    this(publisher, DEFAULT_PREFETCH);
+  }
+
+  /**
+   * Instantiates a new publisher input stream.
+   *
+   * @param publisher the publisher of the buffers
+   * @param prefetch the number of buffers requested ahead of the reader
+   */
+  public PublisherInputStream(Publisher<ByteBuffer> publisher, int prefetch) {
+    Validator.notNull(publisher, "publisher cannot be null");
+    Validator.isTrue(prefetch > 0, "prefetch must be greater than 0");
+    this.publisher = publisher;
+    this.prefetch = prefetch;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.InputStream#read()
+   */
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return (read(single, 0, 1) < 0) ? -1 : (single[0] & 0xff);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.InputStream#read(byte[], int, int)
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    ByteBuffer buffer = nextBuffer();
+    if (buffer == null) {
+      return -1;
+    }
+    int count = Math.min(len, buffer.remaining());
+    buffer.get(b, off, count);
+    return count;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.InputStream#available()
+   */
+  @Override
+  public synchronized int available() {
+    return (current != null) ? current.remaining() : 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.InputStream#close()
+   */
+  @Override
+  public void close() {
+    Subscription toCancel;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      buffers.clear();
+      current = null;
+      toCancel = subscription;
+      notifyAll();
+    }
+    if (toCancel != null) {
+      toCancel.cancel();
+    }
+  }
+
+  /**
+   * Gets the buffer to read from, waiting for the publisher if every buffer has been read.
+   *
+   * @return the buffer, or null at the end of the stream or if the stream was closed
+   * @throws IOException if the publisher failed or the reading thread was interrupted
+   */
+  private ByteBuffer nextBuffer() throws IOException {
+    boolean subscribe = false;
+    Subscription toRequest = null;
+    ByteBuffer buffer;
+    synchronized (this) {
+      if (!subscribed) {
+        subscribed = true;
+        subscribe = true;
+      }
+    }
+    if (subscribe) {
+      publisher.subscribe(new BufferSubscriber());
+    }
+    synchronized (this) {
+      if (current != null && !current.hasRemaining()) {
+        current = null;
+        toRequest = subscription;
+      }
+      try {
+        while (current == null && buffers.isEmpty() && !completed && failure == null && !closed) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the publisher");
+      }
+      if (closed) {
+        return null;
+      }
+      if (current == null) {
+        current = buffers.poll();
+      }
+      buffer = current;
+      if (buffer == null && failure != null) {
+        throw new IOException(failure.getMessage(), failure);
+      }
+    }
+    if (toRequest != null) {
+      toRequest.request(1);
+    }
+    return buffer;
+  }
+
+  /**
+   * Receives the buffers of the publisher.
+   */
+  private final class BufferSubscriber implements Subscriber<ByteBuffer> {
+
+    /*
+     * (non-Javadoc)
+     * @see org.reactivestreams.Subscriber#onSubscribe(org.reactivestreams.Subscription)
+     */
+    @Override
+    public void onSubscribe(Subscription s) {
+      boolean cancel;
+      synchronized (PublisherInputStream.this) {
+        cancel = closed || subscription != null;
+        if (!cancel) {
+          subscription = s;
+        }
+      }
+      if (cancel) {
+        s.cancel();
+      } else {
+        s.request(prefetch);
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.reactivestreams.Subscriber#onNext(java.lang.Object)
+     */
+    @Override
+    public void onNext(ByteBuffer buffer) {
+      Subscription toRequest = null;
+      synchronized (PublisherInputStream.this) {
+        if (closed) {
+          return;
+        }
+        if (buffer.hasRemaining()) {
+          buffers.add(buffer.duplicate());
+          PublisherInputStream.this.notifyAll();
+        } else {
+          // An empty buffer does not count towards the buffers requested ahead.
+          toRequest = subscription;
+        }
+      }
+      if (toRequest != null) {
+        toRequest.request(1);
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.reactivestreams.Subscriber#onError(java.lang.Throwable)
+     */
+    @Override
+    public void onError(Throwable t) {
+      synchronized (PublisherInputStream.this) {
+        failure = t;
+        PublisherInputStream.this.notifyAll();
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.reactivestreams.Subscriber#onComplete()
+     */
+    @Override
+    public void onComplete() {
+      synchronized (PublisherInputStream.this) {
+        completed = true;
+        PublisherInputStream.this.notifyAll();
+      }
+    }
+  }
+}
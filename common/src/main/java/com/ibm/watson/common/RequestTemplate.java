@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.http.HttpHeaders;
+import com.ibm.cloud.sdk.core.http.RequestBuilder;
+import com.ibm.cloud.sdk.core.http.ResponseConverter;
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.HttpUrl;
+
+/**
+ * The parts of an operation's request which are the same for every call, built once and shared by all clients of a
+ * service.<br>
+ * <br>
+ * A template holds the HTTP method, the path segments, the SDK analytics, User-Agent and Accept headers, and the
+ * response converter of an operation. The endpoint of the most recent call is parsed once and the path segments before
+ * the first path parameter are appended to it, so repeated calls to the same endpoint only encode the path parameters.
+ * Templates are immutable apart from that cache and are safe to use from many threads.
+ *
+ * @param <T> the type of the response
+ */
+public final class RequestTemplate<T> {
+  private static final String DELETE = "DELETE";
+  private static final String GET = "GET";
+  private static final String HEAD = "HEAD";
+  private static final String PATCH = "PATCH";
+  private static final String POST = "POST";
+  private static final String PUT = "PUT";
+
+  private final String method;
+  private final String[] pathSegments;
+  private final Object[] headers;
+  private final ResponseConverter<T> responseConverter;
+  private volatile ResolvedEndPoint resolved;
+
+  /**
+   * Builder.
+   *
+   * @param <T> the type of the response
+   */
+  public static class Builder<T> {
+    private String method;
+    private String serviceName;
+    private String serviceVersion;
+    private String operationId;
+    private String[] pathSegments;
+    private String accept;
+    private ResponseConverter<T> responseConverter;
+
+    /**
+     * Instantiates a new builder with required properties.
+     *
+     * @param method the HTTP method, for example "POST"
+     * @param serviceName the service name sent in the SDK analytics header
+     * @param serviceVersion the service version sent in the SDK analytics header
+     * @param operationId the operation id sent in the SDK analytics header
+     */
+    public Builder(String method, String serviceName, String serviceVersion, String operationId) {
+      this.method = method;
+      this.serviceName = serviceName;
+      this.serviceVersion = serviceVersion;
+      this.operationId = operationId;
+    }
+
+    /**
+     * Builds a RequestTemplate.
+     *
+     * @return the requestTemplate
+     */
+    public RequestTemplate<T> build() {
+      return new RequestTemplate<>(this);
+    }
+
+    /**
+     * Set the path segments. A path parameter is inserted after each segment, in the order they are passed to
+     * {@link RequestTemplate#newRequest(String, String...)}.
+     *
+     * @param pathSegments the path segments
+     * @return the RequestTemplate builder
+     */
+    public Builder<T> pathSegments(String... pathSegments) {
+      this.pathSegments = pathSegments;
+      return this;
+    }
+
+    /**
+     * Set the value of the Accept header.
+     *
+     * @param accept the Accept header value
+     * @return the RequestTemplate builder
+     */
+    public Builder<T> accept(String accept) {
+      this.accept = accept;
+      return this;
+    }
+
+    /**
+     * Set the converter for the response.
+     *
+     * @param responseConverter the response converter
+     * @return the RequestTemplate builder
+     */
+    public Builder<T> responseConverter(ResponseConverter<T> responseConverter) {
+      this.responseConverter = responseConverter;
+      return this;
+    }
+  }
+
+  private RequestTemplate(Builder<T> builder) {
+    Validator.isTrue(isMethod(builder.method), "method must be one of DELETE, GET, HEAD, PATCH, POST or PUT");
+    Validator.notEmpty(builder.serviceName, "serviceName cannot be empty");
+    Validator.notEmpty(builder.operationId, "operationId cannot be empty");
+    Validator.notNull(builder.pathSegments, "pathSegments cannot be null");
+    Validator.isTrue(builder.pathSegments.length > 0, "pathSegments cannot be empty");
+    Validator.notNull(builder.responseConverter, "responseConverter cannot be null");
+    method = builder.method;
+    pathSegments = builder.pathSegments.clone();
+    responseConverter = builder.responseConverter;
+
+    String analytics = SdkCommon.getSdkAnalyticsHeader(builder.serviceName, builder.serviceVersion,
+        builder.operationId);
+    if (builder.accept != null) {
+      headers = new Object[] {
+          WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS, analytics,
+          HttpHeaders.USER_AGENT, SdkCommon.getUserAgent(),
+          HttpHeaders.ACCEPT, builder.accept };
+    } else {
+      headers = new Object[] {
+          WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS, analytics,
+          HttpHeaders.USER_AGENT, SdkCommon.getUserAgent() };
+    }
+  }
+
+  /**
+   * Gets the HTTP method.
+   *
+   * @return the HTTP method
+   */
+  public String method() {
+    return method;
+  }
+
+  /**
+   * Gets the response converter.
+   *
+   * @return the response converter
+   */
+  public ResponseConverter<T> responseConverter() {
+    return responseConverter;
+  }
+
+  /**
+   * Creates a request builder for a call of the operation, with the URL and the fixed headers already set.
+   *
+   * @param endPoint the service endpoint
+   * @param pathParameters the path parameters, one for each path segment except possibly the last one
+   * @return the request builder
+   */
+  public RequestBuilder newRequest(String endPoint, String... pathParameters) {
+    Validator.isTrue(pathParameters.length <= pathSegments.length, "too many path parameters");
+    HttpUrl url = resolve(endPoint);
+    if (pathSegments.length > 1 || pathParameters.length > 0) {
+      HttpUrl.Builder urlBuilder = url.newBuilder();
+      for (int i = 0; i < pathSegments.length; i++) {
+        if (i > 0) {
+          urlBuilder.addPathSegments(pathSegments[i]);
+        }
+        if (i < pathParameters.length) {
+          urlBuilder.addPathSegment(pathParameters[i]);
+        }
+      }
+      url = urlBuilder.build();
+    }
+
+    RequestBuilder builder;
+    switch (method) {
+      case DELETE:
+        builder = RequestBuilder.delete(url);
+        break;
+      case GET:
+        builder = RequestBuilder.get(url);
+        break;
+      case HEAD:
+        builder = RequestBuilder.head(url);
+        break;
+      case PATCH:
+        builder = RequestBuilder.patch(url);
+        break;
+      case PUT:
+        builder = RequestBuilder.put(url);
+        break;
+      default:
+        builder = RequestBuilder.post(url);
+        break;
+    }
+    return builder.header(headers);
+  }
+
+  /**
+   * Gets the endpoint with the path segments before the first path parameter appended, parsing the endpoint only
+   * when it differs from the one of the previous call.
+   *
+   * @param endPoint the service endpoint
+   * @return the URL
+   */
+  private HttpUrl resolve(String endPoint) {
+    ResolvedEndPoint current = resolved;
+    if (current != null && current.endPoint.equals(endPoint)) {
+      return current.url;
+    }
+    HttpUrl base = HttpUrl.parse(endPoint);
+    Validator.notNull(base, "endPoint is not a valid URL: " + endPoint);
+    HttpUrl url = base.newBuilder().addPathSegments(pathSegments[0]).build();
+    resolved = new ResolvedEndPoint(endPoint, url);
+    return url;
+  }
+
+  private static boolean isMethod(String method) {
+    return DELETE.equals(method) || GET.equals(method) || HEAD.equals(method) || PATCH.equals(method)
+        || POST.equals(method) || PUT.equals(method);
+  }
+
+  /**
+   * An endpoint together with its parsed URL.
+   */
+  private static final class ResolvedEndPoint {
+    private final String endPoint;
+    private final HttpUrl url;
+
+    private ResolvedEndPoint(String endPoint, HttpUrl url) {
+      this.endPoint = endPoint;
+      this.url = url;
+    }
+  }
+}
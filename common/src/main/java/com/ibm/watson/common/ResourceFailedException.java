@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+/**
+ * Thrown when a resource which a {@link ResourceWaiter} is waiting for reaches a failed state, for example a custom
+ * model whose training failed.
+ */
+public class ResourceFailedException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final transient Object resource;
+
+  /**
+   * Instantiates a new exception.
+   *
+   * @param message the message
+   * @param resource the resource in its failed state
+   */
+  public ResourceFailedException(String message, Object resource) {
+    super(message);
+    this.resource = resource;
+  }
+
+  /**
+   * Gets the resource in its failed state, which usually describes why it failed.
+   *
+   * @return the resource
+   */
+  public Object getResource() {
+    return resource;
+  }
+}
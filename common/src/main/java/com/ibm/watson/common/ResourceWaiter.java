@@ -0,0 +1,366 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.http.Response;
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.http.ServiceCallback;
+import com.ibm.cloud.sdk.core.service.exception.ServiceResponseException;
+import com.ibm.cloud.sdk.core.util.Validator;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Waits for resources which the services create or train in the background, such as custom models, classifiers,
+ * translated documents and batches, without a sleep-and-poll loop per resource.<br>
+ * <br>
+ * Every wait is a small task on a shared scheduler. A poll is sent with {@link ServiceCall#enqueue}, so no thread is
+ * blocked while the service answers, and a couple of scheduler threads can serve thousands of waits. Between polls the
+ * delay grows with a jittered exponential backoff described by a {@link WaitPolicy}, so long trainings are polled
+ * rarely and waits which started together spread out over time.<br>
+ * <br>
+ * A wait completes its {@link ServiceFuture} with the resource once {@link Poll#state} reports it as
+ * {@link State#DONE}, and fails it with a {@link ResourceFailedException} if the resource reports
+ * {@link State#FAILED}. Polls which fail with a network error, a 429 or a 5xx status are retried with the next delay;
+ * other errors, for example a 404 because the resource was deleted, fail the wait. Cancelling the future stops the
+ * wait.
+ *
+ * <pre>
+ * ServiceFuture&lt;Classifier&gt; future = ClassifierWaiter.classifier(ResourceWaiter.getDefault(), service,
+ *     classifier.getClassifierId());
+ * </pre>
+ */
+public final class ResourceWaiter implements Closeable {
+  private static final Logger LOG = Logger.getLogger(ResourceWaiter.class.getName());
+
+  private static final String WAITER_THREAD = "ResourceWaiter-";
+  private static final int DEFAULT_THREADS = 2;
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int SERVER_ERROR = 500;
+
+  private static ResourceWaiter defaultInstance;
+
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final Set<Wait<?>> waits = Collections.newSetFromMap(new ConcurrentHashMap<Wait<?>, Boolean>());
+
+  private final AtomicLong pollCount = new AtomicLong();
+  private final AtomicLong requestsSaved = new AtomicLong();
+
+  /**
+   * The state of a resource.
+   */
+  public enum State {
+    /** The resource is still being created or trained. */
+    PENDING,
+    /** The resource is ready. */
+    DONE,
+    /** The resource failed and will not become ready. */
+    FAILED
+  }
+
+  /**
+   * Fetches the current state of a resource. The {@code toString} of the poll names the resource in error messages.
+   *
+   * @param <T> the type of the resource
+   */
+  public interface Poll<T> {
+
+    /**
+     * Creates the call which fetches the resource. A new call is created for every poll.
+     *
+     * @return the call
+     */
+    ServiceCall<T> call();
+
+    /**
+     * Gets the state of the resource.
+     *
+     * @param resource the resource returned by the call
+     * @return the state
+     */
+    State state(T resource);
+  }
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private int threads = DEFAULT_THREADS;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds a ResourceWaiter.
+     *
+     * @return the resourceWaiter
+     */
+    public ResourceWaiter build() {
+      return new ResourceWaiter(this);
+    }
+
+    /**
+     * Set the number of scheduler threads. The threads only send the polls and check the state of the resources, so
+     * the default of 2 is enough for thousands of waits.
+     *
+     * @param threads the number of threads
+     * @return the ResourceWaiter builder
+     */
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+  }
+
+  private ResourceWaiter(Builder builder) {
+    Validator.isTrue(builder.threads > 0, "threads must be greater than 0");
+    scheduler = new ScheduledThreadPoolExecutor(builder.threads, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, WAITER_THREAD + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Gets the waiter shared by all services, which runs on two daemon threads and is created on first use.
+   *
+   * @return the shared waiter
+   */
+  public static synchronized ResourceWaiter getDefault() {
+    if (defaultInstance == null) {
+      defaultInstance = new Builder().build();
+    }
+    return defaultInstance;
+  }
+
+  /**
+   * Waits until a resource is ready.
+   *
+   * @param <T> the type of the resource
+   * @param poll fetches the state of the resource
+   * @param policy how often to poll
+   * @return the future of the resource, which completes once the resource is ready
+   * @throws IllegalStateException if the waiter was closed
+   */
+  public <T> ServiceFuture<T> waitFor(Poll<T> poll, WaitPolicy policy) {
+    Validator.notNull(poll, "poll cannot be null");
+    Validator.notNull(policy, "policy cannot be null");
+    if (scheduler.isShutdown()) {
+      throw new IllegalStateException("The waiter was closed");
+    }
+    final Wait<T> wait = new Wait<>(poll, policy);
+    waits.add(wait);
+    wait.future.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        wait.stop();
+      }
+    });
+    wait.schedule(policy.nextDelayNanos(0));
+    return wait.future;
+  }
+
+  /**
+   * Gets the number of waits which have not finished yet.
+   *
+   * @return the number of waits
+   */
+  public int getPendingCount() {
+    return waits.size();
+  }
+
+  /**
+   * Gets the number of polls sent.
+   *
+   * @return the number of polls
+   */
+  public long getPollCount() {
+    return pollCount.get();
+  }
+
+  /**
+   * Gets the number of polls saved by the backoff, compared with polling every finished wait at the fixed interval of
+   * its initial delay for as long as it took.
+   *
+   * @return the number of polls saved
+   */
+  public long getRequestsSaved() {
+    return requestsSaved.get();
+  }
+
+  /**
+   * Stops the scheduler and cancels the futures of the waits which are still pending. The resources themselves are
+   * not affected.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    List<Wait<?>> pending = new ArrayList<Wait<?>>(waits);
+    for (Wait<?> wait : pending) {
+      wait.future.cancel(false);
+    }
+  }
+
+  /**
+   * A wait for a single resource.
+   *
+   * @param <T> the type of the resource
+   */
+  private final class Wait<T> implements Runnable, ServiceCallback<T> {
+    private final Poll<T> poll;
+    private final WaitPolicy policy;
+    private final ServiceFuture<T> future = new ServiceFuture<>();
+    private final long startNanos = System.nanoTime();
+    private volatile ScheduledFuture<?> next;
+    private volatile long delayNanos;
+    private volatile int polls;
+
+    Wait(Poll<T> poll, WaitPolicy policy) {
+      this.poll = poll;
+      this.policy = policy;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+      if (future.isDone()) {
+        return;
+      }
+      polls++;
+      pollCount.incrementAndGet();
+      try {
+        poll.call().enqueue(this);
+      } catch (RuntimeException e) {
+        onFailure(e);
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.cloud.sdk.core.http.ServiceCallback#onResponse(com.ibm.cloud.sdk.core.http.Response)
+     */
+    @Override
+    public void onResponse(Response<T> response) {
+      T resource = response.getResult();
+      State state;
+      try {
+        state = poll.state(resource);
+      } catch (RuntimeException e) {
+        finish();
+        future.fail(e);
+        return;
+      }
+      if (state == State.DONE) {
+        finish();
+        future.complete(resource);
+      } else if (state == State.FAILED) {
+        finish();
+        future.fail(new ResourceFailedException("The " + poll + " failed", resource));
+      } else {
+        scheduleNext();
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.cloud.sdk.core.http.ServiceCallback#onFailure(java.lang.Exception)
+     */
+    @Override
+    public void onFailure(Exception e) {
+      if (e instanceof ServiceResponseException) {
+        int status = ((ServiceResponseException) e).getStatusCode();
+        if (status != TOO_MANY_REQUESTS && status < SERVER_ERROR) {
+          finish();
+          future.fail(e);
+          return;
+        }
+      }
+      LOG.log(Level.FINE, "Polling the " + poll + " failed, retrying", e);
+      scheduleNext();
+    }
+
+    private void scheduleNext() {
+      long delay = policy.nextDelayNanos(delayNanos);
+      long timeout = policy.timeoutNanos();
+      if (timeout > 0) {
+        long remaining = startNanos + timeout - System.nanoTime();
+        if (remaining <= 0) {
+          finish();
+          future.fail(new TimeoutException("The " + poll + " was not ready after "
+              + TimeUnit.NANOSECONDS.toSeconds(timeout) + " seconds"));
+          return;
+        }
+        delay = Math.min(delay, remaining);
+      }
+      schedule(delay);
+    }
+
+    void schedule(long delay) {
+      delayNanos = delay;
+      try {
+        next = scheduler.schedule(this, policy.jitter(delay), TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        future.cancel(false);
+      }
+    }
+
+    void stop() {
+      waits.remove(this);
+      ScheduledFuture<?> scheduled = next;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+    }
+
+    /**
+     * Stops tracking the wait, and counts the polls which a fixed-rate loop at the initial delay would have sent in
+     * the same time.
+     */
+    private void finish() {
+      if (!waits.remove(this)) {
+        return;
+      }
+      long naivePolls = (System.nanoTime() - startNanos) / policy.initialDelayNanos();
+      if (naivePolls > polls) {
+        requestsSaved.addAndGet(naivePolls - polls);
+      }
+    }
+  }
+}
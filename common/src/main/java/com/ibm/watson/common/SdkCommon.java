@@ -11,6 +11,15 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class SdkCommon {
+  /** The field of the {@link WatsonHttpHeaders#X_IBMCLOUD_SDK_ANALYTICS} header which holds the service name. */
+  public static final String SERVICE_NAME_FIELD = "service_name";
+
+  /** The field of the {@link WatsonHttpHeaders#X_IBMCLOUD_SDK_ANALYTICS} header which holds the service version. */
+  public static final String SERVICE_VERSION_FIELD = "service_version";
+
+  /** The field of the {@link WatsonHttpHeaders#X_IBMCLOUD_SDK_ANALYTICS} header which holds the operation id. */
+  public static final String OPERATION_ID_FIELD = "operation_id";
+
   private static final Logger LOG = Logger.getLogger(SdkCommon.class.getName());
   private static String userAgent;
 
@@ -30,7 +39,7 @@ public class SdkCommon {
     return properties.getProperty("version", "unknown-version");
   }
 
-  private static String getUserAgent() {
+  static String getUserAgent() {
     if (userAgent == null) {
       userAgent = "watson-apis-java-sdk/" + loadSdkVersion() + "; " + RequestUtils.getUserAgent();
     }
@@ -38,17 +47,50 @@ public class SdkCommon {
   }
 
   public static Map<String, String> getSdkHeaders(String serviceName, String serviceVersion, String operationId) {
-    Map<String, String> headers = new HashMap<>();
-
-    String sdkAnalyticsHeaderValue = String.format(
-        "service_name=%s;service_version=%s;operation_id=%s",
-        serviceName,
-        serviceVersion,
-        operationId
-    );
-
-    headers.put(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS, sdkAnalyticsHeaderValue);
+    Map<String, String> headers = new HashMap<>(4);
+    headers.put(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS,
+        getSdkAnalyticsHeader(serviceName, serviceVersion, operationId));
     headers.put(HttpHeaders.USER_AGENT, getUserAgent());
     return headers;
   }
+
+  /**
+   * Returns the value of the {@link WatsonHttpHeaders#X_IBMCLOUD_SDK_ANALYTICS} header of an operation.
+   *
+   * @param serviceName the service name
+   * @param serviceVersion the service version
+   * @param operationId the operation id
+   * @return the header value
+   */
+  static String getSdkAnalyticsHeader(String serviceName, String serviceVersion, String operationId) {
+    return SERVICE_NAME_FIELD + '=' + serviceName + ';' + SERVICE_VERSION_FIELD + '=' + serviceVersion + ';'
+        + OPERATION_ID_FIELD + '=' + operationId;
+  }
+
+  /**
+   * Gets a field of a {@link WatsonHttpHeaders#X_IBMCLOUD_SDK_ANALYTICS} header, which has the form
+   * {@code service_name=<name>;service_version=<version>;operation_id=<id>}.
+   *
+   * @param header the header value, or null
+   * @param field the field name, for example {@link #OPERATION_ID_FIELD}
+   * @return the field value, or null if the header is null or has no such field
+   */
+  public static String getSdkAnalyticsField(String header, String field) {
+    if (header == null) {
+      return null;
+    }
+    int start = 0;
+    while (start < header.length()) {
+      int end = header.indexOf(';', start);
+      if (end < 0) {
+        end = header.length();
+      }
+      if (header.startsWith(field, start) && start + field.length() < end
+          && header.charAt(start + field.length()) == '=') {
+        return header.substring(start + field.length() + 1, end);
+      }
+      start = end + 1;
+    }
+    return null;
+  }
 }
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The result of an operation which completes in the background, for example a recognition job which is polled until it
+ * has finished.<br>
+ * <br>
+ * The future is completed by the SDK with {@link #complete(Object)} or {@link #fail(Throwable)}. Callers either block
+ * with {@link #get()}, or add a {@link Callback} which runs on an executor of their choice once the future is done.
+ * Cancelling the future stops the background work as well, through the handlers added with
+ * {@link #onCancel(Runnable)}.
+ *
+ * @param <T> the type of the result
+ */
+public class ServiceFuture<T> implements Future<T> {
+  private static final Logger LOG = Logger.getLogger(ServiceFuture.class.getName());
+
+  /**
+   * Runs a task on the thread which completes the future.
+   */
+  private static final Executor DIRECT = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  /**
+   * Receives the outcome of a {@link ServiceFuture}.
+   *
+   * @param <T> the type of the result
+   */
+  public interface Callback<T> {
+
+    /**
+     * Called when the future completed successfully.
+     *
+     * @param result the result
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the future failed or was cancelled.
+     *
+     * @param failure the failure, a {@link CancellationException} if the future was cancelled
+     */
+    void onFailure(Throwable failure);
+  }
+
+  /**
+   * Computes a value from the result of a {@link ServiceFuture}.
+   *
+   * @param <T> the type of the result
+   * @param <R> the type of the value
+   */
+  public interface Function<T, R> {
+
+    /**
+     * Computes the value.
+     *
+     * @param result the result
+     * @return the value
+     * @throws Exception if the value cannot be computed, which fails the future of the value
+     */
+    R apply(T result) throws Exception;
+  }
+
+  /**
+   * The states of a future.
+   */
+  private enum State {
+    PENDING, SUCCEEDED, FAILED, CANCELLED
+  }
+
+  private State state = State.PENDING;
+  private T result;
+  private Throwable failure;
+  private List<Runnable> listeners = new ArrayList<>();
+  private List<Runnable> cancelHandlers = new ArrayList<>();
+
+  /**
+   * Completes the future with a result, unless it is already done.
+   *
+   * @param value the result
+   * @return true if the future was completed by this call
+   */
+  public boolean complete(T value) {
+    return finish(State.SUCCEEDED, value, null);
+  }
+
+  /**
+   * Fails the future, unless it is already done.
+   *
+   * @param cause the failure
+   * @return true if the future was failed by this call
+   */
+  public boolean fail(Throwable cause) {
+    Validator.notNull(cause, "cause cannot be null");
+    return finish(State.FAILED, null, cause);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.concurrent.Future#cancel(boolean)
+   */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    List<Runnable> handlers;
+    synchronized (this) {
+      handlers = cancelHandlers;
+    }
+    if (!finish(State.CANCELLED, null, new CancellationException())) {
+      return false;
+    }
+    for (Runnable handler : handlers) {
+      run(handler);
+    }
+    return true;
+  }
+
+  /**
+   * Adds a handler which stops the background work of the future when it is cancelled. The handler runs at once if
+   * the future is already cancelled.
+   *
+   * @param handler the handler
+   */
+  public void onCancel(Runnable handler) {
+    Validator.notNull(handler, "handler cannot be null");
+    synchronized (this) {
+      if (state == State.PENDING) {
+        cancelHandlers.add(handler);
+        return;
+      }
+    }
+    if (isCancelled()) {
+      run(handler);
+    }
+  }
+
+  /**
+   * Adds a callback which runs on the thread which completes the future, or at once if the future is already done.
+   *
+   * @param callback the callback
+   */
+  public void addCallback(Callback<? super T> callback) {
+    addCallback(callback, DIRECT);
+  }
+
+  /**
+   * Adds a callback which runs on an executor once the future is done.
+   *
+   * @param callback the callback
+   * @param executor the executor
+   */
+  public void addCallback(final Callback<? super T> callback, final Executor executor) {
+    Validator.notNull(callback, "callback cannot be null");
+    Validator.notNull(executor, "executor cannot be null");
+    Runnable listener = new Runnable() {
+      @Override
+      public void run() {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (state() == State.SUCCEEDED) {
+              callback.onSuccess(resultNow());
+            } else {
+              callback.onFailure(failureNow());
+            }
+          }
+        });
+      }
+    };
+    synchronized (this) {
+      if (state == State.PENDING) {
+        listeners.add(listener);
+        return;
+      }
+    }
+    run(listener);
+  }
+
+  /**
+   * Returns a future of a value computed from the result of this future. The function runs on the thread which
+   * completes this future. If this future fails, the returned future fails in the same way, and cancelling the returned
+   * future cancels this one.
+   *
+   * @param <R> the type of the value
+   * @param function the function which computes the value
+   * @return the future of the value
+   */
+  public <R> ServiceFuture<R> thenApply(final Function<? super T, ? extends R> function) {
+    Validator.notNull(function, "function cannot be null");
+    final ServiceFuture<R> next = new ServiceFuture<>();
+    next.onCancel(cancelHandler(this));
+    addCallback(new Callback<T>() {
+      @Override
+      public void onSuccess(T result) {
+        try {
+          next.complete(function.apply(result));
+        } catch (Exception e) {
+          next.fail(e);
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable failure) {
+        next.failWith(failure);
+      }
+    });
+    return next;
+  }
+
+  /**
+   * Returns a future which completes with the result of another future, started with the result of this future, for
+   * example a call to another service. The function runs on the thread which completes this future. If either future
+   * fails, the returned future fails in the same way, and cancelling the returned future cancels the one which is
+   * running.
+   *
+   * @param <R> the type of the result of the other future
+   * @param function the function which starts the other future
+   * @return the future of the result of the other future
+   */
+  public <R> ServiceFuture<R> thenCompose(final Function<? super T, ? extends ServiceFuture<R>> function) {
+    Validator.notNull(function, "function cannot be null");
+    final ServiceFuture<R> next = new ServiceFuture<>();
+    next.onCancel(cancelHandler(this));
+    addCallback(new Callback<T>() {
+      @Override
+      public void onSuccess(T result) {
+        ServiceFuture<R> other;
+        try {
+          other = function.apply(result);
+          Validator.notNull(other, "function cannot return null");
+        } catch (Exception e) {
+          next.fail(e);
+          return;
+        }
+        next.onCancel(cancelHandler(other));
+        other.addCallback(new Callback<R>() {
+          @Override
+          public void onSuccess(R otherResult) {
+            next.complete(otherResult);
+          }
+
+          @Override
+          public void onFailure(Throwable failure) {
+            next.failWith(failure);
+          }
+        });
+      }
+
+      @Override
+      public void onFailure(Throwable failure) {
+        next.failWith(failure);
+      }
+    });
+    return next;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.concurrent.Future#isCancelled()
+   */
+  @Override
+  public synchronized boolean isCancelled() {
+    return state == State.CANCELLED;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.concurrent.Future#isDone()
+   */
+  @Override
+  public synchronized boolean isDone() {
+    return state != State.PENDING;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.concurrent.Future#get()
+   */
+  @Override
+  public synchronized T get() throws InterruptedException, ExecutionException {
+    while (state == State.PENDING) {
+      wait();
+    }
+    return outcome();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+   */
+  @Override
+  public synchronized T get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (state == State.PENDING) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        throw new TimeoutException();
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return outcome();
+  }
+
+  private T outcome() throws ExecutionException {
+    if (state == State.CANCELLED) {
+      throw (CancellationException) failure;
+    } else if (state == State.FAILED) {
+      throw new ExecutionException(failure);
+    }
+    return result;
+  }
+
+  private boolean finish(State newState, T value, Throwable cause) {
+    List<Runnable> toRun;
+    synchronized (this) {
+      if (state != State.PENDING) {
+        return false;
+      }
+      state = newState;
+      result = value;
+      failure = cause;
+      toRun = listeners;
+      listeners = null;
+      cancelHandlers = null;
+      notifyAll();
+    }
+    for (Runnable listener : toRun) {
+      run(listener);
+    }
+    return true;
+  }
+
+  /**
+   * Fails the future with the failure of another future, or cancels it if the other future was cancelled.
+   *
+   * @param cause the failure of the other future
+   */
+  private void failWith(Throwable cause) {
+    if (cause instanceof CancellationException) {
+      cancel(false);
+    } else {
+      fail(cause);
+    }
+  }
+
+  private static Runnable cancelHandler(final Future<?> future) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        future.cancel(false);
+      }
+    };
+  }
+
+  private synchronized State state() {
+    return state;
+  }
+
+  private synchronized T resultNow() {
+    return result;
+  }
+
+  private synchronized Throwable failureNow() {
+    return failure;
+  }
+
+  private static void run(Runnable task) {
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "A callback of a ServiceFuture failed", e);
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How often a {@link ResourceWaiter} polls a resource while it is still being created or trained.<br>
+ * <br>
+ * The first poll happens after the initial delay. After every poll which finds the resource still pending, the delay
+ * grows by the multiplier up to the maximum delay, and each delay is spread randomly by the jitter, so that waits which
+ * started together do not keep polling together. An optional timeout fails the wait with a
+ * {@link java.util.concurrent.TimeoutException}.<br>
+ * <br>
+ * The initial delay is also the interval of the naive fixed-rate polling loop that {@link ResourceWaiter} compares
+ * itself with when counting the requests it saved.
+ */
+public final class WaitPolicy {
+  private static final long DEFAULT_INITIAL_DELAY_SECONDS = 1;
+  private static final long DEFAULT_MAX_DELAY_SECONDS = 60;
+  private static final double DEFAULT_MULTIPLIER = 2;
+  private static final double DEFAULT_JITTER = 0.2;
+
+  private final long initialDelayNanos;
+  private final long maxDelayNanos;
+  private final double multiplier;
+  private final double jitter;
+  private final long timeoutNanos;
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private long initialDelayNanos = TimeUnit.SECONDS.toNanos(DEFAULT_INITIAL_DELAY_SECONDS);
+    private long maxDelayNanos = TimeUnit.SECONDS.toNanos(DEFAULT_MAX_DELAY_SECONDS);
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private double jitter = DEFAULT_JITTER;
+    private long timeoutNanos;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Instantiates a new builder from an existing policy.
+     *
+     * @param policy the policy to copy
+     */
+    public Builder(WaitPolicy policy) {
+      initialDelayNanos = policy.initialDelayNanos;
+      maxDelayNanos = policy.maxDelayNanos;
+      multiplier = policy.multiplier;
+      jitter = policy.jitter;
+      timeoutNanos = policy.timeoutNanos;
+    }
+
+    /**
+     * Builds a WaitPolicy.
+     *
+     * @return the waitPolicy
+     */
+    public WaitPolicy build() {
+      return new WaitPolicy(this);
+    }
+
+    /**
+     * Set the delay before the first poll. Defaults to 1 second.
+     *
+     * @param initialDelay the delay
+     * @param unit the time unit of initialDelay
+     * @return the WaitPolicy builder
+     */
+    public Builder initialDelay(long initialDelay, TimeUnit unit) {
+      this.initialDelayNanos = unit.toNanos(initialDelay);
+      return this;
+    }
+
+    /**
+     * Set the longest delay between two polls. Defaults to 60 seconds.
+     *
+     * @param maxDelay the delay
+     * @param unit the time unit of maxDelay
+     * @return the WaitPolicy builder
+     */
+    public Builder maxDelay(long maxDelay, TimeUnit unit) {
+      this.maxDelayNanos = unit.toNanos(maxDelay);
+      return this;
+    }
+
+    /**
+     * Set the factor by which the delay grows after every poll which finds the resource still pending. Defaults to 2.
+     *
+     * @param multiplier the factor, at least 1
+     * @return the WaitPolicy builder
+     */
+    public Builder multiplier(double multiplier) {
+      this.multiplier = multiplier;
+      return this;
+    }
+
+    /**
+     * Set the fraction by which every delay is randomly shortened or lengthened. Defaults to 0.2, so a delay of 10
+     * seconds becomes a delay between 8 and 12 seconds.
+     *
+     * @param jitter the fraction, between 0 and 1
+     * @return the WaitPolicy builder
+     */
+    public Builder jitter(double jitter) {
+      this.jitter = jitter;
+      return this;
+    }
+
+    /**
+     * Set how long to wait for the resource before giving up. By default the wait does not time out.
+     *
+     * @param timeout the timeout, or 0 to wait without a timeout
+     * @param unit the time unit of timeout
+     * @return the WaitPolicy builder
+     */
+    public Builder timeout(long timeout, TimeUnit unit) {
+      this.timeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+  }
+
+  private WaitPolicy(Builder builder) {
+    Validator.isTrue(builder.initialDelayNanos > 0, "initialDelay must be greater than 0");
+    Validator.isTrue(builder.maxDelayNanos >= builder.initialDelayNanos,
+        "maxDelay must not be less than initialDelay");
+    Validator.isTrue(builder.multiplier >= 1, "multiplier must be at least 1");
+    Validator.isTrue(builder.jitter >= 0 && builder.jitter <= 1, "jitter must be between 0 and 1");
+    Validator.isTrue(builder.timeoutNanos >= 0, "timeout cannot be negative");
+    initialDelayNanos = builder.initialDelayNanos;
+    maxDelayNanos = builder.maxDelayNanos;
+    multiplier = builder.multiplier;
+    jitter = builder.jitter;
+    timeoutNanos = builder.timeoutNanos;
+  }
+
+  /**
+   * New builder.
+   *
+   * @return a WaitPolicy builder
+   */
+  public Builder newBuilder() {
+    return new Builder(this);
+  }
+
+  /**
+   * Gets the initial delay.
+   *
+   * @param unit the time unit of the result
+   * @return the delay before the first poll
+   */
+  public long getInitialDelay(TimeUnit unit) {
+    return unit.convert(initialDelayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the maximum delay.
+   *
+   * @param unit the time unit of the result
+   * @return the longest delay between two polls
+   */
+  public long getMaxDelay(TimeUnit unit) {
+    return unit.convert(maxDelayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the multiplier.
+   *
+   * @return the factor by which the delay grows
+   */
+  public double getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Gets the jitter.
+   *
+   * @return the fraction by which every delay is randomly spread
+   */
+  public double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Gets the timeout.
+   *
+   * @param unit the time unit of the result
+   * @return the timeout, or 0 if the wait does not time out
+   */
+  public long getTimeout(TimeUnit unit) {
+    return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the delay before the next poll, without jitter.
+   *
+   * @param delayNanos the delay before the previous poll, or 0 before the first poll
+   * @return the delay in nanoseconds
+   */
+  long nextDelayNanos(long delayNanos) {
+    if (delayNanos <= 0) {
+      return initialDelayNanos;
+    }
+    return (long) Math.min(maxDelayNanos, delayNanos * multiplier);
+  }
+
+  /**
+   * Spreads a delay randomly by the jitter.
+   *
+   * @param delayNanos the delay in nanoseconds
+   * @return the jittered delay in nanoseconds
+   */
+  long jitter(long delayNanos) {
+    if (jitter == 0) {
+      return delayNanos;
+    }
+    double factor = 1 - jitter + (2 * jitter * ThreadLocalRandom.current().nextDouble());
+    return Math.max(1, (long) (delayNanos * factor));
+  }
+
+  /**
+   * Gets the timeout in nanoseconds.
+   *
+   * @return the timeout, or 0 if the wait does not time out
+   */
+  long timeoutNanos() {
+    return timeoutNanos;
+  }
+
+  /**
+   * Gets the initial delay in nanoseconds.
+   *
+   * @return the delay
+   */
+  long initialDelayNanos() {
+    return initialDelayNanos;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.http.ResponseConverter;
+import com.ibm.cloud.sdk.core.service.BaseService;
+import com.ibm.watson.common.http.SharedTransport;
+import com.ibm.watson.common.metrics.SdkTracer;
+import com.ibm.watson.common.metrics.SdkTracing;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The base class of the Watson services. It moves the HTTP client of every service to the
+ * {@link SharedTransport} when the service is created, and traces the default headers, the authentication and the
+ * conversion of the response of every call as the {@link SdkTracer.Stage#REQUEST_BUILD},
+ * {@link SdkTracer.Stage#AUTHENTICATION} and {@link SdkTracer.Stage#DESERIALIZATION} stages.
+ */
+public abstract class WatsonService extends BaseService {
+
+  /**
+   * Instantiates a new Watson service.
+   *
+   * @param name the service name
+   */
+  protected WatsonService(String name) {
+    super(name);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.cloud.sdk.core.service.BaseService#configureHttpClient()
+   */
+  @Override
+  protected OkHttpClient configureHttpClient() {
+    return SharedTransport.getInstance().share(super.configureHttpClient());
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.cloud.sdk.core.service.BaseService#setDefaultHeaders(okhttp3.Request.Builder)
+   */
+  @Override
+  protected void setDefaultHeaders(Request.Builder builder) {
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.REQUEST_BUILD, builder);
+    try {
+      super.setDefaultHeaders(builder);
+    } finally {
+      span.end();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.cloud.sdk.core.service.BaseService#setAuthentication(okhttp3.Request.Builder)
+   */
+  @Override
+  protected void setAuthentication(Request.Builder builder) {
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.AUTHENTICATION, builder);
+    try {
+      super.setAuthentication(builder);
+    } finally {
+      span.end();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.cloud.sdk.core.service.BaseService#processServiceCall(com.ibm.cloud.sdk.core.http.ResponseConverter,
+   * okhttp3.Response)
+   */
+  @Override
+  protected <T> T processServiceCall(ResponseConverter<T> converter, Response response) {
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.DESERIALIZATION, response.request());
+    try {
+      return super.processServiceCall(converter, response);
+    } finally {
+      span.end();
+    }
+  }
+}
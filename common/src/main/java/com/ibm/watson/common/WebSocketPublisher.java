@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.WebSocket;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class of the Reactive Streams {@link Publisher}s of the events of a {@link WebSocket} connection to a service.
+ * <br>
+ * <br>
+ * The connection is opened by a {@link Session} when a subscriber subscribes, and its events are delivered through an
+ * {@link EventSubscription}: when the subscriber does not keep up, up to {@code bufferSize} events are buffered, and
+ * then the connection stops being read until the subscriber requests more. Cancelling the subscription stops the
+ * session, which cancels the connection.<br>
+ * <br>
+ * A publisher opens its connection once, so it accepts a single subscriber.
+ *
+ * @param <T> the type of the events
+ */
+public abstract class WebSocketPublisher<T> implements Publisher<T> {
+
+  /** The number of events buffered by default before the connection stops being read. */
+  public static final int DEFAULT_BUFFER_SIZE = 16;
+
+  private final int bufferSize;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * Instantiates a new WebSocket publisher.
+   *
+   * @param bufferSize the number of events buffered before the connection stops being read
+   */
+  protected WebSocketPublisher(int bufferSize) {
+    Validator.isTrue(bufferSize > 0, "bufferSize must be greater than 0");
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Creates the session which opens the connection for a subscription.
+   *
+   * @param subscription the subscription the session hands its events to
+   * @return the session
+   */
+  protected abstract Session<T> newSession(EventSubscription<T> subscription);
+
+  /*
+   * (non-Javadoc)
+   * @see org.reactivestreams.Publisher#subscribe(org.reactivestreams.Subscriber)
+   */
+  @Override
+  public final void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      // Required by the Reactive Streams specification, rule 1.9
+      throw new NullPointerException("subscriber cannot be null");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("A " + getClass().getSimpleName()
+          + " accepts a single subscriber"));
+      return;
+    }
+
+    EventSubscription<T> subscription = new EventSubscription<>(subscriber, bufferSize);
+    final Session<T> session = newSession(subscription);
+    subscription.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        session.stop();
+      }
+    });
+    subscriber.onSubscribe(subscription);
+    if (subscription.isCancelled()) {
+      return;
+    }
+    try {
+      session.start();
+    } catch (RuntimeException e) {
+      session.fail(e);
+    }
+  }
+
+  /**
+   * A WebSocket connection whose events are handed to a subscription. Subclasses implement the callback of their
+   * service, turn its calls into events with {@link #offer(Object)}, and end the subscription with
+   * {@link #complete()} or {@link #fail(Exception)}.
+   *
+   * @param <T> the type of the events
+   */
+  protected abstract static class Session<T> {
+    private final EventSubscription<T> subscription;
+    private WebSocket socket;
+    private boolean stopped;
+
+    /**
+     * Instantiates a new session.
+     *
+     * @param subscription the subscription the session hands its events to
+     */
+    protected Session(EventSubscription<T> subscription) {
+      this.subscription = subscription;
+    }
+
+    /**
+     * Opens the connection.
+     *
+     * @return the WebSocket
+     */
+    protected abstract WebSocket connect();
+
+    /**
+     * Releases the resources of the session other than the connection once it is stopped. Does nothing by default.
+     */
+    protected void onStop() {
+    }
+
+    /**
+     * Hands an event to the subscriber, blocking while its buffer is full.
+     *
+     * @param event the event
+     */
+    protected final void offer(T event) {
+      subscription.offer(event);
+    }
+
+    /**
+     * Completes the subscription once the buffered events have been delivered.
+     */
+    protected final void complete() {
+      subscription.complete();
+    }
+
+    /**
+     * Stops the session and fails the subscription once the buffered events have been delivered.
+     *
+     * @param cause the failure
+     */
+    protected final void fail(Exception cause) {
+      stop();
+      subscription.fail(cause);
+    }
+
+    /**
+     * Opens the connection, and cancels it at once if the session was stopped in the meantime.
+     */
+    final void start() {
+      WebSocket webSocket = connect();
+      synchronized (this) {
+        socket = webSocket;
+        if (!stopped) {
+          return;
+        }
+      }
+      webSocket.cancel();
+    }
+
+    /**
+     * Cancels the connection and releases the other resources of the session.
+     */
+    final void stop() {
+      WebSocket webSocket;
+      synchronized (this) {
+        stopped = true;
+        webSocket = socket;
+      }
+      if (webSocket != null) {
+        webSocket.cancel();
+      }
+      onStop();
+    }
+  }
+}
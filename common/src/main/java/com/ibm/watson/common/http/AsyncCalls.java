@@ -0,0 +1,375 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.http.Response;
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.http.ServiceCallback;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ServiceFuture;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the calls of any service operation in the background and returns their results as {@link ServiceFuture}s.<br>
+ * <br>
+ * The futures are completed on an executor of the caller's choice, so callbacks and the functions passed to
+ * {@link ServiceFuture#thenApply} and {@link ServiceFuture#thenCompose} never run on the threads of the HTTP client.
+ * A call can have a deadline, after which its future fails with a {@link TimeoutException}. Cancelling the future, or
+ * missing the deadline, cancels the HTTP call as well, as long as this interceptor was added to the service of the
+ * call; otherwise the call runs to the end and its response is dropped.<br>
+ * <br>
+ * Calls are sent with {@link ServiceCall#enqueue}, so they wait in the client's dispatcher, within the limits of the
+ * {@link SharedTransport}, and no thread is held by a call until the dispatcher runs it. The interceptor recognizes its
+ * calls by a header which it removes before the request goes on. The clients of the {@link SharedTransport} remove
+ * the header as well, so it is not sent when the interceptor was not added to the service.<br>
+ * <br>
+ * Results are passed from one call to the next as they are, so the calls of several services can be chained without
+ * converting anything, for example to translate the transcript of an audio file:
+ *
+ * <pre>
+ * AsyncCalls async = new AsyncCalls.Builder().executor(executor).timeout(30, TimeUnit.SECONDS).build();
+ * ServiceInterceptors.add(speechToText, async);
+ * ServiceInterceptors.add(languageTranslator, async);
+ *
+ * ServiceFuture&lt;SpeechRecognitionResults&gt; recognition = async.submit(speechToText.recognize(recognizeOptions));
+ * ServiceFuture&lt;TranslationResult&gt; translation = recognition.thenCompose(
+ *     new ServiceFuture.Function&lt;SpeechRecognitionResults, ServiceFuture&lt;TranslationResult&gt;&gt;() {
+ *       public ServiceFuture&lt;TranslationResult&gt; apply(SpeechRecognitionResults results) {
+ *         String transcript = results.getResults().get(0).getAlternatives().get(0).getTranscript();
+ *         TranslateOptions options = new TranslateOptions.Builder().addText(transcript).modelId("en-es").build();
+ *         return async.submit(languageTranslator.translate(options));
+ *       }
+ *     });
+ * </pre>
+ */
+public final class AsyncCalls implements Interceptor {
+  /** The header which links a request to the future of its call. */
+  static final String CALL_HEADER = "X-Watson-Async-Call";
+
+  /** Removes the header of this class from the requests of services to which no AsyncCalls was added. */
+  static final Interceptor HEADER_REMOVER = new Interceptor() {
+    @Override
+    public okhttp3.Response intercept(Chain chain) throws IOException {
+      Request request = chain.request();
+      if (request.header(CALL_HEADER) == null) {
+        return chain.proceed(request);
+      }
+      return chain.proceed(request.newBuilder().removeHeader(CALL_HEADER).build());
+    }
+  };
+
+  // Unique across instances, so an instance never takes the call of another one.
+  private static final AtomicLong IDS = new AtomicLong();
+
+  private final Executor executor;
+  private final long timeoutNanos;
+  private final AtomicLong cancelledCount = new AtomicLong();
+  private final ConcurrentMap<String, Pending<?>> pending = new ConcurrentHashMap<>();
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private Executor executor;
+    private long timeoutNanos;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds an AsyncCalls.
+     *
+     * @return the asyncCalls
+     */
+    public AsyncCalls build() {
+      return new AsyncCalls(this);
+    }
+
+    /**
+     * Set the executor which completes the futures, and so runs their callbacks. By default a shared pool of daemon
+     * threads is used.
+     *
+     * @param executor the executor
+     * @return the AsyncCalls builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Set the default deadline of a call, counted from when it is submitted. By default calls have no deadline.
+     *
+     * @param timeout the timeout, or 0 for no deadline
+     * @param unit the time unit of timeout
+     * @return the AsyncCalls builder
+     */
+    public Builder timeout(long timeout, TimeUnit unit) {
+      this.timeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+  }
+
+  private AsyncCalls(Builder builder) {
+    Validator.isTrue(builder.timeoutNanos >= 0, "timeout cannot be negative");
+    executor = (builder.executor != null) ? builder.executor : BackgroundExecutor.INSTANCE;
+    timeoutNanos = builder.timeoutNanos;
+  }
+
+  /**
+   * Gets the number of HTTP calls which were cancelled because their future was cancelled or missed its deadline.
+   *
+   * @return the number of calls
+   */
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  /**
+   * Sends a call in the background with the default deadline.
+   *
+   * @param <T> the type of the result
+   * @param call the call, as returned by an operation of a service
+   * @return the future result of the call
+   */
+  public <T> ServiceFuture<T> submit(ServiceCall<T> call) {
+    return submit(call, timeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Sends a call in the background with a deadline.
+   *
+   * @param <T> the type of the result
+   * @param call the call, as returned by an operation of a service
+   * @param timeout the time after which the call is cancelled and its future fails, or 0 for no deadline
+   * @param unit the time unit of timeout
+   * @return the future result of the call
+   */
+  public <T> ServiceFuture<T> submit(ServiceCall<T> call, long timeout, TimeUnit unit) {
+    Validator.notNull(call, "call cannot be null");
+    Validator.notNull(unit, "unit cannot be null");
+    Validator.isTrue(timeout >= 0, "timeout cannot be negative");
+    final String id = Long.toString(IDS.incrementAndGet());
+    final Pending<T> submitted = new Pending<>(id);
+    pending.put(id, submitted);
+    submitted.future.addCallback(submitted.cleanUp());
+    submitted.future.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        submitted.cancelHttpCall();
+      }
+    });
+    if (timeout > 0) {
+      submitted.deadline = Deadlines.INSTANCE.schedule(new Runnable() {
+        @Override
+        public void run() {
+          submitted.timeOut();
+        }
+      }, timeout, unit);
+    }
+    try {
+      call.addHeader(CALL_HEADER, id).enqueue(submitted);
+    } catch (RuntimeException e) {
+      // For example a RejectedExecutionException of the dispatcher's executor.
+      pending.remove(id);
+      submitted.future.fail(e);
+    }
+    return submitted.future;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+   */
+  @Override
+  public okhttp3.Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String id = request.header(CALL_HEADER);
+    Pending<?> submitted = (id != null) ? pending.remove(id) : null;
+    if (submitted == null) {
+      // Not a call of this instance; the header, if any, belongs to another one.
+      return chain.proceed(request);
+    }
+    if (!submitted.attach(chain.call())) {
+      // The future was cancelled or timed out before the call was sent.
+      chain.call().cancel();
+      throw new IOException("Canceled");
+    }
+    return chain.proceed(request.newBuilder().removeHeader(CALL_HEADER).build());
+  }
+
+  /**
+   * The future of a call which was submitted, which the call completes through {@link ServiceCallback}.
+   *
+   * @param <T> the type of the result
+   */
+  private final class Pending<T> implements ServiceCallback<T> {
+    private final String id;
+    private final ServiceFuture<T> future = new ServiceFuture<>();
+    private volatile ScheduledFuture<?> deadline;
+    private volatile boolean timedOut;
+    private boolean cancelled;
+    private Call httpCall;
+
+    Pending(String id) {
+      this.id = id;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.cloud.sdk.core.http.ServiceCallback#onResponse(com.ibm.cloud.sdk.core.http.Response)
+     */
+    @Override
+    public void onResponse(final Response<T> response) {
+      // The HTTP call has ended. Until then the entry stays, even if the future is done, so the interceptor can still
+      // stop a call which is waiting in the dispatcher.
+      pending.remove(id);
+      complete(new Runnable() {
+        @Override
+        public void run() {
+          future.complete(response.getResult());
+        }
+      });
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.cloud.sdk.core.http.ServiceCallback#onFailure(java.lang.Exception)
+     */
+    @Override
+    public void onFailure(final Exception e) {
+      pending.remove(id);
+      if (timedOut) {
+        return;
+      }
+      complete(new Runnable() {
+        @Override
+        public void run() {
+          future.fail(e);
+        }
+      });
+    }
+
+    /**
+     * Fails the future with a {@link TimeoutException} and cancels the HTTP call.
+     */
+    void timeOut() {
+      if (future.isDone()) {
+        return;
+      }
+      timedOut = true;
+      cancelHttpCall();
+      complete(new Runnable() {
+        @Override
+        public void run() {
+          future.fail(new TimeoutException("The call did not complete before its deadline"));
+        }
+      });
+    }
+
+    /**
+     * Links the HTTP call to the future when it is sent.
+     *
+     * @param call the HTTP call
+     * @return false if the future was already cancelled
+     */
+    synchronized boolean attach(Call call) {
+      if (cancelled) {
+        cancelledCount.incrementAndGet();
+        return false;
+      }
+      httpCall = call;
+      return true;
+    }
+
+    synchronized void cancelHttpCall() {
+      cancelled = true;
+      if (httpCall != null && !httpCall.isCanceled()) {
+        httpCall.cancel();
+        cancelledCount.incrementAndGet();
+      }
+    }
+
+    /**
+     * Completes the future on the executor.
+     *
+     * @param completion the task which completes the future
+     */
+    private void complete(Runnable completion) {
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        executor.execute(completion);
+      } catch (RejectedExecutionException e) {
+        future.fail(e);
+      }
+    }
+
+    ServiceFuture.Callback<T> cleanUp() {
+      return new ServiceFuture.Callback<T>() {
+        @Override
+        public void onSuccess(T result) {
+          done();
+        }
+
+        @Override
+        public void onFailure(Throwable failure) {
+          done();
+        }
+
+        private void done() {
+          ScheduledFuture<?> scheduled = deadline;
+          if (scheduled != null) {
+            scheduled.cancel(false);
+          }
+        }
+      };
+    }
+  }
+
+  /**
+   * Holds the scheduler which enforces the deadlines, created when it is first needed.
+   */
+  private static final class Deadlines {
+    static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "WatsonAsyncDeadlines");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    static {
+      INSTANCE.setRemoveOnCancelPolicy(true);
+    }
+  }
+}
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An adaptive limit on the number of concurrent calls of a service, for applications which call a service from many
+ * threads at once, for example {@code NaturalLanguageUnderstanding.analyze} or {@code Discovery.addDocument} in a
+ * bulk job.<br>
+ * <br>
+ * Every operation has its own limit, which is adjusted with additive increase and multiplicative decrease (AIMD):
+ * <ul>
+ * <li>a successful call which used at least half of the limit raises it by one per round trip, that is by
+ * {@code 1 / limit} per call;</li>
+ * <li>a 429 or 503 response, a read timeout, or a sample of 20 calls whose mean latency is longer than the latency
+ * tolerance times the usual mean multiplies the limit by the backoff ratio. Calls which started before the last
+ * decrease do not decrease it again, so a burst of rejections only counts once;</li>
+ * <li>a {@code Retry-After} header on a 429 or 503 response holds back all calls of the operation until it has
+ * passed.</li>
+ * </ul>
+ * The limit therefore settles just below the concurrency at which the service starts to reject or slow down calls.
+ * Comparing the means of samples rather than single calls keeps an operation whose calls differ in size, such as
+ * {@code analyze} with short and long texts, from mistaking its slow calls for overload. Calls beyond the limit wait
+ * in first-in, first-out order instead of failing; a 429 or 503 response is still returned to the caller. The limit
+ * applies from the moment a call is executed until its response headers arrive.<br>
+ * <br>
+ * Add the limiter to a single service with {@link ServiceInterceptors#add}:
+ *
+ * <pre>
+ * ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+ *     .maxLimit(50)
+ *     .maxLimit("addDocument", 8)
+ *     .build();
+ * ServiceInterceptors.add(discovery, limiter);
+ * </pre>
+ */
+public final class ConcurrencyLimiter implements Interceptor {
+  private static final Logger LOG = Logger.getLogger(ConcurrencyLimiter.class.getName());
+
+  private static final int HTTP_TOO_MANY_REQUESTS = 429;
+  private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+  private static final String RETRY_AFTER = "Retry-After";
+  private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+  private static final String GMT = "GMT";
+
+  // Calls without an SDK analytics header share one limit.
+  private static final String OTHER_OPERATIONS = "";
+
+  // The mean latency of every SAMPLE_SIZE successful calls is compared with the baseline. The baseline follows the
+  // fastest samples, and drifts slowly towards slower ones so it adapts when the service becomes slower for good.
+  private static final int SAMPLE_SIZE = 20;
+  private static final double BASELINE_DRIFT = 0.1;
+
+  private static final int DEFAULT_INITIAL_LIMIT = 10;
+  private static final int DEFAULT_MIN_LIMIT = 1;
+  private static final int DEFAULT_MAX_LIMIT = 100;
+  private static final double DEFAULT_BACKOFF_RATIO = 0.5;
+  private static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+  private static final long DEFAULT_MAX_RETRY_AFTER_SECONDS = 60;
+
+  /**
+   * The outcome of a call, as far as the limit is concerned.
+   */
+  private enum Outcome {
+    SUCCESS, OVERLOAD, ERROR
+  }
+
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final Map<String, Integer> maxLimits;
+  private final double backoffRatio;
+  private final double latencyTolerance;
+  private final long maxRetryAfterNanos;
+  private final long queueTimeoutNanos;
+
+  private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+  private final AtomicLong throttledCount = new AtomicLong();
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private int initialLimit = DEFAULT_INITIAL_LIMIT;
+    private int minLimit = DEFAULT_MIN_LIMIT;
+    private int maxLimit = DEFAULT_MAX_LIMIT;
+    private Map<String, Integer> maxLimits = new HashMap<>();
+    private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+    private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+    private long maxRetryAfterNanos = TimeUnit.SECONDS.toNanos(DEFAULT_MAX_RETRY_AFTER_SECONDS);
+    private long queueTimeoutNanos;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds a ConcurrencyLimiter.
+     *
+     * @return the concurrencyLimiter
+     */
+    public ConcurrencyLimiter build() {
+      return new ConcurrencyLimiter(this);
+    }
+
+    /**
+     * Set the limit every operation starts with. Defaults to 10.
+     *
+     * @param initialLimit the initial number of concurrent calls
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder initialLimit(int initialLimit) {
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    /**
+     * Set the limit below which no operation is decreased. Defaults to 1.
+     *
+     * @param minLimit the minimum number of concurrent calls
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder minLimit(int minLimit) {
+      this.minLimit = minLimit;
+      return this;
+    }
+
+    /**
+     * Set the limit above which no operation is increased. Defaults to 100.
+     *
+     * @param maxLimit the maximum number of concurrent calls
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder maxLimit(int maxLimit) {
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    /**
+     * Set the limit above which a single operation is not increased, instead of the limit of
+     * {@link #maxLimit(int)}.
+     *
+     * @param operationId the operation id, for example "addDocument"
+     * @param maxLimit the maximum number of concurrent calls of the operation
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder maxLimit(String operationId, int maxLimit) {
+      Validator.notNull(operationId, "operationId cannot be null");
+      this.maxLimits.put(operationId, maxLimit);
+      return this;
+    }
+
+    /**
+     * Set the factor by which a limit is multiplied when the service is overloaded. Defaults to 0.5.
+     *
+     * @param backoffRatio the backoff ratio, greater than 0 and less than 1
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder backoffRatio(double backoffRatio) {
+      this.backoffRatio = backoffRatio;
+      return this;
+    }
+
+    /**
+     * Set how many times longer than usual the mean latency of a sample of 20 calls may be before it counts as a sign
+     * of overload. Defaults to 2; 0 decreases limits on 429 and 503 responses and read timeouts only.
+     *
+     * @param latencyTolerance the latency tolerance, 0 or greater than 1
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder latencyTolerance(double latencyTolerance) {
+      this.latencyTolerance = latencyTolerance;
+      return this;
+    }
+
+    /**
+     * Set the longest time a {@code Retry-After} header holds back the calls of an operation. Defaults to 60 seconds.
+     *
+     * @param maxRetryAfter the longest time
+     * @param unit the time unit of maxRetryAfter
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder maxRetryAfter(long maxRetryAfter, TimeUnit unit) {
+      this.maxRetryAfterNanos = unit.toNanos(maxRetryAfter);
+      return this;
+    }
+
+    /**
+     * Set how long a call waits for the limit before it fails with an {@link InterruptedIOException}. By default calls
+     * wait as long as it takes.
+     *
+     * @param queueTimeout the timeout, or 0 to wait as long as it takes
+     * @param unit the time unit of queueTimeout
+     * @return the ConcurrencyLimiter builder
+     */
+    public Builder queueTimeout(long queueTimeout, TimeUnit unit) {
+      this.queueTimeoutNanos = unit.toNanos(queueTimeout);
+      return this;
+    }
+  }
+
+  private ConcurrencyLimiter(Builder builder) {
+    Validator.isTrue(builder.minLimit > 0, "minLimit must be greater than 0");
+    Validator.isTrue(builder.maxLimit >= builder.minLimit, "maxLimit must not be less than minLimit");
+    Validator.isTrue(builder.initialLimit >= builder.minLimit && builder.initialLimit <= builder.maxLimit,
+        "initialLimit must be between minLimit and maxLimit");
+    for (Integer operationMaxLimit : builder.maxLimits.values()) {
+      Validator.isTrue(operationMaxLimit > 0, "the maxLimit of an operation must be greater than 0");
+    }
+    Validator.isTrue(builder.backoffRatio > 0 && builder.backoffRatio < 1, "backoffRatio must be between 0 and 1");
+    Validator.isTrue(builder.latencyTolerance == 0 || builder.latencyTolerance > 1,
+        "latencyTolerance must be 0 or greater than 1");
+    Validator.isTrue(builder.maxRetryAfterNanos >= 0, "maxRetryAfter cannot be negative");
+    Validator.isTrue(builder.queueTimeoutNanos >= 0, "queueTimeout cannot be negative");
+    initialLimit = builder.initialLimit;
+    minLimit = builder.minLimit;
+    maxLimit = builder.maxLimit;
+    maxLimits = Collections.unmodifiableMap(new HashMap<>(builder.maxLimits));
+    backoffRatio = builder.backoffRatio;
+    latencyTolerance = builder.latencyTolerance;
+    maxRetryAfterNanos = builder.maxRetryAfterNanos;
+    queueTimeoutNanos = builder.queueTimeoutNanos;
+  }
+
+  /**
+   * Gets the current limit of an operation.
+   *
+   * @param operationId the operation id, for example "analyze", or null for calls without an operation
+   * @return the number of concurrent calls
+   */
+  public int getLimit(String operationId) {
+    return partition(operationId).limit();
+  }
+
+  /**
+   * Gets the number of calls of an operation which are waiting for their response.
+   *
+   * @param operationId the operation id, or null for calls without an operation
+   * @return the number of calls
+   */
+  public int getInFlight(String operationId) {
+    return partition(operationId).inFlight();
+  }
+
+  /**
+   * Gets the number of calls of an operation which are waiting for the limit.
+   *
+   * @param operationId the operation id, or null for calls without an operation
+   * @return the number of calls
+   */
+  public int getQueued(String operationId) {
+    return partition(operationId).queued();
+  }
+
+  /**
+   * Gets the number of 429 and 503 responses received by all operations.
+   *
+   * @return the number of responses
+   */
+  public long getThrottledCount() {
+    return throttledCount.get();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+   */
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    Partition partition = partition(ServiceInterceptors.operationId(request));
+    partition.acquire();
+    long start = System.nanoTime();
+    Outcome outcome = Outcome.ERROR;
+    long retryAfterNanos = 0;
+    try {
+      Response response = chain.proceed(request);
+      int code = response.code();
+      if (code == HTTP_TOO_MANY_REQUESTS || code == HTTP_SERVICE_UNAVAILABLE) {
+        outcome = Outcome.OVERLOAD;
+        retryAfterNanos = retryAfterNanos(response.header(RETRY_AFTER), System.currentTimeMillis());
+        throttledCount.incrementAndGet();
+      } else {
+        outcome = Outcome.SUCCESS;
+      }
+      return response;
+    } catch (SocketTimeoutException e) {
+      outcome = Outcome.OVERLOAD;
+      throw e;
+    } finally {
+      partition.release(start, outcome, Math.min(retryAfterNanos, maxRetryAfterNanos));
+    }
+  }
+
+  private Partition partition(String operationId) {
+    String key = (operationId != null) ? operationId : OTHER_OPERATIONS;
+    Partition partition = partitions.get(key);
+    if (partition == null) {
+      Integer operationMaxLimit = maxLimits.get(key);
+      int max = (operationMaxLimit != null) ? operationMaxLimit : maxLimit;
+      partition = new Partition(key, Math.min(minLimit, max), Math.min(initialLimit, max), max);
+      Partition existing = partitions.putIfAbsent(key, partition);
+      if (existing != null) {
+        partition = existing;
+      }
+    }
+    return partition;
+  }
+
+  /**
+   * Parses a {@code Retry-After} header, which holds either a number of seconds or an HTTP date.
+   *
+   * @param value the header value, or null
+   * @param nowMillis the current time in milliseconds
+   * @return the time to wait in nanoseconds, or 0 if the value is missing or not valid
+   */
+  static long retryAfterNanos(String value, long nowMillis) {
+    if (value == null) {
+      return 0;
+    }
+    String trimmed = value.trim();
+    try {
+      return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(trimmed)));
+    } catch (NumberFormatException e) {
+      SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE, Locale.US);
+      format.setTimeZone(TimeZone.getTimeZone(GMT));
+      try {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, format.parse(trimmed).getTime() - nowMillis));
+      } catch (ParseException pe) {
+        LOG.log(Level.FINE, "Ignoring a Retry-After header which is not valid: " + value, pe);
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * The limit of a single operation and the calls waiting for it.
+   */
+  private final class Partition {
+    private final String operationId;
+    private final int min;
+    private final int max;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private boolean paused;
+    private long pauseEnd;
+    private boolean decreased;
+    private long lastDecrease;
+    private long sampleCount;
+    private long sampleTotalNanos;
+    private long baselineNanos;
+
+    Partition(String operationId, int min, int initial, int max) {
+      this.operationId = operationId;
+      this.min = min;
+      this.max = max;
+      this.limit = initial;
+    }
+
+    int limit() {
+      lock.lock();
+      try {
+        return (int) limit;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int inFlight() {
+      lock.lock();
+      try {
+        return inFlight;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int queued() {
+      lock.lock();
+      try {
+        return queue.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Waits until the call at the head of the queue is this one, the operation is not held back by a
+     * {@code Retry-After} header, and fewer calls than the limit are in flight.
+     *
+     * @throws InterruptedIOException if the thread is interrupted or the queue timeout expires
+     */
+    void acquire() throws InterruptedIOException {
+      Object ticket = new Object();
+      long deadline = System.nanoTime() + queueTimeoutNanos;
+      lock.lock();
+      try {
+        queue.add(ticket);
+        try {
+          while (true) {
+            long now = System.nanoTime();
+            long waitNanos = -1;
+            if (paused && now - pauseEnd < 0) {
+              waitNanos = pauseEnd - now;
+            } else {
+              paused = false;
+              if (queue.peek() == ticket && inFlight < (int) limit) {
+                break;
+              }
+            }
+            if (queueTimeoutNanos > 0) {
+              long remaining = deadline - now;
+              if (remaining <= 0) {
+                throw new InterruptedIOException("Timed out waiting for the concurrency limit of " + name());
+              }
+              waitNanos = (waitNanos < 0) ? remaining : Math.min(waitNanos, remaining);
+            }
+            if (waitNanos < 0) {
+              changed.await();
+            } else {
+              changed.awaitNanos(waitNanos);
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for the concurrency limit of " + name());
+        } finally {
+          queue.remove(ticket);
+          changed.signalAll();
+        }
+        inFlight++;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Ends a call and adjusts the limit.
+     *
+     * @param startNanos the time the call started
+     * @param outcome the outcome of the call
+     * @param retryAfterNanos how long to hold back the operation, or 0
+     */
+    void release(long startNanos, Outcome outcome, long retryAfterNanos) {
+      long now = System.nanoTime();
+      lock.lock();
+      try {
+        if (outcome == Outcome.SUCCESS) {
+          onSuccess(startNanos, now);
+        } else if (outcome == Outcome.OVERLOAD) {
+          decrease(startNanos, now);
+          if (retryAfterNanos > 0 && (!paused || now + retryAfterNanos - pauseEnd > 0)) {
+            paused = true;
+            pauseEnd = now + retryAfterNanos;
+          }
+        }
+        inFlight--;
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void onSuccess(long startNanos, long now) {
+      if (latencyTolerance > 0 && sampled(now - startNanos)) {
+        long meanNanos = Math.max(1, sampleTotalNanos / sampleCount);
+        sampleCount = 0;
+        sampleTotalNanos = 0;
+        if (baselineNanos == 0 || meanNanos < baselineNanos) {
+          baselineNanos = meanNanos;
+        } else {
+          baselineNanos += (long) ((meanNanos - baselineNanos) * BASELINE_DRIFT);
+        }
+        if (meanNanos > baselineNanos * latencyTolerance) {
+          decrease(startNanos, now);
+          return;
+        }
+      }
+      if (inFlight * 2 >= limit) {
+        // Only a limit which is being used is raised, so a quiet period does not leave it far above the capacity.
+        limit = Math.min(max, limit + 1 / limit);
+      }
+    }
+
+    /**
+     * Adds the latency of a successful call to the current sample.
+     *
+     * @param latencyNanos the latency
+     * @return true if the sample is complete
+     */
+    private boolean sampled(long latencyNanos) {
+      sampleCount++;
+      sampleTotalNanos += latencyNanos;
+      return sampleCount >= SAMPLE_SIZE;
+    }
+
+    private void decrease(long startNanos, long now) {
+      if (decreased && startNanos - lastDecrease < 0) {
+        return;
+      }
+      limit = Math.max(min, limit * backoffRatio);
+      decreased = true;
+      lastDecrease = now;
+      LOG.fine("Decreased the concurrency limit of " + name() + " to " + (int) limit);
+    }
+
+    private String name() {
+      return operationId.isEmpty() ? "calls without an operation" : operationId;
+    }
+  }
+}
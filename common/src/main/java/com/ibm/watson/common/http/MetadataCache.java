@@ -0,0 +1,509 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache for the responses of read-mostly metadata operations, for applications which list models or voices every
+ * time a session starts.<br>
+ * <br>
+ * By default the cache keeps the responses of the metadata operations of the services for 5 minutes: {@code listModels}
+ * and {@code getModel}, {@code listVoices} and {@code getVoice}, {@code listIdentifiableLanguages},
+ * {@code listEnvironments}, {@code listCollectionFields} and {@code getClassifier}. Every operation can have its own
+ * time to live, and further operations can be added. Responses are keyed on their URL and the {@code Authorization}
+ * and {@code Accept} headers of the request.<br>
+ * <br>
+ * After the time to live, a response is still served for a stale-while-revalidate period while it is refreshed in the
+ * background, so callers do not wait for the refresh. Later than that, the call waits for the refresh. Refreshes send
+ * the {@code ETag} of the cached response in an {@code If-None-Match} header, so a service which supports it answers
+ * with a short 304 response when nothing changed. The refresh is a call of its own, a clone of the call which found the
+ * response stale, so it has its own events and can fail or be cancelled without affecting that call.<br>
+ * <br>
+ * A successful call of an operation which changes a resource, such as {@code createClassifier},
+ * {@code updateVoiceModel} or {@code deleteEnvironment}, removes the cached responses of that resource, of the
+ * resources above it and of the resources below it, for example the classifier and the list of classifiers, and the
+ * responses requested with its {@code customization_id}. Calls which only read or process data, such as
+ * {@code synthesize}, {@code recognize} or {@code query}, leave the cache as it is, even when they are POST requests. A
+ * response which was requested before such a change is not stored, so a response never outlives a change made through
+ * the same service.
+ *
+ * <pre>
+ * MetadataCache cache = new MetadataCache.Builder()
+ *     .ttl("getClassifier", 30, TimeUnit.SECONDS)
+ *     .build();
+ * ServiceInterceptors.add(naturalLanguageClassifier, cache);
+ * </pre>
+ */
+public final class MetadataCache implements Interceptor {
+  private static final Logger LOG = Logger.getLogger(MetadataCache.class.getName());
+
+  private static final String GET = "GET";
+  private static final String HEAD = "HEAD";
+  private static final String ETAG = "ETag";
+  private static final String IF_NONE_MATCH = "If-None-Match";
+  private static final String CUSTOMIZATIONS = "customizations";
+  private static final String CUSTOMIZATION_ID = "customization_id";
+  private static final int HTTP_OK = 200;
+  private static final int HTTP_NOT_MODIFIED = 304;
+
+  private static final long DEFAULT_TTL_MINUTES = 5;
+  private static final long DEFAULT_STALE_WHILE_REVALIDATE_MINUTES = 1;
+  private static final int DEFAULT_MAX_ENTRIES = 256;
+
+  private static final String[] METADATA_OPERATIONS = { "listModels", "getModel", "listVoices", "getVoice",
+      "listIdentifiableLanguages", "listEnvironments", "listCollectionFields", "getClassifier" };
+
+  // The operations which change a resource start with one of these verbs.
+  private static final String[] CHANGE_PREFIXES = { "create", "update", "delete", "add", "train", "upgrade", "reset",
+      "register", "unregister" };
+
+  private final Map<String, Long> ttls;
+  private final long staleWhileRevalidateNanos;
+  private final Map<String, CachedResponse> entries;
+  // Counts the changes, so a response requested before one is not stored. Guarded by entries.
+  private long generation;
+  // The refresh which the call on the current thread was cloned to send.
+  private final ThreadLocal<Refresh> refreshing = new ThreadLocal<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong staleHitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong notModifiedCount = new AtomicLong();
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private long ttlNanos = TimeUnit.MINUTES.toNanos(DEFAULT_TTL_MINUTES);
+    private Map<String, Long> ttls = new HashMap<>();
+    private long staleWhileRevalidateNanos = TimeUnit.MINUTES.toNanos(DEFAULT_STALE_WHILE_REVALIDATE_MINUTES);
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds a MetadataCache.
+     *
+     * @return the metadataCache
+     */
+    public MetadataCache build() {
+      return new MetadataCache(this);
+    }
+
+    /**
+     * Set the time to live of the metadata operations which are cached by default. Defaults to 5 minutes.
+     *
+     * @param ttl the time to live
+     * @param unit the time unit of ttl
+     * @return the MetadataCache builder
+     */
+    public Builder ttl(long ttl, TimeUnit unit) {
+      this.ttlNanos = unit.toNanos(ttl);
+      return this;
+    }
+
+    /**
+     * Set the time to live of an operation, which is cached even if it is not one of the metadata operations cached by
+     * default. A time to live of 0 stops caching the operation.
+     *
+     * @param operationId the operation id, for example "getClassifier"
+     * @param ttl the time to live
+     * @param unit the time unit of ttl
+     * @return the MetadataCache builder
+     */
+    public Builder ttl(String operationId, long ttl, TimeUnit unit) {
+      Validator.notNull(operationId, "operationId cannot be null");
+      this.ttls.put(operationId, unit.toNanos(ttl));
+      return this;
+    }
+
+    /**
+     * Set how long after its time to live a response is still served while it is refreshed in the background.
+     * Defaults to 1 minute.
+     *
+     * @param staleWhileRevalidate the time
+     * @param unit the time unit of staleWhileRevalidate
+     * @return the MetadataCache builder
+     */
+    public Builder staleWhileRevalidate(long staleWhileRevalidate, TimeUnit unit) {
+      this.staleWhileRevalidateNanos = unit.toNanos(staleWhileRevalidate);
+      return this;
+    }
+
+    /**
+     * Set the number of responses kept. The least recently used response is dropped when the cache is full. Defaults
+     * to 256.
+     *
+     * @param maxEntries the number of responses
+     * @return the MetadataCache builder
+     */
+    public Builder maxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      return this;
+    }
+  }
+
+  private MetadataCache(Builder builder) {
+    Validator.isTrue(builder.ttlNanos >= 0, "ttl cannot be negative");
+    for (Long operationTtl : builder.ttls.values()) {
+      Validator.isTrue(operationTtl >= 0, "ttl cannot be negative");
+    }
+    Validator.isTrue(builder.staleWhileRevalidateNanos >= 0, "staleWhileRevalidate cannot be negative");
+    Validator.isTrue(builder.maxEntries > 0, "maxEntries must be greater than 0");
+    Map<String, Long> operationTtls = new HashMap<>();
+    for (String operationId : METADATA_OPERATIONS) {
+      operationTtls.put(operationId, builder.ttlNanos);
+    }
+    operationTtls.putAll(builder.ttls);
+    ttls = Collections.unmodifiableMap(operationTtls);
+    staleWhileRevalidateNanos = builder.staleWhileRevalidateNanos;
+    final int maxEntries = builder.maxEntries;
+    entries = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+        return size() > maxEntries;
+      }
+    });
+  }
+
+  /**
+   * Gets the number of calls answered from the cache within the time to live.
+   *
+   * @return the number of calls
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Gets the number of calls answered from the cache while the response was refreshed in the background.
+   *
+   * @return the number of calls
+   */
+  public long getStaleHitCount() {
+    return staleHitCount.get();
+  }
+
+  /**
+   * Gets the number of calls which waited for a response from the service.
+   *
+   * @return the number of calls
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Gets the number of refreshes which the service answered with 304 Not Modified.
+   *
+   * @return the number of refreshes
+   */
+  public long getNotModifiedCount() {
+    return notModifiedCount.get();
+  }
+
+  /**
+   * Gets the number of cached responses.
+   *
+   * @return the number of responses
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes all cached responses.
+   */
+  public void clear() {
+    synchronized (entries) {
+      generation++;
+      entries.clear();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+   */
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    if (!GET.equals(request.method())) {
+      Response response = chain.proceed(request);
+      if (!HEAD.equals(request.method()) && response.isSuccessful() && isChange(request)) {
+        invalidate(request.url());
+      }
+      return response;
+    }
+
+    String operationId = ServiceInterceptors.operationId(request);
+    Long ttlNanos = (operationId != null) ? ttls.get(operationId) : null;
+    if (ttlNanos == null || ttlNanos == 0) {
+      return chain.proceed(request);
+    }
+
+    String key = ServiceInterceptors.resourceKey(request);
+    Refresh refresh = refreshing.get();
+    if (refresh != null && refresh.key.equals(key)) {
+      refreshing.remove();
+      return fetch(chain, key, refresh.entry);
+    }
+    CachedResponse entry = entries.get(key);
+    if (entry == null) {
+      missCount.incrementAndGet();
+      return fetch(chain, key, null);
+    }
+
+    long age = System.nanoTime() - entry.storedAt;
+    if (age < ttlNanos) {
+      hitCount.incrementAndGet();
+      return entry.response(request);
+    }
+    if (age < ttlNanos + staleWhileRevalidateNanos) {
+      staleHitCount.incrementAndGet();
+      if (entry.refreshing.compareAndSet(false, true)) {
+        refresh(chain.call(), key, entry);
+      }
+      return entry.response(request);
+    }
+    missCount.incrementAndGet();
+    return fetch(chain, key, entry);
+  }
+
+  /**
+   * Sends a call, as a conditional request if a response is cached, and caches the response.
+   *
+   * @param chain the chain of the call
+   * @param key the key of the response
+   * @param entry the cached response, or null
+   * @return the response
+   * @throws IOException if the call failed
+   */
+  private Response fetch(Chain chain, String key, CachedResponse entry) throws IOException {
+    long fetchGeneration = generation();
+    Request request = chain.request();
+    Request.Builder builder = request.newBuilder();
+    if (entry != null && entry.etag != null && request.header(IF_NONE_MATCH) == null) {
+      builder.header(IF_NONE_MATCH, entry.etag);
+    }
+    Response response = chain.proceed(builder.build());
+    if (entry != null && response.code() == HTTP_NOT_MODIFIED) {
+      response.close();
+      notModifiedCount.incrementAndGet();
+      CachedResponse revalidated = new CachedResponse(entry.url, entry.response, entry.contentType, entry.bytes,
+          entry.etag);
+      store(key, revalidated, fetchGeneration);
+      return revalidated.response(request);
+    }
+    if (response.code() != HTTP_OK || response.body() == null) {
+      return response;
+    }
+
+    ResponseBody body = response.body();
+    MediaType contentType = body.contentType();
+    byte[] bytes = body.bytes();
+    CachedResponse stored = new CachedResponse(request.url(), response.newBuilder().body(null).build(), contentType,
+        bytes, response.header(ETAG));
+    store(key, stored, fetchGeneration);
+    return stored.response(request);
+  }
+
+  private long generation() {
+    synchronized (entries) {
+      return generation;
+    }
+  }
+
+  /**
+   * Stores a response, unless the cache was cleared or a resource changed since it was requested.
+   *
+   * @param key the key of the response
+   * @param stored the response
+   * @param fetchGeneration the generation of the cache when the response was requested
+   */
+  private void store(String key, CachedResponse stored, long fetchGeneration) {
+    synchronized (entries) {
+      if (generation == fetchGeneration) {
+        entries.put(key, stored);
+      }
+    }
+  }
+
+  /**
+   * Checks whether a call which is not a GET or HEAD changes a resource, from its operation. A call without an
+   * operation is taken to change one.
+   *
+   * @param request the request
+   * @return true if the call changes a resource
+   */
+  private static boolean isChange(Request request) {
+    String operationId = ServiceInterceptors.operationId(request);
+    if (operationId == null) {
+      return true;
+    }
+    for (String prefix : CHANGE_PREFIXES) {
+      if (operationId.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes the responses of a changed resource, of the resources above and below it, and the responses requested
+   * with its customization ID.
+   *
+   * @param changed the URL of the changed resource
+   */
+  private void invalidate(HttpUrl changed) {
+    String path = changed.encodedPath();
+    String customizationId = customizationId(changed);
+    synchronized (entries) {
+      generation++;
+      for (Iterator<CachedResponse> it = entries.values().iterator(); it.hasNext();) {
+        HttpUrl url = it.next().url;
+        if (!url.host().equals(changed.host()) || url.port() != changed.port()) {
+          continue;
+        }
+        String cachedPath = url.encodedPath();
+        if (isWithin(path, cachedPath) || isWithin(cachedPath, path)
+            || (customizationId != null && customizationId.equals(url.queryParameter(CUSTOMIZATION_ID)))) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the customization ID of a URL of the form {@code .../customizations/{customization_id}/...}.
+   *
+   * @param url the URL
+   * @return the customization ID, or null if the URL is not the URL of a custom model
+   */
+  private static String customizationId(HttpUrl url) {
+    List<String> segments = url.pathSegments();
+    int index = segments.indexOf(CUSTOMIZATIONS);
+    return (index >= 0 && index + 1 < segments.size() && !segments.get(index + 1).isEmpty())
+        ? segments.get(index + 1) : null;
+  }
+
+  /**
+   * Checks whether a path is the same as another one or below it.
+   *
+   * @param path the path
+   * @param parent the other path
+   * @return true if the path is the parent or below it
+   */
+  private static boolean isWithin(String path, String parent) {
+    if (parent.endsWith("/")) {
+      return path.startsWith(parent) || path.equals(parent.substring(0, parent.length() - 1));
+    }
+    return path.equals(parent) || path.startsWith(parent + "/");
+  }
+
+  /**
+   * Refreshes a response in the background, with a call of its own which is cloned from the call which found the
+   * response stale.
+   *
+   * @param call the call which found the response stale
+   * @param key the key of the response
+   * @param entry the stale response
+   */
+  private void refresh(final Call call, final String key, final CachedResponse entry) {
+    BackgroundExecutor.INSTANCE.execute(new Runnable() {
+      @Override
+      public void run() {
+        // The clone runs the interceptors on this thread, which tells this interceptor to revalidate the response
+        // instead of serving it.
+        refreshing.set(new Refresh(key, entry));
+        try {
+          call.clone().execute().close();
+        } catch (IOException e) {
+          LOG.log(Level.FINE, "Refreshing a cached response failed", e);
+        } finally {
+          refreshing.remove();
+          // A failed refresh is tried again by the next call which finds the response stale.
+          entry.refreshing.set(false);
+        }
+      }
+    });
+  }
+
+  /**
+   * A refresh of a cached response.
+   */
+  private static final class Refresh {
+    private final String key;
+    private final CachedResponse entry;
+
+    Refresh(String key, CachedResponse entry) {
+      this.key = key;
+      this.entry = entry;
+    }
+  }
+
+  /**
+   * A cached response.
+   */
+  private static final class CachedResponse {
+    private final HttpUrl url;
+    private final Response response;
+    private final MediaType contentType;
+    private final byte[] bytes;
+    private final String etag;
+    private final long storedAt = System.nanoTime();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    CachedResponse(HttpUrl url, Response response, MediaType contentType, byte[] bytes, String etag) {
+      this.url = url;
+      this.response = response;
+      this.contentType = contentType;
+      this.bytes = bytes;
+      this.etag = etag;
+    }
+
+    Response response(Request request) {
+      return response.newBuilder()
+          .request(request)
+          .body(ResponseBody.create(contentType, bytes))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.metrics.Histogram;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedges the GET calls of a service to cut their tail latency, for read operations on a hot path such as
+ * {@code Assistant.getWorkspace} or {@code TextToSpeech.listVoices}.<br>
+ * <br>
+ * When the response to a call has not arrived after a delay, a duplicate of the request is sent; the first response
+ * wins and the other response is discarded when it arrives. The delay of every operation is a percentile, by default
+ * the 95th, of the latency of its recent calls, so hedging starts once an operation has completed 20 calls. A fixed
+ * delay can be set instead.
+ * Hedges are paid for from a budget which every call adds a fraction to, by default 5%, so hedging cannot add more
+ * than that fraction of calls to the load of the service, even when the service is slow for everyone.<br>
+ * <br>
+ * Only GET calls are hedged, as they do not change anything. A call which cannot be hedged, because its operation has
+ * not completed enough calls yet or the budget is empty, is sent on the calling thread as usual. Otherwise the call is
+ * sent with {@link Chain#proceed(Request)} on an executor of daemon threads while the calling thread waits for the
+ * first response, and the hedge is a call of its own, a clone of the call, which is sent on the executor too. The hedge
+ * has its own {@code EventListener} events and passes through every interceptor of the client, except a
+ * {@link SingleFlight}, which sends it instead of making it wait for the call it duplicates.<br>
+ * <br>
+ * When the call wins, the hedge is cancelled. When the hedge wins, the call cannot be cancelled without cancelling the
+ * call of the caller, so its response is closed when it arrives. Cancelling the call of the caller cancels the hedge
+ * too:
+ *
+ * <pre>
+ * RequestHedging hedging = new RequestHedging.Builder().operations("getWorkspace").build();
+ * ServiceInterceptors.add(assistant, hedging);
+ * </pre>
+ */
+public final class RequestHedging implements Interceptor {
+  private static final String GET = "GET";
+
+  private static final double DEFAULT_PERCENTILE = 95;
+  private static final double DEFAULT_BUDGET = 0.05;
+  private static final int DEFAULT_MAX_BURST = 10;
+
+  // The delay of an operation is computed once it has completed MIN_SAMPLES calls, updated every UPDATE_INTERVAL
+  // calls, and the latencies are forgotten every WINDOW calls so the delay follows the recent behavior of the service.
+  private static final int MIN_SAMPLES = 20;
+  private static final int UPDATE_INTERVAL = 10;
+  private static final int WINDOW = 1000;
+
+  // How often a waiting call checks whether it was cancelled.
+  private static final long CANCEL_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  // The hedges in flight, which the interceptors pass on without hedging or coalescing them.
+  private static final Set<Call> HEDGES = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+
+  private final double percentile;
+  private final long fixedDelayNanos;
+  private final double budget;
+  private final int maxBurst;
+  private final Set<String> operations;
+  private final Executor executor;
+
+  private final ConcurrentMap<String, Latencies> latencies = new ConcurrentHashMap<>();
+  private final AtomicLong hedgeCount = new AtomicLong();
+  private double tokens;
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private double percentile = DEFAULT_PERCENTILE;
+    private long fixedDelayNanos = -1;
+    private double budget = DEFAULT_BUDGET;
+    private int maxBurst = DEFAULT_MAX_BURST;
+    private Set<String> operations = new HashSet<>();
+    private Executor executor;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds a RequestHedging.
+     *
+     * @return the requestHedging
+     */
+    public RequestHedging build() {
+      return new RequestHedging(this);
+    }
+
+    /**
+     * Set the percentile of the latency of an operation after which a call is hedged. Defaults to 95.
+     *
+     * @param percentile the percentile, greater than 0 and at most 100
+     * @return the RequestHedging builder
+     */
+    public Builder percentile(double percentile) {
+      this.percentile = percentile;
+      return this;
+    }
+
+    /**
+     * Set a fixed delay after which a call is hedged, instead of a percentile of the latency of its operation.
+     *
+     * @param delay the delay
+     * @param unit the time unit of delay
+     * @return the RequestHedging builder
+     */
+    public Builder delay(long delay, TimeUnit unit) {
+      this.fixedDelayNanos = unit.toNanos(delay);
+      return this;
+    }
+
+    /**
+     * Set the fraction of calls which may be hedged. Defaults to 0.05.
+     *
+     * @param budget the fraction of calls, between 0 and 1
+     * @return the RequestHedging builder
+     */
+    public Builder budget(double budget) {
+      this.budget = budget;
+      return this;
+    }
+
+    /**
+     * Set how many hedges the budget can save up while calls are fast, and spend at once when they become slow.
+     * Defaults to 10.
+     *
+     * @param maxBurst the number of hedges
+     * @return the RequestHedging builder
+     */
+    public Builder maxBurst(int maxBurst) {
+      this.maxBurst = maxBurst;
+      return this;
+    }
+
+    /**
+     * Set the operations which are hedged. By default every GET call is hedged.
+     *
+     * @param operationIds the operation ids, for example "getWorkspace"
+     * @return the RequestHedging builder
+     */
+    public Builder operations(String... operationIds) {
+      this.operations.addAll(Arrays.asList(operationIds));
+      return this;
+    }
+
+    /**
+     * Set the executor which runs the attempts. By default a shared pool of daemon threads is used.
+     *
+     * @param executor the executor
+     * @return the RequestHedging builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+  }
+
+  private RequestHedging(Builder builder) {
+    Validator.isTrue(builder.percentile > 0 && builder.percentile <= 100, "percentile must be between 0 and 100");
+    Validator.isTrue(builder.budget >= 0 && builder.budget <= 1, "budget must be between 0 and 1");
+    Validator.isTrue(builder.maxBurst >= 1, "maxBurst must be at least 1");
+    percentile = builder.percentile;
+    fixedDelayNanos = builder.fixedDelayNanos;
+    budget = builder.budget;
+    maxBurst = builder.maxBurst;
+    operations = Collections.unmodifiableSet(new HashSet<>(builder.operations));
+    executor = (builder.executor != null) ? builder.executor : BackgroundExecutor.INSTANCE;
+  }
+
+  /**
+   * Gets the number of calls which were hedged.
+   *
+   * @return the number of calls
+   */
+  public long getHedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /**
+   * Gets the delay after which a call of an operation is hedged.
+   *
+   * @param operationId the operation id, for example "getWorkspace"
+   * @param unit the time unit of the result
+   * @return the delay, or -1 if the operation has not completed enough calls yet
+   */
+  public long getDelay(String operationId, TimeUnit unit) {
+    long delayNanos = delayNanos(latencies(operationId));
+    return (delayNanos < 0) ? -1 : unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Checks whether a call is a hedge sent by a RequestHedging.
+   *
+   * @param call the call
+   * @return true if the call is a hedge
+   */
+  static boolean isHedge(Call call) {
+    return HEDGES.contains(call);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+   */
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String operationId = ServiceInterceptors.operationId(request);
+    if (!GET.equals(request.method()) || isHedge(chain.call())
+        || (!operations.isEmpty() && !operations.contains(operationId))) {
+      return chain.proceed(request);
+    }
+
+    Latencies operationLatencies = latencies(operationId);
+    deposit();
+    long delayNanos = delayNanos(operationLatencies);
+    long start = System.nanoTime();
+    Response response = (delayNanos >= 0 && canWithdraw())
+        ? new Race(chain).run(delayNanos)
+        : chain.proceed(request);
+    operationLatencies.record(System.nanoTime() - start, percentile);
+    return response;
+  }
+
+  private Latencies latencies(String operationId) {
+    String key = (operationId != null) ? operationId : "";
+    Latencies operationLatencies = latencies.get(key);
+    if (operationLatencies == null) {
+      operationLatencies = new Latencies();
+      Latencies existing = latencies.putIfAbsent(key, operationLatencies);
+      if (existing != null) {
+        operationLatencies = existing;
+      }
+    }
+    return operationLatencies;
+  }
+
+  private long delayNanos(Latencies operationLatencies) {
+    return (fixedDelayNanos >= 0) ? fixedDelayNanos : operationLatencies.delayNanos;
+  }
+
+  private synchronized void deposit() {
+    tokens = Math.min(maxBurst, tokens + budget);
+  }
+
+  private synchronized boolean canWithdraw() {
+    return tokens >= 1;
+  }
+
+  private synchronized boolean withdraw() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  /**
+   * The recent latencies of an operation.
+   */
+  private static final class Latencies {
+    private final Histogram histogram = new Histogram();
+    private volatile long delayNanos = -1;
+
+    void record(long latencyNanos, double percentile) {
+      histogram.record(latencyNanos);
+      long count = histogram.getCount();
+      if (count >= MIN_SAMPLES && count % UPDATE_INTERVAL == 0) {
+        synchronized (this) {
+          delayNanos = histogram.getValueAtPercentile(percentile);
+          if (histogram.getCount() >= WINDOW) {
+            histogram.reset();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The attempts of a single call, of which the first response wins.
+   */
+  private final class Race {
+    private final Chain chain;
+    private final ArrayDeque<Outcome> outcomes = new ArrayDeque<>(2);
+    private int attempts;
+    private boolean decided;
+    private Call hedge;
+
+    Race(Chain chain) {
+      this.chain = chain;
+    }
+
+    /**
+     * Sends the call, hedges it if no response has arrived after the delay, and waits for the first response.
+     *
+     * @param delayNanos the delay
+     * @return the first response
+     * @throws IOException if every attempt failed, or the call was cancelled
+     */
+    synchronized Response run(long delayNanos) throws IOException {
+      Call winner = null;
+      try {
+        start(null);
+        boolean hedgeDue = true;
+        long hedgeAt = System.nanoTime() + delayNanos;
+        IOException failure = null;
+        int failures = 0;
+        while (true) {
+          Outcome outcome = outcomes.poll();
+          if (outcome != null) {
+            if (outcome.response != null) {
+              winner = outcome.call;
+              return outcome.response;
+            }
+            failure = (failure != null) ? failure : outcome.failure;
+            if (++failures == attempts) {
+              throw failure;
+            }
+            continue;
+          }
+          if (chain.call().isCanceled()) {
+            throw new IOException("Canceled");
+          }
+
+          long waitNanos = CANCEL_CHECK_NANOS;
+          if (hedgeDue) {
+            long untilHedge = hedgeAt - System.nanoTime();
+            if (untilHedge <= 0) {
+              hedgeDue = false;
+              if (withdraw()) {
+                hedgeCount.incrementAndGet();
+                hedge = chain.call().clone();
+                start(hedge);
+              }
+              continue;
+            }
+            waitNanos = Math.min(waitNanos, untilHedge);
+          }
+          TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for a response");
+      } finally {
+        // The call cannot be cancelled without cancelling the call of the caller, so its response is closed when it
+        // arrives instead.
+        decided = true;
+        if (hedge != null && winner != hedge) {
+          hedge.cancel();
+        }
+        for (Outcome outcome : outcomes) {
+          if (outcome.response != null) {
+            outcome.response.close();
+          }
+        }
+        outcomes.clear();
+      }
+    }
+
+    /**
+     * Sends the call, or a hedge of it, on the executor.
+     *
+     * @param call the hedge, or null to send the call
+     */
+    private void start(final Call call) {
+      attempts++;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            Response response = (call != null) ? send(call) : chain.proceed(chain.request());
+            if (!deliver(new Outcome(call, response, null))) {
+              response.close();
+            }
+          } catch (IOException e) {
+            deliver(new Outcome(call, null, e));
+          } catch (RuntimeException e) {
+            deliver(new Outcome(call, null, new IOException(e)));
+          }
+        }
+      });
+    }
+
+    private Response send(Call call) throws IOException {
+      HEDGES.add(call);
+      try {
+        return call.execute();
+      } finally {
+        HEDGES.remove(call);
+      }
+    }
+
+    private synchronized boolean deliver(Outcome outcome) {
+      if (decided) {
+        return false;
+      }
+      outcomes.add(outcome);
+      notifyAll();
+      return true;
+    }
+  }
+
+  /**
+   * The response or failure of an attempt.
+   */
+  private static final class Outcome {
+    private final Call call;
+    private final Response response;
+    private final IOException failure;
+
+    Outcome(Call call, Response response, IOException failure) {
+      this.call = call;
+      this.response = response;
+      this.failure = failure;
+    }
+  }
+}
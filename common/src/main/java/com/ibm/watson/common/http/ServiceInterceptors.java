@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.http.HttpHeaders;
+import com.ibm.cloud.sdk.core.service.BaseService;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonHttpHeaders;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+/**
+ * Adds interceptors to and removes them from the HTTP client of a service:
+ *
+ * <pre>
+ * ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder().build();
+ * ServiceInterceptors.add(naturalLanguageUnderstanding, limiter);
+ * </pre>
+ *
+ * The client is rebuilt every time, so add interceptors again after replacing the client with
+ * {@link BaseService#setClient(OkHttpClient)}.
+ */
+public final class ServiceInterceptors {
+  private static final String AUTHORIZATION = "Authorization";
+
+  private ServiceInterceptors() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Adds an interceptor to a service. Interceptors run in the order they are added, and an interceptor which was
+   * already added is not added again.
+   *
+   * @param service the service
+   * @param interceptor the interceptor
+   */
+  public static void add(BaseService service, Interceptor interceptor) {
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(interceptor, "interceptor cannot be null");
+    OkHttpClient.Builder builder = service.getClient().newBuilder();
+    if (!builder.interceptors().contains(interceptor)) {
+      builder.addInterceptor(interceptor);
+      service.setClient(builder.build());
+    }
+  }
+
+  /**
+   * Removes an interceptor from a service.
+   *
+   * @param service the service
+   * @param interceptor the interceptor
+   */
+  public static void remove(BaseService service, Interceptor interceptor) {
+    Validator.notNull(service, "service cannot be null");
+    OkHttpClient.Builder builder = service.getClient().newBuilder();
+    if (builder.interceptors().remove(interceptor)) {
+      service.setClient(builder.build());
+    }
+  }
+
+  /**
+   * Gets the first interceptor of a type which was added to a service.
+   *
+   * @param <T> the type of the interceptor
+   * @param service the service
+   * @param type the class of the interceptor
+   * @return the interceptor, or null if none was added
+   */
+  public static <T extends Interceptor> T get(BaseService service, Class<T> type) {
+    Validator.notNull(service, "service cannot be null");
+    for (Interceptor interceptor : service.getClient().interceptors()) {
+      if (type.isInstance(interceptor)) {
+        return type.cast(interceptor);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the operation of a request from its {@link WatsonHttpHeaders#X_IBMCLOUD_SDK_ANALYTICS} header.
+   *
+   * @param request the request
+   * @return the operation id, for example "analyze", or null if the request has no analytics header
+   */
+  static String operationId(Request request) {
+    return SdkCommon.getSdkAnalyticsField(request.header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS),
+        SdkCommon.OPERATION_ID_FIELD);
+  }
+
+  /**
+   * Gets the key which identifies the resource and representation a GET request reads: its URL, including the query,
+   * and its {@code Authorization} and {@code Accept} headers.
+   *
+   * @param request the request
+   * @return the key
+   */
+  static String resourceKey(Request request) {
+    StringBuilder key = new StringBuilder(request.url().toString());
+    String authorization = request.header(AUTHORIZATION);
+    if (authorization != null) {
+      key.append('\n').append(AUTHORIZATION).append(':').append(authorization);
+    }
+    String accept = request.header(HttpHeaders.ACCEPT);
+    if (accept != null) {
+      key.append('\n').append(HttpHeaders.ACCEPT).append(':').append(accept);
+    }
+    return key.toString();
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.http.HttpClientSingleton;
+import com.ibm.cloud.sdk.core.service.BaseService;
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connection pool and dispatcher shared by the HTTP clients of all Watson services in the process.<br>
+ * <br>
+ * Every service takes its client from the shared transport when it is created, so all service instances which call
+ * the same host reuse the same idle connections, and share one limit on the number of concurrent calls per host. The
+ * clients also share the TLS socket factory of the SDK's base client, so TLS sessions are resumed across services, and
+ * OkHttp negotiates HTTP/2 where the service supports it, so the calls of all services to a host are multiplexed on a
+ * single connection. The WebSocket sessions of {@code SpeechToText} and {@code TextToSpeech} use the same
+ * transport.<br>
+ * <br>
+ * The default transport uses OkHttp's default pool and limits. To tune it, set a new transport before creating the
+ * services; services created earlier can be moved to it with {@link #share(BaseService)}:
+ *
+ * <pre>
+ * SharedTransport.setInstance(new SharedTransport.Builder()
+ *     .maxIdleConnections(20)
+ *     .maxRequestsPerHost(32)
+ *     .build());
+ * </pre>
+ */
+public final class SharedTransport {
+  private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+  private static final long DEFAULT_KEEP_ALIVE_MINUTES = 5;
+  private static final int DEFAULT_MAX_REQUESTS = 64;
+  private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+  private static volatile SharedTransport instance;
+
+  private final ConnectionPool connectionPool;
+  private final Dispatcher dispatcher;
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private long keepAliveNanos = TimeUnit.MINUTES.toNanos(DEFAULT_KEEP_ALIVE_MINUTES);
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds a SharedTransport.
+     *
+     * @return the sharedTransport
+     */
+    public SharedTransport build() {
+      Validator.isTrue(maxIdleConnections >= 0, "maxIdleConnections cannot be negative");
+      Validator.isTrue(keepAliveNanos > 0, "keepAlive must be greater than 0");
+      Dispatcher dispatcher = new Dispatcher();
+      dispatcher.setMaxRequests(maxRequests);
+      dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+      return new SharedTransport(new ConnectionPool(maxIdleConnections, keepAliveNanos, TimeUnit.NANOSECONDS),
+          dispatcher);
+    }
+
+    /**
+     * Set the number of idle connections kept open for reuse, across all hosts. Defaults to 5.
+     *
+     * @param maxIdleConnections the number of idle connections
+     * @return the SharedTransport builder
+     */
+    public Builder maxIdleConnections(int maxIdleConnections) {
+      this.maxIdleConnections = maxIdleConnections;
+      return this;
+    }
+
+    /**
+     * Set how long an idle connection is kept open. Defaults to 5 minutes.
+     *
+     * @param keepAlive the time
+     * @param unit the time unit of keepAlive
+     * @return the SharedTransport builder
+     */
+    public Builder keepAlive(long keepAlive, TimeUnit unit) {
+      this.keepAliveNanos = unit.toNanos(keepAlive);
+      return this;
+    }
+
+    /**
+     * Set the number of asynchronous calls which run at the same time, across all hosts. Defaults to 64.
+     *
+     * @param maxRequests the number of calls
+     * @return the SharedTransport builder
+     */
+    public Builder maxRequests(int maxRequests) {
+      this.maxRequests = maxRequests;
+      return this;
+    }
+
+    /**
+     * Set the number of asynchronous calls to a single host which run at the same time. Defaults to 5.
+     *
+     * @param maxRequestsPerHost the number of calls
+     * @return the SharedTransport builder
+     */
+    public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+      this.maxRequestsPerHost = maxRequestsPerHost;
+      return this;
+    }
+  }
+
+  private SharedTransport(ConnectionPool connectionPool, Dispatcher dispatcher) {
+    this.connectionPool = connectionPool;
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * Gets the shared transport. Unless another transport was set, it is the connection pool and dispatcher of the SDK's
+   * base client.
+   *
+   * @return the shared transport
+   */
+  public static SharedTransport getInstance() {
+    SharedTransport current = instance;
+    if (current == null) {
+      synchronized (SharedTransport.class) {
+        current = instance;
+        if (current == null) {
+          OkHttpClient base = HttpClientSingleton.getInstance().createHttpClient();
+          current = new SharedTransport(base.connectionPool(), base.dispatcher());
+          instance = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Sets the shared transport used by the services created from now on.
+   *
+   * @param sharedTransport the shared transport
+   */
+  public static void setInstance(SharedTransport sharedTransport) {
+    Validator.notNull(sharedTransport, "sharedTransport cannot be null");
+    instance = sharedTransport;
+  }
+
+  /**
+   * Creates the client of a WebSocket session from the client of a service. The WebSocket shares the transport,
+   * settings and application interceptors of the service's client, except the interceptors of this package which only
+   * apply to HTTP calls, such as a {@link ConcurrencyLimiter}.
+   *
+   * @param client the client of the service
+   * @return the client of the WebSocket
+   */
+  public static OkHttpClient webSocketClient(OkHttpClient client) {
+    OkHttpClient.Builder builder = null;
+    for (Interceptor interceptor : client.interceptors()) {
+      if (isCallInterceptor(interceptor)) {
+        if (builder == null) {
+          builder = client.newBuilder();
+        }
+        builder.interceptors().remove(interceptor);
+      }
+    }
+    return (builder != null) ? builder.build() : client;
+  }
+
+  private static boolean isCallInterceptor(Interceptor interceptor) {
+    return interceptor instanceof ConcurrencyLimiter || interceptor instanceof RequestHedging
+        || interceptor instanceof SingleFlight || interceptor instanceof MetadataCache
+        || interceptor instanceof AsyncCalls;
+  }
+
+  /**
+   * Moves a client to this transport. The client also drops the header by which an {@link AsyncCalls} recognizes its
+   * calls, in case the {@code AsyncCalls} was not added to the client.
+   *
+   * @param client the client
+   * @return a client with the settings of the client which uses this transport, or the client itself if it already
+   *         uses it
+   */
+  public OkHttpClient share(OkHttpClient client) {
+    Validator.notNull(client, "client cannot be null");
+    if (isShared(client)) {
+      return client;
+    }
+    OkHttpClient.Builder builder = client.newBuilder()
+        .connectionPool(connectionPool)
+        .dispatcher(dispatcher);
+    if (!client.networkInterceptors().contains(AsyncCalls.HEADER_REMOVER)) {
+      builder.addNetworkInterceptor(AsyncCalls.HEADER_REMOVER);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Moves the client of a service to this transport.
+   *
+   * @param service the service
+   */
+  public void share(BaseService service) {
+    Validator.notNull(service, "service cannot be null");
+    service.setClient(share(service.getClient()));
+  }
+
+  /**
+   * Whether a client uses this transport.
+   *
+   * @param client the client
+   * @return true if the client uses the connection pool and dispatcher of this transport, and drops the header of
+   *         {@link AsyncCalls}
+   */
+  public boolean isShared(OkHttpClient client) {
+    return client.connectionPool() == connectionPool && client.dispatcher() == dispatcher
+        && client.networkInterceptors().contains(AsyncCalls.HEADER_REMOVER);
+  }
+
+  /**
+   * Sets the number of asynchronous calls to a single host which run at the same time. Further calls wait until a
+   * call finishes.
+   *
+   * @param maxRequestsPerHost the number of calls
+   */
+  public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+  }
+
+  /**
+   * Gets the number of asynchronous calls to a single host which run at the same time.
+   *
+   * @return the number of calls
+   */
+  public int getMaxRequestsPerHost() {
+    return dispatcher.getMaxRequestsPerHost();
+  }
+
+  /**
+   * Sets the number of asynchronous calls which run at the same time, across all hosts.
+   *
+   * @param maxRequests the number of calls
+   */
+  public void setMaxRequests(int maxRequests) {
+    dispatcher.setMaxRequests(maxRequests);
+  }
+
+  /**
+   * Gets the number of asynchronous calls which run at the same time, across all hosts.
+   *
+   * @return the number of calls
+   */
+  public int getMaxRequests() {
+    return dispatcher.getMaxRequests();
+  }
+
+  /**
+   * Gets the number of open connections, idle or in use. An HTTP/2 connection counts once, however many calls it
+   * carries.
+   *
+   * @return the number of connections
+   */
+  public int getConnectionCount() {
+    return connectionPool.connectionCount();
+  }
+
+  /**
+   * Gets the number of idle connections.
+   *
+   * @return the number of connections
+   */
+  public int getIdleConnectionCount() {
+    return connectionPool.idleConnectionCount();
+  }
+
+  /**
+   * Gets the number of calls which are running, including WebSocket sessions.
+   *
+   * @return the number of calls
+   */
+  public int getRunningCallCount() {
+    return dispatcher.runningCallsCount();
+  }
+
+  /**
+   * Gets the number of calls to a host which are running, including WebSocket sessions.
+   *
+   * @param host the host, for example "gateway.watsonplatform.net"
+   * @return the number of calls
+   */
+  public int getRunningCallCount(String host) {
+    int count = 0;
+    for (Call call : dispatcher.runningCalls()) {
+      if (call.request().url().host().equals(host)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of asynchronous calls which wait for the limits on concurrent calls.
+   *
+   * @return the number of calls
+   */
+  public int getQueuedCallCount() {
+    return dispatcher.queuedCallsCount();
+  }
+
+  /**
+   * Closes all idle connections, for example when the network has changed.
+   */
+  public void evictAll() {
+    connectionPool.evictAll();
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical GET calls which are in flight at the same time into a single call, for applications in which
+ * many threads request the same large resource at once, for example {@code Assistant.getWorkspace} with
+ * {@code export=true} when a cache expires.<br>
+ * <br>
+ * Calls are identical when they have the same URL, including the query, and the same {@code Authorization} and
+ * {@code Accept} headers. The first call is sent, and the calls which arrive while it is in flight wait for its
+ * response instead of sending their own. The response body is read once and every caller gets its own copy of the
+ * bytes, which it decodes into its own result, so callers can change their results without affecting each other.<br>
+ * <br>
+ * The body is only buffered when other calls are actually waiting once the response headers arrive. A call which is
+ * alone gets the body straight from the connection, so its result is decoded while the body is read and the raw bytes
+ * are never held in memory. A body larger than the maximum shared body size is not buffered either: the sent call
+ * streams it, and the waiting calls are sent on their own.<br>
+ * <br>
+ * A waiting call which is cancelled stops waiting without affecting the others. When the call which was sent is
+ * cancelled, the calls waiting for it are sent again, and the first of them is shared by the rest. The hedges of a
+ * {@link RequestHedging} are sent as they are, as they would otherwise wait for the call they duplicate.
+ *
+ * <pre>
+ * SingleFlight singleFlight = new SingleFlight();
+ * ServiceInterceptors.add(assistant, singleFlight);
+ * </pre>
+ */
+public final class SingleFlight implements Interceptor {
+  private static final String GET = "GET";
+  private static final long DEFAULT_MAX_SHARED_BODY_SIZE = 16 * 1024 * 1024;
+
+  // How often a waiting call checks whether it was cancelled.
+  private static final long CANCEL_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final long maxSharedBodySize;
+  private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+  private final AtomicLong sentCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /**
+   * Instantiates a new SingleFlight which shares response bodies of up to 16 MB.
+   */
+  public SingleFlight() {
+    this(DEFAULT_MAX_SHARED_BODY_SIZE);
+  }
+
+  /**
+   * Instantiates a new SingleFlight.
+   *
+   * @param maxSharedBodySize the size in bytes of the largest response body which is buffered to share it with
+   *          waiting calls
+   */
+  public SingleFlight(long maxSharedBodySize) {
+    Validator.isTrue(maxSharedBodySize >= 0, "maxSharedBodySize cannot be negative");
+    this.maxSharedBodySize = maxSharedBodySize;
+  }
+
+  /**
+   * Gets the number of calls which were sent.
+   *
+   * @return the number of calls
+   */
+  public long getSentCount() {
+    return sentCount.get();
+  }
+
+  /**
+   * Gets the number of calls which were answered with the response of an identical call instead of being sent.
+   *
+   * @return the number of calls
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * Gets the number of distinct calls in flight.
+   *
+   * @return the number of calls
+   */
+  public int getInFlightCount() {
+    return flights.size();
+  }
+
+  /**
+   * Gets the number of calls waiting for an identical call in flight.
+   *
+   * @return the number of calls
+   */
+  int getWaitingCount() {
+    int count = 0;
+    for (Flight flight : flights.values()) {
+      count += flight.waiting();
+    }
+    return count;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+   */
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    if (!GET.equals(request.method()) || RequestHedging.isHedge(chain.call())) {
+      return chain.proceed(request);
+    }
+
+    String key = ServiceInterceptors.resourceKey(request);
+    while (true) {
+      Flight flight = new Flight();
+      Flight existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        return send(chain, key, flight);
+      }
+      Response response = existing.await(chain.call(), request);
+      if (response != null) {
+        coalescedCount.incrementAndGet();
+        return response;
+      }
+      if (existing.isBypassed()) {
+        // The body was too large to share.
+        sentCount.incrementAndGet();
+        return chain.proceed(request);
+      }
+      // The call which was sent was cancelled, or its response arrived before this call could join it, so try again.
+    }
+  }
+
+  /**
+   * Sends a call and shares its response with the calls waiting for it.
+   *
+   * @param chain the chain of the call
+   * @param key the key of the call
+   * @param flight the flight of the call
+   * @return the response
+   * @throws IOException if the call failed
+   */
+  private Response send(Chain chain, String key, Flight flight) throws IOException {
+    sentCount.incrementAndGet();
+    Response response = null;
+    MediaType contentType = null;
+    byte[] bytes = null;
+    IOException failure = null;
+    boolean shared = true;
+    try {
+      Response networkResponse = chain.proceed(chain.request());
+      // Calls which arrive from now on send their own call, as the headers of this one are already here.
+      flights.remove(key, flight);
+      int waiting = flight.close();
+      ResponseBody body = networkResponse.body();
+      if (body != null) {
+        if (waiting == 0) {
+          shared = false;
+        } else if (fits(body)) {
+          contentType = body.contentType();
+          bytes = body.bytes();
+          networkResponse = networkResponse.newBuilder().body(ResponseBody.create(contentType, bytes)).build();
+        } else {
+          shared = false;
+          flight.bypass();
+        }
+      }
+      response = networkResponse;
+      return response;
+    } catch (IOException e) {
+      failure = e;
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+      if (response == null) {
+        flight.fail(chain.call().isCanceled() ? null : failure);
+      } else if (shared) {
+        flight.succeed(response, contentType, bytes);
+      }
+    }
+  }
+
+  /**
+   * Checks whether a response body is small enough to be buffered, loading at most one byte more than the maximum
+   * shared body size into the body's own buffer. The body can still be read from the start afterwards.
+   *
+   * @param body the body
+   * @return true if the body can be buffered
+   * @throws IOException if the body cannot be read
+   */
+  private boolean fits(ResponseBody body) throws IOException {
+    long contentLength = body.contentLength();
+    if (contentLength >= 0) {
+      return contentLength <= maxSharedBodySize;
+    }
+    return !body.source().request(maxSharedBodySize + 1);
+  }
+
+  /**
+   * A call in flight, and the outcome shared with the calls waiting for it.
+   */
+  private static final class Flight {
+    private int waiting;
+    private boolean closed;
+    private boolean bypassed;
+    private boolean done;
+    private Response response;
+    private byte[] bytes;
+    private MediaType contentType;
+    private IOException failure;
+
+    synchronized void succeed(Response sharedResponse, MediaType sharedContentType, byte[] sharedBytes) {
+      response = sharedResponse;
+      contentType = sharedContentType;
+      bytes = sharedBytes;
+      done = true;
+      notifyAll();
+    }
+
+    /**
+     * Stops calls from joining the flight.
+     *
+     * @return the number of calls waiting for the flight
+     */
+    synchronized int close() {
+      closed = true;
+      return waiting;
+    }
+
+    /**
+     * Tells the waiting calls to send their own calls.
+     */
+    synchronized void bypass() {
+      bypassed = true;
+      done = true;
+      notifyAll();
+    }
+
+    synchronized int waiting() {
+      return waiting;
+    }
+
+    synchronized boolean isBypassed() {
+      return bypassed;
+    }
+
+    synchronized void fail(IOException sharedFailure) {
+      failure = sharedFailure;
+      done = true;
+      notifyAll();
+    }
+
+    /**
+     * Waits for the response of the call in flight.
+     *
+     * @param call the waiting call
+     * @param request the request of the waiting call
+     * @return a copy of the response, or null if the call in flight was cancelled, its body is not shared, or its
+     *         response arrived before the waiting call joined
+     * @throws IOException if the call in flight failed, or the waiting call was cancelled
+     */
+    synchronized Response await(Call call, Request request) throws IOException {
+      if (closed) {
+        return null;
+      }
+      waiting++;
+      try {
+        while (!done) {
+          if (call.isCanceled()) {
+            waiting--;
+            throw new IOException("Canceled");
+          }
+          TimeUnit.NANOSECONDS.timedWait(this, CANCEL_CHECK_NANOS);
+        }
+      } catch (InterruptedException e) {
+        waiting--;
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for an identical call");
+      }
+      if (failure != null) {
+        throw new IOException(failure.getMessage(), failure);
+      }
+      if (bypassed || response == null) {
+        return null;
+      }
+      Response.Builder builder = response.newBuilder().request(request);
+      if (bytes != null) {
+        builder.body(ResponseBody.create(contentType, bytes));
+      }
+      return builder.build();
+    }
+  }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+/**
+ * This package contains the HTTP transport shared by the Watson services, {@link SharedTransport}, and OkHttp
+ * interceptors which shape their calls, such as the {@link ConcurrencyLimiter}, with {@link ServiceInterceptors} to add
+ * them to and remove them from a service.
+ */
+package com.ibm.watson.common.http;
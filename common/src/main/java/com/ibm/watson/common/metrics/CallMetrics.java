@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements of a single HTTP call of a service operation. The service, version and operation are taken from the
+ * SDK analytics header of the request.
+ */
+public final class CallMetrics {
+  private final String serviceName;
+  private final String serviceVersion;
+  private final String operationId;
+  private final int statusCode;
+  private final boolean failed;
+  private final int retries;
+  private final long queueNanos;
+  private final long timeToFirstByteNanos;
+  private final long totalNanos;
+  private final long requestBytes;
+  private final long responseBytes;
+
+  CallMetrics(String serviceName, String serviceVersion, String operationId, int statusCode, boolean failed,
+      int retries, long queueNanos, long timeToFirstByteNanos, long totalNanos, long requestBytes,
+      long responseBytes) {
+    this.serviceName = serviceName;
+    this.serviceVersion = serviceVersion;
+    this.operationId = operationId;
+    this.statusCode = statusCode;
+    this.failed = failed;
+    this.retries = retries;
+    this.queueNanos = queueNanos;
+    this.timeToFirstByteNanos = timeToFirstByteNanos;
+    this.totalNanos = totalNanos;
+    this.requestBytes = requestBytes;
+    this.responseBytes = responseBytes;
+  }
+
+  /**
+   * Gets the service name, for example "speech_to_text".
+   *
+   * @return the service name
+   */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   * Gets the service version, for example "v1".
+   *
+   * @return the service version
+   */
+  public String getServiceVersion() {
+    return serviceVersion;
+  }
+
+  /**
+   * Gets the operation id, for example "recognize".
+   *
+   * @return the operation id
+   */
+  public String getOperationId() {
+    return operationId;
+  }
+
+  /**
+   * Gets the HTTP status code of the last response.
+   *
+   * @return the status code, or 0 if no response was received
+   */
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * Whether the call failed with an exception, for example a timeout or a connection failure. A call which received
+   * an error response has not failed in this sense.
+   *
+   * @return true if the call failed
+   */
+  public boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * Gets the number of times the request was sent again, for example after a connection failure, a redirect or an
+   * authentication challenge.
+   *
+   * @return the number of retries
+   */
+  public int getRetries() {
+    return retries;
+  }
+
+  /**
+   * Gets the time from the start of the call until it began to connect or was given a pooled connection. For
+   * asynchronous calls this includes the time spent waiting for a free slot in the dispatcher.
+   *
+   * @param unit the time unit of the result
+   * @return the queue time, or -1 if the call failed before it was sent
+   */
+  public long getQueueTime(TimeUnit unit) {
+    return convert(queueNanos, unit);
+  }
+
+  /**
+   * Gets the time from the start of the call until the response headers began to arrive.
+   *
+   * @param unit the time unit of the result
+   * @return the time to first byte, or -1 if no response was received
+   */
+  public long getTimeToFirstByte(TimeUnit unit) {
+    return convert(timeToFirstByteNanos, unit);
+  }
+
+  /**
+   * Gets the time from the start of the call until the response body was consumed or the call failed.
+   *
+   * @param unit the time unit of the result
+   * @return the total latency
+   */
+  public long getTotalTime(TimeUnit unit) {
+    return convert(totalNanos, unit);
+  }
+
+  /**
+   * Gets the number of request body bytes sent.
+   *
+   * @return the number of bytes
+   */
+  public long getRequestBytes() {
+    return requestBytes;
+  }
+
+  /**
+   * Gets the number of response body bytes received.
+   *
+   * @return the number of bytes
+   */
+  public long getResponseBytes() {
+    return responseBytes;
+  }
+
+  static long convert(long nanos, TimeUnit unit) {
+    return (nanos < 0) ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values with a bounded relative error, for example latencies in nanoseconds or body
+ * sizes in bytes.<br>
+ * <br>
+ * Values below 128 are counted exactly. Larger values are counted in buckets whose width doubles with every power of
+ * two, with 64 buckets per power of two, so a percentile is never more than about 1.6% above the recorded value. The
+ * counts live in a fixed array of about 20 KB and recording a value does not allocate, so a histogram can be updated
+ * from many threads at a high rate. Values above {@link #MAX_VALUE} are counted as {@link #MAX_VALUE}.
+ */
+public final class Histogram {
+  /** The largest value which is counted precisely, about 4.9 hours in nanoseconds. */
+  public static final long MAX_VALUE = (1L << 44) - 1;
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * 2;
+  private static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value.
+   *
+   * @param value the value, which must not be negative
+   */
+  public void record(long value) {
+    Validator.isTrue(value >= 0, "value cannot be negative");
+    long clamped = Math.min(value, MAX_VALUE);
+    counts.incrementAndGet(index(clamped));
+    count.incrementAndGet();
+    total.addAndGet(clamped);
+    long current;
+    while (clamped < (current = min.get()) && !min.compareAndSet(current, clamped)) {
+      // retry
+    }
+    while (clamped > (current = max.get()) && !max.compareAndSet(current, clamped)) {
+      // retry
+    }
+  }
+
+  /**
+   * Gets the number of recorded values.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Gets the sum of the recorded values.
+   *
+   * @return the total
+   */
+  public long getTotal() {
+    return total.get();
+  }
+
+  /**
+   * Gets the smallest recorded value.
+   *
+   * @return the minimum, or 0 if no value has been recorded
+   */
+  public long getMin() {
+    return (count.get() == 0) ? 0 : min.get();
+  }
+
+  /**
+   * Gets the largest recorded value.
+   *
+   * @return the maximum, or 0 if no value has been recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return the mean, or 0 if no value has been recorded
+   */
+  public double getMean() {
+    long n = count.get();
+    return (n == 0) ? 0 : (double) total.get() / n;
+  }
+
+  /**
+   * Gets the value below which the given percentage of the recorded values fall. The result is the upper bound of the
+   * bucket that contains the percentile, capped at the largest recorded value.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the value at the percentile, or 0 if no value has been recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    Validator.isTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Gets the median of the recorded values.
+   *
+   * @return the median
+   */
+  public long getMedian() {
+    return getValueAtPercentile(50);
+  }
+
+  /**
+   * Removes all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    total.set(0);
+    min.set(Long.MAX_VALUE);
+    max.set(0);
+  }
+
+  private static int index(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    // Shift the value so it falls between SUB_BUCKET_HALF_COUNT and SUB_BUCKET_COUNT - 1.
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+  }
+
+  private static long highestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+    long subBucket = index - (long) shift * SUB_BUCKET_HALF_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
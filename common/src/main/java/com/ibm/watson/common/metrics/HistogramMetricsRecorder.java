@@ -0,0 +1,314 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MetricsRecorder} which aggregates the measurements of each operation in memory. Times are recorded in
+ * nanoseconds and sizes in bytes, in {@link Histogram}s which can be read at any time, for example by a task which
+ * periodically publishes percentiles to a monitoring system.
+ */
+public class HistogramMetricsRecorder implements MetricsRecorder {
+  private final ConcurrentMap<String, CallStats> calls = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, WebSocketStats> webSockets = new ConcurrentHashMap<>();
+
+  /**
+   * The aggregated measurements of the HTTP calls of an operation.
+   */
+  public static final class CallStats {
+    private final Histogram queueTime = new Histogram();
+    private final Histogram timeToFirstByte = new Histogram();
+    private final Histogram totalTime = new Histogram();
+    private final Histogram requestBytes = new Histogram();
+    private final Histogram responseBytes = new Histogram();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final ConcurrentMap<Integer, AtomicLong> statusCodes = new ConcurrentHashMap<>();
+
+    private CallStats() {
+    }
+
+    private void record(CallMetrics metrics) {
+      recordTime(queueTime, metrics.getQueueTime(TimeUnit.NANOSECONDS));
+      recordTime(timeToFirstByte, metrics.getTimeToFirstByte(TimeUnit.NANOSECONDS));
+      totalTime.record(metrics.getTotalTime(TimeUnit.NANOSECONDS));
+      requestBytes.record(metrics.getRequestBytes());
+      responseBytes.record(metrics.getResponseBytes());
+      retries.addAndGet(metrics.getRetries());
+      if (metrics.isFailed()) {
+        failures.incrementAndGet();
+      }
+      if (metrics.getStatusCode() > 0) {
+        increment(statusCodes, metrics.getStatusCode());
+      }
+    }
+
+    /**
+     * Gets the queue times, in nanoseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getQueueTime() {
+      return queueTime;
+    }
+
+    /**
+     * Gets the times to first byte, in nanoseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getTimeToFirstByte() {
+      return timeToFirstByte;
+    }
+
+    /**
+     * Gets the total latencies, in nanoseconds. The count of this histogram is the number of calls.
+     *
+     * @return the histogram
+     */
+    public Histogram getTotalTime() {
+      return totalTime;
+    }
+
+    /**
+     * Gets the request body sizes, in bytes.
+     *
+     * @return the histogram
+     */
+    public Histogram getRequestBytes() {
+      return requestBytes;
+    }
+
+    /**
+     * Gets the response body sizes, in bytes.
+     *
+     * @return the histogram
+     */
+    public Histogram getResponseBytes() {
+      return responseBytes;
+    }
+
+    /**
+     * Gets the number of calls which failed with an exception.
+     *
+     * @return the number of failures
+     */
+    public long getFailures() {
+      return failures.get();
+    }
+
+    /**
+     * Gets the total number of retries.
+     *
+     * @return the number of retries
+     */
+    public long getRetries() {
+      return retries.get();
+    }
+
+    /**
+     * Gets the number of responses of each HTTP status code.
+     *
+     * @return a snapshot of the counts, sorted by status code
+     */
+    public Map<Integer, Long> getStatusCodes() {
+      Map<Integer, Long> snapshot = new TreeMap<>();
+      for (Map.Entry<Integer, AtomicLong> entry : statusCodes.entrySet()) {
+        snapshot.put(entry.getKey(), entry.getValue().get());
+      }
+      return Collections.unmodifiableMap(snapshot);
+    }
+  }
+
+  /**
+   * The aggregated measurements of the WebSocket sessions of an operation.
+   */
+  public static final class WebSocketStats {
+    private final Histogram connectTime = new Histogram();
+    private final Histogram timeToFirstResult = new Histogram();
+    private final Histogram duration = new Histogram();
+    private final Histogram framesPerSecond = new Histogram();
+    private final AtomicLong failures = new AtomicLong();
+
+    private WebSocketStats() {
+    }
+
+    private void record(WebSocketMetrics metrics) {
+      recordTime(connectTime, metrics.getConnectTime(TimeUnit.NANOSECONDS));
+      recordTime(timeToFirstResult, metrics.getTimeToFirstResult(TimeUnit.NANOSECONDS));
+      duration.record(metrics.getDuration(TimeUnit.NANOSECONDS));
+      framesPerSecond.record(Math.round(metrics.getFramesPerSecond()));
+      if (metrics.isFailed()) {
+        failures.incrementAndGet();
+      }
+    }
+
+    /**
+     * Gets the connect times, in nanoseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getConnectTime() {
+      return connectTime;
+    }
+
+    /**
+     * Gets the times to first result, in nanoseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getTimeToFirstResult() {
+      return timeToFirstResult;
+    }
+
+    /**
+     * Gets the session durations, in nanoseconds. The count of this histogram is the number of sessions.
+     *
+     * @return the histogram
+     */
+    public Histogram getDuration() {
+      return duration;
+    }
+
+    /**
+     * Gets the rates at which the sessions received messages, in frames per second.
+     *
+     * @return the histogram
+     */
+    public Histogram getFramesPerSecond() {
+      return framesPerSecond;
+    }
+
+    /**
+     * Gets the number of sessions which failed.
+     *
+     * @return the number of failures
+     */
+    public long getFailures() {
+      return failures.get();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.watson.common.metrics.MetricsRecorder#recordCall(com.ibm.watson.common.metrics.CallMetrics)
+   */
+  @Override
+  public void recordCall(CallMetrics metrics) {
+    String key = key(metrics.getServiceName(), metrics.getOperationId());
+    CallStats stats = calls.get(key);
+    if (stats == null) {
+      CallStats created = new CallStats();
+      stats = calls.putIfAbsent(key, created);
+      if (stats == null) {
+        stats = created;
+      }
+    }
+    stats.record(metrics);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.watson.common.metrics.MetricsRecorder#recordWebSocket(com.ibm.watson.common.metrics.WebSocketMetrics)
+   */
+  @Override
+  public void recordWebSocket(WebSocketMetrics metrics) {
+    String key = key(metrics.getServiceName(), metrics.getOperationId());
+    WebSocketStats stats = webSockets.get(key);
+    if (stats == null) {
+      WebSocketStats created = new WebSocketStats();
+      stats = webSockets.putIfAbsent(key, created);
+      if (stats == null) {
+        stats = created;
+      }
+    }
+    stats.record(metrics);
+  }
+
+  /**
+   * Gets the measurements of the HTTP calls of an operation.
+   *
+   * @param serviceName the service name, as sent in the SDK analytics header, for example "conversation"
+   * @param operationId the operation id, for example "message"
+   * @return the stats, or null if no call of the operation has been recorded
+   */
+  public CallStats getCallStats(String serviceName, String operationId) {
+    return calls.get(key(serviceName, operationId));
+  }
+
+  /**
+   * Gets the measurements of the WebSocket sessions of an operation.
+   *
+   * @param serviceName the service name, for example "speech_to_text"
+   * @param operationId the operation id, for example "recognizeUsingWebSocket"
+   * @return the stats, or null if no session of the operation has been recorded
+   */
+  public WebSocketStats getWebSocketStats(String serviceName, String operationId) {
+    return webSockets.get(key(serviceName, operationId));
+  }
+
+  /**
+   * Gets the measurements of the HTTP calls of all operations, keyed by "service_name/operation_id".
+   *
+   * @return the stats
+   */
+  public Map<String, CallStats> getCallStats() {
+    return Collections.unmodifiableMap(new TreeMap<>(calls));
+  }
+
+  /**
+   * Gets the measurements of the WebSocket sessions of all operations, keyed by "service_name/operation_id".
+   *
+   * @return the stats
+   */
+  public Map<String, WebSocketStats> getWebSocketStats() {
+    return Collections.unmodifiableMap(new TreeMap<>(webSockets));
+  }
+
+  /**
+   * Removes all measurements.
+   */
+  public void clear() {
+    calls.clear();
+    webSockets.clear();
+  }
+
+  private static String key(String serviceName, String operationId) {
+    return serviceName + '/' + operationId;
+  }
+
+  private static void recordTime(Histogram histogram, long nanos) {
+    if (nanos >= 0) {
+      histogram.record(nanos);
+    }
+  }
+
+  private static void increment(ConcurrentMap<Integer, AtomicLong> counts, int key) {
+    AtomicLong count = counts.get(key);
+    if (count == null) {
+      AtomicLong created = new AtomicLong();
+      count = counts.putIfAbsent(key, created);
+      if (count == null) {
+        count = created;
+      }
+    }
+    count.incrementAndGet();
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonHttpHeaders;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures a single call and passes the result to a {@link MetricsRecorder} when the call ends, and traces its
+ * {@link SdkTracer.Stage#NETWORK} stage if tracing is on. OkHttp creates one listener per call and calls it from one
+ * thread at a time.<br>
+ * <br>
+ * OkHttp only ends a call once it has used a connection, so a call which an interceptor answers without a network
+ * request, for example a cache hit, is not recorded.
+ */
+final class MetricsEventListener extends EventListener {
+  private final MetricsRecorder recorder;
+  private final AtomicBoolean recorded = new AtomicBoolean();
+  private String analytics;
+  private long start;
+  private SdkTracer.Span network;
+  private long queueNanos = -1;
+  private long timeToFirstByteNanos = -1;
+  private int requests;
+  private int statusCode;
+  private long requestBytes;
+  private long responseBytes;
+
+  /**
+   * Creates a {@link MetricsEventListener} for every call of a client.
+   */
+  static final class Factory implements EventListener.Factory {
+    private final MetricsRecorder recorder;
+
+    Factory(MetricsRecorder recorder) {
+      this.recorder = recorder;
+    }
+
+    MetricsRecorder recorder() {
+      return recorder;
+    }
+
+    @Override
+    public EventListener create(Call call) {
+      return new MetricsEventListener(recorder);
+    }
+  }
+
+  private MetricsEventListener(MetricsRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  @Override
+  public void callStart(Call call) {
+    start = System.nanoTime();
+    analytics = call.request().header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS);
+  }
+
+  @Override
+  public void dnsStart(Call call, String domainName) {
+    dequeued();
+  }
+
+  @Override
+  public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+    dequeued();
+  }
+
+  @Override
+  public void connectionAcquired(Call call, Connection connection) {
+    dequeued();
+  }
+
+  @Override
+  public void requestHeadersStart(Call call) {
+    requests++;
+  }
+
+  @Override
+  public void requestBodyEnd(Call call, long byteCount) {
+    requestBytes += byteCount;
+  }
+
+  @Override
+  public void responseHeadersStart(Call call) {
+    if (timeToFirstByteNanos < 0) {
+      timeToFirstByteNanos = System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void responseHeadersEnd(Call call, Response response) {
+    statusCode = response.code();
+    endNetwork();
+  }
+
+  @Override
+  public void responseBodyEnd(Call call, long byteCount) {
+    responseBytes += byteCount;
+  }
+
+  @Override
+  public void callEnd(Call call) {
+    record(false);
+  }
+
+  @Override
+  public void callFailed(Call call, IOException ioe) {
+    endNetwork();
+    record(true);
+  }
+
+  private void dequeued() {
+    if (queueNanos < 0) {
+      queueNanos = System.nanoTime() - start;
+      SdkTracer tracer = SdkTracing.getTracer();
+      if (tracer != null) {
+        network = SdkTracing.begin(tracer, SdkTracer.Stage.NETWORK, analytics);
+      }
+    }
+  }
+
+  private void endNetwork() {
+    if (network != null) {
+      network.end();
+      network = null;
+    }
+  }
+
+  private void record(boolean failed) {
+    // Requests without the analytics header, for example token requests, do not belong to an operation.
+    if (analytics == null || !recorded.compareAndSet(false, true)) {
+      return;
+    }
+    long totalNanos = System.nanoTime() - start;
+    recorder.recordCall(new CallMetrics(SdkCommon.getSdkAnalyticsField(analytics, SdkCommon.SERVICE_NAME_FIELD),
+        SdkCommon.getSdkAnalyticsField(analytics, SdkCommon.SERVICE_VERSION_FIELD),
+        SdkCommon.getSdkAnalyticsField(analytics, SdkCommon.OPERATION_ID_FIELD), statusCode, failed,
+        Math.max(0, requests - 1), queueNanos, timeToFirstByteNanos, totalNanos, requestBytes, responseBytes));
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+/**
+ * Receives the client-side measurements of the calls made by a service.<br>
+ * <br>
+ * Implementations are called on the threads that run the calls, so they must be thread-safe and should return
+ * quickly. {@link HistogramMetricsRecorder} aggregates the measurements in memory; to publish them to a metrics
+ * registry, implement this interface and update the registry's timers and counters from the measurements.
+ *
+ * @see SdkMetrics#enable(com.ibm.cloud.sdk.core.service.BaseService, MetricsRecorder)
+ */
+public interface MetricsRecorder {
+
+  /**
+   * Records the measurements of a completed or failed HTTP call.
+   *
+   * @param metrics the call metrics
+   */
+  void recordCall(CallMetrics metrics);
+
+  /**
+   * Records the measurements of a WebSocket session, once it is closing or has failed.
+   *
+   * @param metrics the WebSocket metrics
+   */
+  void recordWebSocket(WebSocketMetrics metrics);
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures a WebSocket session and forwards all events to another listener. The session is recorded once, when it is
+ * closing or has failed.<br>
+ * <br>
+ * Services which deliver their results as binary messages leave the result marker null, so the first binary message
+ * counts as the first result. Services which deliver their results as text messages pass a marker, and the first text
+ * message which contains it counts as the first result.
+ */
+public class MetricsWebSocketListener extends WebSocketListener {
+  private final WebSocketListener delegate;
+  private final MetricsRecorder recorder;
+  private final String serviceName;
+  private final String operationId;
+  private final String textResultMarker;
+  private final long start = System.nanoTime();
+  private final AtomicBoolean recorded = new AtomicBoolean();
+  private volatile long connectNanos = -1;
+  private volatile long timeToFirstResultNanos = -1;
+  private volatile long framesReceived;
+  private volatile long bytesReceived;
+
+  /**
+   * Instantiates a new listener. The session is timed from this moment, so create the listener right before opening
+   * the WebSocket.
+   *
+   * @param delegate the listener which receives the events
+   * @param recorder the recorder
+   * @param serviceName the service name, for example "speech_to_text"
+   * @param operationId the operation id, for example "synthesizeUsingWebSocket"
+   */
+  public MetricsWebSocketListener(WebSocketListener delegate, MetricsRecorder recorder, String serviceName,
+      String operationId) {
+    this(delegate, recorder, serviceName, operationId, null);
+  }
+
+  /**
+   * Instantiates a new listener for a service which delivers its results as text messages.
+   *
+   * @param delegate the listener which receives the events
+   * @param recorder the recorder
+   * @param serviceName the service name, for example "speech_to_text"
+   * @param operationId the operation id, for example "recognizeUsingWebSocket"
+   * @param textResultMarker the text which marks a text message as a result, or null if the results are binary
+   */
+  public MetricsWebSocketListener(WebSocketListener delegate, MetricsRecorder recorder, String serviceName,
+      String operationId, String textResultMarker) {
+    this.delegate = delegate;
+    this.recorder = recorder;
+    this.serviceName = serviceName;
+    this.operationId = operationId;
+    this.textResultMarker = textResultMarker;
+  }
+
+  @Override
+  public void onOpen(WebSocket webSocket, Response response) {
+    connectNanos = System.nanoTime() - start;
+    delegate.onOpen(webSocket, response);
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, String text) {
+    boolean result = (textResultMarker != null) && text.contains(textResultMarker);
+    received(text.length(), timeToFirstResultNanos < 0 && result);
+    delegate.onMessage(webSocket, text);
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, ByteString bytes) {
+    received(bytes.size(), timeToFirstResultNanos < 0 && (textResultMarker == null));
+    delegate.onMessage(webSocket, bytes);
+  }
+
+  @Override
+  public void onClosing(WebSocket webSocket, int code, String reason) {
+    record(false);
+    delegate.onClosing(webSocket, code, reason);
+  }
+
+  @Override
+  public void onClosed(WebSocket webSocket, int code, String reason) {
+    record(false);
+    delegate.onClosed(webSocket, code, reason);
+  }
+
+  @Override
+  public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+    record(true);
+    delegate.onFailure(webSocket, t, response);
+  }
+
+  // OkHttp delivers the messages of a WebSocket on a single thread, so the counters are not updated concurrently.
+  private void received(int size, boolean firstResult) {
+    framesReceived++;
+    bytesReceived += size;
+    if (firstResult) {
+      timeToFirstResultNanos = System.nanoTime() - start;
+    }
+  }
+
+  private void record(boolean failed) {
+    if (recorded.compareAndSet(false, true)) {
+      recorder.recordWebSocket(new WebSocketMetrics(serviceName, operationId, failed, connectNanos,
+          timeToFirstResultNanos, System.nanoTime() - start, framesReceived, bytesReceived));
+    }
+  }
+}
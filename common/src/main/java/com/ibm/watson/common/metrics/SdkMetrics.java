@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import com.ibm.cloud.sdk.core.service.BaseService;
+import com.ibm.cloud.sdk.core.util.Validator;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocketListener;
+
+/**
+ * Turns the client-side metrics of a service on and off. Metrics are off by default and cost nothing until they are
+ * enabled.<br>
+ * <br>
+ * Once enabled, every HTTP call of the service is measured and passed to the {@link MetricsRecorder}, and so is every
+ * WebSocket session of the services which support them. Calls which an interceptor answers without a network request,
+ * such as cache hits, are not recorded:
+ *
+ * <pre>
+ * HistogramMetricsRecorder metrics = new HistogramMetricsRecorder();
+ * SdkMetrics.enable(service, metrics);
+ * ...
+ * long p99 = metrics.getCallStats("conversation", "message").getTotalTime().getValueAtPercentile(99);
+ * </pre>
+ */
+public final class SdkMetrics {
+
+  private SdkMetrics() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Enables metrics for a service, replacing the recorder if metrics were already enabled. Any
+   * {@link EventListener.Factory} set on the service's client is replaced.
+   *
+   * @param service the service
+   * @param recorder the recorder
+   */
+  public static void enable(BaseService service, MetricsRecorder recorder) {
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(recorder, "recorder cannot be null");
+    service.setClient(service.getClient().newBuilder()
+        .eventListenerFactory(new MetricsEventListener.Factory(recorder))
+        .build());
+  }
+
+  /**
+   * Disables metrics for a service.
+   *
+   * @param service the service
+   */
+  public static void disable(BaseService service) {
+    Validator.notNull(service, "service cannot be null");
+    if (getRecorder(service) != null) {
+      service.setClient(service.getClient().newBuilder()
+          .eventListener(EventListener.NONE)
+          .build());
+    }
+  }
+
+  /**
+   * Gets the recorder of a service.
+   *
+   * @param service the service
+   * @return the recorder, or null if metrics are not enabled
+   */
+  public static MetricsRecorder getRecorder(BaseService service) {
+    OkHttpClient client = service.getClient();
+    EventListener.Factory factory = (client != null) ? client.eventListenerFactory() : null;
+    return (factory instanceof MetricsEventListener.Factory) ? ((MetricsEventListener.Factory) factory).recorder()
+        : null;
+  }
+
+  /**
+   * Wraps the listener of a WebSocket session so the session is measured, if metrics are enabled for the service.
+   *
+   * @param service the service
+   * @param listener the listener
+   * @param serviceName the service name, for example "speech_to_text"
+   * @param operationId the operation id, for example "synthesizeUsingWebSocket"
+   * @return a {@link MetricsWebSocketListener} which forwards to the listener, or the listener itself if metrics are
+   *         not enabled
+   */
+  public static WebSocketListener instrument(BaseService service, WebSocketListener listener, String serviceName,
+      String operationId) {
+    return instrument(service, listener, serviceName, operationId, null);
+  }
+
+  /**
+   * Wraps the listener of a WebSocket session which delivers its results as text messages, if metrics are enabled for
+   * the service.
+   *
+   * @param service the service
+   * @param listener the listener
+   * @param serviceName the service name, for example "speech_to_text"
+   * @param operationId the operation id, for example "recognizeUsingWebSocket"
+   * @param textResultMarker the text which marks a text message as a result, or null if the results are binary
+   * @return a {@link MetricsWebSocketListener} which forwards to the listener, or the listener itself if metrics are
+   *         not enabled
+   */
+  public static WebSocketListener instrument(BaseService service, WebSocketListener listener, String serviceName,
+      String operationId, String textResultMarker) {
+    MetricsRecorder recorder = getRecorder(service);
+    return (recorder != null)
+        ? new MetricsWebSocketListener(listener, recorder, serviceName, operationId, textResultMarker)
+        : listener;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+/**
+ * Receives the stages of the calls and WebSocket sessions of all services, for example to emit them as Java Flight
+ * Recorder events or profiler annotations so that SDK latency can be correlated with garbage collection and thread
+ * pool stalls.<br>
+ * <br>
+ * A span is begun and ended on the same thread unless noted otherwise, and spans of the same thread may nest.
+ * Implementations must be thread-safe and should return quickly.
+ *
+ * @see SdkTracing#setTracer(SdkTracer)
+ */
+public interface SdkTracer {
+
+  /**
+   * A stage of a call or WebSocket session.
+   */
+  enum Stage {
+    /** Adding the default headers of the service to a request, as the service finishes building it. */
+    REQUEST_BUILD,
+    /** Attaching the authentication header, which may fetch a new IAM token. */
+    AUTHENTICATION,
+    /** Sending a request and waiting for the response headers, on the thread which executes the call. */
+    NETWORK,
+    /** Converting a response body into the result of a call. */
+    DESERIALIZATION,
+    /** Sending an audio frame over a WebSocket. */
+    WEBSOCKET_SEND,
+    /** Handling a message received over a WebSocket, including the callback. */
+    WEBSOCKET_RECEIVE,
+    /** Waiting for the outgoing queue of a WebSocket to drain before sending more audio. */
+    AUDIO_BACKPRESSURE
+  }
+
+  /**
+   * A stage which has begun.
+   */
+  interface Span {
+
+    /**
+     * Ends the stage.
+     */
+    void end();
+  }
+
+  /**
+   * Begins a stage.
+   *
+   * @param stage the stage
+   * @param serviceName the service name as sent in the SDK analytics header, for example "speech_to_text", or null
+   *          if it is not known
+   * @param operationId the operation id, for example "recognize", or null if it is not known
+   * @return the span, which is ended when the stage ends
+   */
+  Span begin(Stage stage, String serviceName, String operationId);
+}
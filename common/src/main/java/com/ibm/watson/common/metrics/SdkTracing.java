@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonHttpHeaders;
+import okhttp3.Request;
+
+/**
+ * Holds the {@link SdkTracer} which receives the stages of all services. Tracing is off until a tracer is set, and
+ * while it is off every stage costs a single volatile read.
+ */
+public final class SdkTracing {
+  private static final SdkTracer.Span NOOP = new SdkTracer.Span() {
+    @Override
+    public void end() {
+      // tracing is off
+    }
+  };
+
+  private static volatile SdkTracer tracer;
+
+  private SdkTracing() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Sets the tracer. The network stage is only traced for services with metrics enabled, see
+   * {@link SdkMetrics#enable(com.ibm.cloud.sdk.core.service.BaseService, MetricsRecorder)}.
+   *
+   * @param sdkTracer the tracer, or null to turn tracing off
+   */
+  public static void setTracer(SdkTracer sdkTracer) {
+    tracer = sdkTracer;
+  }
+
+  /**
+   * Gets the tracer.
+   *
+   * @return the tracer, or null if tracing is off
+   */
+  public static SdkTracer getTracer() {
+    return tracer;
+  }
+
+  /**
+   * Whether tracing is on.
+   *
+   * @return true if a tracer is set
+   */
+  public static boolean isEnabled() {
+    return tracer != null;
+  }
+
+  /**
+   * Begins a stage.
+   *
+   * @param stage the stage
+   * @param serviceName the service name
+   * @param operationId the operation id, or null if it is not known
+   * @return the span, which does nothing if tracing is off
+   */
+  public static SdkTracer.Span begin(SdkTracer.Stage stage, String serviceName, String operationId) {
+    SdkTracer current = tracer;
+    return (current != null) ? current.begin(stage, serviceName, operationId) : NOOP;
+  }
+
+  /**
+   * Begins a stage of a request, tagged with the service and operation of its SDK analytics header.
+   *
+   * @param stage the stage
+   * @param builder the request builder
+   * @return the span, which does nothing if tracing is off
+   */
+  public static SdkTracer.Span begin(SdkTracer.Stage stage, Request.Builder builder) {
+    SdkTracer current = tracer;
+    if (current == null) {
+      return NOOP;
+    }
+    return begin(current, stage, builder.build().header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS));
+  }
+
+  /**
+   * Begins a stage of a request, tagged with the service and operation of its SDK analytics header.
+   *
+   * @param stage the stage
+   * @param request the request
+   * @return the span, which does nothing if tracing is off
+   */
+  public static SdkTracer.Span begin(SdkTracer.Stage stage, Request request) {
+    SdkTracer current = tracer;
+    if (current == null) {
+      return NOOP;
+    }
+    return begin(current, stage, request.header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS));
+  }
+
+  /**
+   * Begins a stage tagged with the service and operation of an SDK analytics header.
+   *
+   * @param current the tracer
+   * @param stage the stage
+   * @param analytics the SDK analytics header, or null
+   * @return the span
+   */
+  static SdkTracer.Span begin(SdkTracer current, SdkTracer.Stage stage, String analytics) {
+    if (analytics == null) {
+      return current.begin(stage, null, null);
+    }
+    return current.begin(stage, SdkCommon.getSdkAnalyticsField(analytics, SdkCommon.SERVICE_NAME_FIELD),
+        SdkCommon.getSdkAnalyticsField(analytics, SdkCommon.OPERATION_ID_FIELD));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements of a WebSocket session, for example a Speech to Text recognition or a Text to Speech synthesis.
+ */
+public final class WebSocketMetrics {
+  private final String serviceName;
+  private final String operationId;
+  private final boolean failed;
+  private final long connectNanos;
+  private final long timeToFirstResultNanos;
+  private final long durationNanos;
+  private final long framesReceived;
+  private final long bytesReceived;
+
+  WebSocketMetrics(String serviceName, String operationId, boolean failed, long connectNanos,
+      long timeToFirstResultNanos, long durationNanos, long framesReceived, long bytesReceived) {
+    this.serviceName = serviceName;
+    this.operationId = operationId;
+    this.failed = failed;
+    this.connectNanos = connectNanos;
+    this.timeToFirstResultNanos = timeToFirstResultNanos;
+    this.durationNanos = durationNanos;
+    this.framesReceived = framesReceived;
+    this.bytesReceived = bytesReceived;
+  }
+
+  /**
+   * Gets the service name, for example "speech_to_text".
+   *
+   * @return the service name
+   */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   * Gets the operation id, for example "recognizeUsingWebSocket".
+   *
+   * @return the operation id
+   */
+  public String getOperationId() {
+    return operationId;
+  }
+
+  /**
+   * Whether the session ended with a failure rather than a close.
+   *
+   * @return true if the session failed
+   */
+  public boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * Gets the time from opening the WebSocket until the connection was established.
+   *
+   * @param unit the time unit of the result
+   * @return the connect time, or -1 if the connection was never established
+   */
+  public long getConnectTime(TimeUnit unit) {
+    return CallMetrics.convert(connectNanos, unit);
+  }
+
+  /**
+   * Gets the time from opening the WebSocket until the first result arrived: the first interim or final transcript
+   * of a recognition, or the first audio bytes of a synthesis.
+   *
+   * @param unit the time unit of the result
+   * @return the time to first result, or -1 if no result arrived
+   */
+  public long getTimeToFirstResult(TimeUnit unit) {
+    return CallMetrics.convert(timeToFirstResultNanos, unit);
+  }
+
+  /**
+   * Gets the time from opening the WebSocket until the session was closing or failed.
+   *
+   * @param unit the time unit of the result
+   * @return the duration
+   */
+  public long getDuration(TimeUnit unit) {
+    return CallMetrics.convert(durationNanos, unit);
+  }
+
+  /**
+   * Gets the number of messages received.
+   *
+   * @return the number of frames
+   */
+  public long getFramesReceived() {
+    return framesReceived;
+  }
+
+  /**
+   * Gets the number of bytes received, counting text messages as their length in characters.
+   *
+   * @return the number of bytes
+   */
+  public long getBytesReceived() {
+    return bytesReceived;
+  }
+
+  /**
+   * Gets the rate at which messages were received while the connection was established.
+   *
+   * @return the number of frames per second, or 0 if the connection was never established
+   */
+  public double getFramesPerSecond() {
+    long openNanos = (connectNanos < 0) ? 0 : durationNanos - connectNanos;
+    return (openNanos <= 0) ? 0 : framesReceived * (double) TimeUnit.SECONDS.toNanos(1) / openNanos;
+  }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+/**
+ * This package contains the client-side metrics of the Watson services: the {@link MetricsRecorder} interface, the
+ * measurements passed to it, a recorder which aggregates them into histograms, and the {@link SdkTracer} interface
+ * which receives the stages of calls and WebSocket sessions as they happen.
+ */
+package com.ibm.watson.common.metrics;
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EventSubscriptionTest {
+
+  /**
+   * Test that offer blocks once the buffer is full and the subscriber has not requested more, and resumes when it
+   * does.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testOfferBlocksWithoutDemand() throws Exception {
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(1L);
+    final EventSubscription<Integer> subscription = new EventSubscription<>(subscriber, 2);
+    subscriber.onSubscribe(subscription);
+
+    assertTrue(subscription.offer(1));
+    assertTrue(subscription.offer(2));
+    assertTrue(subscription.offer(3));
+    subscriber.assertValues(1);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> blocked = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return subscription.offer(4);
+        }
+      });
+      try {
+        blocked.get(200, TimeUnit.MILLISECONDS);
+        fail();
+      } catch (TimeoutException e) {
+        // expected
+      }
+
+      subscriber.request(1);
+      assertTrue(blocked.get(5, TimeUnit.SECONDS));
+      subscriber.assertValues(1, 2);
+
+      subscriber.request(2);
+      subscription.complete();
+      subscriber.assertValues(1, 2, 3, 4);
+      subscriber.assertComplete();
+      assertFalse(subscription.offer(5));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that cancelling releases a blocked offer and runs the cancel handlers.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCancel() throws Exception {
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(0L);
+    final EventSubscription<Integer> subscription = new EventSubscription<>(subscriber, 1);
+    subscriber.onSubscribe(subscription);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    subscription.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        stopped.set(true);
+      }
+    });
+    assertTrue(subscription.offer(1));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> blocked = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return subscription.offer(2);
+        }
+      });
+      Thread.sleep(100);
+      subscriber.cancel();
+
+      assertFalse(blocked.get(5, TimeUnit.SECONDS));
+      assertTrue(stopped.get());
+      assertTrue(subscription.isCancelled());
+      subscriber.assertNoValues();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that a failure is signalled after the buffered events, and that a non-positive request is an error.
+   */
+  @Test
+  public void testFail() {
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(0L);
+    EventSubscription<Integer> subscription = new EventSubscription<>(subscriber, 4);
+    subscriber.onSubscribe(subscription);
+    IllegalStateException cause = new IllegalStateException();
+    subscription.offer(1);
+    subscription.fail(cause);
+    subscriber.assertNotTerminated();
+
+    subscriber.request(1);
+    subscriber.assertValues(1);
+    subscriber.assertError(cause);
+
+    subscriber = new TestSubscriber<>(0L);
+    subscription = new EventSubscription<>(subscriber, 4);
+    subscriber.onSubscribe(subscription);
+    subscription.request(0);
+    subscriber.assertError(IllegalArgumentException.class);
+    assertTrue(subscription.isCancelled());
+  }
+
+  /**
+   * Test that the error of a non-positive request waits for an event which is being delivered on another thread, and
+   * that the cancel handlers run.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testInvalidRequestDuringDelivery() throws Exception {
+    final CountDownLatch delivering = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicBoolean overlapped = new AtomicBoolean();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final CountDownLatch ended = new CountDownLatch(1);
+    final EventSubscription<Integer> subscription = new EventSubscription<>(new Subscriber<Integer>() {
+      private volatile boolean inOnNext;
+
+      @Override
+      public void onSubscribe(Subscription s) {
+      }
+
+      @Override
+      public void onNext(Integer event) {
+        inOnNext = true;
+        delivering.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        inOnNext = false;
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        overlapped.compareAndSet(false, inOnNext);
+        error.set(t);
+        ended.countDown();
+      }
+
+      @Override
+      public void onComplete() {
+        ended.countDown();
+      }
+    }, 4);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    subscription.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        stopped.set(true);
+      }
+    });
+    subscription.request(1);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> offered = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return subscription.offer(1);
+        }
+      });
+      assertTrue(delivering.await(5, TimeUnit.SECONDS));
+      subscription.request(0);
+      assertTrue(stopped.get());
+      assertNull(error.get());
+
+      release.countDown();
+      assertTrue(offered.get(5, TimeUnit.SECONDS));
+      assertTrue(ended.await(5, TimeUnit.SECONDS));
+      assertTrue(error.get() instanceof IllegalArgumentException);
+      assertFalse(overlapped.get());
+      assertFalse(subscription.offer(2));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.annotations.JsonAdapter;
+import com.ibm.cloud.sdk.core.util.DateDeserializer;
+import com.ibm.cloud.sdk.core.util.DateSerializer;
+import com.ibm.cloud.sdk.core.util.GsonSingleton;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that {@link IsoDateTypeAdapter} reads and writes dates the same way as the default date adapter of the SDK.
+ */
+public class IsoDateTypeAdapterTest {
+  private static final String[] ZONES = { "UTC", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe" };
+
+  private static final String[] VALUES = {
+      // The formats the services return.
+      "2015-12-06T23:53:59.153Z",
+      "2019-03-01T12:30:45Z",
+      "2019-03-01T12:30:45+0100",
+      "2019-03-01T12:30:45-0530",
+      "2020-02-29T00:00:00.000Z",
+      "1970-01-01T00:00:00.000Z",
+      "1969-12-31T23:59:59.999Z",
+      "2038-01-19T03:14:08Z",
+      "9999-12-31T23:59:59.999Z",
+      "1550000000",
+      "1550000000123",
+      "0",
+      // The formats which are left to the default adapter.
+      "2019-03-01T12:30:45.123",
+      "2019-03-01 12:30:45",
+      "20190301T123045",
+      "2019-03-01T12:30:45",
+      "2019-03-10T02:30:00",
+      "2019-11-03T01:30:00.000",
+      "2019-03-01T12:30:45.123+0100",
+      "2019-03-01T12:30:45.5Z",
+      "2019-03-01T12:30:45.123456Z",
+      "2019-02-30T00:00:00Z",
+      "2019-13-01T00:00:00Z",
+      "2019-03-01T24:00:00Z",
+      "2019-03-01T12:30:60Z",
+      "2019-03-01T12:30:45+2400",
+      "1500-01-01T00:00:00Z",
+      "2019-03-01t12:30:45Z",
+      "not a date"
+  };
+
+  private static final long[] TIMES = {
+      0L, -1L, 1449446039153L, 1551443445000L, 1552199400000L, 1572759000000L, -12219292800000L, -12219292800001L,
+      -30000000000000L, 253402300799999L, 253402300800000L, 4102444800000L
+  };
+
+  private TimeZone defaultZone;
+
+  /**
+   * Saves the default time zone.
+   */
+  @Before
+  public void setUp() {
+    defaultZone = TimeZone.getDefault();
+  }
+
+  /**
+   * Restores the default time zone.
+   */
+  @After
+  public void tearDown() {
+    TimeZone.setDefault(defaultZone);
+  }
+
+  /**
+   * Test that every value is parsed to the same date as with the default adapter.
+   */
+  @Test
+  public void testParse() {
+    for (String zone : ZONES) {
+      TimeZone.setDefault(TimeZone.getTimeZone(zone));
+      IsoDateTypeAdapter adapter = new IsoDateTypeAdapter();
+      DateDeserializer deserializer = new DateDeserializer();
+      for (String value : VALUES) {
+        Date expected = deserializer.deserialize(new JsonPrimitive(value), Date.class, null);
+        assertEquals(zone + " " + value, expected, adapter.parse(value));
+      }
+      assertNull(adapter.parse(""));
+    }
+  }
+
+  /**
+   * Test that every date is formatted the same way as with the default adapter.
+   */
+  @Test
+  public void testFormat() {
+    for (String zone : ZONES) {
+      TimeZone.setDefault(TimeZone.getTimeZone(zone));
+      IsoDateTypeAdapter adapter = new IsoDateTypeAdapter();
+      DateSerializer serializer = new DateSerializer();
+      for (long time : TIMES) {
+        Date date = new Date(time);
+        assertEquals(zone + " " + time, serializer.serialize(date, Date.class, null).getAsString(),
+            adapter.format(date));
+      }
+    }
+  }
+
+  /**
+   * Test that a model with an annotated field is read and written the same way as with the default adapter.
+   */
+  @Test
+  public void testModel() {
+    Gson gson = GsonSingleton.getGson();
+    String json = "{\"created\":\"2015-12-06T23:53:59.153Z\",\"updated\":1550000000}";
+
+    AnnotatedModel annotated = gson.fromJson(json, AnnotatedModel.class);
+    PlainModel plain = gson.fromJson(json, PlainModel.class);
+    assertEquals(plain.created, annotated.created);
+    assertEquals(plain.updated, annotated.updated);
+    assertEquals(gson.toJson(plain), gson.toJson(annotated));
+
+    annotated = gson.fromJson("{\"created\":null}", AnnotatedModel.class);
+    assertNull(annotated.created);
+    assertEquals("{}", gson.toJson(annotated));
+  }
+
+  private static class AnnotatedModel {
+    @JsonAdapter(IsoDateTypeAdapter.class)
+    private Date created;
+    @JsonAdapter(IsoDateTypeAdapter.class)
+    private Date updated;
+  }
+
+  private static class PlainModel {
+    private Date created;
+    private Date updated;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common;
+
+import com.google.common.io.ByteStreams;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.LongConsumer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PublisherInputStreamTest {
+
+  /**
+   * Test that the stream reads every buffer, and never has more buffers requested than its prefetch.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testReadsWithBoundedDemand() throws Exception {
+    final AtomicLong outstanding = new AtomicLong();
+    final AtomicLong maxOutstanding = new AtomicLong();
+    Flowable<ByteBuffer> buffers = Flowable.range(0, 100)
+        .map(new io.reactivex.functions.Function<Integer, ByteBuffer>() {
+          @Override
+          public ByteBuffer apply(Integer i) {
+            return ByteBuffer.wrap(String.format("%03d", i).getBytes(StandardCharsets.UTF_8));
+          }
+        })
+        .doOnNext(new Consumer<ByteBuffer>() {
+          @Override
+          public void accept(ByteBuffer buffer) {
+            outstanding.decrementAndGet();
+          }
+        })
+        .doOnRequest(new LongConsumer() {
+          @Override
+          public void accept(long n) {
+            long total = outstanding.addAndGet(n);
+            if (total > maxOutstanding.get()) {
+              maxOutstanding.set(total);
+            }
+          }
+        });
+
+    InputStream stream = new PublisherInputStream(buffers, 2);
+    byte[] bytes = ByteStreams.toByteArray(stream);
+
+    assertEquals(300, bytes.length);
+    assertEquals("000001002", new String(bytes, 0, 9, StandardCharsets.UTF_8));
+    assertEquals("099", new String(bytes, 297, 3, StandardCharsets.UTF_8));
+    assertEquals(2, maxOutstanding.get());
+  }
+
+  /**
+   * Test that a failure of the publisher is thrown once the buffers before it have been read.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFailure() throws Exception {
+    Flowable<ByteBuffer> buffers = Flowable.just(ByteBuffer.wrap(new byte[] { 1, 2 }))
+        .concatWith(Flowable.<ByteBuffer>error(new IllegalStateException("broken")));
+    InputStream stream = new PublisherInputStream(buffers);
+
+    assertEquals(2, stream.read(new byte[4]));
+    try {
+      stream.read(new byte[4]);
+      fail();
+    } catch (IOException e) {
+      assertEquals("broken", e.getMessage());
+    }
+  }
+
+  /**
+   * Test that closing the stream cancels the subscription.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCloseCancels() throws Exception {
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    Flowable<ByteBuffer> buffers = Flowable.just(ByteBuffer.wrap(new byte[] { 1 }))
+        .concatWith(Flowable.<ByteBuffer>never())
+        .doOnCancel(new Action() {
+          @Override
+          public void run() {
+            cancelled.set(true);
+          }
+        });
+    InputStream stream = new PublisherInputStream(buffers);
+
+    assertEquals(1, stream.read());
+    stream.close();
+    assertTrue(cancelled.get());
+    assertEquals(-1, stream.read());
+  }
+}
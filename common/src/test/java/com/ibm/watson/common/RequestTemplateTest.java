@@ -0,0 +1,150 @@
+package com.ibm.watson.common;
+
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.ibm.cloud.sdk.core.http.HttpHeaders;
+import com.ibm.cloud.sdk.core.http.RequestBuilder;
+import com.ibm.cloud.sdk.core.http.ResponseConverter;
+import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
+import okhttp3.Request;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestTemplateTest {
+  private static final RequestTemplate<InputStream> TEMPLATE =
+      new RequestTemplate.Builder<InputStream>("POST", "test_name", "v1", "test_method")
+          .pathSegments("v1/workspaces", "message")
+          .accept("application/json")
+          .responseConverter(ResponseConverterUtils.getInputStream())
+          .build();
+
+  @Test
+  public void testNewRequest() {
+    Request request = TEMPLATE.newRequest("https://example.com/api", "a b/c").build();
+
+    assertEquals("POST", request.method());
+    assertEquals("https://example.com/api/v1/workspaces/a%20b%2Fc/message", request.url().toString());
+    assertEquals(SdkCommon.getSdkHeaders("test_name", "v1", "test_method").get(
+        WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS), request.header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS));
+    assertEquals(SdkCommon.getUserAgent(), request.header(HttpHeaders.USER_AGENT));
+    assertEquals("application/json", request.header(HttpHeaders.ACCEPT));
+  }
+
+  @Test
+  public void testNewRequestWithChangingEndPoint() {
+    assertEquals("https://one.example.com/api/v1/workspaces/1/message",
+        TEMPLATE.newRequest("https://one.example.com/api", "1").build().url().toString());
+    assertEquals("https://two.example.com/v1/workspaces/2/message",
+        TEMPLATE.newRequest("https://two.example.com", "2").build().url().toString());
+    assertEquals("https://one.example.com/api/v1/workspaces/message",
+        TEMPLATE.newRequest("https://one.example.com/api").build().url().toString());
+  }
+
+  @Test
+  public void testTemplateWithoutAccept() {
+    RequestTemplate<InputStream> template = new RequestTemplate.Builder<InputStream>("GET", "test_name", "v1",
+        "test_method")
+        .pathSegments("v1/synthesize")
+        .responseConverter(ResponseConverterUtils.getInputStream())
+        .build();
+    Request request = template.newRequest("https://example.com").build();
+
+    assertEquals("GET", request.method());
+    assertEquals("https://example.com/v1/synthesize", request.url().toString());
+    assertSame(template.responseConverter(), template.responseConverter());
+  }
+
+  /**
+   * Measures the bytes allocated to build the requests of {@code message} and {@code classify}, in the form the
+   * generator emits for the service classes and with a template. The template allocates less, as the endpoint is not
+   * parsed again and the fixed headers and the response converter are not built again.
+   */
+  @Test
+  public void testTemplateAllocatesLessThanGeneratedForm() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+    allocations.setThreadAllocatedMemoryEnabled(true);
+
+    RequestTemplate<JsonObject> message = new RequestTemplate.Builder<JsonObject>("POST", "conversation", "v2",
+        "message")
+        .pathSegments("v2/assistants", "sessions", "message")
+        .accept("application/json")
+        .responseConverter(ResponseConverterUtils.<JsonObject>getValue(new TypeToken<JsonObject>() {
+        }.getType()))
+        .build();
+    RequestTemplate<JsonObject> classify = new RequestTemplate.Builder<JsonObject>("POST",
+        "natural_language_classifier", "v1", "classify")
+        .pathSegments("v1/classifiers", "classify")
+        .accept("application/json")
+        .responseConverter(ResponseConverterUtils.<JsonObject>getValue(new TypeToken<JsonObject>() {
+        }.getType()))
+        .build();
+    String endPoint = "https://gateway.watsonplatform.net/assistant/api";
+
+    for (int round = 0; round < 2; round++) {
+      // The first round warms up the code paths, so only the second one is measured.
+      long threadId = Thread.currentThread().getId();
+      long before = allocations.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < 1000; i++) {
+        generated(endPoint, "conversation", "v2", "message", new String[] { "v2/assistants", "sessions", "message" },
+            new String[] { "assistant-id", "session-id" });
+        generated(endPoint, "natural_language_classifier", "v1", "classify",
+            new String[] { "v1/classifiers", "classify" }, new String[] { "classifier-id" });
+      }
+      long generatedBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+      before = allocations.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < 1000; i++) {
+        message.newRequest(endPoint, "assistant-id", "session-id").build();
+        message.responseConverter();
+        classify.newRequest(endPoint, "classifier-id").build();
+        classify.responseConverter();
+      }
+      long templateBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+      assertTrue("allocated " + templateBytes + " bytes with templates and " + generatedBytes
+          + " bytes in the generated form", round == 0 || templateBytes < generatedBytes * 9 / 10);
+    }
+    assertEquals(message.newRequest(endPoint, "assistant-id", "session-id").build().url(),
+        generated(endPoint, "conversation", "v2", "message", new String[] { "v2/assistants", "sessions", "message" },
+            new String[] { "assistant-id", "session-id" }).url());
+  }
+
+  /**
+   * Builds a request the way the generated service classes do.
+   */
+  private static Request generated(String endPoint, String serviceName, String serviceVersion, String operationId,
+      String[] pathSegments, String[] pathParameters) {
+    RequestBuilder builder = RequestBuilder.post(RequestBuilder.constructHttpUrl(endPoint, pathSegments,
+        pathParameters));
+    Map<String, String> sdkHeaders = SdkCommon.getSdkHeaders(serviceName, serviceVersion, operationId);
+    for (Entry<String, String> header : sdkHeaders.entrySet()) {
+      builder.header(header.getKey(), header.getValue());
+    }
+    builder.header("Accept", "application/json");
+    ResponseConverter<JsonObject> responseConverter = ResponseConverterUtils.getValue(
+        new TypeToken<JsonObject>() {
+        }.getType());
+    assertTrue(responseConverter != null);
+    return builder.build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMethod() {
+    new RequestTemplate.Builder<InputStream>("FETCH", "test_name", "v1", "test_method")
+        .pathSegments("v1/synthesize")
+        .responseConverter(ResponseConverterUtils.getInputStream())
+        .build();
+  }
+}
@@ -0,0 +1,228 @@
+package com.ibm.watson.common;
+
+import com.ibm.cloud.sdk.core.http.Response;
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.http.ServiceCallback;
+import io.reactivex.Single;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResourceWaiterTest {
+  private static final String DONE = "done";
+  private static final String FAILED = "failed";
+  private static final String PENDING = "pending";
+
+  private static final okhttp3.Response HTTP_OK = new okhttp3.Response.Builder()
+      .request(new Request.Builder().url("http://localhost/").build())
+      .protocol(Protocol.HTTP_1_1)
+      .code(200)
+      .message("OK")
+      .build();
+
+  private static final WaitPolicy FAST = new WaitPolicy.Builder()
+      .initialDelay(10, TimeUnit.MILLISECONDS)
+      .maxDelay(40, TimeUnit.MILLISECONDS)
+      .jitter(0)
+      .build();
+
+  private ResourceWaiter waiter;
+
+  @Before
+  public void setUp() {
+    waiter = new ResourceWaiter.Builder().threads(1).build();
+  }
+
+  @After
+  public void tearDown() {
+    waiter.close();
+  }
+
+  /**
+   * Test that a resource is polled until it is done, and that failed polls are retried.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testWaitUntilDone() throws Exception {
+    FakePoll poll = new FakePoll(PENDING, null, PENDING, DONE);
+
+    assertEquals(DONE, waiter.waitFor(poll, FAST).get(5, TimeUnit.SECONDS));
+    assertEquals(4, poll.calls.get());
+    assertEquals(4, waiter.getPollCount());
+    assertEquals(0, waiter.getPendingCount());
+  }
+
+  /**
+   * Test that a failed resource fails the future.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFailedResource() throws Exception {
+    try {
+      waiter.waitFor(new FakePoll(PENDING, FAILED), FAST).get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof ResourceFailedException);
+      assertEquals(FAILED, ((ResourceFailedException) e.getCause()).getResource());
+    }
+  }
+
+  /**
+   * Test that a wait fails once its timeout has passed.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testTimeout() throws Exception {
+    WaitPolicy policy = FAST.newBuilder().timeout(50, TimeUnit.MILLISECONDS).build();
+    try {
+      waiter.waitFor(new FakePoll(PENDING), policy).get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+    assertEquals(0, waiter.getPendingCount());
+  }
+
+  /**
+   * Test that cancelling a future stops polling.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCancel() throws Exception {
+    FakePoll poll = new FakePoll(PENDING);
+    ServiceFuture<String> future = waiter.waitFor(poll, FAST);
+    Thread.sleep(50);
+    future.cancel(false);
+    int calls = poll.calls.get();
+    Thread.sleep(100);
+
+    assertEquals(0, waiter.getPendingCount());
+    assertTrue(poll.calls.get() <= calls + 1);
+  }
+
+  /**
+   * Test that the backoff sends fewer polls than a fixed-rate loop at the initial delay.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRequestsSaved() throws Exception {
+    WaitPolicy policy = FAST.newBuilder().maxDelay(200, TimeUnit.MILLISECONDS).build();
+    FakePoll poll = new FakePoll(PENDING, PENDING, PENDING, PENDING, DONE);
+
+    waiter.waitFor(poll, policy).get(5, TimeUnit.SECONDS);
+
+    // The polls are sent after 10, 30, 70, 150 and 310 ms, where a fixed-rate loop would have sent 31 polls.
+    assertEquals(5, waiter.getPollCount());
+    assertTrue(waiter.getRequestsSaved() >= 20);
+  }
+
+  /**
+   * Test that the delay grows by the multiplier up to the maximum, and that the jitter stays within its bounds.
+   */
+  @Test
+  public void testWaitPolicy() {
+    WaitPolicy policy = new WaitPolicy.Builder()
+        .initialDelay(1, TimeUnit.SECONDS)
+        .maxDelay(3, TimeUnit.SECONDS)
+        .multiplier(2)
+        .jitter(0.5)
+        .build();
+    long second = TimeUnit.SECONDS.toNanos(1);
+
+    assertEquals(second, policy.nextDelayNanos(0));
+    assertEquals(2 * second, policy.nextDelayNanos(second));
+    assertEquals(3 * second, policy.nextDelayNanos(2 * second));
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.jitter(second);
+      assertTrue(delay >= second / 2 && delay <= second * 3 / 2);
+    }
+  }
+
+  /**
+   * Test that invalid policies are rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPolicy() {
+    new WaitPolicy.Builder().initialDelay(1, TimeUnit.MINUTES).maxDelay(1, TimeUnit.SECONDS).build();
+  }
+
+  /**
+   * A poll which returns the given states in order, repeating the last one. A null state fails the poll.
+   */
+  private static final class FakePoll implements ResourceWaiter.Poll<String> {
+    private final ConcurrentLinkedQueue<String> states = new ConcurrentLinkedQueue<>();
+    private final String last;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    FakePoll(String... states) {
+      for (String state : states) {
+        this.states.add(state == null ? "" : state);
+      }
+      last = states[states.length - 1];
+    }
+
+    @Override
+    public ServiceCall<String> call() {
+      calls.incrementAndGet();
+      String next = states.poll();
+      final String state = (next == null) ? last : next;
+      return new ServiceCall<String>() {
+        @Override
+        public ServiceCall<String> addHeader(String name, String value) {
+          return this;
+        }
+
+        @Override
+        public Response<String> execute() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(ServiceCallback<String> callback) {
+          if (state.isEmpty()) {
+            callback.onFailure(new RuntimeException("connection reset"));
+          } else {
+            callback.onResponse(new Response<>(state, HTTP_OK));
+          }
+        }
+
+        @Override
+        public Single<Response<String>> reactiveRequest() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public ResourceWaiter.State state(String resource) {
+      if (DONE.equals(resource)) {
+        return ResourceWaiter.State.DONE;
+      } else if (FAILED.equals(resource)) {
+        return ResourceWaiter.State.FAILED;
+      }
+      return ResourceWaiter.State.PENDING;
+    }
+
+    @Override
+    public String toString() {
+      return "fake resource";
+    }
+  }
+}
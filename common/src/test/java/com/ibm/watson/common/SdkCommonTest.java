@@ -5,6 +5,8 @@ import org.junit.Test;
 
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class SdkCommonTest {
@@ -23,4 +25,15 @@ public class SdkCommonTest {
     assertTrue(defaultHeaders.containsKey(HttpHeaders.USER_AGENT));
     assertTrue(defaultHeaders.get(HttpHeaders.USER_AGENT).startsWith("watson-apis-java-sdk/"));
   }
+
+  @Test
+  public void testGetSdkAnalyticsField() {
+    String header = SdkCommon.getSdkAnalyticsHeader("conversation", "v1", "message");
+
+    assertEquals("conversation", SdkCommon.getSdkAnalyticsField(header, SdkCommon.SERVICE_NAME_FIELD));
+    assertEquals("v1", SdkCommon.getSdkAnalyticsField(header, SdkCommon.SERVICE_VERSION_FIELD));
+    assertEquals("message", SdkCommon.getSdkAnalyticsField(header, SdkCommon.OPERATION_ID_FIELD));
+    assertNull(SdkCommon.getSdkAnalyticsField("xoperation_id=other", SdkCommon.OPERATION_ID_FIELD));
+    assertNull(SdkCommon.getSdkAnalyticsField(null, SdkCommon.OPERATION_ID_FIELD));
+  }
 }
@@ -0,0 +1,178 @@
+package com.ibm.watson.common;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ServiceFutureTest {
+
+  /**
+   * Test that callbacks run once the future completes, and that it completes only once.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testComplete() throws Exception {
+    ServiceFuture<String> future = new ServiceFuture<>();
+    final AtomicReference<String> received = new AtomicReference<>();
+    future.addCallback(new ServiceFuture.Callback<String>() {
+      @Override
+      public void onSuccess(String result) {
+        received.set(result);
+      }
+
+      @Override
+      public void onFailure(Throwable failure) {
+        fail();
+      }
+    });
+
+    assertTrue(future.complete("done"));
+    assertFalse(future.fail(new IllegalStateException()));
+    assertEquals("done", received.get());
+    assertEquals("done", future.get(1, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Test that a failure is thrown from get.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFail() throws Exception {
+    ServiceFuture<String> future = new ServiceFuture<>();
+    IllegalStateException cause = new IllegalStateException();
+    future.fail(cause);
+
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(cause, e.getCause());
+    }
+  }
+
+  /**
+   * Test that cancelling runs the cancel handlers.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCancel() throws Exception {
+    ServiceFuture<String> future = new ServiceFuture<>();
+    final AtomicBoolean stopped = new AtomicBoolean();
+    future.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        stopped.set(true);
+      }
+    });
+    try {
+      future.get(10, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (TimeoutException e) {
+      // expected
+    }
+
+    assertTrue(future.cancel(true));
+    assertTrue(stopped.get());
+    assertTrue(future.isCancelled());
+    assertFalse(future.complete("late"));
+    try {
+      future.get();
+      fail();
+    } catch (CancellationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test that thenApply transforms the result, and passes a failure of the function on.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testThenApply() throws Exception {
+    ServiceFuture<String> future = new ServiceFuture<>();
+    ServiceFuture<Integer> length = future.thenApply(new ServiceFuture.Function<String, Integer>() {
+      @Override
+      public Integer apply(String result) {
+        return result.length();
+      }
+    });
+    future.complete("done");
+    assertEquals(Integer.valueOf(4), length.get(1, TimeUnit.SECONDS));
+
+    future = new ServiceFuture<>();
+    final IllegalStateException cause = new IllegalStateException();
+    ServiceFuture<Integer> failed = future.thenApply(new ServiceFuture.Function<String, Integer>() {
+      @Override
+      public Integer apply(String result) {
+        throw cause;
+      }
+    });
+    future.complete("done");
+    try {
+      failed.get(1, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(cause, e.getCause());
+    }
+  }
+
+  /**
+   * Test that thenCompose completes with the result of the second future, and that cancelling it cancels the future
+   * which is running.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testThenCompose() throws Exception {
+    ServiceFuture<String> first = new ServiceFuture<>();
+    final ServiceFuture<String> second = new ServiceFuture<>();
+    ServiceFuture<String> composed = first.thenCompose(new ServiceFuture.Function<String, ServiceFuture<String>>() {
+      @Override
+      public ServiceFuture<String> apply(String result) {
+        return second;
+      }
+    });
+
+    first.complete("first");
+    assertFalse(composed.isDone());
+    assertTrue(composed.cancel(true));
+    assertTrue(second.isCancelled());
+
+    first = new ServiceFuture<>();
+    composed = first.thenCompose(new ServiceFuture.Function<String, ServiceFuture<String>>() {
+      @Override
+      public ServiceFuture<String> apply(String result) {
+        ServiceFuture<String> next = new ServiceFuture<>();
+        next.complete(result + " second");
+        return next;
+      }
+    });
+    first.complete("first");
+    assertEquals("first second", composed.get(1, TimeUnit.SECONDS));
+
+    first = new ServiceFuture<>();
+    composed = first.thenCompose(new ServiceFuture.Function<String, ServiceFuture<String>>() {
+      @Override
+      public ServiceFuture<String> apply(String result) {
+        return second;
+      }
+    });
+    assertTrue(composed.cancel(true));
+    assertTrue(first.isCancelled());
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.common.http;
+
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.common.WaitFor;
+import com.ibm.watson.common.WatsonService;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncCallsTest {
+  private static final String CALLBACK_THREAD = "callback";
+
+  private MockWebServer server;
+  private ExecutorService executor;
+  private AsyncCalls async;
+  private TestService service;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        return new Thread(runnable, CALLBACK_THREAD);
+      }
+    });
+    async = new AsyncCalls.Builder().executor(executor).build();
+    service = new TestService();
+    ServiceInterceptors.add(service, async);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    executor.shutdownNow();
+    server.shutdown();
+  }
+
+  /**
+   * Test that the future completes on the executor.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCompletesOnExecutor() throws Exception {
+    server.enqueue(new MockResponse().setBody("result"));
+    final AtomicReference<String> thread = new AtomicReference<>();
+    ServiceFuture<String> future = async.submit(service.get("/a"));
+    ServiceFuture<String> upperCase = future.thenApply(new ServiceFuture.Function<String, String>() {
+      @Override
+      public String apply(String result) {
+        thread.set(Thread.currentThread().getName());
+        return result.toUpperCase();
+      }
+    });
+
+    assertEquals("RESULT", upperCase.get(5, TimeUnit.SECONDS));
+    assertEquals(CALLBACK_THREAD, thread.get());
+  }
+
+  /**
+   * Test that the requests of submitted calls are sent as they are, whether or not the interceptor was added to the
+   * service, and whichever instance submitted them.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRequestsAreNotMarked() throws Exception {
+    server.enqueue(new MockResponse().setBody("direct"));
+    server.enqueue(new MockResponse().setBody("installed"));
+    server.enqueue(new MockResponse().setBody("not installed"));
+    server.enqueue(new MockResponse().setBody("other"));
+    AsyncCalls other = new AsyncCalls.Builder().executor(executor).build();
+
+    service.get("/a").execute();
+    assertEquals("installed", async.submit(service.get("/a")).get(5, TimeUnit.SECONDS));
+    assertEquals("not installed", async.submit(new TestService().get("/a")).get(5, TimeUnit.SECONDS));
+    assertEquals("other", other.submit(service.get("/a")).get(5, TimeUnit.SECONDS));
+
+    Set<String> headers = server.takeRequest().getHeaders().names();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(headers, server.takeRequest().getHeaders().names());
+    }
+  }
+
+  /**
+   * Test that a failed HTTP call fails the future with its IOException.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFailure() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+    try {
+      async.submit(service.get("/a")).get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+
+  /**
+   * Test that a call which misses its deadline fails with a TimeoutException and its HTTP call is cancelled.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testDeadline() throws Exception {
+    server.enqueue(new MockResponse().setBody("late").setHeadersDelay(3, TimeUnit.SECONDS));
+    long start = System.nanoTime();
+    ServiceFuture<String> future = async.submit(service.get("/slow"), 200, TimeUnit.MILLISECONDS);
+
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+    assertEquals(1, async.getCancelledCount());
+  }
+
+  /**
+   * Test that cancelling a future cancels its HTTP call.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCancel() throws Exception {
+    server.enqueue(new MockResponse().setBody("late").setHeadersDelay(3, TimeUnit.SECONDS));
+    ServiceFuture<String> future = async.submit(service.get("/slow"));
+    server.takeRequest(5, TimeUnit.SECONDS);
+
+    assertTrue(future.cancel(true));
+    assertEquals(1, async.getCancelledCount());
+    try {
+      future.get();
+      fail();
+    } catch (CancellationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test that the result of one call is passed to the next one, and that cancelling the composed future cancels the
+   * call which is running.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCompose() throws Exception {
+    server.enqueue(new MockResponse().setBody("second"));
+    server.enqueue(new MockResponse().setBody("done"));
+    ServiceFuture<String> composed = async.submit(service.get("/first"))
+        .thenCompose(new ServiceFuture.Function<String, ServiceFuture<String>>() {
+          @Override
+          public ServiceFuture<String> apply(String result) {
+            return async.submit(service.get("/" + result));
+          }
+        });
+    assertEquals("done", composed.get(5, TimeUnit.SECONDS));
+    server.takeRequest();
+    assertEquals("/second", server.takeRequest().getPath());
+
+    server.enqueue(new MockResponse().setBody("second"));
+    server.enqueue(new MockResponse().setBody("late").setHeadersDelay(3, TimeUnit.SECONDS));
+    composed = async.submit(service.get("/first"))
+        .thenCompose(new ServiceFuture.Function<String, ServiceFuture<String>>() {
+          @Override
+          public ServiceFuture<String> apply(String result) {
+            return async.submit(service.get("/" + result));
+          }
+        });
+    server.takeRequest(5, TimeUnit.SECONDS);
+    server.takeRequest(5, TimeUnit.SECONDS);
+    assertTrue(composed.cancel(true));
+    assertEquals(1, async.getCancelledCount());
+  }
+
+  /**
+   * Test that submitted calls wait in the dispatcher of the shared transport within its limits, and that a call which
+   * is cancelled while it waits is never sent.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCallsWaitInDispatcher() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        release.await(5, TimeUnit.SECONDS);
+        return new MockResponse().setBody("result");
+      }
+    });
+    new SharedTransport.Builder().maxRequestsPerHost(1).build().share(service);
+    final okhttp3.Dispatcher dispatcher = service.getClient().dispatcher();
+
+    ServiceFuture<String> first = async.submit(service.get("/a"));
+    ServiceFuture<String> second = async.submit(service.get("/b"));
+    ServiceFuture<String> third = async.submit(service.get("/c"));
+    assertTrue(WaitFor.waitFor(new WaitFor.Condition() {
+      @Override
+      public boolean isSatisfied() {
+        return dispatcher.runningCallsCount() == 1 && dispatcher.queuedCallsCount() == 2;
+      }
+    }, 5, TimeUnit.SECONDS, 10));
+    assertTrue(second.cancel(true));
+    release.countDown();
+
+    assertEquals("result", first.get(5, TimeUnit.SECONDS));
+    assertEquals("result", third.get(5, TimeUnit.SECONDS));
+    assertEquals(2, server.getRequestCount());
+    assertEquals("/a", server.takeRequest().getPath());
+    assertEquals("/c", server.takeRequest().getPath());
+    assertEquals(1, async.getCancelledCount());
+  }
+
+  /**
+   * A service with a single GET operation on the mock server.
+   */
+  private final class TestService extends WatsonService {
+
+    TestService() {
+      super("async_calls_test");
+      setSkipAuthentication(true);
+    }
+
+    ServiceCall<String> get(String path) {
+      Request request = new Request.Builder().url(server.url(path)).build();
+      return createServiceCall(request, ResponseConverterUtils.getString());
+    }
+  }
+}
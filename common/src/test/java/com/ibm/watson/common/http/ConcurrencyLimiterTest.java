@@ -0,0 +1,207 @@
+package com.ibm.watson.common.http;
+
+import com.ibm.watson.common.WatsonHttpHeaders;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimiterTest {
+  private static final String ANALYTICS = "service_name=natural-language-understanding;service_version=v1;"
+      + "operation_id=analyze";
+
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  /**
+   * Test that calls beyond the limit wait instead of failing.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testQueuesCallsBeyondTheLimit() throws Exception {
+    final AtomicInteger concurrent = new AtomicInteger();
+    final AtomicInteger maxConcurrent = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        int current = concurrent.incrementAndGet();
+        if (current > maxConcurrent.get()) {
+          maxConcurrent.set(current);
+        }
+        Thread.sleep(50);
+        concurrent.decrementAndGet();
+        return new MockResponse().setBody("{}");
+      }
+    });
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+        .initialLimit(2)
+        .maxLimit(2)
+        .latencyTolerance(0)
+        .build();
+    final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws IOException {
+          try (Response response = client.newCall(analyze()).execute()) {
+            return response.code();
+          }
+        }
+      }));
+    }
+    for (Future<Integer> result : results) {
+      assertEquals(200, (int) result.get(10, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+
+    assertEquals(8, server.getRequestCount());
+    assertTrue(maxConcurrent.get() <= 2);
+    assertEquals(2, limiter.getLimit("analyze"));
+    assertEquals(0, limiter.getInFlight("analyze"));
+    assertEquals(0, limiter.getQueued("analyze"));
+  }
+
+  /**
+   * Test that a 429 response decreases the limit and holds back calls until its Retry-After header has passed.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testTooManyRequestsWithRetryAfter() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+    server.enqueue(new MockResponse().setBody("{}"));
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder().initialLimit(8).build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+
+    try (Response response = client.newCall(analyze()).execute()) {
+      assertEquals(429, response.code());
+    }
+    assertEquals(4, limiter.getLimit("analyze"));
+    assertEquals(1, limiter.getThrottledCount());
+
+    long start = System.nanoTime();
+    try (Response response = client.newCall(analyze()).execute()) {
+      assertEquals(200, response.code());
+    }
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+  }
+
+  /**
+   * Test that successful calls raise the limit by one per round trip, but only while the limit is being used.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testAdditiveIncrease() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      server.enqueue(new MockResponse().setBody("{}"));
+    }
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+        .initialLimit(1)
+        .maxLimit("analyze", 3)
+        .latencyTolerance(0)
+        .build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+
+    client.newCall(analyze()).execute().close();
+    assertEquals(2, limiter.getLimit("analyze"));
+
+    // Sequential calls use one of the two slots, so the limit stays where it is.
+    for (int i = 0; i < 4; i++) {
+      client.newCall(analyze()).execute().close();
+    }
+    assertEquals(2, limiter.getLimit("analyze"));
+    assertEquals(1, limiter.getLimit(null));
+  }
+
+  /**
+   * Test that calls which differ in latency, as calls with different payload sizes do, keep the limit, while calls
+   * which all become slower decrease it.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testMixedLatencies() throws Exception {
+    final AtomicInteger slowdown = new AtomicInteger(1);
+    final AtomicInteger count = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        // Every other call has a large payload and takes fifteen times as long.
+        Thread.sleep(((count.getAndIncrement() % 2 == 0) ? 2 : 30) * slowdown.get());
+        return new MockResponse().setBody("{}");
+      }
+    });
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+        .initialLimit(2)
+        .maxLimit(2)
+        .build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+
+    for (int i = 0; i < 40; i++) {
+      client.newCall(analyze()).execute().close();
+    }
+    assertEquals(2, limiter.getLimit("analyze"));
+
+    slowdown.set(4);
+    for (int i = 0; i < 20; i++) {
+      client.newCall(analyze()).execute().close();
+    }
+    assertEquals(1, limiter.getLimit("analyze"));
+  }
+
+  /**
+   * Test parsing the Retry-After header.
+   */
+  @Test
+  public void testRetryAfter() {
+    long now = 1445412480000L;
+
+    assertEquals(TimeUnit.SECONDS.toNanos(120), ConcurrencyLimiter.retryAfterNanos(" 120", now));
+    assertEquals(TimeUnit.SECONDS.toNanos(30),
+        ConcurrencyLimiter.retryAfterNanos("Wed, 21 Oct 2015 07:28:30 GMT", now));
+    assertEquals(0, ConcurrencyLimiter.retryAfterNanos("Wed, 21 Oct 2015 07:27:00 GMT", now));
+    assertEquals(0, ConcurrencyLimiter.retryAfterNanos("soon", now));
+    assertEquals(0, ConcurrencyLimiter.retryAfterNanos(null, now));
+  }
+
+  private Request analyze() {
+    return new Request.Builder()
+        .url(server.url("/v1/analyze"))
+        .header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS, ANALYTICS)
+        .build();
+  }
+}
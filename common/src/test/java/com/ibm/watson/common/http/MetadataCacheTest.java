@@ -0,0 +1,299 @@
+package com.ibm.watson.common.http;
+
+import com.ibm.watson.common.WatsonHttpHeaders;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetadataCacheTest {
+  private static final String VOICES = "{\"voices\":[]}";
+
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  /**
+   * Test that a metadata operation is answered from the cache within its time to live.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testHit() throws Exception {
+    server.enqueue(new MockResponse().setBody(VOICES));
+    MetadataCache cache = new MetadataCache.Builder().build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+
+    assertEquals(VOICES, get(client, "listVoices"));
+    assertEquals(VOICES, get(client, "listVoices"));
+
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.size());
+  }
+
+  /**
+   * Test that a stale response is served while it is revalidated in the background with its ETag.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testStaleWhileRevalidate() throws Exception {
+    server.enqueue(new MockResponse().setBody(VOICES).setHeader("ETag", "\"v1\""));
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+    MetadataCache cache = new MetadataCache.Builder()
+        .ttl(50, TimeUnit.MILLISECONDS)
+        .staleWhileRevalidate(1, TimeUnit.MINUTES)
+        .build();
+    final List<Call> intercepted = Collections.synchronizedList(new ArrayList<Call>());
+    Interceptor counter = new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        intercepted.add(chain.call());
+        return chain.proceed(chain.request());
+      }
+    };
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(counter).addInterceptor(cache).build();
+
+    assertEquals(VOICES, get(client, "listVoices"));
+    assertNull(server.takeRequest().getHeader("If-None-Match"));
+    Thread.sleep(100);
+    assertEquals(VOICES, get(client, "listVoices"));
+    assertEquals(1, cache.getStaleHitCount());
+
+    RecordedRequest refresh = server.takeRequest(5, TimeUnit.SECONDS);
+    assertEquals("\"v1\"", refresh.getHeader("If-None-Match"));
+    for (int i = 0; i < 50 && cache.getNotModifiedCount() == 0; i++) {
+      Thread.sleep(20);
+    }
+    assertEquals(1, cache.getNotModifiedCount());
+    assertEquals(VOICES, get(client, "listVoices"));
+    assertEquals(1, cache.getHitCount());
+    // The refresh is a call of its own, which passes through the interceptors before the cache.
+    assertEquals(4, intercepted.size());
+    assertNotSame(intercepted.get(1), intercepted.get(2));
+    assertEquals(2, server.getRequestCount());
+  }
+
+  /**
+   * Test that a response past its stale-while-revalidate period is revalidated before it is served.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testExpiredResponseIsRevalidated() throws Exception {
+    server.enqueue(new MockResponse().setBody(VOICES).setHeader("ETag", "\"v1\""));
+    server.enqueue(new MockResponse().setResponseCode(304));
+    MetadataCache cache = new MetadataCache.Builder()
+        .ttl(10, TimeUnit.MILLISECONDS)
+        .staleWhileRevalidate(0, TimeUnit.MILLISECONDS)
+        .build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+
+    assertEquals(VOICES, get(client, "getVoice"));
+    Thread.sleep(50);
+    assertEquals(VOICES, get(client, "getVoice"));
+
+    server.takeRequest();
+    assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    assertEquals(2, cache.getMissCount());
+    assertEquals(1, cache.getNotModifiedCount());
+  }
+
+  /**
+   * Test that other operations are not cached, that a call which only processes data keeps the cache, and that a
+   * change removes the responses of the changed resource.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testOtherOperationsAndChanges() throws Exception {
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(VOICES);
+      }
+    });
+    MetadataCache cache = new MetadataCache.Builder().ttl("listVoiceModels", 1, TimeUnit.MINUTES).build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+
+    get(client, "getPronunciation");
+    get(client, "getPronunciation");
+    get(client, "/v1/customizations", "listVoiceModels");
+    assertEquals(1, cache.size());
+
+    post(client, "/v1/synthesize", "synthesize");
+    assertEquals(1, cache.size());
+    get(client, "/v1/customizations", "listVoiceModels");
+    assertEquals(1, cache.getHitCount());
+
+    post(client, "/v1/customizations", "createVoiceModel");
+    assertEquals(0, cache.size());
+    assertEquals(5, server.getRequestCount());
+  }
+
+  /**
+   * Test that a change removes the responses of the changed resource, of the resources above and below it, and the
+   * responses requested with its customization ID, and keeps the others.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testChangeRemovesRelatedResources() throws Exception {
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(VOICES);
+      }
+    });
+    MetadataCache cache = new MetadataCache.Builder()
+        .ttl("listVoiceModels", 1, TimeUnit.MINUTES)
+        .ttl("getVoiceModel", 1, TimeUnit.MINUTES)
+        .ttl("listWords", 1, TimeUnit.MINUTES)
+        .build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+
+    get(client, "/v1/voices", "listVoices");
+    get(client, "/v1/voices/en-US_AllisonVoice?customization_id=c1", "getVoice");
+    get(client, "/v1/voices/en-US_AllisonVoice?customization_id=c2", "getVoice");
+    get(client, "/v1/customizations", "listVoiceModels");
+    get(client, "/v1/customizations/c1", "getVoiceModel");
+    get(client, "/v1/customizations/c1/words", "listWords");
+    get(client, "/v1/customizations/c2", "getVoiceModel");
+    assertEquals(7, cache.size());
+
+    post(client, "/v1/customizations/c1", "updateVoiceModel");
+    assertEquals(3, cache.size());
+
+    get(client, "/v1/voices", "listVoices");
+    get(client, "/v1/voices/en-US_AllisonVoice?customization_id=c2", "getVoice");
+    get(client, "/v1/customizations/c2", "getVoiceModel");
+    assertEquals(3, cache.getHitCount());
+    get(client, "/v1/customizations", "listVoiceModels");
+    assertEquals(3, cache.getHitCount());
+  }
+
+  /**
+   * Test that a HEAD call does not clear the cache.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testHeadDoesNotClear() throws Exception {
+    server.enqueue(new MockResponse().setBody(VOICES));
+    server.enqueue(new MockResponse());
+    MetadataCache cache = new MetadataCache.Builder().build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+
+    get(client, "listVoices");
+    client.newCall(new Request.Builder().url(server.url("/v1/voices")).head().build()).execute().close();
+
+    assertEquals(1, cache.size());
+    assertEquals(VOICES, get(client, "listVoices"));
+    assertEquals(1, cache.getHitCount());
+  }
+
+  /**
+   * Test that a response which was requested before a change is not stored.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testChangeDuringFetch() throws Exception {
+    final CountDownLatch fetching = new CountDownLatch(1);
+    final CountDownLatch changed = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        if ("GET".equals(request.getMethod()) && fetching.getCount() > 0) {
+          fetching.countDown();
+          changed.await(5, TimeUnit.SECONDS);
+          return new MockResponse().setBody(VOICES);
+        }
+        return new MockResponse().setBody("{}");
+      }
+    });
+    MetadataCache cache = new MetadataCache.Builder().build();
+    final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+
+    final AtomicReference<String> stale = new AtomicReference<>();
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          stale.set(get(client, "/v1/voices", "listVoices"));
+        } catch (IOException e) {
+          stale.set(e.toString());
+        }
+      }
+    };
+    reader.start();
+    assertTrue(fetching.await(5, TimeUnit.SECONDS));
+    post(client, "/v1/voices", "createVoice");
+    changed.countDown();
+    reader.join(5000);
+
+    assertEquals(VOICES, stale.get());
+    assertEquals(0, cache.size());
+    assertEquals("{}", get(client, "/v1/voices", "listVoices"));
+    assertEquals(2, cache.getMissCount());
+  }
+
+  private String get(OkHttpClient client, String operationId) throws IOException {
+    return get(client, "/v1/" + operationId, operationId);
+  }
+
+  private String get(OkHttpClient client, String path, String operationId) throws IOException {
+    Request request = new Request.Builder()
+        .url(server.url(path))
+        .header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS,
+            "service_name=text_to_speech;service_version=v1;operation_id=" + operationId)
+        .build();
+    try (Response response = client.newCall(request).execute()) {
+      return response.body().string();
+    }
+  }
+
+  private void post(OkHttpClient client, String path, String operationId) throws IOException {
+    Request request = new Request.Builder()
+        .url(server.url(path))
+        .header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS,
+            "service_name=text_to_speech;service_version=v1;operation_id=" + operationId)
+        .post(RequestBody.create(MediaType.parse("application/json"), "{}"))
+        .build();
+    client.newCall(request).execute().close();
+  }
+}
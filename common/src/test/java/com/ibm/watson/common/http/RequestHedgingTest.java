@@ -0,0 +1,265 @@
+package com.ibm.watson.common.http;
+
+import com.ibm.watson.common.WatsonHttpHeaders;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestHedgingTest {
+  private static final String ANALYTICS = "service_name=conversation;service_version=v1;operation_id=getWorkspace";
+  private static final long SLOW_MILLIS = 600;
+  private static final int CALLS = 12;
+
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    // Every fourth request is slow, so every fourth call without hedging is slow too.
+    final AtomicInteger count = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        if (count.getAndIncrement() % 4 == 0) {
+          Thread.sleep(SLOW_MILLIS);
+        }
+        return new MockResponse().setBody("{\"name\":\"workspace\"}");
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  /**
+   * Test that hedging removes the slow calls from the tail.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testHedgingCutsTheTail() throws Exception {
+    OkHttpClient plain = new OkHttpClient();
+    long plainMax = maxLatency(plain);
+
+    RequestHedging hedging = new RequestHedging.Builder()
+        .delay(50, TimeUnit.MILLISECONDS)
+        .budget(1)
+        .operations("getWorkspace")
+        .build();
+    long hedgedMax = maxLatency(plain.newBuilder().addInterceptor(hedging).build());
+
+    assertTrue(plainMax >= TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS));
+    assertTrue(hedgedMax < TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS / 2));
+    assertTrue(hedging.getHedgeCount() >= CALLS / 4);
+    assertTrue(hedging.getHedgeCount() < CALLS);
+  }
+
+  /**
+   * Test that a hedge is a call of its own, which passes through the interceptors before the hedging, and which a
+   * {@link SingleFlight} in front of it does not make wait for the call it duplicates.
+   *
+   * @throws Exception the exception
+   */
+  @Test(timeout = 10000)
+  public void testHedgeIsACallOfItsOwn() throws Exception {
+    final AtomicInteger intercepted = new AtomicInteger();
+    Interceptor counter = new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        intercepted.incrementAndGet();
+        return chain.proceed(chain.request());
+      }
+    };
+    RequestHedging hedging = new RequestHedging.Builder()
+        .delay(50, TimeUnit.MILLISECONDS)
+        .budget(1)
+        .build();
+    long hedgedMax = maxLatency(new OkHttpClient.Builder()
+        .addInterceptor(counter)
+        .addInterceptor(new SingleFlight())
+        .addInterceptor(hedging)
+        .build());
+
+    assertTrue(hedgedMax < TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS / 2));
+    assertTrue(hedging.getHedgeCount() >= CALLS / 4);
+    assertEquals(CALLS + hedging.getHedgeCount(), intercepted.get());
+    assertEquals(CALLS + hedging.getHedgeCount(), server.getRequestCount());
+  }
+
+  /**
+   * Test that the hedge is cancelled when the call wins, and that cancelling the call cancels the hedge.
+   *
+   * @throws Exception the exception
+   */
+  @Test(timeout = 10000)
+  public void testLoserIsCancelled() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger count = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        // The first call answers after 300 ms, its hedge and the second call not until they are released.
+        if (count.getAndIncrement() == 0) {
+          Thread.sleep(300);
+        } else {
+          release.await(5, TimeUnit.SECONDS);
+        }
+        return new MockResponse().setBody("{\"name\":\"workspace\"}");
+      }
+    });
+    final List<Call> attempts = Collections.synchronizedList(new ArrayList<Call>());
+    Interceptor recorder = new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        attempts.add(chain.call());
+        return chain.proceed(chain.request());
+      }
+    };
+    RequestHedging hedging = new RequestHedging.Builder()
+        .delay(50, TimeUnit.MILLISECONDS)
+        .budget(1)
+        .maxBurst(2)
+        .build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(hedging).addInterceptor(recorder).build();
+    try {
+      Call call = client.newCall(workspaceRequest());
+      call.execute().close();
+      assertEquals(2, attempts.size());
+      assertSame(call, attempts.get(0));
+      assertTrue(attempts.get(1).isCanceled());
+
+      final Call cancelled = client.newCall(workspaceRequest());
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            Thread.sleep(300);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          cancelled.cancel();
+        }
+      }.start();
+      try {
+        cancelled.execute();
+        fail();
+      } catch (IOException e) {
+        // Expected.
+      }
+      assertEquals(4, attempts.size());
+      assertSame(cancelled, attempts.get(2));
+      assertTrue(attempts.get(3).isCanceled());
+      assertEquals(2, hedging.getHedgeCount());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  /**
+   * Test that a call which cannot be hedged is sent on the calling thread.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCallWithoutHedgeIsSentInline() throws Exception {
+    final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+    Interceptor recorder = new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        threads.add(Thread.currentThread());
+        return chain.proceed(chain.request());
+      }
+    };
+    RequestHedging warmingUp = new RequestHedging.Builder().budget(1).build();
+    RequestHedging noBudget = new RequestHedging.Builder().delay(50, TimeUnit.MILLISECONDS).budget(0).build();
+    for (RequestHedging hedging : new RequestHedging[] { warmingUp, noBudget }) {
+      OkHttpClient client = new OkHttpClient.Builder().addInterceptor(hedging).addInterceptor(recorder).build();
+      client.newCall(workspaceRequest()).execute().close();
+    }
+
+    assertEquals(2, threads.size());
+    for (Thread thread : threads) {
+      assertSame(Thread.currentThread(), thread);
+    }
+    assertFalse(warmingUp.getHedgeCount() > 0 || noBudget.getHedgeCount() > 0);
+  }
+
+  /**
+   * Test that an empty budget stops hedging.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testBudget() throws Exception {
+    RequestHedging hedging = new RequestHedging.Builder()
+        .delay(50, TimeUnit.MILLISECONDS)
+        .budget(0)
+        .build();
+    long hedgedMax = maxLatency(new OkHttpClient.Builder().addInterceptor(hedging).build());
+
+    assertTrue(hedgedMax >= TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS));
+    assertEquals(0, hedging.getHedgeCount());
+    assertEquals(CALLS, server.getRequestCount());
+  }
+
+  /**
+   * Test that the delay follows the latency of an operation once it has completed enough calls.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testPercentileDelay() throws Exception {
+    RequestHedging hedging = new RequestHedging.Builder().percentile(50).build();
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(hedging).build();
+    assertEquals(-1, hedging.getDelay("getWorkspace", TimeUnit.MILLISECONDS));
+
+    for (int i = 0; i < 20; i++) {
+      client.newCall(workspaceRequest()).execute().close();
+    }
+    long delay = hedging.getDelay("getWorkspace", TimeUnit.MILLISECONDS);
+    assertTrue(delay >= 0 && delay < SLOW_MILLIS);
+  }
+
+  private long maxLatency(OkHttpClient client) throws IOException {
+    long max = 0;
+    for (int i = 0; i < CALLS; i++) {
+      long start = System.nanoTime();
+      try (Response response = client.newCall(workspaceRequest()).execute()) {
+        assertEquals("{\"name\":\"workspace\"}", response.body().string());
+      }
+      max = Math.max(max, System.nanoTime() - start);
+    }
+    return max;
+  }
+
+  private Request workspaceRequest() {
+    return new Request.Builder().url(server.url("/v1/workspaces/1"))
+        .header(WatsonHttpHeaders.X_IBMCLOUD_SDK_ANALYTICS, ANALYTICS).build();
+  }
+}
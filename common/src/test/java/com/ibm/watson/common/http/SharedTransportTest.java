@@ -0,0 +1,101 @@
+package com.ibm.watson.common.http;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedTransportTest {
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  /**
+   * Test that clients which share a transport reuse each other's connections.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testClientsShareConnections() throws Exception {
+    SharedTransport transport = new SharedTransport.Builder()
+        .maxIdleConnections(2)
+        .maxRequestsPerHost(16)
+        .build();
+    OkHttpClient first = transport.share(new OkHttpClient());
+    OkHttpClient second = transport.share(new OkHttpClient());
+    assertTrue(transport.isShared(first));
+    assertSame(first, transport.share(first));
+    assertEquals(16, transport.getMaxRequestsPerHost());
+
+    server.enqueue(new MockResponse().setBody("first"));
+    server.enqueue(new MockResponse().setBody("second"));
+    get(first);
+    get(second);
+
+    assertEquals(0, server.takeRequest().getSequenceNumber());
+    assertEquals(1, server.takeRequest().getSequenceNumber());
+    assertEquals(1, transport.getConnectionCount());
+    assertEquals(1, transport.getIdleConnectionCount());
+    assertEquals(0, transport.getRunningCallCount(server.getHostName()));
+    assertEquals(0, transport.getQueuedCallCount());
+
+    transport.evictAll();
+    assertEquals(0, transport.getConnectionCount());
+  }
+
+  /**
+   * Test that the client of a WebSocket keeps the transport and the application's interceptors, but not the SDK's
+   * interceptors of the HTTP calls.
+   */
+  @Test
+  public void testWebSocketClient() {
+    SharedTransport transport = new SharedTransport.Builder().build();
+    Interceptor limiter = new ConcurrencyLimiter.Builder().build();
+    Interceptor userInterceptor = new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        return chain.proceed(chain.request());
+      }
+    };
+    OkHttpClient client = transport.share(new OkHttpClient.Builder()
+        .addInterceptor(limiter)
+        .addInterceptor(userInterceptor)
+        .build());
+
+    OkHttpClient webSocketClient = SharedTransport.webSocketClient(client);
+
+    assertEquals(Collections.singletonList(userInterceptor), webSocketClient.interceptors());
+    assertTrue(transport.isShared(webSocketClient));
+    assertEquals(2, client.interceptors().size());
+
+    OkHttpClient plainClient = transport.share(new OkHttpClient.Builder().addInterceptor(userInterceptor).build());
+    assertSame(plainClient, SharedTransport.webSocketClient(plainClient));
+  }
+
+  private void get(OkHttpClient client) throws IOException {
+    try (Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute()) {
+      response.body().string();
+    }
+  }
+}
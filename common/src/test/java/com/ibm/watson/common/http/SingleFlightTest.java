@@ -0,0 +1,251 @@
+package com.ibm.watson.common.http;
+
+import com.ibm.watson.common.WaitFor;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+  private static final String WORKSPACE = "{\"name\":\"workspace\"}";
+  private static final int LARGE_BODY_SIZE = 8 * 1024 * 1024;
+
+  private MockWebServer server;
+  private SingleFlight singleFlight;
+  private OkHttpClient client;
+  private ExecutorService executor;
+  // The server answers only once the test releases it, and signals every request it receives.
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final Semaphore received = new Semaphore(0);
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        received.release();
+        release.await(10, TimeUnit.SECONDS);
+        return new MockResponse().setBody(WORKSPACE);
+      }
+    });
+    server.start();
+    singleFlight = new SingleFlight();
+    client = new OkHttpClient.Builder().addInterceptor(singleFlight).build();
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    release.countDown();
+    executor.shutdownNow();
+    server.shutdown();
+  }
+
+  /**
+   * Test that identical calls in flight at the same time share one call.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testIdenticalCallsShareOneCall() throws Exception {
+    List<Future<String>> results = new ArrayList<>();
+    results.add(executor.submit(get("Bearer a")));
+    assertTrue(received.tryAcquire(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 9; i++) {
+      results.add(executor.submit(get("Bearer a")));
+    }
+    awaitWaiting(9);
+    release.countDown();
+    for (Future<String> result : results) {
+      assertEquals(WORKSPACE, result.get(10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, singleFlight.getSentCount());
+    assertEquals(9, singleFlight.getCoalescedCount());
+    assertEquals(0, singleFlight.getInFlightCount());
+  }
+
+  /**
+   * Test that calls with different credentials are not coalesced.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testDifferentCredentials() throws Exception {
+    Future<String> first = executor.submit(get("Bearer a"));
+    Future<String> second = executor.submit(get("Bearer b"));
+
+    // Both calls reach the server while it holds back its responses, so neither waits for the other.
+    assertTrue(received.tryAcquire(2, 5, TimeUnit.SECONDS));
+    release.countDown();
+    assertEquals(WORKSPACE, first.get(10, TimeUnit.SECONDS));
+    assertEquals(WORKSPACE, second.get(10, TimeUnit.SECONDS));
+    assertEquals(2, server.getRequestCount());
+    assertEquals(0, singleFlight.getCoalescedCount());
+  }
+
+  /**
+   * Test that the waiting calls are sent again when the call they wait for is cancelled.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCancelledCall() throws Exception {
+    final Call cancelled = client.newCall(request("Bearer a"));
+    Future<Integer> first = executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws IOException {
+        try (Response response = cancelled.execute()) {
+          return response.code();
+        }
+      }
+    });
+    assertTrue(received.tryAcquire(5, TimeUnit.SECONDS));
+    Future<String> second = executor.submit(get("Bearer a"));
+    awaitWaiting(1);
+    cancelled.cancel();
+
+    try {
+      first.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    // The waiting call sends its own call once the call it waited for was cancelled.
+    assertTrue(received.tryAcquire(5, TimeUnit.SECONDS));
+    release.countDown();
+    assertEquals(WORKSPACE, second.get(10, TimeUnit.SECONDS));
+    assertEquals(2, singleFlight.getSentCount());
+  }
+
+  /**
+   * Test that bodies larger than the maximum shared body size are not shared, and every call is sent on its own.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLargeBodyIsNotShared() throws Exception {
+    singleFlight = new SingleFlight(WORKSPACE.length() - 1);
+    client = new OkHttpClient.Builder().addInterceptor(singleFlight).build();
+    List<Future<String>> results = new ArrayList<>();
+    results.add(executor.submit(get("Bearer a")));
+    assertTrue(received.tryAcquire(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 2; i++) {
+      results.add(executor.submit(get("Bearer a")));
+    }
+    awaitWaiting(2);
+    release.countDown();
+    for (Future<String> result : results) {
+      assertEquals(WORKSPACE, result.get(10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(3, server.getRequestCount());
+    assertEquals(3, singleFlight.getSentCount());
+    assertEquals(0, singleFlight.getCoalescedCount());
+  }
+
+  /**
+   * Measures the bytes allocated by a call which is alone in flight while its large body is read in small chunks. The
+   * body is streamed from the connection instead of being buffered, so the allocation stays far below its size.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSingleCallIsStreamed() throws Exception {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+    allocations.setThreadAllocatedMemoryEnabled(true);
+
+    final Buffer body = new Buffer();
+    for (int i = 0; i < LARGE_BODY_SIZE / WORKSPACE.length(); i++) {
+      body.writeUtf8(WORKSPACE);
+    }
+    final long size = body.size();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(body.clone());
+      }
+    });
+    // Warm up the connection and the code paths, so only the reading of the body is measured.
+    readAll();
+
+    long threadId = Thread.currentThread().getId();
+    long before = allocations.getThreadAllocatedBytes(threadId);
+    assertEquals(size, readAll());
+    long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+    assertTrue("allocated " + allocated + " bytes for a body of " + size + " bytes", allocated < size / 4);
+  }
+
+  private void awaitWaiting(final int calls) {
+    assertTrue(WaitFor.waitFor(new WaitFor.Condition() {
+      @Override
+      public boolean isSatisfied() {
+        return singleFlight.getWaitingCount() == calls;
+      }
+    }, 5, TimeUnit.SECONDS, 10));
+  }
+
+  private long readAll() throws IOException {
+    byte[] chunk = new byte[8192];
+    long total = 0;
+    try (Response response = client.newCall(request("Bearer a")).execute()) {
+      InputStream in = response.body().byteStream();
+      int read;
+      while ((read = in.read(chunk)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  private Request request(String authorization) {
+    return new Request.Builder()
+        .url(server.url("/v1/workspaces/1?export=true"))
+        .header("Authorization", authorization)
+        .build();
+  }
+
+  private Callable<String> get(final String authorization) {
+    return new Callable<String>() {
+      @Override
+      public String call() throws IOException {
+        try (Response response = client.newCall(request(authorization)).execute()) {
+          return response.body().string();
+        }
+      }
+    };
+  }
+}
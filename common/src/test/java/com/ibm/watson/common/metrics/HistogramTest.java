@@ -0,0 +1,52 @@
+package com.ibm.watson.common.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+  @Test
+  public void testSmallValuesAreExact() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(1, histogram.getMin());
+    assertEquals(100, histogram.getMax());
+    assertEquals(50.5, histogram.getMean(), 0.001);
+    assertEquals(50, histogram.getMedian());
+    assertEquals(99, histogram.getValueAtPercentile(99));
+    assertEquals(100, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testLargeValuesHaveBoundedError() {
+    Histogram histogram = new Histogram();
+    for (long value = 1000; value <= 1000000000L; value *= 10) {
+      histogram.record(value);
+    }
+
+    for (int i = 1; i <= 7; i++) {
+      long expected = (long) Math.pow(10, i + 2);
+      long actual = histogram.getValueAtPercentile(100.0 * (i - 0.5) / 7);
+      assertTrue(actual >= expected);
+      assertTrue((actual - expected) <= expected / 64);
+    }
+    assertEquals(1000000000L, histogram.getMax());
+  }
+
+  @Test
+  public void testClampAndReset() {
+    Histogram histogram = new Histogram();
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Histogram.MAX_VALUE, histogram.getMax());
+
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMin());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+}
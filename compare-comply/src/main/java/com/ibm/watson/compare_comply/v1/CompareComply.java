@@ -17,12 +17,12 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.RequestUtils;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
 import com.ibm.watson.compare_comply.v1.model.AddFeedbackOptions;
 import com.ibm.watson.compare_comply.v1.model.BatchStatus;
 import com.ibm.watson.compare_comply.v1.model.Batches;
@@ -57,7 +57,7 @@ import okhttp3.RequestBody;
  * @version v1
  * @see <a href="http://www.ibm.com/watson/developercloud/compare-comply.html">Compare Comply</a>
  */
-public class CompareComply extends BaseService {
+public class CompareComply extends WatsonService {
 
   private static final String SERVICE_NAME = "compare_comply";
   private static final String URL = "https://gateway.watsonplatform.net/compare-comply/api";
@@ -14,8 +14,10 @@ package com.ibm.watson.compare_comply.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * The batch-request status.
@@ -49,7 +51,9 @@ public class BatchStatus extends GenericModel {
   @SerializedName("document_counts")
   private DocCounts documentCounts;
   private String status;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
 
   /**
@@ -14,8 +14,10 @@ package com.ibm.watson.compare_comply.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Information about the document and the submitted feedback.
@@ -27,6 +29,7 @@ public class FeedbackReturn extends GenericModel {
   @SerializedName("user_id")
   private String userId;
   private String comment;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
   @SerializedName("feedback_data")
   private FeedbackDataOutput feedbackData;
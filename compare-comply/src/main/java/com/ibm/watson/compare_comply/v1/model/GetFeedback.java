@@ -14,8 +14,10 @@ package com.ibm.watson.compare_comply.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * The results of a successful **Get Feedback** request for a single feedback entry.
@@ -24,6 +26,7 @@ public class GetFeedback extends GenericModel {
 
   @SerializedName("feedback_id")
   private String feedbackId;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
   private String comment;
   @SerializedName("feedback_data")
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.compare_comply.v1.util;
+
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ResourceWaiter;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.common.WaitPolicy;
+import com.ibm.watson.compare_comply.v1.CompareComply;
+import com.ibm.watson.compare_comply.v1.model.BatchStatus;
+import com.ibm.watson.compare_comply.v1.model.GetBatchOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for a batch submitted with {@link CompareComply#createBatch} to finish processing its documents.
+ *
+ * <pre>
+ * BatchStatus batch = service.createBatch(createBatchOptions).execute().getResult();
+ * batch = BatchWaiter.batch(ResourceWaiter.getDefault(), service, batch.getBatchId()).get();
+ * </pre>
+ */
+public final class BatchWaiter {
+  private static final String COMPLETED = "completed";
+  private static final String FAILED = "failed";
+
+  /**
+   * A batch processes every document of a Cloud Object Storage bucket, which takes from seconds to hours, so the
+   * batch is first polled after 5 seconds and then at most every minute. The wait fails with a
+   * {@link java.util.concurrent.TimeoutException} if the batch is still running after 24 hours.
+   */
+  public static final WaitPolicy BATCH_PROCESSING = new WaitPolicy.Builder()
+      .initialDelay(5, TimeUnit.SECONDS)
+      .maxDelay(1, TimeUnit.MINUTES)
+      .multiplier(1.5)
+      .timeout(24, TimeUnit.HOURS)
+      .build();
+
+  private BatchWaiter() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Waits until a batch has completed, polling with the {@link #BATCH_PROCESSING} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param batchId the batch ID
+   * @return the future of the batch status, which fails with a {@link com.ibm.watson.common.ResourceFailedException}
+   *         if the batch failed
+   */
+  public static ServiceFuture<BatchStatus> batch(ResourceWaiter waiter, CompareComply service, String batchId) {
+    return batch(waiter, service, batchId, BATCH_PROCESSING);
+  }
+
+  /**
+   * Waits until a batch has completed.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param batchId the batch ID
+   * @param policy how often to poll the batch
+   * @return the future of the batch status, which fails with a {@link com.ibm.watson.common.ResourceFailedException}
+   *         if the batch failed
+   */
+  public static ServiceFuture<BatchStatus> batch(ResourceWaiter waiter, final CompareComply service,
+      final String batchId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(batchId, "batchId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<BatchStatus>() {
+      @Override
+      public ServiceCall<BatchStatus> call() {
+        return service.getBatch(new GetBatchOptions.Builder(batchId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(BatchStatus batch) {
+        // The API reference does not list the values of the status, so they are compared ignoring case.
+        String status = batch.getStatus();
+        if (COMPLETED.equalsIgnoreCase(status)) {
+          return ResourceWaiter.State.DONE;
+        } else if (FAILED.equalsIgnoreCase(status)) {
+          return ResourceWaiter.State.FAILED;
+        }
+        return ResourceWaiter.State.PENDING;
+      }
+
+      @Override
+      public String toString() {
+        return "batch " + batchId;
+      }
+    }, policy);
+  }
+}
@@ -17,12 +17,12 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.RequestUtils;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
 import com.ibm.watson.discovery.v1.model.AddDocumentOptions;
 import com.ibm.watson.discovery.v1.model.AddTrainingDataOptions;
 import com.ibm.watson.discovery.v1.model.Collection;
@@ -135,7 +135,7 @@ import okhttp3.RequestBody;
  * @version v1
  * @see <a href="http://www.ibm.com/watson/developercloud/discovery.html">Discovery</a>
  */
-public class Discovery extends BaseService {
+public class Discovery extends WatsonService {
 
   private static final String SERVICE_NAME = "discovery";
   private static final String URL = "https://gateway.watsonplatform.net/discovery/api";
@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * A collection for storing documents.
@@ -38,7 +40,9 @@ public class Collection extends GenericModel {
   private String collectionId;
   private String name;
   private String description;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private String status;
   @SerializedName("configuration_id")
@@ -15,8 +15,10 @@ package com.ibm.watson.discovery.v1.model;
 import java.util.Date;
 import java.util.List;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * A custom configuration for the environment.
@@ -26,7 +28,9 @@ public class Configuration extends GenericModel {
   @SerializedName("configuration_id")
   private String configurationId;
   private String name;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private String description;
   private Conversions conversions;
@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Details about an environment.
@@ -67,7 +69,9 @@ public class Environment extends GenericModel {
   private String environmentId;
   private String name;
   private String description;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
   private String status;
   @SerializedName("read_only")
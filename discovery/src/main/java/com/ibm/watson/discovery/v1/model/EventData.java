@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Query event data object.
@@ -27,6 +29,7 @@ public class EventData extends GenericModel {
   @SerializedName("session_token")
   private String sessionToken;
   @SerializedName("client_timestamp")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date clientTimestamp;
   @SerializedName("display_rank")
   private Long displayRank;
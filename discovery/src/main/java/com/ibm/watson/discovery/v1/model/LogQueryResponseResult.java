@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Individual result object for a **logs** query. Each object represents either a query to a Discovery collection or an
@@ -70,8 +72,10 @@ public class LogQueryResponseResult extends GenericModel {
   @SerializedName("document_results")
   private LogQueryResponseResultDocuments documentResults;
   @SerializedName("created_timestamp")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date createdTimestamp;
   @SerializedName("client_timestamp")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date clientTimestamp;
   @SerializedName("query_id")
   private String queryId;
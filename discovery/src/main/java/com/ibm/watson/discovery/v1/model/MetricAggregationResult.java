@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Aggregation result data for the requested metric.
@@ -23,6 +25,7 @@ import com.ibm.cloud.sdk.core.service.model.GenericModel;
 public class MetricAggregationResult extends GenericModel {
 
   @SerializedName("key_as_string")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date keyAsString;
   private Long key;
   @SerializedName("matching_results")
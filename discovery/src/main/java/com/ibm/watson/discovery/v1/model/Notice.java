@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * A notice produced for the collection.
@@ -34,6 +36,7 @@ public class Notice extends GenericModel {
 
   @SerializedName("notice_id")
   private String noticeId;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
   @SerializedName("document_id")
   private String documentId;
@@ -17,12 +17,12 @@ import java.util.List;
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
-import com.ibm.watson.discovery.v1.query.AggregationDeserializer;
+import com.ibm.watson.discovery.v1.query.AggregationTypeAdapterFactory;
 
 /**
  * An aggregation produced by Discovery to analyze the input provided.
  */
-@JsonAdapter(AggregationDeserializer.class)
+@JsonAdapter(AggregationTypeAdapterFactory.class)
 public class QueryAggregation extends GenericModel {
 
   private String type;
@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Information about the Continuous Relevancy Training for this environment.
@@ -43,6 +45,7 @@ public class SearchStatus extends GenericModel {
   @SerializedName("status_description")
   private String statusDescription;
   @SerializedName("last_trained")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date lastTrained;
 
   /**
@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Object containing source crawl status information.
@@ -46,6 +48,7 @@ public class SourceStatus extends GenericModel {
 
   private String status;
   @SerializedName("next_crawl")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date nextCrawl;
 
   /**
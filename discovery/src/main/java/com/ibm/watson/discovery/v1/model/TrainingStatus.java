@@ -14,8 +14,10 @@ package com.ibm.watson.discovery.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * TrainingStatus.
@@ -34,8 +36,10 @@ public class TrainingStatus extends GenericModel {
   private Boolean sufficientLabelDiversity;
   private Long notices;
   @SerializedName("successfully_trained")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date successfullyTrained;
   @SerializedName("data_updated")
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date dataUpdated;
 
   /**
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.discovery.v1.query;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.ibm.watson.discovery.v1.model.Calculation;
+import com.ibm.watson.discovery.v1.model.Filter;
+import com.ibm.watson.discovery.v1.model.Histogram;
+import com.ibm.watson.discovery.v1.model.Nested;
+import com.ibm.watson.discovery.v1.model.QueryAggregation;
+import com.ibm.watson.discovery.v1.model.Term;
+import com.ibm.watson.discovery.v1.model.Timeslice;
+import com.ibm.watson.discovery.v1.model.TopHits;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Type adapter factory which reads JSON into the {@link QueryAggregation} subclass named by its {@code type}.<br>
+ * <br>
+ * The members of an aggregation are read straight from the stream into the fields of the subclass its {@code type}
+ * selects. Only the members which come before the type are buffered, as JSON trees, until the subclass is known; the
+ * service sends the type first, so nothing is buffered for its responses, however deeply the aggregations are nested.
+ * Unlike the former {@link AggregationDeserializer}, nothing is written back to a string and parsed again.
+ */
+public class AggregationTypeAdapterFactory implements TypeAdapterFactory {
+
+  private static final String TYPE = "type";
+
+  /*
+   * (non-Javadoc)
+   * @see com.google.gson.TypeAdapterFactory#create(com.google.gson.Gson, com.google.gson.reflect.TypeToken)
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+    if (type.getRawType() != QueryAggregation.class) {
+      return null;
+    }
+    return (TypeAdapter<T>) new AggregationTypeAdapter(gson, this);
+  }
+
+  /**
+   * Reads and writes {@link QueryAggregation}s and their subclasses.
+   */
+  private static final class AggregationTypeAdapter extends TypeAdapter<QueryAggregation> {
+    private final Gson gson;
+    private final TypeAdapter<QueryAggregation> base;
+    private final TypeAdapter<JsonElement> elementAdapter;
+    private final Binding baseBinding;
+    private final Map<String, Binding> bindings = new HashMap<>();
+
+    AggregationTypeAdapter(Gson gson, TypeAdapterFactory factory) {
+      this.gson = gson;
+      base = gson.getDelegateAdapter(factory, TypeToken.get(QueryAggregation.class));
+      elementAdapter = gson.getAdapter(JsonElement.class);
+
+      baseBinding = new Binding(gson, QueryAggregation.class);
+      Binding calculation = new Binding(gson, Calculation.class);
+      bindings.put(AggregationType.HISTOGRAM.getName(), new Binding(gson, Histogram.class));
+      bindings.put(AggregationType.MAX.getName(), calculation);
+      bindings.put(AggregationType.MIN.getName(), calculation);
+      bindings.put(AggregationType.AVERAGE.getName(), calculation);
+      bindings.put(AggregationType.SUM.getName(), calculation);
+      bindings.put(AggregationType.UNIQUE_COUNT.getName(), calculation);
+      bindings.put(AggregationType.TERM.getName(), new Binding(gson, Term.class));
+      bindings.put(AggregationType.FILTER.getName(), new Binding(gson, Filter.class));
+      bindings.put(AggregationType.NESTED.getName(), new Binding(gson, Nested.class));
+      bindings.put(AggregationType.TIMESLICE.getName(), new Binding(gson, Timeslice.class));
+      bindings.put(AggregationType.TOP_HITS.getName(), new Binding(gson, TopHits.class));
+    }
+
+    @Override
+    public void write(JsonWriter out, QueryAggregation value) throws IOException {
+      if (value == null || value.getClass() == QueryAggregation.class) {
+        base.write(out, value);
+      } else {
+        // write the fields of the subclass as well
+        writeAs(out, value, value.getClass());
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends QueryAggregation> void writeAs(JsonWriter out, QueryAggregation value, Class<T> type)
+        throws IOException {
+      gson.getAdapter(type).write(out, (T) value);
+    }
+
+    @Override
+    public QueryAggregation read(JsonReader in) throws IOException {
+      JsonToken token = in.peek();
+      if (token == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      if (token != JsonToken.BEGIN_OBJECT) {
+        return base.read(in);
+      }
+
+      Binding binding = null;
+      QueryAggregation aggregation = null;
+      // The members before the type, which cannot be read until the type selects the subclass.
+      Map<String, JsonElement> buffered = null;
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (binding != null) {
+          binding.read(aggregation, name, in);
+        } else if (TYPE.equals(name) && (in.peek() == JsonToken.STRING || in.peek() == JsonToken.NUMBER)) {
+          String type = in.nextString();
+          binding = bindingFor(type);
+          aggregation = binding.newInstance(type);
+          binding.read(aggregation, buffered);
+        } else {
+          if (buffered == null) {
+            buffered = new LinkedHashMap<>();
+          }
+          buffered.put(name, elementAdapter.read(in));
+        }
+      }
+      in.endObject();
+      if (binding == null) {
+        aggregation = baseBinding.newInstance(null);
+        baseBinding.read(aggregation, buffered);
+      }
+      return aggregation;
+    }
+
+    private Binding bindingFor(String type) {
+      Binding binding = bindings.get(type);
+      return (binding != null) ? binding : baseBinding;
+    }
+  }
+
+  /**
+   * The fields of a {@link QueryAggregation} class, by their names in JSON.
+   */
+  private static final class Binding {
+    private final Constructor<? extends QueryAggregation> constructor;
+    private final Field typeField;
+    private final Map<String, BoundField> fields = new HashMap<>();
+
+    Binding(Gson gson, Class<? extends QueryAggregation> type) {
+      try {
+        constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        typeField = QueryAggregation.class.getDeclaredField(TYPE);
+        typeField.setAccessible(true);
+      } catch (NoSuchMethodException | NoSuchFieldException e) {
+        throw new IllegalArgumentException(type + " cannot be read as an aggregation", e);
+      }
+      for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+            continue;
+          }
+          field.setAccessible(true);
+          BoundField bound = new BoundField(field, gson.getAdapter(TypeToken.get(field.getGenericType())));
+          SerializedName serializedName = field.getAnnotation(SerializedName.class);
+          if (serializedName == null) {
+            fields.put(field.getName(), bound);
+          } else {
+            fields.put(serializedName.value(), bound);
+            for (String alternate : serializedName.alternate()) {
+              fields.put(alternate, bound);
+            }
+          }
+        }
+      }
+    }
+
+    QueryAggregation newInstance(String type) {
+      try {
+        QueryAggregation aggregation = constructor.newInstance();
+        typeField.set(aggregation, type);
+        return aggregation;
+      } catch (ReflectiveOperationException e) {
+        throw new JsonIOException("Cannot create " + constructor.getDeclaringClass(), e);
+      }
+    }
+
+    void read(QueryAggregation aggregation, String name, JsonReader in) throws IOException {
+      BoundField field = fields.get(name);
+      if (field == null) {
+        in.skipValue();
+      } else {
+        field.set(aggregation, field.adapter.read(in));
+      }
+    }
+
+    void read(QueryAggregation aggregation, Map<String, JsonElement> members) {
+      if (members == null) {
+        return;
+      }
+      for (Map.Entry<String, JsonElement> member : members.entrySet()) {
+        BoundField field = fields.get(member.getKey());
+        if (field != null) {
+          field.set(aggregation, field.adapter.fromJsonTree(member.getValue()));
+        }
+      }
+    }
+  }
+
+  /**
+   * A field of a {@link QueryAggregation} class and the adapter of its type.
+   */
+  private static final class BoundField {
+    private final Field field;
+    private final TypeAdapter<?> adapter;
+
+    BoundField(Field field, TypeAdapter<?> adapter) {
+      this.field = field;
+      this.adapter = adapter;
+    }
+
+    void set(QueryAggregation aggregation, Object value) {
+      // Like Gson, a null does not overwrite the default value of a primitive field.
+      if (value == null && field.getType().isPrimitive()) {
+        return;
+      }
+      try {
+        field.set(aggregation, value);
+      } catch (IllegalAccessException e) {
+        throw new JsonSyntaxException(e);
+      }
+    }
+  }
+}
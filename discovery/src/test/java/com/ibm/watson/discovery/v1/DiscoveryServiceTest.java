@@ -13,8 +13,10 @@
 
 package com.ibm.watson.discovery.v1;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import com.ibm.cloud.sdk.core.http.HttpMediaType;
@@ -23,6 +25,8 @@ import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.watson.common.WatsonServiceUnitTest;
 import com.ibm.watson.discovery.v1.model.AddDocumentOptions;
 import com.ibm.watson.discovery.v1.model.AddTrainingDataOptions;
+import com.ibm.watson.discovery.v1.model.AggregationResult;
+import com.ibm.watson.discovery.v1.model.Calculation;
 import com.ibm.watson.discovery.v1.model.Collection;
 import com.ibm.watson.discovery.v1.model.Configuration;
 import com.ibm.watson.discovery.v1.model.Conversions;
@@ -67,6 +71,7 @@ import com.ibm.watson.discovery.v1.model.Expansion;
 import com.ibm.watson.discovery.v1.model.Expansions;
 import com.ibm.watson.discovery.v1.model.FederatedQueryNoticesOptions;
 import com.ibm.watson.discovery.v1.model.FederatedQueryOptions;
+import com.ibm.watson.discovery.v1.model.Filter;
 import com.ibm.watson.discovery.v1.model.Gateway;
 import com.ibm.watson.discovery.v1.model.GatewayDelete;
 import com.ibm.watson.discovery.v1.model.GatewayList;
@@ -85,6 +90,7 @@ import com.ibm.watson.discovery.v1.model.GetStopwordListStatusOptions;
 import com.ibm.watson.discovery.v1.model.GetTokenizationDictionaryStatusOptions;
 import com.ibm.watson.discovery.v1.model.GetTrainingDataOptions;
 import com.ibm.watson.discovery.v1.model.GetTrainingExampleOptions;
+import com.ibm.watson.discovery.v1.model.Histogram;
 import com.ibm.watson.discovery.v1.model.ListCollectionFieldsOptions;
 import com.ibm.watson.discovery.v1.model.ListCollectionFieldsResponse;
 import com.ibm.watson.discovery.v1.model.ListCollectionsOptions;
@@ -101,7 +107,9 @@ import com.ibm.watson.discovery.v1.model.ListTrainingExamplesOptions;
 import com.ibm.watson.discovery.v1.model.LogQueryResponse;
 import com.ibm.watson.discovery.v1.model.MetricResponse;
 import com.ibm.watson.discovery.v1.model.MetricTokenResponse;
+import com.ibm.watson.discovery.v1.model.Nested;
 import com.ibm.watson.discovery.v1.model.NormalizationOperation;
+import com.ibm.watson.discovery.v1.model.QueryAggregation;
 import com.ibm.watson.discovery.v1.model.QueryLogOptions;
 import com.ibm.watson.discovery.v1.model.QueryNoticesOptions;
 import com.ibm.watson.discovery.v1.model.QueryNoticesResponse;
@@ -114,8 +122,11 @@ import com.ibm.watson.discovery.v1.model.SourceOptionsFolder;
 import com.ibm.watson.discovery.v1.model.SourceOptionsObject;
 import com.ibm.watson.discovery.v1.model.SourceOptionsSiteColl;
 import com.ibm.watson.discovery.v1.model.SourceOptionsWebCrawl;
+import com.ibm.watson.discovery.v1.model.Term;
+import com.ibm.watson.discovery.v1.model.Timeslice;
 import com.ibm.watson.discovery.v1.model.TokenDictRule;
 import com.ibm.watson.discovery.v1.model.TokenDictStatusResponse;
+import com.ibm.watson.discovery.v1.model.TopHits;
 import com.ibm.watson.discovery.v1.model.TrainingDataSet;
 import com.ibm.watson.discovery.v1.model.TrainingExample;
 import com.ibm.watson.discovery.v1.model.TrainingExampleList;
@@ -130,6 +141,7 @@ import com.ibm.watson.discovery.v1.query.Operator;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -139,6 +151,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -918,6 +931,124 @@ public class DiscoveryServiceTest extends WatsonServiceUnitTest {
     assertEquals(GsonSingleton.getGson().toJsonTree(queryResp), GsonSingleton.getGson().toJsonTree(response));
   }
 
+  @Test
+  public void queryWithNestedAggregationsIsSuccessful() throws InterruptedException, FileNotFoundException {
+    String body = getStringFromInputStream(new FileInputStream(RESOURCE + "query_aggregations_resp.json"));
+    server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.APPLICATION_JSON).setBody(body));
+    QueryOptions.Builder queryBuilder = new QueryOptions.Builder(environmentId, collectionId);
+    queryBuilder.aggregation("term(enriched_text.entities.type).timeslice(publication_date,1day).top_hits(1)");
+    QueryResponse response = discoveryService.query(queryBuilder.build()).execute().getResult();
+    server.takeRequest();
+
+    List<QueryAggregation> aggregations = response.getAggregations();
+    assertEquals(6, aggregations.size());
+
+    Term term = (Term) aggregations.get(0);
+    assertEquals("enriched_text.entities.type", term.getField());
+    assertEquals(Long.valueOf(2), term.getCount());
+    Timeslice timeslice = (Timeslice) term.getResults().get(0).getAggregations().get(0);
+    assertEquals("1d", timeslice.getInterval());
+    assertTrue(timeslice.isAnomaly());
+    TopHits topHits = (TopHits) timeslice.getResults().get(0).getAggregations().get(0);
+    assertEquals(Long.valueOf(1), topHits.getSize());
+    assertEquals("doc1", topHits.getHits().getHits().get(0).getId());
+
+    // the type is not the first member of the histogram
+    Histogram histogram = (Histogram) aggregations.get(1);
+    assertEquals(Long.valueOf(10), histogram.getInterval());
+    assertEquals(Long.valueOf(4), histogram.getResults().get(0).getMatchingResults());
+    assertEquals(Double.valueOf(99.5), ((Calculation) aggregations.get(2)).getValue());
+    assertEquals("enriched_text.sentiment.document.label:positive", ((Filter) aggregations.get(3)).getMatch());
+    assertEquals("enriched_text.entities", ((Nested) aggregations.get(4)).getPath());
+    assertEquals(QueryAggregation.class, aggregations.get(5).getClass());
+    assertEquals("unknown", aggregations.get(5).getType());
+
+    // subclass fields are written as well, so the response survives a round trip
+    JsonElement json = GsonSingleton.getGson().toJsonTree(response);
+    assertEquals(new JsonParser().parse(body), json);
+    assertEquals(json, GsonSingleton.getGson().toJsonTree(GsonSingleton.getGson().fromJson(json,
+        QueryResponse.class)));
+  }
+
+  @Test
+  public void aggregationWithTypeFirstReadsMapFields() {
+    String json = "{\"type\":\"top_hits\",\"size\":1,\"hits\":{\"matching_results\":1,"
+        + "\"hits\":[{\"id\":\"x\",\"metadata\":{\"k\":\"v\"}}]}}";
+    TopHits topHits = (TopHits) GsonSingleton.getGson().fromJson(json, QueryAggregation.class);
+    assertEquals("x", topHits.getHits().getHits().get(0).getId());
+    assertEquals("v", topHits.getHits().getHits().get(0).getMetadata().get("k"));
+  }
+
+  /**
+   * Measures the bytes allocated while reading nested aggregations. Only the members before the type are buffered, and
+   * nothing is copied at each level, so reading twice as many levels allocates about twice as much, whether the type
+   * is the first member or comes after another one.
+   */
+  @Test
+  public void nestedAggregationsAreReadOnce() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+    allocations.setThreadAllocatedMemoryEnabled(true);
+
+    for (boolean typeFirst : new boolean[] { true, false }) {
+      String shallow = nestedAggregations(20, typeFirst);
+      String deep = nestedAggregations(40, typeFirst);
+      // Warm up the code paths, so only the reading is measured.
+      assertEquals(20, depth(shallow));
+      assertEquals(40, depth(deep));
+
+      long shallowBytes = allocatedWhileReading(allocations, shallow);
+      long deepBytes = allocatedWhileReading(allocations, deep);
+      assertTrue("allocated " + deepBytes + " bytes for 40 levels and " + shallowBytes + " bytes for 20 levels",
+          deepBytes < 3 * shallowBytes);
+    }
+  }
+
+  private long allocatedWhileReading(com.sun.management.ThreadMXBean allocations, String json) {
+    long threadId = Thread.currentThread().getId();
+    long before = allocations.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 5; i++) {
+      depth(json);
+    }
+    return allocations.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  private int depth(String json) {
+    QueryAggregation aggregation = GsonSingleton.getGson().fromJson(json, QueryAggregation.class);
+    int depth = 0;
+    while (aggregation != null) {
+      assertEquals("field" + depth, ((Term) aggregation).getField());
+      assertTrue(aggregation.getMatchingResults() == null || aggregation.getMatchingResults() == 5);
+      depth++;
+      List<AggregationResult> results = aggregation.getResults();
+      List<QueryAggregation> nested = results.get(results.size() - 1).getAggregations();
+      aggregation = (nested != null) ? nested.get(0) : null;
+    }
+    return depth;
+  }
+
+  private String nestedAggregations(int depth, boolean typeFirst) {
+    String json = null;
+    for (int level = depth - 1; level >= 0; level--) {
+      StringBuilder sb = new StringBuilder("{");
+      if (!typeFirst) {
+        sb.append("\"extra\":{\"values\":[1,2,{\"a\":null}]},\"matching_results\":5,");
+      }
+      sb.append("\"type\":\"term\",\"field\":\"field").append(level).append("\",\"results\":[");
+      for (int i = 0; i < 50; i++) {
+        sb.append("{\"key\":\"key").append(i).append("\",\"matching_results\":").append(i).append("},");
+      }
+      sb.append("{\"key\":\"last\",\"matching_results\":1");
+      if (json != null) {
+        sb.append(",\"aggregations\":[").append(json).append(']');
+      }
+      json = sb.append("}]}").toString();
+    }
+    return json;
+  }
+
   // Training data tests
   @Test
   public void addTrainingDataIsSuccessful() throws InterruptedException {
@@ -17,12 +17,12 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.RequestUtils;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
 import com.ibm.watson.language_translator.v3.model.CreateModelOptions;
 import com.ibm.watson.language_translator.v3.model.DeleteDocumentOptions;
 import com.ibm.watson.language_translator.v3.model.DeleteModelOptions;
@@ -58,7 +58,7 @@ import okhttp3.RequestBody;
  * @version v3
  * @see <a href="http://www.ibm.com/watson/developercloud/language-translator.html">Language Translator</a>
  */
-public class LanguageTranslator extends BaseService {
+public class LanguageTranslator extends WatsonService {
 
   private static final String SERVICE_NAME = "language_translator";
   private static final String URL = "https://gateway.watsonplatform.net/language-translator/api";
@@ -14,8 +14,10 @@ package com.ibm.watson.language_translator.v3.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Document information, including translation status.
@@ -44,7 +46,9 @@ public class DocumentStatus extends GenericModel {
   private String baseModelId;
   private String source;
   private String target;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date completed;
   @SerializedName("word_count")
   private Long wordCount;
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.language_translator.v3.util;
+
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ResourceWaiter;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.common.WaitPolicy;
+import com.ibm.watson.language_translator.v3.LanguageTranslator;
+import com.ibm.watson.language_translator.v3.model.DocumentStatus;
+import com.ibm.watson.language_translator.v3.model.GetDocumentStatusOptions;
+import com.ibm.watson.language_translator.v3.model.GetModelOptions;
+import com.ibm.watson.language_translator.v3.model.TranslationModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for custom models created with {@link LanguageTranslator#createModel} to finish training, and for documents
+ * submitted with {@link LanguageTranslator#translateDocument} to finish translating.
+ *
+ * <pre>
+ * DocumentStatus status = service.translateDocument(translateDocumentOptions).execute().getResult();
+ * status = TranslationWaiter.document(ResourceWaiter.getDefault(), service, status.getDocumentId()).get();
+ * </pre>
+ */
+public final class TranslationWaiter {
+
+  /**
+   * Training a custom model takes from several minutes to hours, so the model is first polled after 30 seconds and
+   * then at most every 5 minutes. The wait fails with a {@link java.util.concurrent.TimeoutException} if the model is
+   * still not available after 24 hours.
+   */
+  public static final WaitPolicy MODEL_TRAINING = new WaitPolicy.Builder()
+      .initialDelay(30, TimeUnit.SECONDS)
+      .maxDelay(5, TimeUnit.MINUTES)
+      .multiplier(1.5)
+      .timeout(24, TimeUnit.HOURS)
+      .build();
+
+  /**
+   * Most documents are translated within seconds, so the document is first polled after 1 second and then at most
+   * every 15 seconds. The wait fails with a {@link java.util.concurrent.TimeoutException} if the document is still
+   * not translated after an hour.
+   */
+  public static final WaitPolicy DOCUMENT_TRANSLATION = new WaitPolicy.Builder()
+      .initialDelay(1, TimeUnit.SECONDS)
+      .maxDelay(15, TimeUnit.SECONDS)
+      .multiplier(1.5)
+      .timeout(1, TimeUnit.HOURS)
+      .build();
+
+  private TranslationWaiter() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Waits until a custom model is available, polling with the {@link #MODEL_TRAINING} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param modelId the model ID
+   * @return the future of the model, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed or the model was deleted
+   */
+  public static ServiceFuture<TranslationModel> model(ResourceWaiter waiter, LanguageTranslator service,
+      String modelId) {
+    return model(waiter, service, modelId, MODEL_TRAINING);
+  }
+
+  /**
+   * Waits until a custom model is available.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param modelId the model ID
+   * @param policy how often to poll the model
+   * @return the future of the model, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed or the model was deleted
+   */
+  public static ServiceFuture<TranslationModel> model(ResourceWaiter waiter, final LanguageTranslator service,
+      final String modelId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(modelId, "modelId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<TranslationModel>() {
+      @Override
+      public ServiceCall<TranslationModel> call() {
+        return service.getModel(new GetModelOptions.Builder(modelId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(TranslationModel model) {
+        String status = model.getStatus();
+        if (TranslationModel.Status.AVAILABLE.equals(status)) {
+          return ResourceWaiter.State.DONE;
+        } else if (TranslationModel.Status.ERROR.equals(status) || TranslationModel.Status.DELETED.equals(status)) {
+          return ResourceWaiter.State.FAILED;
+        }
+        return ResourceWaiter.State.PENDING;
+      }
+
+      @Override
+      public String toString() {
+        return "model " + modelId;
+      }
+    }, policy);
+  }
+
+  /**
+   * Waits until a document is translated, polling with the {@link #DOCUMENT_TRANSLATION} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param documentId the document ID
+   * @return the future of the document status, which fails with a
+   *         {@link com.ibm.watson.common.ResourceFailedException} if the translation failed
+   */
+  public static ServiceFuture<DocumentStatus> document(ResourceWaiter waiter, LanguageTranslator service,
+      String documentId) {
+    return document(waiter, service, documentId, DOCUMENT_TRANSLATION);
+  }
+
+  /**
+   * Waits until a document is translated.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param documentId the document ID
+   * @param policy how often to poll the document status
+   * @return the future of the document status, which fails with a
+   *         {@link com.ibm.watson.common.ResourceFailedException} if the translation failed
+   */
+  public static ServiceFuture<DocumentStatus> document(ResourceWaiter waiter, final LanguageTranslator service,
+      final String documentId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(documentId, "documentId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<DocumentStatus>() {
+      @Override
+      public ServiceCall<DocumentStatus> call() {
+        return service.getDocumentStatus(new GetDocumentStatusOptions.Builder(documentId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(DocumentStatus document) {
+        String status = document.getStatus();
+        if (DocumentStatus.Status.AVAILABLE.equals(status)) {
+          return ResourceWaiter.State.DONE;
+        } else if (DocumentStatus.Status.FAILED.equals(status)) {
+          return ResourceWaiter.State.FAILED;
+        }
+        return ResourceWaiter.State.PENDING;
+      }
+
+      @Override
+      public String toString() {
+        return "document " + documentId;
+      }
+    }, policy);
+  }
+}
@@ -17,12 +17,12 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.RequestUtils;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
 import com.ibm.watson.natural_language_classifier.v1.model.Classification;
 import com.ibm.watson.natural_language_classifier.v1.model.ClassificationCollection;
 import com.ibm.watson.natural_language_classifier.v1.model.Classifier;
@@ -47,7 +47,7 @@ import okhttp3.RequestBody;
  * @see <a href="http://www.ibm.com/watson/developercloud/natural-language-classifier.html">Natural Language
  *      Classifier</a>
  */
-public class NaturalLanguageClassifier extends BaseService {
+public class NaturalLanguageClassifier extends WatsonService {
 
   private static final String SERVICE_NAME = "natural_language_classifier";
   private static final String URL = "https://gateway.watsonplatform.net/natural-language-classifier/api";
@@ -14,8 +14,10 @@ package com.ibm.watson.natural_language_classifier.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * A classifier for natural language phrases.
@@ -43,6 +45,7 @@ public class Classifier extends GenericModel {
   private String status;
   @SerializedName("classifier_id")
   private String classifierId;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
   @SerializedName("status_description")
   private String statusDescription;
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.natural_language_classifier.v1.util;
+
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ResourceWaiter;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.common.WaitPolicy;
+import com.ibm.watson.natural_language_classifier.v1.NaturalLanguageClassifier;
+import com.ibm.watson.natural_language_classifier.v1.model.Classifier;
+import com.ibm.watson.natural_language_classifier.v1.model.GetClassifierOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for a classifier created with {@link NaturalLanguageClassifier#createClassifier} to finish training.
+ *
+ * <pre>
+ * Classifier classifier = service.createClassifier(createClassifierOptions).execute().getResult();
+ * classifier = ClassifierWaiter.classifier(ResourceWaiter.getDefault(), service, classifier.getClassifierId()).get();
+ * </pre>
+ */
+public final class ClassifierWaiter {
+
+  /**
+   * Training a classifier usually takes between 10 and 30 minutes, so the classifier is first polled after 30 seconds
+   * and then at most every 5 minutes. The wait fails with a {@link java.util.concurrent.TimeoutException} if the
+   * classifier is still not available after 6 hours.
+   */
+  public static final WaitPolicy TRAINING = new WaitPolicy.Builder()
+      .initialDelay(30, TimeUnit.SECONDS)
+      .maxDelay(5, TimeUnit.MINUTES)
+      .multiplier(1.5)
+      .timeout(6, TimeUnit.HOURS)
+      .build();
+
+  private ClassifierWaiter() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Waits until a classifier is available, polling with the {@link #TRAINING} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param classifierId the classifier ID
+   * @return the future of the classifier, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<Classifier> classifier(ResourceWaiter waiter, NaturalLanguageClassifier service,
+      String classifierId) {
+    return classifier(waiter, service, classifierId, TRAINING);
+  }
+
+  /**
+   * Waits until a classifier is available.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param classifierId the classifier ID
+   * @param policy how often to poll the classifier
+   * @return the future of the classifier, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<Classifier> classifier(ResourceWaiter waiter, final NaturalLanguageClassifier service,
+      final String classifierId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(classifierId, "classifierId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<Classifier>() {
+      @Override
+      public ServiceCall<Classifier> call() {
+        return service.getClassifier(new GetClassifierOptions.Builder(classifierId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(Classifier classifier) {
+        String status = classifier.getStatus();
+        if (Classifier.Status.AVAILABLE.equals(status)) {
+          return ResourceWaiter.State.DONE;
+        } else if (Classifier.Status.FAILED.equals(status) || Classifier.Status.NON_EXISTENT.equals(status)) {
+          return ResourceWaiter.State.FAILED;
+        }
+        return ResourceWaiter.State.PENDING;
+      }
+
+      @Override
+      public String toString() {
+        return "classifier " + classifierId;
+      }
+    }, policy);
+  }
+}
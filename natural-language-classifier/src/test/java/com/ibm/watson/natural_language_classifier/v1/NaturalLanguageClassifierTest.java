@@ -14,6 +14,8 @@ package com.ibm.watson.natural_language_classifier.v1;
 
 import com.google.gson.JsonObject;
 import com.ibm.cloud.sdk.core.security.basicauth.BasicAuthConfig;
+import com.ibm.watson.common.ResourceWaiter;
+import com.ibm.watson.common.WaitPolicy;
 import com.ibm.watson.common.WatsonServiceUnitTest;
 import com.ibm.watson.natural_language_classifier.v1.model.Classification;
 import com.ibm.watson.natural_language_classifier.v1.model.ClassificationCollection;
@@ -25,6 +27,7 @@ import com.ibm.watson.natural_language_classifier.v1.model.ClassifyOptions;
 import com.ibm.watson.natural_language_classifier.v1.model.CreateClassifierOptions;
 import com.ibm.watson.natural_language_classifier.v1.model.DeleteClassifierOptions;
 import com.ibm.watson.natural_language_classifier.v1.model.GetClassifierOptions;
+import com.ibm.watson.natural_language_classifier.v1.util.ClassifierWaiter;
 import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,6 +36,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 
@@ -199,6 +203,45 @@ public class NaturalLanguageClassifierTest extends WatsonServiceUnitTest {
     service.deleteClassifier(deleteOptions);
   }
 
+  /**
+   * Test that a classifier is polled until it is available.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testClassifierWaiter() throws Exception {
+    JsonObject training = new JsonObject();
+    training.addProperty("classifier_id", classifierId);
+    training.addProperty("status", Classifier.Status.TRAINING);
+    JsonObject available = new JsonObject();
+    available.addProperty("classifier_id", classifierId);
+    available.addProperty("status", Classifier.Status.AVAILABLE);
+    server.enqueue(jsonResponse(training));
+    server.enqueue(jsonResponse(training));
+    server.enqueue(jsonResponse(available));
+
+    WaitPolicy policy = new WaitPolicy.Builder()
+        .initialDelay(10, TimeUnit.MILLISECONDS)
+        .maxDelay(20, TimeUnit.MILLISECONDS)
+        .jitter(0)
+        .build();
+    ResourceWaiter waiter = new ResourceWaiter.Builder().threads(1).build();
+    try {
+      Classifier result = ClassifierWaiter.classifier(waiter, service, classifierId, policy).get(5, TimeUnit.SECONDS);
+
+      assertEquals(Classifier.Status.AVAILABLE, result.getStatus());
+      assertEquals(3, waiter.getPollCount());
+      assertEquals(0, waiter.getPendingCount());
+      for (int i = 0; i < 3; i++) {
+        RecordedRequest request = server.takeRequest();
+        assertEquals(CLASSIFIERS_PATH + "/" + classifierId, request.getPath());
+        assertEquals("GET", request.getMethod());
+      }
+    } finally {
+      waiter.close();
+    }
+  }
+
   // START NEGATIVE TESTS
   /**
    * Test null classifier.
@@ -17,11 +17,11 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
 import com.ibm.watson.natural_language_understanding.v1.model.AnalysisResults;
 import com.ibm.watson.natural_language_understanding.v1.model.AnalyzeOptions;
 import com.ibm.watson.natural_language_understanding.v1.model.DeleteModelOptions;
@@ -45,7 +45,7 @@ import java.util.Map.Entry;
  * @see <a href="http://www.ibm.com/watson/developercloud/natural-language-understanding.html">Natural Language
  *      Understanding</a>
  */
-public class NaturalLanguageUnderstanding extends BaseService {
+public class NaturalLanguageUnderstanding extends WatsonService {
 
   private static final String SERVICE_NAME = "natural_language_understanding";
   private static final String URL = "https://gateway.watsonplatform.net/natural-language-understanding/api";
@@ -14,8 +14,10 @@ package com.ibm.watson.natural_language_understanding.v1.model;
 
 import java.util.Date;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Model.
@@ -32,6 +34,7 @@ public class Model extends GenericModel {
   private String version;
   @SerializedName("version_description")
   private String versionDescription;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
 
   /**
@@ -17,12 +17,14 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.RequestUtils;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
+import com.ibm.watson.common.http.SharedTransport;
+import com.ibm.watson.common.metrics.SdkMetrics;
 import com.ibm.watson.speech_to_text.v1.model.AcousticModel;
 import com.ibm.watson.speech_to_text.v1.model.AcousticModels;
 import com.ibm.watson.speech_to_text.v1.model.AddAudioOptions;
@@ -83,13 +85,19 @@ import com.ibm.watson.speech_to_text.v1.model.UpgradeAcousticModelOptions;
 import com.ibm.watson.speech_to_text.v1.model.UpgradeLanguageModelOptions;
 import com.ibm.watson.speech_to_text.v1.model.Word;
 import com.ibm.watson.speech_to_text.v1.model.Words;
+import com.ibm.watson.speech_to_text.v1.websocket.AudioPump;
 import com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback;
+import com.ibm.watson.speech_to_text.v1.websocket.RecognizePublisher;
+import com.ibm.watson.speech_to_text.v1.websocket.RecognizeSession;
 import com.ibm.watson.speech_to_text.v1.websocket.SpeechToTextWebSocketListener;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.reactivestreams.Publisher;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -115,7 +123,7 @@ import java.util.Map.Entry;
  * @version v1
  * @see <a href="http://www.ibm.com/watson/developercloud/speech-to-text.html">Speech to Text</a>
  */
-public class SpeechToText extends BaseService {
+public class SpeechToText extends WatsonService {
 
   private static final String SERVICE_NAME = "speech_to_text";
   private static final String URL = "https://stream.watsonplatform.net/speech-to-text/api";
@@ -711,9 +719,82 @@ public class SpeechToText extends BaseService {
    * @return the {@link WebSocket}
    */
   public WebSocket recognizeUsingWebSocket(RecognizeOptions recognizeOptions, RecognizeCallback callback) {
+    return recognizeUsingWebSocket(recognizeOptions, callback, new AudioPump.Builder().build());
+  }
+
+  /**
+   * Sends audio and returns transcription results for recognition requests over a WebSocket connection, using the
+   * given {@link AudioPump} to send the audio. Use this method to tune the frame size and flow control of the audio
+   * upload, or to read the pump's queue-depth and send-latency statistics while the recognition is running.
+   *
+   * @param recognizeOptions the recognize options
+   * @param callback the {@link RecognizeCallback} instance where results will be sent
+   * @param audioPump the {@link AudioPump} used to send the audio; it cannot be reused for another recognition
+   * @return the {@link WebSocket}
+   */
+  public WebSocket recognizeUsingWebSocket(RecognizeOptions recognizeOptions, RecognizeCallback callback,
+      AudioPump audioPump) {
     Validator.notNull(recognizeOptions, "recognizeOptions cannot be null");
     Validator.notNull(recognizeOptions.audio(), "audio cannot be null");
     Validator.notNull(callback, "callback cannot be null");
+    Validator.notNull(audioPump, "audioPump cannot be null");
+
+    return openRecognizeWebSocket(recognizeOptions, new SpeechToTextWebSocketListener(recognizeOptions, callback,
+        audioPump));
+  }
+
+  /**
+   * Creates a {@link RecognizeSession} which recognizes many utterances, one after another, over a single WebSocket
+   * connection. The connection is opened when the first utterance is submitted.
+   *
+   * @return the {@link RecognizeSession}
+   */
+  public RecognizeSession createRecognizeSession() {
+    return new RecognizeSession(this);
+  }
+
+  /**
+   * Creates a Reactive Streams {@link Publisher} of the events of a recognition over a WebSocket connection, with the
+   * audio read from another publisher. The recognition starts when a subscriber subscribes, and the connection is read
+   * only as fast as the subscriber requests events.
+   *
+   * @param recognizeOptions the recognize options; their audio is replaced with the audio publisher, so they can be
+   *          built with an empty stream
+   * @param audio the publisher of the audio
+   * @return the {@link RecognizePublisher}
+   */
+  public RecognizePublisher createRecognizePublisher(RecognizeOptions recognizeOptions, Publisher<ByteBuffer> audio) {
+    return createRecognizePublisher(recognizeOptions, audio, new AudioPump.Builder().build());
+  }
+
+  /**
+   * Creates a Reactive Streams {@link Publisher} of the events of a recognition over a WebSocket connection, with the
+   * audio read from another publisher and sent with the given {@link AudioPump}.
+   *
+   * @param recognizeOptions the recognize options; their audio is replaced with the audio publisher, so they can be
+   *          built with an empty stream
+   * @param audio the publisher of the audio
+   * @param audioPump the {@link AudioPump} used to send the audio; it cannot be reused for another recognition
+   * @return the {@link RecognizePublisher}
+   */
+  public RecognizePublisher createRecognizePublisher(RecognizeOptions recognizeOptions, Publisher<ByteBuffer> audio,
+      AudioPump audioPump) {
+    return new RecognizePublisher(this, recognizeOptions, audio, audioPump, RecognizePublisher.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Opens a WebSocket connection to the recognize endpoint, with the model, customization IDs and base model version
+   * of the given options as query parameters. The listener is responsible for sending the start message, the audio and
+   * the stop message; most applications should use
+   * {@link #recognizeUsingWebSocket(RecognizeOptions, RecognizeCallback)} or a {@link RecognizeSession} instead.
+   *
+   * @param recognizeOptions the recognize options with the connection parameters
+   * @param listener the listener that receives the WebSocket events
+   * @return the {@link WebSocket}
+   */
+  public WebSocket openRecognizeWebSocket(RecognizeOptions recognizeOptions, WebSocketListener listener) {
+    Validator.notNull(recognizeOptions, "recognizeOptions cannot be null");
+    Validator.notNull(listener, "listener cannot be null");
 
     HttpUrl.Builder urlBuilder = HttpUrl.parse(getEndPoint() + "/v1/recognize").newBuilder();
 
@@ -739,8 +820,11 @@ public class SpeechToText extends BaseService {
     setAuthentication(builder);
     setDefaultHeaders(builder);
 
-    OkHttpClient client = configureHttpClient();
-    return client.newWebSocket(builder.build(), new SpeechToTextWebSocketListener(recognizeOptions, callback));
+    WebSocketListener measuredListener = SdkMetrics.instrument(this, listener, SERVICE_NAME,
+        "recognizeUsingWebSocket", "\"results\"");
+
+    OkHttpClient client = SharedTransport.webSocketClient(getClient());
+    return client.newWebSocket(builder.build(), measuredListener);
   }
 
   /**
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.util;
+
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ResourceWaiter;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.common.WaitPolicy;
+import com.ibm.watson.speech_to_text.v1.SpeechToText;
+import com.ibm.watson.speech_to_text.v1.model.AcousticModel;
+import com.ibm.watson.speech_to_text.v1.model.GetAcousticModelOptions;
+import com.ibm.watson.speech_to_text.v1.model.GetLanguageModelOptions;
+import com.ibm.watson.speech_to_text.v1.model.LanguageModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for custom language and acoustic models of the {@link SpeechToText} service to finish training, after
+ * {@link SpeechToText#trainLanguageModel} or {@link SpeechToText#trainAcousticModel}, and for models to finish
+ * upgrading.
+ *
+ * <pre>
+ * service.trainLanguageModel(trainLanguageModelOptions).execute();
+ * LanguageModel model = CustomModelWaiter.languageModel(ResourceWaiter.getDefault(), service, customizationId).get();
+ * </pre>
+ */
+public final class CustomModelWaiter {
+
+  /**
+   * Training a custom model takes from a few minutes to several hours, so the model is first polled after 10 seconds
+   * and then at most every 2 minutes. The wait fails with a {@link java.util.concurrent.TimeoutException} if the
+   * model is still not available after 24 hours.
+   */
+  public static final WaitPolicy TRAINING = new WaitPolicy.Builder()
+      .initialDelay(10, TimeUnit.SECONDS)
+      .maxDelay(2, TimeUnit.MINUTES)
+      .multiplier(1.5)
+      .timeout(24, TimeUnit.HOURS)
+      .build();
+
+  private CustomModelWaiter() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Waits until a custom language model is available, polling with the {@link #TRAINING} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param customizationId the customization ID of the model
+   * @return the future of the model, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<LanguageModel> languageModel(ResourceWaiter waiter, SpeechToText service,
+      String customizationId) {
+    return languageModel(waiter, service, customizationId, TRAINING);
+  }
+
+  /**
+   * Waits until a custom language model is available.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param customizationId the customization ID of the model
+   * @param policy how often to poll the model
+   * @return the future of the model, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<LanguageModel> languageModel(ResourceWaiter waiter, final SpeechToText service,
+      final String customizationId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(customizationId, "customizationId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<LanguageModel>() {
+      @Override
+      public ServiceCall<LanguageModel> call() {
+        return service.getLanguageModel(new GetLanguageModelOptions.Builder(customizationId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(LanguageModel model) {
+        return toState(model.getStatus(), LanguageModel.Status.AVAILABLE, LanguageModel.Status.FAILED);
+      }
+
+      @Override
+      public String toString() {
+        return "custom language model " + customizationId;
+      }
+    }, policy);
+  }
+
+  /**
+   * Waits until a custom acoustic model is available, polling with the {@link #TRAINING} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param customizationId the customization ID of the model
+   * @return the future of the model, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<AcousticModel> acousticModel(ResourceWaiter waiter, SpeechToText service,
+      String customizationId) {
+    return acousticModel(waiter, service, customizationId, TRAINING);
+  }
+
+  /**
+   * Waits until a custom acoustic model is available.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param customizationId the customization ID of the model
+   * @param policy how often to poll the model
+   * @return the future of the model, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<AcousticModel> acousticModel(ResourceWaiter waiter, final SpeechToText service,
+      final String customizationId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(customizationId, "customizationId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<AcousticModel>() {
+      @Override
+      public ServiceCall<AcousticModel> call() {
+        return service.getAcousticModel(new GetAcousticModelOptions.Builder(customizationId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(AcousticModel model) {
+        return toState(model.getStatus(), AcousticModel.Status.AVAILABLE, AcousticModel.Status.FAILED);
+      }
+
+      @Override
+      public String toString() {
+        return "custom acoustic model " + customizationId;
+      }
+    }, policy);
+  }
+
+  private static ResourceWaiter.State toState(String status, String available, String failed) {
+    if (available.equals(status)) {
+      return ResourceWaiter.State.DONE;
+    } else if (failed.equals(status)) {
+      return ResourceWaiter.State.FAILED;
+    }
+    return ResourceWaiter.State.PENDING;
+  }
+}
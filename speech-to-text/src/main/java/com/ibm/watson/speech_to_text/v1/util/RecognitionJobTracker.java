@@ -0,0 +1,478 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.util;
+
+import com.ibm.cloud.sdk.core.http.Response;
+import com.ibm.cloud.sdk.core.http.ServiceCallback;
+import com.ibm.cloud.sdk.core.service.exception.NotFoundException;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.speech_to_text.v1.SpeechToText;
+import com.ibm.watson.speech_to_text.v1.model.CheckJobOptions;
+import com.ibm.watson.speech_to_text.v1.model.RecognitionJob;
+import com.ibm.watson.speech_to_text.v1.model.RecognitionJobs;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks many asynchronous recognition jobs of {@link SpeechToText#createJob} with a single background poller.<br>
+ * <br>
+ * Instead of a {@link SpeechToText#checkJob} loop per job, one thread polls {@link SpeechToText#checkJobs()}, which
+ * returns the status of the 100 most recent jobs in a single call. The results of a job are fetched with
+ * {@link SpeechToText#checkJob} only once its status has changed to {@code completed}, and then complete the
+ * {@link ServiceFuture} of the job. Jobs which are too old to appear in the list of recent jobs are checked
+ * individually, a few per poll.<br>
+ * <br>
+ * The polling interval starts at the minimum interval and grows by the backoff multiplier after every poll in which
+ * no job changed its status, up to the maximum interval; a change resets it. The tracker holds only the id and the
+ * future of a job while it is pending, and the number of pending jobs is bounded.
+ *
+ * <pre>
+ * RecognitionJobTracker tracker = new RecognitionJobTracker.Builder(speechToText).build();
+ * RecognitionJob job = speechToText.createJob(createJobOptions).execute().getResult();
+ * ServiceFuture&lt;RecognitionJob&gt; future = tracker.track(job);
+ * </pre>
+ */
+public final class RecognitionJobTracker implements Closeable {
+  private static final Logger LOG = Logger.getLogger(RecognitionJobTracker.class.getName());
+
+  private static final String POLLER_THREAD = "RecognitionJobTracker";
+
+  private static final long DEFAULT_MIN_INTERVAL_SECONDS = 2;
+  private static final long DEFAULT_MAX_INTERVAL_SECONDS = 60;
+  private static final double DEFAULT_BACKOFF_MULTIPLIER = 1.5;
+  private static final int DEFAULT_MAX_TRACKED_JOBS = 10000;
+  private static final int DEFAULT_MAX_CHECKS_PER_POLL = 10;
+
+  private final SpeechToText service;
+  private final long minIntervalNanos;
+  private final long maxIntervalNanos;
+  private final double backoffMultiplier;
+  private final int maxTrackedJobs;
+  private final int maxChecksPerPoll;
+
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, TrackedJob> jobs = new LinkedHashMap<>();
+  private boolean scheduled;
+  private boolean closed;
+  private long intervalNanos;
+
+  private final AtomicLong pollCount = new AtomicLong();
+  private final AtomicLong checkCount = new AtomicLong();
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private SpeechToText service;
+    private long minIntervalNanos = TimeUnit.SECONDS.toNanos(DEFAULT_MIN_INTERVAL_SECONDS);
+    private long maxIntervalNanos = TimeUnit.SECONDS.toNanos(DEFAULT_MAX_INTERVAL_SECONDS);
+    private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+    private int maxTrackedJobs = DEFAULT_MAX_TRACKED_JOBS;
+    private int maxChecksPerPoll = DEFAULT_MAX_CHECKS_PER_POLL;
+
+    /**
+     * Instantiates a new builder.
+     *
+     * @param service the service which created the jobs
+     */
+    public Builder(SpeechToText service) {
+      this.service = service;
+    }
+
+    /**
+     * Builds a RecognitionJobTracker.
+     *
+     * @return the recognitionJobTracker
+     */
+    public RecognitionJobTracker build() {
+      return new RecognitionJobTracker(this);
+    }
+
+    /**
+     * Set the interval between polls while jobs are changing status. Defaults to 2 seconds.
+     *
+     * @param minInterval the interval
+     * @param unit the time unit of minInterval
+     * @return the RecognitionJobTracker builder
+     */
+    public Builder minInterval(long minInterval, TimeUnit unit) {
+      this.minIntervalNanos = unit.toNanos(minInterval);
+      return this;
+    }
+
+    /**
+     * Set the longest interval between polls. Defaults to 60 seconds.
+     *
+     * @param maxInterval the interval
+     * @param unit the time unit of maxInterval
+     * @return the RecognitionJobTracker builder
+     */
+    public Builder maxInterval(long maxInterval, TimeUnit unit) {
+      this.maxIntervalNanos = unit.toNanos(maxInterval);
+      return this;
+    }
+
+    /**
+     * Set the factor by which the interval grows after a poll in which no job changed its status. Defaults to 1.5.
+     *
+     * @param backoffMultiplier the factor, at least 1
+     * @return the RecognitionJobTracker builder
+     */
+    public Builder backoffMultiplier(double backoffMultiplier) {
+      this.backoffMultiplier = backoffMultiplier;
+      return this;
+    }
+
+    /**
+     * Set the number of jobs which can be tracked at the same time. Defaults to 10000.
+     *
+     * @param maxTrackedJobs the number of jobs
+     * @return the RecognitionJobTracker builder
+     */
+    public Builder maxTrackedJobs(int maxTrackedJobs) {
+      this.maxTrackedJobs = maxTrackedJobs;
+      return this;
+    }
+
+    /**
+     * Set the number of jobs missing from the list of recent jobs which are checked individually per poll. Defaults to
+     * 10.
+     *
+     * @param maxChecksPerPoll the number of jobs
+     * @return the RecognitionJobTracker builder
+     */
+    public Builder maxChecksPerPoll(int maxChecksPerPoll) {
+      this.maxChecksPerPoll = maxChecksPerPoll;
+      return this;
+    }
+  }
+
+  private RecognitionJobTracker(Builder builder) {
+    Validator.notNull(builder.service, "service cannot be null");
+    Validator.isTrue(builder.minIntervalNanos > 0, "minInterval must be greater than 0");
+    Validator.isTrue(builder.maxIntervalNanos >= builder.minIntervalNanos,
+        "maxInterval must not be less than minInterval");
+    Validator.isTrue(builder.backoffMultiplier >= 1, "backoffMultiplier must be at least 1");
+    Validator.isTrue(builder.maxTrackedJobs > 0, "maxTrackedJobs must be greater than 0");
+    Validator.isTrue(builder.maxChecksPerPoll >= 0, "maxChecksPerPoll cannot be negative");
+    service = builder.service;
+    minIntervalNanos = builder.minIntervalNanos;
+    maxIntervalNanos = builder.maxIntervalNanos;
+    backoffMultiplier = builder.backoffMultiplier;
+    maxTrackedJobs = builder.maxTrackedJobs;
+    maxChecksPerPoll = builder.maxChecksPerPoll;
+    intervalNanos = minIntervalNanos;
+    scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, POLLER_THREAD);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Tracks a job returned by {@link SpeechToText#createJob}. A job which has already finished completes its future
+   * without waiting for the next poll.
+   *
+   * @param job the job
+   * @return the future of the job, which completes with the job and its results once it has completed or failed
+   * @throws IllegalStateException if the tracker was closed, or already tracks the maximum number of jobs
+   */
+  public ServiceFuture<RecognitionJob> track(RecognitionJob job) {
+    Validator.notNull(job, "job cannot be null");
+    TrackedJob tracked = add(job.getId());
+    if (RecognitionJob.Status.COMPLETED.equals(job.getStatus())) {
+      fetch(tracked);
+    } else if (RecognitionJob.Status.FAILED.equals(job.getStatus())) {
+      finish(tracked, job);
+    }
+    return tracked.future;
+  }
+
+  /**
+   * Tracks a job by its id.
+   *
+   * @param jobId the id of the job
+   * @return the future of the job, which completes with the job and its results once it has completed or failed
+   * @throws IllegalStateException if the tracker was closed, or already tracks the maximum number of jobs
+   */
+  public ServiceFuture<RecognitionJob> track(String jobId) {
+    Validator.notNull(jobId, "jobId cannot be null");
+    return add(jobId).future;
+  }
+
+  /**
+   * Gets the number of jobs which are waiting to complete.
+   *
+   * @return the number of jobs
+   */
+  public synchronized int getTrackedCount() {
+    return jobs.size();
+  }
+
+  /**
+   * Gets the number of {@link SpeechToText#checkJobs()} calls.
+   *
+   * @return the number of calls
+   */
+  public long getPollCount() {
+    return pollCount.get();
+  }
+
+  /**
+   * Gets the number of {@link SpeechToText#checkJob} calls, to fetch the results of completed jobs or to check jobs
+   * missing from the list of recent jobs.
+   *
+   * @return the number of calls
+   */
+  public long getCheckCount() {
+    return checkCount.get();
+  }
+
+  /**
+   * Stops polling and cancels the futures of the jobs which are still pending. The jobs themselves keep running.
+   */
+  @Override
+  public void close() {
+    List<TrackedJob> pending;
+    synchronized (this) {
+      closed = true;
+      pending = new ArrayList<>(jobs.values());
+      jobs.clear();
+    }
+    scheduler.shutdownNow();
+    for (TrackedJob tracked : pending) {
+      tracked.future.cancel(false);
+    }
+  }
+
+  private TrackedJob add(final String jobId) {
+    TrackedJob tracked;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The tracker was closed");
+      }
+      tracked = jobs.get(jobId);
+      if (tracked != null) {
+        return tracked;
+      }
+      if (jobs.size() >= maxTrackedJobs) {
+        throw new IllegalStateException("The tracker already tracks " + maxTrackedJobs + " jobs");
+      }
+      tracked = new TrackedJob(jobId);
+      jobs.put(jobId, tracked);
+      if (!scheduled) {
+        scheduled = true;
+        intervalNanos = minIntervalNanos;
+        schedule();
+      }
+    }
+    final TrackedJob cancelled = tracked;
+    tracked.future.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        remove(cancelled);
+      }
+    });
+    return tracked;
+  }
+
+  private synchronized boolean remove(TrackedJob tracked) {
+    if (jobs.get(tracked.id) != tracked) {
+      return false;
+    }
+    jobs.remove(tracked.id);
+    return true;
+  }
+
+  private void schedule() {
+    scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        poll();
+      }
+    }, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Polls the status of all jobs and schedules the next poll.
+   */
+  private void poll() {
+    List<TrackedJob> unseen;
+    synchronized (this) {
+      if (jobs.isEmpty() || closed) {
+        scheduled = false;
+        return;
+      }
+      unseen = new ArrayList<>(jobs.values());
+    }
+
+    boolean changed = false;
+    try {
+      RecognitionJobs recent = service.checkJobs().execute().getResult();
+      pollCount.incrementAndGet();
+      Set<String> seen = new HashSet<>();
+      if (recent.getRecognitions() != null) {
+        for (RecognitionJob job : recent.getRecognitions()) {
+          TrackedJob tracked = get(job.getId());
+          if (tracked != null) {
+            seen.add(job.getId());
+            changed |= update(tracked, job, false);
+          }
+        }
+      }
+      for (Iterator<TrackedJob> iterator = unseen.iterator(); iterator.hasNext();) {
+        if (seen.contains(iterator.next().id)) {
+          iterator.remove();
+        }
+      }
+      changed |= checkUnseen(unseen);
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Polling the status of the recognition jobs failed", e);
+    }
+
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      if (jobs.isEmpty()) {
+        scheduled = false;
+        return;
+      }
+      intervalNanos = changed ? minIntervalNanos
+          : Math.min(maxIntervalNanos, (long) (intervalNanos * backoffMultiplier));
+      schedule();
+    }
+  }
+
+  /**
+   * Checks jobs which are missing from the list of recent jobs individually, the jobs checked longest ago first.
+   *
+   * @param unseen the jobs missing from the list, in the order they were last checked
+   * @return true if a job changed its status
+   */
+  private boolean checkUnseen(List<TrackedJob> unseen) {
+    boolean changed = false;
+    int checks = Math.min(maxChecksPerPoll, unseen.size());
+    for (int i = 0; i < checks; i++) {
+      TrackedJob tracked = unseen.get(i);
+      synchronized (this) {
+        // Move the job to the end of the order, so the other missing jobs are checked first next time.
+        if (jobs.remove(tracked.id) == null) {
+          continue;
+        }
+        jobs.put(tracked.id, tracked);
+      }
+      checkCount.incrementAndGet();
+      try {
+        RecognitionJob job = service.checkJob(new CheckJobOptions.Builder(tracked.id).build()).execute()
+            .getResult();
+        changed |= update(tracked, job, true);
+      } catch (NotFoundException e) {
+        if (remove(tracked)) {
+          tracked.future.fail(e);
+        }
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Updates the status of a job, and completes its future if it has finished.
+   *
+   * @param tracked the tracked job
+   * @param job the status of the job
+   * @param hasResults whether the job includes its results
+   * @return true if the job changed its status
+   */
+  private boolean update(TrackedJob tracked, RecognitionJob job, boolean hasResults) {
+    boolean changed = (tracked.status != null) && !tracked.status.equals(job.getStatus());
+    tracked.status = job.getStatus();
+    if (RecognitionJob.Status.COMPLETED.equals(job.getStatus())) {
+      if (hasResults) {
+        finish(tracked, job);
+      } else {
+        fetch(tracked);
+      }
+      return true;
+    } else if (RecognitionJob.Status.FAILED.equals(job.getStatus())) {
+      finish(tracked, job);
+      return true;
+    }
+    return changed;
+  }
+
+  private synchronized TrackedJob get(String jobId) {
+    return jobs.get(jobId);
+  }
+
+  private void finish(TrackedJob tracked, RecognitionJob job) {
+    if (remove(tracked)) {
+      tracked.future.complete(job);
+    }
+  }
+
+  /**
+   * Fetches the results of a completed job in the background and completes its future.
+   *
+   * @param tracked the tracked job
+   */
+  private void fetch(final TrackedJob tracked) {
+    if (!remove(tracked)) {
+      return;
+    }
+    checkCount.incrementAndGet();
+    service.checkJob(new CheckJobOptions.Builder(tracked.id).build()).enqueue(new ServiceCallback<RecognitionJob>() {
+      @Override
+      public void onResponse(Response<RecognitionJob> response) {
+        tracked.future.complete(response.getResult());
+      }
+
+      @Override
+      public void onFailure(Exception e) {
+        tracked.future.fail(e);
+      }
+    });
+  }
+
+  /**
+   * A job which is waiting to complete.
+   */
+  private static final class TrackedJob {
+    private final String id;
+    private final ServiceFuture<RecognitionJob> future = new ServiceFuture<>();
+    private String status;
+
+    TrackedJob(String id) {
+      this.id = id;
+    }
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.websocket;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.metrics.SdkTracer;
+import com.ibm.watson.common.metrics.SdkTracing;
+import okhttp3.WebSocket;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends audio from an {@link InputStream} to a {@link WebSocket} used by a
+ * {@link com.ibm.watson.speech_to_text.v1.SpeechToText} recognition.<br>
+ * <br>
+ * The pump reads the audio into a single reusable buffer of {@code frameSize} bytes and hands each frame to the
+ * socket with one copy. When OkHttp's outgoing queue grows beyond the high water mark the pump pauses, and resumes as
+ * soon as the queue has drained below the low water mark. The pump also records queue-depth and send-latency
+ * statistics which can be read while the recognition is running.<br>
+ * <br>
+ * By default every recognition sends its audio on a dedicated thread. Pass an {@link Executor}, for example one created
+ * with {@link AudioPumpExecutors}, to run the audio upload of many recognitions on a shared pool instead.<br>
+ * <br>
+ * An {@code AudioPump} can only be used for a single recognition.
+ */
+public final class AudioPump {
+  private static final Logger LOG = Logger.getLogger(AudioPump.class.getName());
+
+  private static final String AUDIO_TO_WEB_SOCKET = "AudioToWebSocketThread";
+
+  private static final int ONE_KB = 1024;
+
+  // 8 MB, half of the maximum OkHttp WebSocket queue size
+  // (https://github.com/square/okhttp/blob/master/okhttp/src/main/java/okhttp3/internal/ws/RealWebSocket.java#L63)
+  private static final long DEFAULT_HIGH_WATER_MARK = 16 * 1024 * 512;
+
+  // OkHttp has no "queue drained" notification, so the queue is polled with a backoff that starts small enough to
+  // resume almost immediately and is capped well below the old fixed wait of 500 ms.
+  private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final int frameSize;
+  private final long highWaterMark;
+  private final long lowWaterMark;
+  private final Executor executor;
+
+  private final Object lock = new Object();
+  private final AtomicBoolean used = new AtomicBoolean();
+  // Once set, a stop is never undone, so a stop that arrives before the pump starts still ends it.
+  private volatile boolean stopped;
+  private volatile WebSocket socket;
+
+  private volatile long framesSent;
+  private volatile long bytesSent;
+  private volatile long maxQueueSize;
+  private volatile long backpressureWaits;
+  private volatile long totalSendNanos;
+  private volatile long maxSendNanos;
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private int frameSize = ONE_KB;
+    private long highWaterMark = DEFAULT_HIGH_WATER_MARK;
+    private Long lowWaterMark;
+    private Executor executor;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds an AudioPump.
+     *
+     * @return the audioPump
+     */
+    public AudioPump build() {
+      return new AudioPump(this);
+    }
+
+    /**
+     * Set the number of bytes read from the audio stream and sent per WebSocket frame. Defaults to 1 KB.
+     *
+     * @param frameSize the frame size in bytes
+     * @return the AudioPump builder
+     */
+    public Builder frameSize(int frameSize) {
+      this.frameSize = frameSize;
+      return this;
+    }
+
+    /**
+     * Set the size of the WebSocket's outgoing queue, in bytes, above which the pump stops sending. Defaults to 8 MB,
+     * half of the queue size at which OkHttp closes the connection.
+     *
+     * @param highWaterMark the high water mark in bytes
+     * @return the AudioPump builder
+     */
+    public Builder highWaterMark(long highWaterMark) {
+      this.highWaterMark = highWaterMark;
+      return this;
+    }
+
+    /**
+     * Set the size of the WebSocket's outgoing queue, in bytes, below which a paused pump resumes sending. Defaults to
+     * half of the high water mark.
+     *
+     * @param lowWaterMark the low water mark in bytes
+     * @return the AudioPump builder
+     */
+    public Builder lowWaterMark(long lowWaterMark) {
+      this.lowWaterMark = lowWaterMark;
+      return this;
+    }
+
+    /**
+     * Set the executor which runs the audio upload. The task blocks on the audio {@link InputStream} until it is
+     * exhausted, so a fixed-size pool limits how many recognitions upload audio at the same time. By default a new
+     * thread is started for every recognition.
+     *
+     * @param executor the executor
+     * @return the AudioPump builder
+     * @see AudioPumpExecutors
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+  }
+
+  private AudioPump(Builder builder) {
+    Validator.isTrue(builder.frameSize > 0, "frameSize must be greater than 0");
+    Validator.isTrue(builder.highWaterMark > 0, "highWaterMark must be greater than 0");
+    frameSize = builder.frameSize;
+    highWaterMark = builder.highWaterMark;
+    lowWaterMark = (builder.lowWaterMark != null) ? builder.lowWaterMark : highWaterMark / 2;
+    executor = builder.executor;
+    Validator.isTrue(lowWaterMark >= 0 && lowWaterMark <= highWaterMark,
+        "lowWaterMark must be between 0 and highWaterMark");
+  }
+
+  /**
+   * Gets the frame size.
+   *
+   * @return the frame size in bytes
+   */
+  public int frameSize() {
+    return frameSize;
+  }
+
+  /**
+   * Gets the high water mark.
+   *
+   * @return the high water mark in bytes
+   */
+  public long highWaterMark() {
+    return highWaterMark;
+  }
+
+  /**
+   * Gets the low water mark.
+   *
+   * @return the low water mark in bytes
+   */
+  public long lowWaterMark() {
+    return lowWaterMark;
+  }
+
+  /**
+   * Gets the executor.
+   *
+   * @return the executor, or null if every recognition uses a dedicated thread
+   */
+  public Executor executor() {
+    return executor;
+  }
+
+  /**
+   * Gets the number of bytes currently waiting in the WebSocket's outgoing queue.
+   *
+   * @return the queue size in bytes, or 0 if the pump has not started
+   */
+  public long getQueueSize() {
+    WebSocket currentSocket = socket;
+    return (currentSocket != null) ? currentSocket.queueSize() : 0;
+  }
+
+  /**
+   * Gets the largest outgoing queue size observed before sending a frame.
+   *
+   * @return the maximum queue size in bytes
+   */
+  public long getMaxQueueSize() {
+    return maxQueueSize;
+  }
+
+  /**
+   * Gets the number of audio frames sent.
+   *
+   * @return the number of frames
+   */
+  public long getFramesSent() {
+    return framesSent;
+  }
+
+  /**
+   * Gets the number of audio bytes sent.
+   *
+   * @return the number of bytes
+   */
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  /**
+   * Gets the number of times the pump paused because the outgoing queue reached the high water mark.
+   *
+   * @return the number of pauses
+   */
+  public long getBackpressureWaits() {
+    return backpressureWaits;
+  }
+
+  /**
+   * Gets the average time between reading a frame from the audio stream and handing it to the WebSocket, including
+   * any time spent waiting for the queue to drain.
+   *
+   * @param unit the time unit of the result
+   * @return the average send latency
+   */
+  public long getAverageSendLatency(TimeUnit unit) {
+    long frames = framesSent;
+    return (frames == 0) ? 0 : unit.convert(totalSendNanos / frames, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the longest time between reading a frame from the audio stream and handing it to the WebSocket.
+   *
+   * @param unit the time unit of the result
+   * @return the maximum send latency
+   */
+  public long getMaxSendLatency(TimeUnit unit) {
+    return unit.convert(maxSendNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Runs the audio upload task on the configured executor, or on a new thread if no executor was set.
+   *
+   * @param task the task which pumps the audio
+   */
+  void execute(Runnable task) {
+    if (executor != null) {
+      executor.execute(task);
+    } else {
+      new Thread(task, AUDIO_TO_WEB_SOCKET).start();
+    }
+  }
+
+  /**
+   * Sends the contents of the input stream to the socket, blocking until the stream is exhausted, the socket no longer
+   * accepts frames or the pump is stopped. A pump which was stopped before this method runs sends nothing. The input
+   * stream is closed afterwards.
+   *
+   * @param webSocket the WebSocket to send the audio to
+   * @param inputStream the audio
+   */
+  void pump(WebSocket webSocket, InputStream inputStream) {
+    if (!used.compareAndSet(false, true)) {
+      throw new IllegalStateException("An AudioPump can only be used for a single recognition");
+    }
+    socket = webSocket;
+
+    byte[] buffer = new byte[frameSize];
+    int read;
+    try {
+      // This method uses a blocking while loop to receive all contents of the underlying input stream.
+      // AudioInputStreams, typically used for streaming microphone inputs return 0 only when the stream has been
+      // closed. Elsewise AudioInputStream.read() blocks until enough audio frames are read.
+      while (!stopped && ((read = inputStream.read(buffer)) > 0)) {
+        long start = System.nanoTime();
+
+        // If OkHttp's WebSocket queue gets overwhelmed, it'll abruptly close the connection
+        // (see: https://github.com/square/okhttp/issues/3317). This will ensure we wait until the coast is clear.
+        long queueSize = webSocket.queueSize();
+        if (queueSize > maxQueueSize) {
+          maxQueueSize = queueSize;
+        }
+        if (queueSize > highWaterMark && !awaitDrain(webSocket)) {
+          break;
+        }
+
+        // ByteString keeps its own copy, so the buffer can be reused for the next read.
+        SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.WEBSOCKET_SEND,
+            SpeechToTextWebSocketListener.SERVICE_NAME, SpeechToTextWebSocketListener.OPERATION_ID);
+        boolean sent;
+        try {
+          sent = webSocket.send(ByteString.of(buffer, 0, read));
+        } finally {
+          span.end();
+        }
+        if (!sent) {
+          // The socket is closing or has failed, so nothing more can be sent.
+          break;
+        }
+        recordSend(read, System.nanoTime() - start);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.SEVERE, e.getMessage(), e);
+    } catch (InterruptedException e) {
+      LOG.log(Level.SEVERE, e.getMessage(), e);
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        inputStream.close();
+      } catch (IOException e) {
+        // do nothing - the InputStream may have already been closed externally.
+      }
+    }
+  }
+
+  /**
+   * Stops the pump and wakes it up if it is waiting for the outgoing queue to drain. A pump which has not started yet
+   * will not send anything.
+   */
+  void stop() {
+    stopped = true;
+    synchronized (lock) {
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Waits until the outgoing queue is at or below the low water mark.
+   *
+   * @param webSocket the WebSocket
+   * @return true if sending can resume, false if the pump was stopped while waiting
+   * @throws InterruptedException if the pumping thread is interrupted
+   */
+  private boolean awaitDrain(WebSocket webSocket) throws InterruptedException {
+    backpressureWaits++;
+    long waitNanos = MIN_WAIT_NANOS;
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.AUDIO_BACKPRESSURE,
+        SpeechToTextWebSocketListener.SERVICE_NAME, SpeechToTextWebSocketListener.OPERATION_ID);
+    try {
+      synchronized (lock) {
+        while (!stopped && webSocket.queueSize() > lowWaterMark) {
+          TimeUnit.NANOSECONDS.timedWait(lock, waitNanos);
+          waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
+        }
+      }
+    } finally {
+      span.end();
+    }
+    return !stopped;
+  }
+
+  private void recordSend(int bytes, long sendNanos) {
+    framesSent++;
+    bytesSent += bytes;
+    totalSendNanos += sendNanos;
+    if (sendNanos > maxSendNanos) {
+      maxSendNanos = sendNanos;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.websocket;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory methods for executors that can be shared by the {@link AudioPump}s of many concurrent
+ * {@link com.ibm.watson.speech_to_text.v1.SpeechToText} recognitions.
+ */
+public final class AudioPumpExecutors {
+  private static final Logger LOG = Logger.getLogger(AudioPumpExecutors.class.getName());
+
+  private static final String AUDIO_TO_WEB_SOCKET = "AudioToWebSocketThread-";
+  private static final String VIRTUAL_THREAD_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+
+  private AudioPumpExecutors() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Creates a pool with a fixed number of daemon threads. At most {@code nThreads} recognitions upload audio at the
+   * same time; the uploads of further recognitions wait until a thread becomes free. This suits pre-recorded audio,
+   * where a short wait delays the results but loses no audio.
+   *
+   * @param nThreads the number of threads
+   * @return the executor
+   */
+  public static ExecutorService newFixedThreadPool(int nThreads) {
+    Validator.isTrue(nThreads > 0, "nThreads must be greater than 0");
+    return Executors.newFixedThreadPool(nThreads, new AudioPumpThreadFactory());
+  }
+
+  /**
+   * Creates an executor which runs every audio upload on its own virtual thread when the Java runtime supports them
+   * (Java 21 and later), so thousands of live streams which mostly block on {@code InputStream.read} do not need one
+   * platform thread each. On older runtimes the executor falls back to a cached pool of daemon threads.
+   *
+   * @return the executor
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR);
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOG.log(Level.FINE, "Virtual threads are not available, using a cached thread pool", e);
+      return Executors.newCachedThreadPool(new AudioPumpThreadFactory());
+    }
+  }
+
+  /**
+   * Creates named daemon threads, so an idle pool does not keep the JVM alive.
+   */
+  private static class AudioPumpThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, AUDIO_TO_WEB_SOCKET + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.websocket;
+
+import com.ibm.watson.speech_to_text.v1.model.SpeechRecognitionResults;
+
+/**
+ * An event of a {@link RecognizePublisher}, which corresponds to a method of {@link RecognizeCallback}.
+ */
+public final class RecognizeEvent {
+
+  /**
+   * The types of events.
+   */
+  public enum Type {
+    /** The WebSocket connection was made. */
+    CONNECTED,
+    /** The service is listening for audio. */
+    LISTENING,
+    /** Results were received; see {@link RecognizeEvent#getResults()}. */
+    TRANSCRIPTION,
+    /** The service stopped listening because no speech was detected; see {@link RecognizeEvent#getError()}. */
+    INACTIVITY_TIMEOUT,
+    /** The service returned the final result for the transcription. */
+    TRANSCRIPTION_COMPLETE,
+    /** The WebSocket connection was closed. It is the last event. */
+    DISCONNECTED
+  }
+
+  private static final RecognizeEvent CONNECTED = new RecognizeEvent(Type.CONNECTED, null, null);
+  private static final RecognizeEvent LISTENING = new RecognizeEvent(Type.LISTENING, null, null);
+  private static final RecognizeEvent TRANSCRIPTION_COMPLETE = new RecognizeEvent(Type.TRANSCRIPTION_COMPLETE, null,
+      null);
+  private static final RecognizeEvent DISCONNECTED = new RecognizeEvent(Type.DISCONNECTED, null, null);
+
+  private final Type type;
+  private final SpeechRecognitionResults results;
+  private final RuntimeException error;
+
+  private RecognizeEvent(Type type, SpeechRecognitionResults results, RuntimeException error) {
+    this.type = type;
+    this.results = results;
+    this.error = error;
+  }
+
+  static RecognizeEvent connected() {
+    return CONNECTED;
+  }
+
+  static RecognizeEvent listening() {
+    return LISTENING;
+  }
+
+  static RecognizeEvent transcription(SpeechRecognitionResults results) {
+    return new RecognizeEvent(Type.TRANSCRIPTION, results, null);
+  }
+
+  static RecognizeEvent inactivityTimeout(RuntimeException error) {
+    return new RecognizeEvent(Type.INACTIVITY_TIMEOUT, null, error);
+  }
+
+  static RecognizeEvent transcriptionComplete() {
+    return TRANSCRIPTION_COMPLETE;
+  }
+
+  static RecognizeEvent disconnected() {
+    return DISCONNECTED;
+  }
+
+  /**
+   * Gets the type of the event.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Gets the results of a {@link Type#TRANSCRIPTION} event.
+   *
+   * @return the results, or null for other events
+   */
+  public SpeechRecognitionResults getResults() {
+    return results;
+  }
+
+  /**
+   * Gets the error which reported an {@link Type#INACTIVITY_TIMEOUT}.
+   *
+   * @return the error, or null for other events
+   */
+  public RuntimeException getError() {
+    return error;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return (results != null) ? type + " " + results : type.toString();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.websocket;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.ibm.cloud.sdk.core.util.GsonSingleton;
+import com.ibm.watson.speech_to_text.v1.model.SpeechRecognitionResults;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * A text message received from the {@link com.ibm.watson.speech_to_text.v1.SpeechToText} service during a WebSocket
+ * recognition.<br>
+ * <br>
+ * Messages are decoded in a single pass: the type is taken from the first key of the message, so state and error
+ * messages are never fully parsed, and result messages are read straight into {@link SpeechRecognitionResults}
+ * without building an intermediate JSON tree. Timestamps and word confidences are read by the type adapters registered
+ * on their model classes.
+ */
+final class RecognizeMessage {
+  private static final TypeAdapter<SpeechRecognitionResults> RESULTS_ADAPTER = GsonSingleton
+      .getGsonWithoutPrettyPrinting().getAdapter(SpeechRecognitionResults.class);
+
+  private static final String STATE = "state";
+  private static final String ERROR = "error";
+  private static final String TIMEOUT_PREFIX = "No speech detected for";
+
+  /**
+   * The type of a message.
+   */
+  enum Type {
+    /** The service is listening for audio, or has finished processing the audio. */
+    STATE,
+    /** The recognition failed. */
+    ERROR,
+    /** No speech was detected for the inactivity timeout. */
+    INACTIVITY_TIMEOUT,
+    /** Recognition results, speaker labels or audio metrics. */
+    RESULTS,
+    /** Any other message, for example processing metrics on their own, which is ignored. */
+    OTHER
+  }
+
+  private final Type type;
+  private final String error;
+  private final SpeechRecognitionResults results;
+
+  private RecognizeMessage(Type type, String error, SpeechRecognitionResults results) {
+    this.type = type;
+    this.error = error;
+    this.results = results;
+  }
+
+  /**
+   * Decodes a message.
+   *
+   * @param message the message
+   * @return the decoded message
+   */
+  static RecognizeMessage parse(String message) {
+    String firstKey = firstKey(message);
+    try {
+      if (STATE.equals(firstKey)) {
+        return new RecognizeMessage(Type.STATE, null, null);
+      } else if (ERROR.equals(firstKey)) {
+        return parseError(message);
+      }
+
+      JsonReader reader = new JsonReader(new StringReader(message));
+      reader.setLenient(true);
+      SpeechRecognitionResults results = RESULTS_ADAPTER.read(reader);
+      if ((results.getResults() != null) || (results.getSpeakerLabels() != null)
+          || (results.getAudioMetrics() != null)) {
+        return new RecognizeMessage(Type.RESULTS, null, results);
+      }
+      // The first key was not recognized, so fall back to looking for the message type in the whole message.
+      return (message.contains('"' + ERROR + '"')) ? parseError(message)
+          : new RecognizeMessage(message.contains('"' + STATE + '"') ? Type.STATE : Type.OTHER, null, null);
+    } catch (IOException | IllegalStateException e) {
+      throw new JsonParseException(e);
+    }
+  }
+
+  /**
+   * Gets the type.
+   *
+   * @return the type
+   */
+  Type type() {
+    return type;
+  }
+
+  /**
+   * Gets the error message of an {@link Type#ERROR} or {@link Type#INACTIVITY_TIMEOUT} message.
+   *
+   * @return the error message
+   */
+  String error() {
+    return error;
+  }
+
+  /**
+   * Gets the results of a {@link Type#RESULTS} message.
+   *
+   * @return the results
+   */
+  SpeechRecognitionResults results() {
+    return results;
+  }
+
+  private static RecognizeMessage parseError(String message) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(message));
+    reader.setLenient(true);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (ERROR.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+        String error = reader.nextString();
+        // The STT service sends {"error" : "No speech detected for 5s"} for valid timeouts, configured by
+        // RecognizeOptions.Builder.inactivityTimeout()
+        return new RecognizeMessage(error.startsWith(TIMEOUT_PREFIX) ? Type.INACTIVITY_TIMEOUT : Type.ERROR, error,
+            null);
+      }
+      reader.skipValue();
+    }
+    return new RecognizeMessage(Type.OTHER, null, null);
+  }
+
+  /**
+   * Finds the first key of a JSON object without parsing it.
+   *
+   * @param message the message
+   * @return the first key, or null if the message does not start with an object with a simple key
+   */
+  private static String firstKey(String message) {
+    int length = message.length();
+    int i = 0;
+    while (i < length && Character.isWhitespace(message.charAt(i))) {
+      i++;
+    }
+    if (i >= length || message.charAt(i) != '{') {
+      return null;
+    }
+    i++;
+    while (i < length && Character.isWhitespace(message.charAt(i))) {
+      i++;
+    }
+    if (i >= length || message.charAt(i) != '"') {
+      return null;
+    }
+    int start = i + 1;
+    for (int end = start; end < length; end++) {
+      char c = message.charAt(end);
+      if (c == '"') {
+        return message.substring(start, end);
+      } else if (c == '\\') {
+        return null;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.websocket;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.EventSubscription;
+import com.ibm.watson.common.PublisherInputStream;
+import com.ibm.watson.common.WebSocketPublisher;
+import com.ibm.watson.speech_to_text.v1.SpeechToText;
+import com.ibm.watson.speech_to_text.v1.model.RecognizeOptions;
+import com.ibm.watson.speech_to_text.v1.model.SpeechRecognitionResults;
+import okhttp3.WebSocket;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A Reactive Streams {@link Publisher} of the events of a {@link WebSocket} recognition by the {@link SpeechToText}
+ * service, for applications which consume the results with backpressure instead of through a
+ * {@link RecognizeCallback}.<br>
+ * <br>
+ * The recognition starts when a subscriber subscribes. Every method of {@link RecognizeCallback} becomes a
+ * {@link RecognizeEvent}; the publisher completes after the {@link RecognizeEvent.Type#DISCONNECTED} event, and an
+ * error of the recognition is signalled with {@link Subscriber#onError(Throwable)}. Buffering, cancellation and the
+ * single subscriber work as described in {@link WebSocketPublisher}.<br>
+ * <br>
+ * The audio is read from a {@code Publisher<ByteBuffer>} through a {@link PublisherInputStream}, so it is requested as
+ * fast as the {@link AudioPump} sends it, which in turn waits whenever the WebSocket's outgoing queue is above its high
+ * water mark.
+ *
+ * @see SpeechToText#createRecognizePublisher(RecognizeOptions, Publisher)
+ */
+public final class RecognizePublisher extends WebSocketPublisher<RecognizeEvent> {
+
+  private final SpeechToText service;
+  private final RecognizeOptions options;
+  private final PublisherInputStream audio;
+  private final AudioPump audioPump;
+
+  /**
+   * Instantiates a new recognize publisher.
+   *
+   * @param service the Speech to Text service
+   * @param recognizeOptions the recognize options; their audio is replaced with the audio publisher
+   * @param audio the publisher of the audio
+   * @param audioPump the {@link AudioPump} used to send the audio
+   * @param bufferSize the number of events buffered before the connection stops being read
+   */
+  public RecognizePublisher(SpeechToText service, RecognizeOptions recognizeOptions, Publisher<ByteBuffer> audio,
+      AudioPump audioPump, int bufferSize) {
+    super(bufferSize);
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(recognizeOptions, "recognizeOptions cannot be null");
+    Validator.notNull(audio, "audio cannot be null");
+    Validator.notNull(audioPump, "audioPump cannot be null");
+    this.service = service;
+    this.audio = new PublisherInputStream(audio);
+    this.options = recognizeOptions.newBuilder().audio(this.audio).build();
+    this.audioPump = audioPump;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.watson.common.WebSocketPublisher#newSession(com.ibm.watson.common.EventSubscription)
+   */
+  @Override
+  protected Session<RecognizeEvent> newSession(EventSubscription<RecognizeEvent> subscription) {
+    return new Recognition(subscription);
+  }
+
+  /**
+   * A recognition, which turns the calls of its {@link RecognizeCallback} into events.
+   */
+  private final class Recognition extends Session<RecognizeEvent> implements RecognizeCallback {
+
+    Recognition(EventSubscription<RecognizeEvent> subscription) {
+      super(subscription);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.common.WebSocketPublisher.Session#connect()
+     */
+    @Override
+    protected WebSocket connect() {
+      return service.recognizeUsingWebSocket(options, this, audioPump);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.common.WebSocketPublisher.Session#onStop()
+     */
+    @Override
+    protected void onStop() {
+      audio.close();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onTranscription(
+     * com.ibm.watson.speech_to_text.v1.model.SpeechRecognitionResults)
+     */
+    @Override
+    public void onTranscription(SpeechRecognitionResults speechResults) {
+      offer(RecognizeEvent.transcription(speechResults));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onConnected()
+     */
+    @Override
+    public void onConnected() {
+      offer(RecognizeEvent.connected());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onError(java.lang.Exception)
+     */
+    @Override
+    public void onError(Exception e) {
+      fail(e);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onDisconnected()
+     */
+    @Override
+    public void onDisconnected() {
+      audio.close();
+      offer(RecognizeEvent.disconnected());
+      complete();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onInactivityTimeout(java.lang.RuntimeException)
+     */
+    @Override
+    public void onInactivityTimeout(RuntimeException runtimeException) {
+      offer(RecognizeEvent.inactivityTimeout(runtimeException));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onListening()
+     */
+    @Override
+    public void onListening() {
+      offer(RecognizeEvent.listening());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback#onTranscriptionComplete()
+     */
+    @Override
+    public void onTranscriptionComplete() {
+      offer(RecognizeEvent.transcriptionComplete());
+    }
+  }
+}
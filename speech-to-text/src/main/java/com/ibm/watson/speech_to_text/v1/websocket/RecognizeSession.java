@@ -0,0 +1,550 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.speech_to_text.v1.websocket;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.metrics.SdkTracer;
+import com.ibm.watson.common.metrics.SdkTracing;
+import com.ibm.watson.speech_to_text.v1.SpeechToText;
+import com.ibm.watson.speech_to_text.v1.model.RecognizeOptions;
+import com.ibm.watson.speech_to_text.v1.model.SpeechRecognitionResults;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A recognition session that sends many utterances over a single {@link WebSocket} connection to the
+ * {@link SpeechToText} service, so only the first utterance pays for the connection handshake.<br>
+ * <br>
+ * Utterances are recognized one after another in the order in which they were submitted; each one has its own
+ * {@link RecognizeCallback} and {@link AudioPump}. The model, customization IDs and base model version are parameters
+ * of the connection; when an utterance uses different values than the one before it, the session opens a new
+ * connection for it.<br>
+ * <br>
+ * If the service closes the connection while the session is idle, for example because of its session timeout, the
+ * session reconnects, so the next utterance finds an open connection. If the connection is lost while an utterance
+ * is being recognized, that utterance's callback receives {@link RecognizeCallback#onDisconnected()} and the session
+ * reconnects for the utterances that are still waiting.<br>
+ * <br>
+ * Callbacks are never called while the session holds its lock, so they can submit further utterances or close the
+ * session. The callbacks of all utterances run one at a time, in the order of their events.
+ *
+ * @see SpeechToText#createRecognizeSession()
+ */
+public final class RecognizeSession implements Closeable {
+  private static final Logger LOG = Logger.getLogger(RecognizeSession.class.getName());
+
+  private final SpeechToText service;
+
+  private final Object lock = new Object();
+  private final Queue<Utterance> pending = new ArrayDeque<>();
+  private final Queue<Runnable> callbacks = new ArrayDeque<>();
+  private Utterance current;
+  private WebSocket socket;
+  private RecognizeOptions connectionOptions;
+  private boolean socketOpen;
+  private boolean closed;
+  private boolean dispatching;
+  private long connections;
+
+  /**
+   * The events of an utterance which are passed to its {@link RecognizeCallback}.
+   */
+  private enum Event {
+    CONNECTED, LISTENING, TRANSCRIPTION, TRANSCRIPTION_COMPLETE, INACTIVITY_TIMEOUT, ERROR, DISCONNECTED
+  }
+
+  /**
+   * Instantiates a new recognize session. The connection is opened when the first utterance is submitted.
+   *
+   * @param service the Speech to Text service
+   */
+  public RecognizeSession(SpeechToText service) {
+    Validator.notNull(service, "service cannot be null");
+    this.service = service;
+  }
+
+  /**
+   * Recognizes an utterance over the session's connection. The call returns immediately; the utterance is sent as
+   * soon as all utterances submitted before it have completed.
+   *
+   * @param recognizeOptions the recognize options, including the audio of the utterance
+   * @param callback the {@link RecognizeCallback} instance where the results of this utterance will be sent
+   */
+  public void recognize(RecognizeOptions recognizeOptions, RecognizeCallback callback) {
+    recognize(recognizeOptions, callback, new AudioPump.Builder().build());
+  }
+
+  /**
+   * Recognizes an utterance over the session's connection, sending its audio with the given {@link AudioPump}.
+   *
+   * @param recognizeOptions the recognize options, including the audio of the utterance
+   * @param callback the {@link RecognizeCallback} instance where the results of this utterance will be sent
+   * @param audioPump the {@link AudioPump} used to send the audio; it cannot be reused for another utterance
+   */
+  public void recognize(RecognizeOptions recognizeOptions, RecognizeCallback callback, AudioPump audioPump) {
+    Validator.notNull(recognizeOptions, "recognizeOptions cannot be null");
+    Validator.notNull(recognizeOptions.audio(), "audio cannot be null");
+    Validator.notNull(callback, "callback cannot be null");
+    Validator.notNull(audioPump, "audioPump cannot be null");
+
+    Utterance started = null;
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("The session has been closed");
+      }
+      pending.add(new Utterance(recognizeOptions, callback, audioPump));
+      if (socket == null) {
+        connect(pending.peek().options);
+      } else {
+        started = startNext();
+      }
+    }
+    afterUnlock(started);
+  }
+
+  /**
+   * Checks whether the session currently has an open connection.
+   *
+   * @return true if the connection is open
+   */
+  public boolean isConnected() {
+    synchronized (lock) {
+      return socketOpen;
+    }
+  }
+
+  /**
+   * Gets the number of utterances which are waiting to be sent, not counting the one being recognized.
+   *
+   * @return the number of waiting utterances
+   */
+  public int getPendingUtterances() {
+    synchronized (lock) {
+      return pending.size();
+    }
+  }
+
+  /**
+   * Gets the number of connections the session has opened, including reconnects.
+   *
+   * @return the number of connections
+   */
+  public long getConnectionCount() {
+    synchronized (lock) {
+      return connections;
+    }
+  }
+
+  /**
+   * Closes the connection. The utterance being recognized is stopped and utterances which are still waiting receive
+   * {@link RecognizeCallback#onError(Exception)}.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      Utterance stopped = current;
+      current = null;
+      if (stopped != null) {
+        stopped.audioPump.stop();
+        post(stopped.callback, Event.DISCONNECTED, null);
+      }
+      for (Utterance utterance : pending) {
+        post(utterance.callback, Event.ERROR,
+            new IllegalStateException("The session was closed before the utterance was sent"));
+      }
+      pending.clear();
+      if (socket != null) {
+        socket.close(SpeechToTextWebSocketListener.CLOSE_NORMAL, "Session closed");
+      }
+    }
+    dispatch();
+  }
+
+  /**
+   * Opens a new connection. Must be called while holding the lock.
+   *
+   * @param options the options with the connection parameters
+   */
+  private void connect(RecognizeOptions options) {
+    socketOpen = false;
+    connections++;
+    connectionOptions = options;
+    socket = service.openRecognizeWebSocket(options, new SessionListener());
+  }
+
+  /**
+   * Closes the current connection and forgets it, so no other utterance is sent over it while it is closing, and
+   * opens a new one if utterances are waiting. Must be called while holding the lock.
+   *
+   * @param reason the reason for closing the connection
+   */
+  private void dropConnection(String reason) {
+    WebSocket previous = socket;
+    socket = null;
+    socketOpen = false;
+    if (previous != null) {
+      previous.close(SpeechToTextWebSocketListener.CLOSE_NORMAL, reason);
+    }
+    if (!closed && !pending.isEmpty()) {
+      connect(pending.peek().options);
+    }
+  }
+
+  /**
+   * Starts recognizing the next waiting utterance if the connection is open and idle. Must be called while holding
+   * the lock.
+   *
+   * @return the utterance whose audio must be sent with {@link #afterUnlock(Utterance)}, or null if none was started
+   */
+  private Utterance startNext() {
+    if (current != null || pending.isEmpty()) {
+      return null;
+    }
+    if (!sameConnection(connectionOptions, pending.peek().options)) {
+      dropConnection("Connection parameters changed");
+      return null;
+    }
+    if (!socketOpen) {
+      return null;
+    }
+    Utterance utterance = pending.poll();
+    utterance.socket = socket;
+    current = utterance;
+    post(utterance.callback, Event.CONNECTED, null);
+
+    if (!socket.send(SpeechToTextWebSocketListener.buildStartMessage(utterance.options))) {
+      finishCurrent(new IOException("WebSocket unavailable"));
+      return null;
+    }
+    return utterance;
+  }
+
+  /**
+   * Sends the audio of an utterance which has just been started, if any, and runs the queued callbacks. Must be called
+   * without holding the lock.
+   *
+   * @param started the utterance returned by {@link #startNext()}, or null
+   */
+  private void afterUnlock(Utterance started) {
+    if (started != null) {
+      startPump(started);
+    }
+    dispatch();
+  }
+
+  /**
+   * Sends the audio of an utterance on its {@link AudioPump}, followed by the stop message.
+   *
+   * @param utterance the utterance
+   */
+  private void startPump(final Utterance utterance) {
+    try {
+      utterance.audioPump.execute(new Runnable() {
+        @Override
+        public void run() {
+          utterance.audioPump.pump(utterance.socket, utterance.audio);
+          synchronized (lock) {
+            // The utterance may already have finished, for example because of the inactivity timeout.
+            if (current == utterance && socket == utterance.socket
+                && !utterance.socket.send(SpeechToTextWebSocketListener.buildStopMessage())) {
+              LOG.log(Level.SEVERE, "Stop message discarded because WebSocket is unavailable");
+            }
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The service is already waiting for audio, so the connection cannot be used for the next utterance.
+      synchronized (lock) {
+        if (current == utterance) {
+          finishCurrent(e);
+        }
+        if (socket == utterance.socket) {
+          dropConnection("Audio could not be sent");
+        } else {
+          utterance.socket.close(SpeechToTextWebSocketListener.CLOSE_NORMAL, "Audio could not be sent");
+        }
+      }
+    }
+  }
+
+  /**
+   * Ends the current utterance with an error. Must be called while holding the lock.
+   *
+   * @param e the error
+   */
+  private void finishCurrent(Exception e) {
+    Utterance utterance = current;
+    current = null;
+    if (utterance != null) {
+      utterance.audioPump.stop();
+      post(utterance.callback, Event.ERROR, e);
+    }
+  }
+
+  /**
+   * Handles a lost connection. Pending utterances are sent on a new connection.
+   *
+   * @param webSocket the WebSocket that was lost
+   * @param error the error, or null if the connection was closed normally
+   */
+  private void connectionLost(WebSocket webSocket, Throwable error) {
+    synchronized (lock) {
+      if (webSocket != socket) {
+        return;
+      }
+      boolean wasOpen = socketOpen;
+      socket = null;
+      socketOpen = false;
+      Utterance interrupted = current;
+      current = null;
+
+      // Reconnect right away after an idle timeout, so the next utterance does not pay for the handshake. After a
+      // failure, wait until there is something to send.
+      if (!closed && !pending.isEmpty()) {
+        connect(pending.peek().options);
+      } else if (!closed && wasOpen && error == null && interrupted == null) {
+        connect(connectionOptions);
+      }
+
+      if (interrupted != null) {
+        interrupted.audioPump.stop();
+        if (error != null) {
+          post(interrupted.callback, Event.ERROR,
+              (error instanceof Exception) ? (Exception) error : new Exception(error));
+        }
+        post(interrupted.callback, Event.DISCONNECTED, null);
+      }
+    }
+    dispatch();
+  }
+
+  /**
+   * Queues a callback to run once the lock is released. Must be called while holding the lock.
+   *
+   * @param callback the callback of the utterance
+   * @param event the event
+   * @param value the error or results of the event, if any
+   */
+  private void post(final RecognizeCallback callback, final Event event, final Object value) {
+    callbacks.add(new Runnable() {
+      @Override
+      public void run() {
+        switch (event) {
+          case CONNECTED:
+            callback.onConnected();
+            break;
+          case LISTENING:
+            callback.onListening();
+            break;
+          case TRANSCRIPTION:
+            callback.onTranscription((SpeechRecognitionResults) value);
+            break;
+          case TRANSCRIPTION_COMPLETE:
+            callback.onTranscriptionComplete();
+            break;
+          case INACTIVITY_TIMEOUT:
+            callback.onInactivityTimeout((RuntimeException) value);
+            break;
+          case ERROR:
+            callback.onError((Exception) value);
+            break;
+          default:
+            callback.onDisconnected();
+            break;
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs the queued callbacks in order. Must be called without holding the lock, so callbacks can call back into the
+   * session. Only one thread runs callbacks at a time; callbacks queued while another thread is running them are run
+   * by that thread, so they are never run concurrently or out of order.
+   */
+  private void dispatch() {
+    synchronized (lock) {
+      if (dispatching) {
+        return;
+      }
+      dispatching = true;
+    }
+    while (true) {
+      Runnable callback;
+      synchronized (lock) {
+        callback = callbacks.poll();
+        if (callback == null) {
+          dispatching = false;
+          return;
+        }
+      }
+      try {
+        callback.run();
+      } catch (RuntimeException e) {
+        LOG.log(Level.SEVERE, "A recognize callback failed", e);
+      }
+    }
+  }
+
+  /**
+   * Checks whether two recognitions can share a connection.
+   *
+   * @param a the options of the first recognition
+   * @param b the options of the second recognition
+   * @return true if the connection parameters are the same
+   */
+  private static boolean sameConnection(RecognizeOptions a, RecognizeOptions b) {
+    return (a != null) && (b != null)
+        && equal(a.model(), b.model())
+        && equal(a.customizationId(), b.customizationId())
+        && equal(a.languageCustomizationId(), b.languageCustomizationId())
+        && equal(a.acousticCustomizationId(), b.acousticCustomizationId())
+        && equal(a.baseModelVersion(), b.baseModelVersion());
+  }
+
+  private static boolean equal(String a, String b) {
+    return (a == null) ? (b == null) : a.equals(b);
+  }
+
+  /**
+   * An utterance submitted to the session.
+   */
+  private static final class Utterance {
+    private final RecognizeOptions options;
+    private final InputStream audio;
+    private final RecognizeCallback callback;
+    private final AudioPump audioPump;
+    private WebSocket socket;
+    private boolean listening;
+
+    private Utterance(RecognizeOptions options, RecognizeCallback callback, AudioPump audioPump) {
+      this.options = options;
+      this.audio = options.audio();
+      this.callback = callback;
+      this.audioPump = audioPump;
+    }
+  }
+
+  /**
+   * Receives the events of one of the session's connections and dispatches them to the current utterance.
+   */
+  private final class SessionListener extends WebSocketListener {
+
+    /*
+     * (non-Javadoc)
+     * @see okhttp3.WebSocketListener#onOpen(okhttp3.WebSocket, okhttp3.Response)
+     */
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+      Utterance started;
+      synchronized (lock) {
+        if (webSocket != socket) {
+          return;
+        }
+        socketOpen = true;
+        started = startNext();
+      }
+      afterUnlock(started);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see okhttp3.WebSocketListener#onMessage(okhttp3.WebSocket, java.lang.String)
+     */
+    @Override
+    public void onMessage(WebSocket webSocket, String message) {
+      SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.WEBSOCKET_RECEIVE,
+          SpeechToTextWebSocketListener.SERVICE_NAME, SpeechToTextWebSocketListener.OPERATION_ID);
+      try {
+        handleMessage(webSocket, message);
+      } finally {
+        span.end();
+      }
+    }
+
+    private void handleMessage(WebSocket webSocket, String message) {
+      RecognizeMessage recognizeMessage = RecognizeMessage.parse(message);
+      Utterance started = null;
+      synchronized (lock) {
+        Utterance utterance = current;
+        if (webSocket != socket || utterance == null) {
+          return;
+        }
+
+        switch (recognizeMessage.type()) {
+          case ERROR:
+          case INACTIVITY_TIMEOUT:
+            current = null;
+            utterance.audioPump.stop();
+            if (recognizeMessage.type() == RecognizeMessage.Type.ERROR) {
+              post(utterance.callback, Event.ERROR, new RuntimeException(recognizeMessage.error()));
+            } else {
+              post(utterance.callback, Event.INACTIVITY_TIMEOUT, new RuntimeException(recognizeMessage.error()));
+            }
+            // The service ends the recognition request after an error, so start over on a new connection.
+            dropConnection("Recognition failed");
+            break;
+          case RESULTS:
+            post(utterance.callback, Event.TRANSCRIPTION, recognizeMessage.results());
+            break;
+          case STATE:
+            // A listen state after the stop message indicates that the utterance has been processed
+            if (!utterance.listening) {
+              utterance.listening = true;
+              post(utterance.callback, Event.LISTENING, null);
+            } else {
+              current = null;
+              post(utterance.callback, Event.TRANSCRIPTION_COMPLETE, null);
+              started = startNext();
+            }
+            break;
+          default:
+            break;
+        }
+      }
+      afterUnlock(started);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see okhttp3.WebSocketListener#onClosing(okhttp3.WebSocket, int, java.lang.String)
+     */
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+      webSocket.close(SpeechToTextWebSocketListener.CLOSE_NORMAL, null);
+      connectionLost(webSocket, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see okhttp3.WebSocketListener#onFailure(okhttp3.WebSocket, java.lang.Throwable, okhttp3.Response)
+     */
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+      connectionLost(webSocket, t);
+    }
+  }
+}
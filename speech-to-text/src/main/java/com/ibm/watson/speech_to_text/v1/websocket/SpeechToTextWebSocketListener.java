@@ -12,23 +12,21 @@
  */
 package com.ibm.watson.speech_to_text.v1.websocket;
 
-import com.google.gson.FieldNamingPolicy;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.ibm.cloud.sdk.core.util.GsonSingleton;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import com.ibm.watson.common.metrics.SdkTracer;
+import com.ibm.watson.common.metrics.SdkTracing;
 import com.ibm.watson.speech_to_text.v1.SpeechToText;
 import com.ibm.watson.speech_to_text.v1.model.RecognizeOptions;
-import com.ibm.watson.speech_to_text.v1.model.SpeechRecognitionResults;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
-import okio.ByteString;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,39 +39,27 @@ import java.util.logging.Logger;
  */
 public final class SpeechToTextWebSocketListener extends WebSocketListener {
 
-  private static final String AUDIO_TO_WEB_SOCKET = "AudioToWebSocketThread";
-  private static final Gson GSON = GsonSingleton.getGsonWithoutPrettyPrinting();
   private static final Logger LOG = Logger.getLogger(SpeechToTextWebSocketListener.class.getName());
 
-  private static final String STATE = "state";
-  private static final String MODEL = "model";
   private static final String START = "start";
-  private static final String STOP = "stop";
   private static final String ACTION = "action";
-  private static final int ONE_KB = 1024;
-  private static final String ERROR = "error";
-  private static final String RESULTS = "results";
-  private static final String SPEAKER_LABELS = "speaker_labels";
-  private static final String AUDIO_METRICS = "audio_metrics";
-  private static final String CUSTOMIZATION_ID = "customization_id";
-  private static final String LANGUAGE_CUSTOMIZATION_ID = "language_customization_id";
-  private static final String ACOUSTIC_CUSTOMIZATION_ID = "acoustic_customization_id";
-  private static final String VERSION = "base_model_version";
-  private static final String TIMEOUT_PREFIX = "No speech detected for";
-
-  // 8 MB, half of the maximum OkHttp WebSocket queue size
-  // (https://github.com/square/okhttp/blob/master/okhttp/src/main/java/okhttp3/internal/ws/RealWebSocket.java#L63)
-  private static final long QUEUE_SIZE_LIMIT = 16 * 1024 * 512;
-  private static final long QUEUE_WAIT_MILLIS = 500;
+  private static final String STOP_MESSAGE = "{\"" + ACTION + "\":\"stop\"}";
+
+  // Typical start messages fit without the writer's buffer having to grow.
+  private static final int START_MESSAGE_CAPACITY = 256;
 
   private final InputStream stream;
   private final RecognizeOptions options;
   private final RecognizeCallback callback;
+  private final AudioPump audioPump;
   private WebSocket socket;
-  private boolean socketOpen = true;
-  private Thread audioThread = null;
+  private volatile boolean socketOpen = true;
   private boolean isListening = false;
-  private static final int CLOSE_NORMAL = 1000;
+  static final int CLOSE_NORMAL = 1000;
+
+  // The service and operation which tag the traced stages of a recognition
+  static final String SERVICE_NAME = "speech_to_text";
+  static final String OPERATION_ID = "recognizeUsingWebSocket";
 
   /**
    * Instantiates a new speech to text web socket listener.
@@ -82,9 +68,22 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
    * @param callback the callback
    */
   public SpeechToTextWebSocketListener(final RecognizeOptions options, final RecognizeCallback callback) {
+    this(options, callback, new AudioPump.Builder().build());
+  }
+
+  /**
+   * Instantiates a new speech to text web socket listener which sends the audio with the given {@link AudioPump}.
+   *
+   * @param options the recognize options
+   * @param callback the callback
+   * @param audioPump the audio pump
+   */
+  public SpeechToTextWebSocketListener(final RecognizeOptions options, final RecognizeCallback callback,
+      final AudioPump audioPump) {
     this.stream = options.audio();
     this.options = options;
     this.callback = callback;
+    this.audioPump = audioPump;
   }
 
   /*
@@ -94,6 +93,7 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
   @Override
   public void onClosing(WebSocket webSocket, int code, String reason) {
     socketOpen = false;
+    audioPump.stop();
     callback.onDisconnected();
   }
 
@@ -104,6 +104,7 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
   @Override
   public void onFailure(WebSocket webSocket, Throwable t, Response response) {
     socketOpen = false;
+    audioPump.stop();
     if (t instanceof Exception) {
       callback.onError((Exception) t);
     } else {
@@ -117,34 +118,42 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
    */
   @Override
   public void onMessage(WebSocket webSocket, String message) {
-    JsonObject json = new JsonParser().parse(message).getAsJsonObject();
-    if (json.has(ERROR)) {
-      String error = json.get(ERROR).getAsString();
-
-      // Only call onError() if a real error occurred. The STT service sends
-      // {"error" : "No speech detected for 5s"} for valid timeouts, configured by
-      // RecognizeUsingWebSocketOptions.Builder.inactivityTimeout()
-      if (!error.startsWith(TIMEOUT_PREFIX)) {
-        callback.onError(new RuntimeException(error));
-      } else {
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.WEBSOCKET_RECEIVE, SERVICE_NAME, OPERATION_ID);
+    try {
+      handleMessage(webSocket, message);
+    } finally {
+      span.end();
+    }
+  }
+
+  private void handleMessage(WebSocket webSocket, String message) {
+    RecognizeMessage recognizeMessage = RecognizeMessage.parse(message);
+    switch (recognizeMessage.type()) {
+      case ERROR:
+        callback.onError(new RuntimeException(recognizeMessage.error()));
+        break;
+      case INACTIVITY_TIMEOUT:
         // notify that the service timeouts because of inactivity
-        callback.onInactivityTimeout(new RuntimeException(error));
-      }
-    } else if (json.has(RESULTS) || json.has(SPEAKER_LABELS) || json.has(AUDIO_METRICS)) {
-      callback.onTranscription(GSON.fromJson(message, SpeechRecognitionResults.class));
-
-    } else if (json.has(STATE)) {
-      // A listen state after everything has been sent over indicates everything has been processed
-      if (!isListening) {
-        isListening = true;
-      } else {
-        callback.onTranscriptionComplete();
-        socket.close(CLOSE_NORMAL, "Transcription completed");
-        return;
-      }
+        callback.onInactivityTimeout(new RuntimeException(recognizeMessage.error()));
+        break;
+      case RESULTS:
+        callback.onTranscription(recognizeMessage.results());
+        break;
+      case STATE:
+        // A listen state after everything has been sent over indicates everything has been processed
+        if (!isListening) {
+          isListening = true;
+        } else {
+          callback.onTranscriptionComplete();
+          socket.close(CLOSE_NORMAL, "Transcription completed");
+          return;
+        }
 
-      // notify that the service is ready to receive audio
-      callback.onListening();
+        // notify that the service is ready to receive audio
+        callback.onListening();
+        break;
+      default:
+        break;
     }
   }
 
@@ -162,10 +171,10 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
       // Send the InputStream on a different Thread. Elsewise, interim results cannot be
       // received,
       // because the Thread that called SpeechToText.recognizeUsingWebSocket is blocked.
-      audioThread = new Thread(AUDIO_TO_WEB_SOCKET) {
+      Runnable sendAudio = new Runnable() {
         @Override
         public void run() {
-          sendInputStream(stream);
+          audioPump.pump(socket, stream);
           // Do not send the stop message if the socket has been closed already, for example because of the
           // inactivity timeout.
           // If the socket is still open after the sending finishes, for example because the user closed the
@@ -176,65 +185,53 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
         }
       };
 
-      audioThread.start();
-    }
-  }
-
-  /**
-   * Send input stream.
-   *
-   * @param inputStream the input stream
-   */
-  private void sendInputStream(InputStream inputStream) {
-    byte[] buffer = new byte[ONE_KB];
-    int read;
-    try {
-      // This method uses a blocking while loop to receive all contents of the underlying input stream.
-      // AudioInputStreams, typically used for streaming microphone inputs return 0 only when the stream has been
-      // closed. Elsewise AudioInputStream.read() blocks until enough audio frames are read.
-      while (((read = inputStream.read(buffer)) > 0) && socketOpen) {
-
-        // If OkHttp's WebSocket queue gets overwhelmed, it'll abruptly close the connection
-        // (see: https://github.com/square/okhttp/issues/3317). This will ensure we wait until the coast is clear.
-        while (socket.queueSize() > QUEUE_SIZE_LIMIT) {
-          Thread.sleep(QUEUE_WAIT_MILLIS);
-        }
-
-        if (read == ONE_KB) {
-          socket.send(ByteString.of(buffer));
-        } else {
-          socket.send(ByteString.of(Arrays.copyOfRange(buffer, 0, read)));
-        }
-      }
-    } catch (IOException | InterruptedException e) {
-      LOG.log(Level.SEVERE, e.getMessage(), e);
-    } finally {
       try {
-        inputStream.close();
-      } catch (IOException e) {
-        // do nothing - the InputStream may have already been closed externally.
+        audioPump.execute(sendAudio);
+      } catch (RejectedExecutionException e) {
+        callback.onError(e);
+        socket.close(CLOSE_NORMAL, "Audio could not be sent");
       }
     }
   }
 
   /**
-   * Builds the start message.
+   * Builds the start message. The options are written straight to a {@link JsonWriter} in the order and with the names
+   * Gson would use for {@link RecognizeOptions}, leaving out null values and the options that are already part of the
+   * query string (model, customization IDs and base model version).
    *
    * @param options the options
    * @return the request
    */
-  private String buildStartMessage(RecognizeOptions options) {
-    Gson gson = new GsonBuilder()
-        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-        .create();
-    JsonObject startMessage = new JsonParser().parse(gson.toJson(options)).getAsJsonObject();
-    startMessage.remove(MODEL);
-    startMessage.remove(CUSTOMIZATION_ID);
-    startMessage.remove(LANGUAGE_CUSTOMIZATION_ID);
-    startMessage.remove(ACOUSTIC_CUSTOMIZATION_ID);
-    startMessage.remove(VERSION);
-    startMessage.addProperty(ACTION, START);
-    return startMessage.toString();
+  static String buildStartMessage(RecognizeOptions options) {
+    StringWriter out = new StringWriter(START_MESSAGE_CAPACITY);
+    JsonWriter writer = new JsonWriter(out);
+    try {
+      writer.beginObject();
+      writeNumber(writer, "customization_weight", options.customizationWeight());
+      writeNumber(writer, "inactivity_timeout", options.inactivityTimeout());
+      writeStrings(writer, "keywords", options.keywords());
+      writeNumber(writer, "keywords_threshold", options.keywordsThreshold());
+      writeNumber(writer, "max_alternatives", options.maxAlternatives());
+      writeNumber(writer, "word_alternatives_threshold", options.wordAlternativesThreshold());
+      writeBoolean(writer, "word_confidence", options.wordConfidence());
+      writeBoolean(writer, "timestamps", options.timestamps());
+      writeBoolean(writer, "profanity_filter", options.profanityFilter());
+      writeBoolean(writer, "smart_formatting", options.smartFormatting());
+      writeBoolean(writer, "speaker_labels", options.speakerLabels());
+      writeString(writer, "grammar_name", options.grammarName());
+      writeBoolean(writer, "redaction", options.redaction());
+      writeBoolean(writer, "audio_metrics", options.audioMetrics());
+      writeString(writer, "content-type", options.contentType());
+      writeBoolean(writer, "interim_results", options.interimResults());
+      writeBoolean(writer, "processing_metrics", options.processingMetrics());
+      writeNumber(writer, "processing_metrics_interval", options.processingMetricsInterval());
+      writer.name(ACTION).value(START);
+      writer.endObject();
+      writer.close();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+    return out.toString();
   }
 
   /**
@@ -242,9 +239,35 @@ public final class SpeechToTextWebSocketListener extends WebSocketListener {
    *
    * @return the string
    */
-  private String buildStopMessage() {
-    JsonObject stopMessage = new JsonObject();
-    stopMessage.addProperty(ACTION, STOP);
-    return stopMessage.toString();
+  static String buildStopMessage() {
+    return STOP_MESSAGE;
+  }
+
+  private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+    if (value != null) {
+      writer.name(name).value(value);
+    }
+  }
+
+  private static void writeNumber(JsonWriter writer, String name, Number value) throws IOException {
+    if (value != null) {
+      writer.name(name).value(value);
+    }
+  }
+
+  private static void writeBoolean(JsonWriter writer, String name, Boolean value) throws IOException {
+    if (value != null) {
+      writer.name(name).value(value);
+    }
+  }
+
+  private static void writeStrings(JsonWriter writer, String name, List<String> values) throws IOException {
+    if (values != null) {
+      writer.name(name).beginArray();
+      for (String value : values) {
+        writer.value(value);
+      }
+      writer.endArray();
+    }
   }
 }
@@ -17,8 +17,10 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.ibm.cloud.sdk.core.http.HttpMediaType;
 import com.ibm.cloud.sdk.core.security.basicauth.BasicAuthConfig;
+import com.ibm.cloud.sdk.core.service.exception.NotFoundException;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.RequestUtils;
+import com.ibm.watson.common.ServiceFuture;
 import com.ibm.watson.common.TestUtils;
 import com.ibm.watson.common.WatsonServiceUnitTest;
 import com.ibm.watson.speech_to_text.v1.model.AcousticModel;
@@ -80,9 +82,21 @@ import com.ibm.watson.speech_to_text.v1.model.UpgradeLanguageModelOptions;
 import com.ibm.watson.speech_to_text.v1.model.Word;
 import com.ibm.watson.speech_to_text.v1.model.Words;
 import com.ibm.watson.speech_to_text.v1.util.MediaTypeUtils;
+import com.ibm.watson.speech_to_text.v1.util.RecognitionJobTracker;
+import com.ibm.watson.speech_to_text.v1.websocket.AudioPump;
+import com.ibm.watson.speech_to_text.v1.websocket.AudioPumpExecutors;
+import com.ibm.watson.speech_to_text.v1.websocket.BaseRecognizeCallback;
 import com.ibm.watson.speech_to_text.v1.websocket.RecognizeCallback;
+import com.ibm.watson.speech_to_text.v1.websocket.RecognizeEvent;
+import com.ibm.watson.speech_to_text.v1.websocket.RecognizeSession;
+import com.ibm.watson.speech_to_text.v1.websocket.SpeechToTextWebSocketListener;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.Request;
 import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
 import okhttp3.internal.ws.WebSocketRecorder;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 import okio.ByteString;
@@ -92,6 +106,7 @@ import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -100,21 +115,34 @@ import java.io.InputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * The Class SpeechToTextTest.
@@ -123,6 +151,7 @@ import static org.junit.Assert.assertTrue;
 public class SpeechToTextTest extends WatsonServiceUnitTest {
 
   private static final Gson GSON = GsonSingleton.getGsonWithoutPrettyPrinting();
+  private static final Logger LOG = Logger.getLogger(SpeechToTextTest.class.getName());
 
   private static final String PATH_CORPORA = "/v1/customizations/%s/corpora";
   private static final String PATH_CORPUS = "/v1/customizations/%s/corpora/%s";
@@ -682,6 +711,58 @@ public class SpeechToTextTest extends WatsonServiceUnitTest {
     assertEquals(jobsAsJson.get("recognitions"), GSON.toJsonTree(result.getRecognitions()));
   }
 
+  /**
+   * Test tracking jobs with a single poller.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognitionJobTracker() throws Exception {
+    final AtomicInteger polls = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        String path = request.getPath();
+        if (path.equals(PATH_RECOGNITIONS)) {
+          String status = (polls.incrementAndGet() < 2) ? "processing" : "completed";
+          return new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.APPLICATION_JSON)
+              .setBody("{\"recognitions\":[{\"id\":\"a\",\"status\":\"" + status + "\"},"
+                  + "{\"id\":\"b\",\"status\":\"failed\"}]}");
+        } else if (path.equals(String.format(PATH_RECOGNITION, "a"))) {
+          return new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.APPLICATION_JSON)
+              .setBody("{\"id\":\"a\",\"status\":\"completed\",\"results\":[{\"result_index\":0}]}");
+        }
+        return new MockResponse().setResponseCode(404).addHeader(CONTENT_TYPE, HttpMediaType.APPLICATION_JSON)
+            .setBody("{\"error\":\"not found\",\"code\":404}");
+      }
+    });
+
+    RecognitionJobTracker tracker = new RecognitionJobTracker.Builder(service)
+        .minInterval(20, TimeUnit.MILLISECONDS)
+        .maxInterval(50, TimeUnit.MILLISECONDS)
+        .build();
+    ServiceFuture<RecognitionJob> completed = tracker.track("a");
+    ServiceFuture<RecognitionJob> failed = tracker.track("b");
+    ServiceFuture<RecognitionJob> missing = tracker.track("c");
+
+    RecognitionJob job = completed.get(5, TimeUnit.SECONDS);
+    assertEquals(RecognitionJob.Status.COMPLETED, job.getStatus());
+    assertEquals(1, job.getResults().size());
+    assertEquals(RecognitionJob.Status.FAILED, failed.get(5, TimeUnit.SECONDS).getStatus());
+    try {
+      missing.get(5, TimeUnit.SECONDS);
+      fail("the missing job should fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof NotFoundException);
+    }
+
+    assertEquals(0, tracker.getTrackedCount());
+    assertEquals(2, tracker.getPollCount());
+    // One check of the missing job, and one to fetch the results of the completed job.
+    assertEquals(2, tracker.getCheckCount());
+    tracker.close();
+  }
+
   /**
    * Test list language models.
    *
@@ -1503,6 +1584,599 @@ public class SpeechToTextTest extends WatsonServiceUnitTest {
     callback.assertOnTranscriptionComplete();
   }
 
+  /**
+   * Test that an {@link AudioPump} splits the audio into frames of the configured size and records statistics.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeWebSocketWithAudioPump() throws Exception {
+    TestRecognizeCallback callback = new TestRecognizeCallback();
+    WebSocketRecorder webSocketRecorder = new WebSocketRecorder("server");
+    PipedOutputStream outputStream = new PipedOutputStream();
+    InputStream inputStream = new PipedInputStream(outputStream);
+
+    server.enqueue(new MockResponse().withWebSocketUpgrade(webSocketRecorder));
+
+    RecognizeOptions options = new RecognizeOptions.Builder()
+        .audio(inputStream)
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build();
+    AudioPump audioPump = new AudioPump.Builder()
+        .frameSize(4)
+        .build();
+    service.recognizeUsingWebSocket(options, callback, audioPump);
+
+    WebSocket serverSocket = webSocketRecorder.assertOpen();
+    serverSocket.send("{\"state\": {}}");
+
+    outputStream.write(ByteString.encodeUtf8("testtest").toByteArray());
+    outputStream.close();
+
+    webSocketRecorder.assertTextMessage("{\"content-type\":\"audio/l16; rate=44000\",\"action\":\"start\"}");
+    webSocketRecorder.assertBinaryMessage(ByteString.encodeUtf8("test"));
+    webSocketRecorder.assertBinaryMessage(ByteString.encodeUtf8("test"));
+    webSocketRecorder.assertTextMessage("{\"action\":\"stop\"}");
+    webSocketRecorder.assertExhausted();
+
+    serverSocket.close(1000, null);
+
+    callback.assertConnected();
+    callback.assertDisconnected();
+    callback.assertNoErrors();
+
+    assertEquals(2, audioPump.getFramesSent());
+    assertEquals(8, audioPump.getBytesSent());
+    assertEquals(0, audioPump.getBackpressureWaits());
+  }
+
+  /**
+   * Test that a recognize publisher sends the audio it reads from the audio publisher, and delivers the recognition
+   * events only as fast as the subscriber requests them.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizePublisher() throws Exception {
+    WebSocketRecorder webSocketRecorder = new WebSocketRecorder("server");
+    server.enqueue(new MockResponse().withWebSocketUpgrade(webSocketRecorder));
+
+    RecognizeOptions options = new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream(new byte[0]))
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build();
+    Flowable<ByteBuffer> audio = Flowable.just(ByteBuffer.wrap(ByteString.encodeUtf8("test").toByteArray()),
+        ByteBuffer.wrap(ByteString.encodeUtf8("test").toByteArray()));
+    AudioPump audioPump = new AudioPump.Builder()
+        .frameSize(4)
+        .build();
+    TestSubscriber<RecognizeEvent> subscriber = new TestSubscriber<>(1L);
+    service.createRecognizePublisher(options, audio, audioPump).subscribe(subscriber);
+
+    WebSocket serverSocket = webSocketRecorder.assertOpen();
+    webSocketRecorder.assertTextMessage("{\"content-type\":\"audio/l16; rate=44000\",\"action\":\"start\"}");
+    webSocketRecorder.assertBinaryMessage(ByteString.encodeUtf8("test"));
+    webSocketRecorder.assertBinaryMessage(ByteString.encodeUtf8("test"));
+    webSocketRecorder.assertTextMessage("{\"action\":\"stop\"}");
+
+    serverSocket.send("{\"state\": \"listening\"}");
+    serverSocket.send("{\"results\": [{\"final\": true, \"alternatives\": [{\"transcript\": \"test\"}]}],"
+        + " \"result_index\": 0}");
+    serverSocket.send("{\"state\": \"listening\"}");
+    webSocketRecorder.assertClosing(1000, "Transcription completed");
+    serverSocket.close(1000, null);
+
+    subscriber.awaitCount(1);
+    subscriber.assertValueCount(1);
+    assertEquals(RecognizeEvent.Type.CONNECTED, subscriber.values().get(0).getType());
+
+    subscriber.request(Long.MAX_VALUE);
+    assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+    subscriber.assertNoErrors();
+    subscriber.assertComplete();
+    List<RecognizeEvent> events = subscriber.values();
+    assertEquals(5, events.size());
+    assertEquals(RecognizeEvent.Type.LISTENING, events.get(1).getType());
+    assertEquals(RecognizeEvent.Type.TRANSCRIPTION, events.get(2).getType());
+    assertEquals("test", events.get(2).getResults().getResults().get(0).getAlternatives().get(0).getTranscript());
+    assertEquals(RecognizeEvent.Type.TRANSCRIPTION_COMPLETE, events.get(3).getType());
+    assertEquals(RecognizeEvent.Type.DISCONNECTED, events.get(4).getType());
+    assertEquals(8, audioPump.getBytesSent());
+  }
+
+  /**
+   * Test that an {@link AudioPump} which is stopped before its task runs, because the connection failed while the task
+   * was queued on the executor, sends no audio and closes the stream without reading it.
+   */
+  @Test
+  public void testAudioPumpStoppedBeforeStart() {
+    final List<Runnable> tasks = new ArrayList<>();
+    AudioPump audioPump = new AudioPump.Builder()
+        .frameSize(4)
+        .executor(new Executor() {
+          @Override
+          public void execute(Runnable task) {
+            tasks.add(task);
+          }
+        })
+        .build();
+    RecordingInputStream audio = new RecordingInputStream(new byte[16]);
+    RecordingWebSocket socket = new RecordingWebSocket(Integer.MAX_VALUE);
+    SpeechToTextWebSocketListener listener = new SpeechToTextWebSocketListener(new RecognizeOptions.Builder()
+        .audio(audio)
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build(), new TestRecognizeCallback(), audioPump);
+
+    listener.onOpen(socket, null);
+    listener.onFailure(socket, new IOException("Connection reset"), null);
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+
+    assertEquals(0, audio.reads);
+    assertTrue(audio.closed);
+    assertEquals(0, socket.binaryFrames);
+    assertEquals(1, socket.textMessages.size());
+    assertEquals(0, audioPump.getFramesSent());
+  }
+
+  /**
+   * Test that an {@link AudioPump} stops reading the audio once the WebSocket no longer accepts frames.
+   */
+  @Test
+  public void testAudioPumpStopsWhenSendFails() {
+    AudioPump audioPump = new AudioPump.Builder()
+        .frameSize(4)
+        .executor(new Executor() {
+          @Override
+          public void execute(Runnable task) {
+            task.run();
+          }
+        })
+        .build();
+    RecordingInputStream audio = new RecordingInputStream(new byte[16]);
+    RecordingWebSocket socket = new RecordingWebSocket(2);
+    SpeechToTextWebSocketListener listener = new SpeechToTextWebSocketListener(new RecognizeOptions.Builder()
+        .audio(audio)
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build(), new TestRecognizeCallback(), audioPump);
+
+    listener.onOpen(socket, null);
+
+    assertEquals(3, audio.reads);
+    assertTrue(audio.closed);
+    assertEquals(2, socket.binaryFrames);
+    assertEquals(2, audioPump.getFramesSent());
+  }
+
+  /**
+   * Test that the WebSocket start message contains every recognition option that is not part of the query string.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeWebSocketStartMessage() throws Exception {
+    TestRecognizeCallback callback = new TestRecognizeCallback();
+    WebSocketRecorder webSocketRecorder = new WebSocketRecorder("server");
+
+    server.enqueue(new MockResponse().withWebSocketUpgrade(webSocketRecorder));
+
+    RecognizeOptions options = new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream(new byte[0]))
+        .contentType(HttpMediaType.AUDIO_WAV)
+        .model(RecognizeOptions.Model.EN_US_BROADBANDMODEL)
+        .languageCustomizationId("language_id")
+        .acousticCustomizationId("acoustic_id")
+        .baseModelVersion("version")
+        .customizationWeight(0.25)
+        .inactivityTimeout(20L)
+        .keywords(Arrays.asList("colorado", "tornado"))
+        .keywordsThreshold(0.5f)
+        .maxAlternatives(3L)
+        .wordAlternativesThreshold(0.75f)
+        .wordConfidence(true)
+        .timestamps(false)
+        .profanityFilter(true)
+        .smartFormatting(true)
+        .speakerLabels(true)
+        .grammarName("<grammar & more>")
+        .redaction(false)
+        .audioMetrics(true)
+        .interimResults(true)
+        .processingMetrics(true)
+        .processingMetricsInterval(1.5f)
+        .build();
+    service.recognizeUsingWebSocket(options, callback);
+
+    WebSocket serverSocket = webSocketRecorder.assertOpen();
+    serverSocket.send("{\"state\": {}}");
+
+    webSocketRecorder.assertTextMessage("{\"customization_weight\":0.25,\"inactivity_timeout\":20,"
+        + "\"keywords\":[\"colorado\",\"tornado\"],\"keywords_threshold\":0.5,\"max_alternatives\":3,"
+        + "\"word_alternatives_threshold\":0.75,\"word_confidence\":true,\"timestamps\":false,"
+        + "\"profanity_filter\":true,\"smart_formatting\":true,\"speaker_labels\":true,"
+        + "\"grammar_name\":\"<grammar & more>\",\"redaction\":false,\"audio_metrics\":true,"
+        + "\"content-type\":\"audio/wav\",\"interim_results\":true,\"processing_metrics\":true,"
+        + "\"processing_metrics_interval\":1.5,\"action\":\"start\"}");
+    webSocketRecorder.assertTextMessage("{\"action\":\"stop\"}");
+    webSocketRecorder.assertExhausted();
+
+    serverSocket.close(1000, null);
+
+    callback.assertConnected();
+    callback.assertDisconnected();
+    callback.assertNoErrors();
+  }
+
+  /**
+   * Load test for sharing an {@link AudioPumpExecutors} pool between many WebSocket recognitions: all sessions get
+   * their results while the audio of every session is sent by the same two threads, and the p99 first-result latency
+   * stays within a bound derived from the latency of a single session.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeWebSocketSessionsShareAudioPumpExecutor() throws Exception {
+    int sessions = 20;
+    int poolSize = 2;
+    final ExecutorService executor = AudioPumpExecutors.newFixedThreadPool(poolSize);
+    final Set<String> audioThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    Executor recordingExecutor = new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            audioThreads.add(Thread.currentThread().getName());
+            command.run();
+          }
+        });
+      }
+    };
+
+    try {
+      // The first session also warms up the connection pool and the JIT, so the baseline is on the generous side.
+      long baselineMillis = TimeUnit.NANOSECONDS.toMillis(runSessions(1, recordingExecutor)[0]);
+      long[] latencies = runSessions(sessions, recordingExecutor);
+      long p99Millis = TimeUnit.NANOSECONDS.toMillis(latencies[(int) Math.ceil(sessions * 0.99) - 1]);
+      LOG.info(String.format("%d sessions on %d threads: p99 first-result latency %d ms, single session %d ms",
+          sessions, poolSize, p99Millis, baselineMillis));
+
+      // Each thread sends the audio of sessions / poolSize sessions one after another, so the last session should get
+      // its first result after about that many single-session latencies.
+      long boundMillis = 2 * (sessions / poolSize) * Math.max(baselineMillis, 50);
+      assertTrue("p99 first-result latency was " + p99Millis + " ms, more than " + boundMillis + " ms",
+          p99Millis <= boundMillis);
+      assertTrue("audio was sent by " + audioThreads, audioThreads.size() <= poolSize);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Runs recognitions at the same time, with their audio sent on an executor.
+   *
+   * @param sessions the number of recognitions
+   * @param executor the executor of the audio pumps
+   * @return the sorted first-result latencies of the recognitions, in nanoseconds
+   * @throws InterruptedException the interrupted exception
+   */
+  private long[] runSessions(int sessions, Executor executor) throws InterruptedException {
+    final String results = GSON.toJson(recognitionResults);
+    for (int i = 0; i < sessions; i++) {
+      server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+        @Override
+        public void onOpen(WebSocket webSocket, okhttp3.Response response) {
+          webSocket.send("{\"state\": {}}");
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+          webSocket.send(results);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+          if (text.contains("stop")) {
+            webSocket.send("{\"state\": {}}");
+          }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+          webSocket.close(1000, null);
+        }
+      }));
+    }
+
+    final long[] firstResultNanos = new long[sessions];
+    final CountDownLatch completed = new CountDownLatch(sessions);
+    long start = System.nanoTime();
+    for (int i = 0; i < sessions; i++) {
+      final int session = i;
+      RecognizeOptions options = new RecognizeOptions.Builder()
+          .audio(new ByteArrayInputStream(new byte[2048]))
+          .contentType(HttpMediaType.createAudioRaw(44000))
+          .build();
+      AudioPump audioPump = new AudioPump.Builder().executor(executor).build();
+      service.recognizeUsingWebSocket(options, new BaseRecognizeCallback() {
+        @Override
+        public void onTranscription(SpeechRecognitionResults speechResults) {
+          synchronized (firstResultNanos) {
+            if (firstResultNanos[session] == 0) {
+              firstResultNanos[session] = System.nanoTime();
+            }
+          }
+        }
+
+        @Override
+        public void onTranscriptionComplete() {
+          completed.countDown();
+        }
+      }, audioPump);
+    }
+
+    assertTrue(completed.await(30, TimeUnit.SECONDS));
+    long[] latencies = new long[sessions];
+    synchronized (firstResultNanos) {
+      for (int i = 0; i < sessions; i++) {
+        assertTrue(firstResultNanos[i] > 0);
+        latencies[i] = firstResultNanos[i] - start;
+      }
+    }
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  /**
+   * Test that a {@link RecognizeSession} sends several utterances over one WebSocket connection.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeSessionReusesConnection() throws Exception {
+    final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    final String results = GSON.toJson(recognitionResults);
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+      @Override
+      public void onMessage(WebSocket webSocket, ByteString bytes) {
+        received.add(bytes.utf8());
+      }
+
+      @Override
+      public void onMessage(WebSocket webSocket, String text) {
+        received.add(text);
+        if (text.contains("start")) {
+          webSocket.send("{\"state\": {}}");
+        } else if (text.contains("stop")) {
+          webSocket.send(results);
+          webSocket.send("{\"state\": {}}");
+        }
+      }
+
+      @Override
+      public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(1000, null);
+      }
+    }));
+
+    RecognizeSession session = service.createRecognizeSession();
+    TestRecognizeCallback first = new TestRecognizeCallback();
+    TestRecognizeCallback second = new TestRecognizeCallback();
+    session.recognize(new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream("one".getBytes("UTF-8")))
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build(), first);
+    session.recognize(new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream("two".getBytes("UTF-8")))
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build(), second);
+
+    first.assertConnected();
+    assertNotNull(first.speechResults.poll(10, TimeUnit.SECONDS));
+    second.assertConnected();
+    assertNotNull(second.speechResults.poll(10, TimeUnit.SECONDS));
+    assertNotNull(second.onTranscriptionCompleteCalls.poll(10, TimeUnit.SECONDS));
+    assertEquals(1, first.onTranscriptionCompleteCalls.size());
+
+    String start = "{\"content-type\":\"audio/l16; rate=44000\",\"action\":\"start\"}";
+    String stop = "{\"action\":\"stop\"}";
+    for (String expected : Arrays.asList(start, "one", stop, start, "two", stop)) {
+      assertEquals(expected, received.poll(10, TimeUnit.SECONDS));
+    }
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, session.getConnectionCount());
+
+    session.close();
+    first.assertNoErrors();
+    second.assertNoErrors();
+  }
+
+  /**
+   * Test that the callbacks of a {@link RecognizeSession} run without its lock held, so they can wait for other
+   * threads which use the session and can submit the next utterance themselves.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeSessionCallbacksDoNotHoldLock() throws Exception {
+    final String results = GSON.toJson(recognitionResults);
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+      @Override
+      public void onMessage(WebSocket webSocket, String text) {
+        if (text.contains("start")) {
+          webSocket.send("{\"state\": {}}");
+        } else if (text.contains("stop")) {
+          webSocket.send(results);
+          webSocket.send("{\"state\": {}}");
+        }
+      }
+
+      @Override
+      public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(1000, null);
+      }
+    }));
+
+    final RecognizeSession session = service.createRecognizeSession();
+    final RecognizeOptions options = new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream("one".getBytes("UTF-8")))
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build();
+    final TestRecognizeCallback second = new TestRecognizeCallback();
+    final BlockingQueue<Boolean> otherThreadDone = new LinkedBlockingQueue<>();
+    session.recognize(options, new BaseRecognizeCallback() {
+      @Override
+      public void onTranscription(SpeechRecognitionResults speechResults) {
+        Thread other = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            session.getPendingUtterances();
+          }
+        });
+        other.start();
+        try {
+          other.join(5000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        otherThreadDone.add(!other.isAlive());
+      }
+
+      @Override
+      public void onTranscriptionComplete() {
+        session.recognize(new RecognizeOptions.Builder()
+            .audio(new ByteArrayInputStream("two".getBytes(StandardCharsets.UTF_8)))
+            .contentType(HttpMediaType.createAudioRaw(44000))
+            .build(), second);
+      }
+    });
+
+    assertEquals(Boolean.TRUE, otherThreadDone.poll(10, TimeUnit.SECONDS));
+    assertNotNull(second.onTranscriptionCompleteCalls.poll(10, TimeUnit.SECONDS));
+    second.assertNoErrors();
+    assertEquals(1, session.getConnectionCount());
+    session.close();
+  }
+
+  /**
+   * Test that an utterance submitted after the service reported an error is sent on a new connection, even when the
+   * failed connection has not finished closing.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeSessionReconnectsAfterError() throws Exception {
+    final String results = GSON.toJson(recognitionResults);
+    final CountDownLatch answerClose = new CountDownLatch(1);
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+      @Override
+      public void onMessage(WebSocket webSocket, String text) {
+        if (text.contains("start")) {
+          webSocket.send("{\"error\": \"Unable to transcode data stream\"}");
+        }
+      }
+
+      @Override
+      public void onClosing(WebSocket webSocket, int code, String reason) {
+        // Keep the failed connection in the closing state until the next utterance has been recognized.
+        try {
+          answerClose.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        webSocket.close(1000, null);
+      }
+    }));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+      @Override
+      public void onMessage(WebSocket webSocket, String text) {
+        if (text.contains("start")) {
+          webSocket.send("{\"state\": {}}");
+        } else if (text.contains("stop")) {
+          webSocket.send(results);
+          webSocket.send("{\"state\": {}}");
+        }
+      }
+
+      @Override
+      public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(1000, null);
+      }
+    }));
+
+    RecognizeSession session = service.createRecognizeSession();
+    TestRecognizeCallback first = new TestRecognizeCallback();
+    TestRecognizeCallback second = new TestRecognizeCallback();
+    session.recognize(new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream("one".getBytes("UTF-8")))
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build(), first);
+    Exception error = first.errors.poll(10, TimeUnit.SECONDS);
+    assertEquals("Unable to transcode data stream", error.getMessage());
+
+    session.recognize(new RecognizeOptions.Builder()
+        .audio(new ByteArrayInputStream("two".getBytes("UTF-8")))
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build(), second);
+    assertNotNull(second.speechResults.poll(10, TimeUnit.SECONDS));
+    assertNotNull(second.onTranscriptionCompleteCalls.poll(10, TimeUnit.SECONDS));
+    second.assertNoErrors();
+    assertEquals(2, session.getConnectionCount());
+    answerClose.countDown();
+    session.close();
+  }
+
+  /**
+   * Test that WebSocket messages are dispatched on their type: results, inactivity timeouts and errors.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRecognizeWebSocketMessageTypes() throws Exception {
+    final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    WebSocketRecorder webSocketRecorder = new WebSocketRecorder("server");
+    PipedOutputStream outputStream = new PipedOutputStream();
+    InputStream inputStream = new PipedInputStream(outputStream);
+
+    server.enqueue(new MockResponse().withWebSocketUpgrade(webSocketRecorder));
+
+    RecognizeOptions options = new RecognizeOptions.Builder()
+        .audio(inputStream)
+        .contentType(HttpMediaType.createAudioRaw(44000))
+        .build();
+    service.recognizeUsingWebSocket(options, new BaseRecognizeCallback() {
+      @Override
+      public void onTranscription(SpeechRecognitionResults speechResults) {
+        events.add(speechResults);
+      }
+
+      @Override
+      public void onError(Exception e) {
+        events.add(e);
+      }
+
+      @Override
+      public void onInactivityTimeout(RuntimeException runtimeException) {
+        events.add(runtimeException.getMessage());
+      }
+    });
+
+    WebSocket serverSocket = webSocketRecorder.assertOpen();
+    serverSocket.send("{\"state\": \"listening\"}");
+    serverSocket.send(GSON.toJson(recognitionResults));
+    serverSocket.send("{\"error\": \"No speech detected for 5s\"}");
+    serverSocket.send("{\"error\": \"Unable to transcode data stream\"}");
+
+    SpeechRecognitionResults results = (SpeechRecognitionResults) events.poll(10, TimeUnit.SECONDS);
+    assertEquals(recognitionResults, results);
+    assertEquals("No speech detected for 5s", events.poll(10, TimeUnit.SECONDS));
+    Exception error = (Exception) events.poll(10, TimeUnit.SECONDS);
+    assertEquals("Unable to transcode data stream", error.getMessage());
+
+    outputStream.close();
+    serverSocket.close(1000, null);
+  }
+
   @Test
   public void testAddGrammar() throws FileNotFoundException, InterruptedException {
     MockResponse desiredResponse = new MockResponse().setResponseCode(200);
@@ -1578,6 +2252,77 @@ public class SpeechToTextTest extends WatsonServiceUnitTest {
 
   // --- HELPERS ---
 
+  /**
+   * An audio stream which counts its reads and records whether it was closed.
+   */
+  private static class RecordingInputStream extends ByteArrayInputStream {
+    private int reads;
+    private boolean closed;
+
+    RecordingInputStream(byte[] audio) {
+      super(audio);
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) {
+      reads++;
+      return super.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+
+  /**
+   * A WebSocket which records the messages sent to it, and rejects binary frames after the given number.
+   */
+  private static class RecordingWebSocket implements WebSocket {
+    private final List<String> textMessages = new ArrayList<>();
+    private final int acceptedFrames;
+    private int binaryFrames;
+
+    RecordingWebSocket(int acceptedFrames) {
+      this.acceptedFrames = acceptedFrames;
+    }
+
+    @Override
+    public Request request() {
+      return new Request.Builder().url("http://localhost/").build();
+    }
+
+    @Override
+    public long queueSize() {
+      return 0;
+    }
+
+    @Override
+    public boolean send(String text) {
+      textMessages.add(text);
+      return true;
+    }
+
+    @Override
+    public boolean send(ByteString bytes) {
+      if (binaryFrames == acceptedFrames) {
+        return false;
+      }
+      binaryFrames++;
+      return true;
+    }
+
+    @Override
+    public boolean close(int code, String reason) {
+      return true;
+    }
+
+    @Override
+    public void cancel() {
+    }
+  }
+
   private static class TestRecognizeCallback implements RecognizeCallback {
 
     private final BlockingQueue<SpeechRecognitionResults> speechResults = new LinkedBlockingQueue<>();
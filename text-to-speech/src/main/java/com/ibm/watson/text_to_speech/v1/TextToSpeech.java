@@ -17,11 +17,13 @@ import com.ibm.cloud.sdk.core.http.RequestBuilder;
 import com.ibm.cloud.sdk.core.http.ResponseConverter;
 import com.ibm.cloud.sdk.core.http.ServiceCall;
 import com.ibm.cloud.sdk.core.security.AuthenticatorConfig;
-import com.ibm.cloud.sdk.core.service.BaseService;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.cloud.sdk.core.util.ResponseConverterUtils;
 import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.common.SdkCommon;
+import com.ibm.watson.common.WatsonService;
+import com.ibm.watson.common.http.SharedTransport;
+import com.ibm.watson.common.metrics.SdkMetrics;
 import com.ibm.watson.text_to_speech.v1.model.AddWordOptions;
 import com.ibm.watson.text_to_speech.v1.model.AddWordsOptions;
 import com.ibm.watson.text_to_speech.v1.model.CreateVoiceModelOptions;
@@ -44,12 +46,16 @@ import com.ibm.watson.text_to_speech.v1.model.VoiceModel;
 import com.ibm.watson.text_to_speech.v1.model.VoiceModels;
 import com.ibm.watson.text_to_speech.v1.model.Voices;
 import com.ibm.watson.text_to_speech.v1.model.Words;
+import com.ibm.watson.text_to_speech.v1.util.SynthesisCache;
 import com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback;
+import com.ibm.watson.text_to_speech.v1.websocket.SynthesizePublisher;
+import com.ibm.watson.text_to_speech.v1.websocket.SynthesizeStream;
 import com.ibm.watson.text_to_speech.v1.websocket.TextToSpeechWebSocketListener;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
 
 import java.io.InputStream;
 import java.util.Map;
@@ -74,11 +80,13 @@ import java.util.Map.Entry;
  * @version v1
  * @see <a href="http://www.ibm.com/watson/developercloud/text-to-speech.html">Text to Speech</a>
  */
-public class TextToSpeech extends BaseService {
+public class TextToSpeech extends WatsonService {
 
   private static final String SERVICE_NAME = "text_to_speech";
   private static final String URL = "https://stream.watsonplatform.net/text-to-speech/api";
 
+  private SynthesisCache synthesisCache;
+
   /**
    * Instantiates a new `TextToSpeech`.
    *
@@ -118,6 +126,33 @@ public class TextToSpeech extends BaseService {
     setAuthenticator(authenticatorConfig);
   }
 
+  /**
+   * Sets the cache for the audio returned by {@link #synthesize(SynthesizeOptions)}. Requests with the same text,
+   * voice, customization ID and accept type are answered from the cache, and requests which change a custom voice model
+   * invalidate the audio synthesized with it. Set the cache again after replacing the HTTP client with
+   * {@link #setClient(OkHttpClient)}.
+   *
+   * @param synthesisCache the cache, or null to stop caching
+   */
+  public void setSynthesisCache(SynthesisCache synthesisCache) {
+    OkHttpClient.Builder builder = getClient().newBuilder();
+    builder.interceptors().remove(this.synthesisCache);
+    if (synthesisCache != null) {
+      builder.addInterceptor(synthesisCache);
+    }
+    this.synthesisCache = synthesisCache;
+    setClient(builder.build());
+  }
+
+  /**
+   * Gets the cache for the audio returned by {@link #synthesize(SynthesizeOptions)}.
+   *
+   * @return the cache, or null if audio is not cached
+   */
+  public SynthesisCache getSynthesisCache() {
+    return synthesisCache;
+  }
+
   /**
    * List voices.
    *
@@ -318,8 +353,36 @@ public class TextToSpeech extends BaseService {
     setAuthentication(builder);
     setDefaultHeaders(builder);
 
-    OkHttpClient client = configureHttpClient();
-    return client.newWebSocket(builder.build(), new TextToSpeechWebSocketListener(synthesizeOptions, callback));
+    WebSocketListener listener = SdkMetrics.instrument(this, new TextToSpeechWebSocketListener(synthesizeOptions,
+        callback), SERVICE_NAME, "synthesizeUsingWebSocket");
+    OkHttpClient client = SharedTransport.webSocketClient(getClient());
+    return client.newWebSocket(builder.build(), listener);
+  }
+
+  /**
+   * Creates a stream which synthesizes text that becomes available a piece at a time, for example sentence by sentence.
+   * Each segment written to the stream is synthesized as soon as the segments before it are done, and the audio of all
+   * segments is delivered in order to the callback.
+   *
+   * @param synthesizeOptions the options shared by all segments. The text of the options, if not empty, is synthesized
+   *          as the first segment.
+   * @param callback the {@link SynthesizeCallback} instance where the audio will be sent
+   * @return the synthesize stream
+   */
+  public SynthesizeStream createSynthesizeStream(SynthesizeOptions synthesizeOptions, SynthesizeCallback callback) {
+    return new SynthesizeStream(this, synthesizeOptions, callback, SynthesizeStream.DEFAULT_MAX_PENDING_SEGMENTS);
+  }
+
+  /**
+   * Creates a Reactive Streams {@link org.reactivestreams.Publisher} of the events of a synthesis over a WebSocket
+   * connection. The synthesis starts when a subscriber subscribes, and the connection is read only as fast as the
+   * subscriber requests events, so the audio is received no faster than it is consumed.
+   *
+   * @param synthesizeOptions the synthesize options
+   * @return the {@link SynthesizePublisher}
+   */
+  public SynthesizePublisher createSynthesizePublisher(SynthesizeOptions synthesizeOptions) {
+    return new SynthesizePublisher(this, synthesizeOptions, SynthesizePublisher.DEFAULT_BUFFER_SIZE);
   }
 
   /**
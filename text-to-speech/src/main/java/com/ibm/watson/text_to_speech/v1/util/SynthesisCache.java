@@ -0,0 +1,701 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.text_to_speech.v1.util;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.text_to_speech.v1.TextToSpeech;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An opt-in cache for the audio returned by {@link TextToSpeech#synthesize}, for applications which synthesize the same
+ * prompts over and over.<br>
+ * <br>
+ * Responses are keyed on a SHA-256 hash of the text, voice, customization ID and accept type of the request. The cache
+ * has a size-bounded, least-recently-used in-memory tier and an optional on-disk tier which survives restarts; audio
+ * found on disk is served from a memory-mapped file. Whenever a request changes a custom voice model, for example
+ * {@link TextToSpeech#updateVoiceModel} or {@link TextToSpeech#addWords}, the audio synthesized with that model is
+ * invalidated. Audio whose synthesis started before such a change, or before {@link #clear()}, is not cached.<br>
+ * <br>
+ * Audio is written to disk in the background, so a miss does not wait for the disk; until the write has finished the
+ * audio is only served from memory. When the disk cannot keep up, further audio is only cached in memory.<br>
+ * <br>
+ * Cached responses are read completely before they are returned, so the cache suits prompts rather than long texts.
+ *
+ * @see TextToSpeech#setSynthesisCache(SynthesisCache)
+ */
+public final class SynthesisCache implements Interceptor {
+  private static final Logger LOG = Logger.getLogger(SynthesisCache.class.getName());
+
+  private static final long DEFAULT_MAX_MEMORY_BYTES = 32L * 1024 * 1024;
+  private static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+  private static final int MAX_PENDING_DISK_WRITES = 64;
+  private static final String DISK_WRITER_THREAD = "SynthesisCacheWriter";
+
+  private static final String SYNTHESIZE_PATH = "/v1/synthesize";
+  private static final String CUSTOMIZATIONS_PATH = "/v1/customizations/";
+  private static final String VOICE = "voice";
+  private static final String CUSTOMIZATION_ID = "customization_id";
+  private static final String ACCEPT = "Accept";
+  private static final String CONTENT_TYPE = "Content-Type";
+  private static final String POST = "POST";
+  private static final String GET = "GET";
+  private static final int HTTP_OK = 200;
+
+  private static final String FILE_SUFFIX = ".audio";
+  private static final char PREFIX_SEPARATOR = '_';
+  private static final int PREFIX_LENGTH = 16;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final long maxMemoryBytes;
+  private final Path directory;
+  private final long maxDiskBytes;
+  private final Executor diskExecutor;
+
+  private final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, DiskEntry> disk = new LinkedHashMap<>(16, 0.75f, true);
+  private long memoryBytes;
+  private long diskBytes;
+  // Incremented by every invalidation, so audio requested before it is not cached.
+  private long generation;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong bytesSaved = new AtomicLong();
+
+  /**
+   * Builder.
+   */
+  public static class Builder {
+    private long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+    private File directory;
+    private long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+    private Executor diskExecutor;
+
+    /**
+     * Instantiates a new builder.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Builds a SynthesisCache. If a directory was set, the audio cached there by earlier runs is available right away.
+     *
+     * @return the synthesisCache
+     */
+    public SynthesisCache build() {
+      return new SynthesisCache(this);
+    }
+
+    /**
+     * Set the number of audio bytes kept in memory. Defaults to 32 MB.
+     *
+     * @param maxMemoryBytes the size of the in-memory tier in bytes
+     * @return the SynthesisCache builder
+     */
+    public Builder maxMemoryBytes(long maxMemoryBytes) {
+      this.maxMemoryBytes = maxMemoryBytes;
+      return this;
+    }
+
+    /**
+     * Set the directory of the on-disk tier. By default audio is only cached in memory.
+     *
+     * @param directory the directory, which is created if it does not exist
+     * @return the SynthesisCache builder
+     */
+    public Builder directory(File directory) {
+      this.directory = directory;
+      return this;
+    }
+
+    /**
+     * Set the number of audio bytes kept on disk. Defaults to 512 MB.
+     *
+     * @param maxDiskBytes the size of the on-disk tier in bytes
+     * @return the SynthesisCache builder
+     */
+    public Builder maxDiskBytes(long maxDiskBytes) {
+      this.maxDiskBytes = maxDiskBytes;
+      return this;
+    }
+
+    /**
+     * Set the executor which writes audio to the on-disk tier. By default audio is written by a single daemon thread.
+     *
+     * @param diskExecutor the executor
+     * @return the SynthesisCache builder
+     */
+    public Builder diskExecutor(Executor diskExecutor) {
+      this.diskExecutor = diskExecutor;
+      return this;
+    }
+  }
+
+  private SynthesisCache(Builder builder) {
+    Validator.isTrue(builder.maxMemoryBytes >= 0, "maxMemoryBytes cannot be negative");
+    Validator.isTrue(builder.maxDiskBytes >= 0, "maxDiskBytes cannot be negative");
+    maxMemoryBytes = builder.maxMemoryBytes;
+    maxDiskBytes = builder.maxDiskBytes;
+    directory = (builder.directory != null) ? builder.directory.toPath() : null;
+    diskExecutor = (builder.diskExecutor != null || directory == null) ? builder.diskExecutor : newDiskExecutor();
+    if (directory != null) {
+      try {
+        Files.createDirectories(directory);
+        loadDiskIndex();
+      } catch (IOException e) {
+        throw new IllegalArgumentException("The cache directory " + directory + " cannot be used", e);
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+   */
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String path = request.url().encodedPath();
+
+    if (POST.equals(request.method()) && path.endsWith(SYNTHESIZE_PATH)) {
+      return synthesize(chain, request);
+    }
+
+    Response response = chain.proceed(request);
+    int index = path.indexOf(CUSTOMIZATIONS_PATH);
+    if (!GET.equals(request.method()) && index >= 0 && response.isSuccessful()) {
+      String rest = path.substring(index + CUSTOMIZATIONS_PATH.length());
+      int end = rest.indexOf('/');
+      String customizationId = (end >= 0) ? rest.substring(0, end) : rest;
+      if (!customizationId.isEmpty()) {
+        invalidate(customizationId);
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Removes the audio synthesized with a custom voice model from both tiers.
+   *
+   * @param customizationId the customization ID of the custom voice model
+   */
+  public void invalidate(String customizationId) {
+    Validator.notNull(customizationId, "customizationId cannot be null");
+    String prefix = prefix(customizationId);
+    List<Path> deleted = new ArrayList<>();
+    synchronized (this) {
+      generation++;
+      for (Iterator<Entry> it = memory.values().iterator(); it.hasNext();) {
+        Entry entry = it.next();
+        if (prefix.equals(entry.prefix)) {
+          memoryBytes -= entry.audio.length;
+          it.remove();
+        }
+      }
+      for (Iterator<DiskEntry> it = disk.values().iterator(); it.hasNext();) {
+        DiskEntry entry = it.next();
+        if (prefix.equals(entry.prefix)) {
+          diskBytes -= entry.size;
+          deleted.add(entry.path);
+          it.remove();
+        }
+      }
+    }
+    delete(deleted);
+  }
+
+  /**
+   * Removes all audio from both tiers.
+   */
+  public void clear() {
+    List<Path> deleted = new ArrayList<>();
+    synchronized (this) {
+      generation++;
+      memory.clear();
+      memoryBytes = 0;
+      for (DiskEntry entry : disk.values()) {
+        deleted.add(entry.path);
+      }
+      disk.clear();
+      diskBytes = 0;
+    }
+    delete(deleted);
+  }
+
+  /**
+   * Gets the number of requests answered from memory.
+   *
+   * @return the number of memory hits
+   */
+  public long getMemoryHitCount() {
+    return memoryHits.get();
+  }
+
+  /**
+   * Gets the number of requests answered from disk.
+   *
+   * @return the number of disk hits
+   */
+  public long getDiskHitCount() {
+    return diskHits.get();
+  }
+
+  /**
+   * Gets the number of requests which had to be sent to the service.
+   *
+   * @return the number of misses
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the share of requests answered from the cache.
+   *
+   * @return the hit ratio between 0 and 1, or 0 if no request was made
+   */
+  public double getHitRatio() {
+    long hits = memoryHits.get() + diskHits.get();
+    long total = hits + misses.get();
+    return (total == 0) ? 0 : (double) hits / total;
+  }
+
+  /**
+   * Gets the number of audio bytes served from the cache instead of being downloaded from the service.
+   *
+   * @return the number of bytes saved
+   */
+  public long getBytesSaved() {
+    return bytesSaved.get();
+  }
+
+  /**
+   * Gets the number of audio bytes in the in-memory tier.
+   *
+   * @return the size of the in-memory tier in bytes
+   */
+  public synchronized long getMemorySize() {
+    return memoryBytes;
+  }
+
+  /**
+   * Gets the number of bytes in the on-disk tier.
+   *
+   * @return the size of the on-disk tier in bytes
+   */
+  public synchronized long getDiskSize() {
+    return diskBytes;
+  }
+
+  private Response synthesize(Chain chain, Request request) throws IOException {
+    String customizationId = request.url().queryParameter(CUSTOMIZATION_ID);
+    String prefix = (customizationId != null) ? prefix(customizationId) : null;
+    String key = key(request);
+
+    Entry entry;
+    DiskEntry diskEntry = null;
+    long lookupGeneration;
+    synchronized (this) {
+      lookupGeneration = generation;
+      entry = memory.get(key);
+      if (entry == null) {
+        diskEntry = disk.get(key);
+      }
+    }
+    if (entry != null) {
+      memoryHits.incrementAndGet();
+      bytesSaved.addAndGet(entry.audio.length);
+      return response(request, entry.contentType, ResponseBody.create(MediaType.parse(entry.contentType),
+          entry.audio));
+    }
+    if (diskEntry != null) {
+      Response response = readFromDisk(request, key, diskEntry, lookupGeneration);
+      if (response != null) {
+        return response;
+      }
+    }
+
+    misses.incrementAndGet();
+    Response response = chain.proceed(request);
+    if (response.code() != HTTP_OK || response.body() == null) {
+      return response;
+    }
+    String contentType = response.header(CONTENT_TYPE);
+    if (contentType == null) {
+      contentType = "application/octet-stream";
+    }
+    byte[] audio = response.body().bytes();
+    put(key, new Entry(prefix, contentType, audio), lookupGeneration);
+    return response.newBuilder()
+        .body(ResponseBody.create(MediaType.parse(contentType), audio))
+        .build();
+  }
+
+  private Response readFromDisk(Request request, String key, DiskEntry diskEntry, long lookupGeneration) {
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(diskEntry.path, StandardOpenOption.READ)) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Cached audio could not be read from " + diskEntry.path, e);
+      removeFromDisk(key, diskEntry);
+      return null;
+    }
+
+    int contentTypeLength = (mapped.remaining() >= 2) ? mapped.getShort() : -1;
+    if (contentTypeLength < 0 || contentTypeLength > mapped.remaining()) {
+      LOG.log(Level.FINE, "Ignoring corrupt cache file " + diskEntry.path);
+      removeFromDisk(key, diskEntry);
+      return null;
+    }
+    byte[] contentTypeBytes = new byte[contentTypeLength];
+    mapped.get(contentTypeBytes);
+    String contentType = new String(contentTypeBytes, UTF_8);
+    ByteBuffer audio = mapped.slice();
+
+    diskHits.incrementAndGet();
+    bytesSaved.addAndGet(audio.remaining());
+    if (audio.remaining() <= maxMemoryBytes / 2) {
+      // promote small entries, so the next hit does not touch the file
+      byte[] bytes = new byte[audio.remaining()];
+      audio.duplicate().get(bytes);
+      putInMemory(key, new Entry(diskEntry.prefix, contentType, bytes), lookupGeneration);
+    }
+    return response(request, contentType, ResponseBody.create(MediaType.parse(contentType), audio.remaining(),
+        Okio.buffer(new ByteBufferSource(audio))));
+  }
+
+  private void removeFromDisk(String key, DiskEntry diskEntry) {
+    synchronized (this) {
+      if (disk.get(key) != diskEntry) {
+        return;
+      }
+      disk.remove(key);
+      diskBytes -= diskEntry.size;
+    }
+    delete(Collections.singletonList(diskEntry.path));
+  }
+
+  private static Response response(Request request, String contentType, ResponseBody body) {
+    return new Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(HTTP_OK)
+        .message("OK")
+        .header(CONTENT_TYPE, contentType)
+        .body(body)
+        .build();
+  }
+
+  /**
+   * Caches audio in memory, and writes it to disk in the background.
+   *
+   * @param key the key of the audio
+   * @param entry the audio
+   * @param lookupGeneration the generation in which the audio was requested
+   */
+  private void put(final String key, final Entry entry, final long lookupGeneration) {
+    putInMemory(key, entry, lookupGeneration);
+    if (directory == null || entry.audio.length > maxDiskBytes) {
+      return;
+    }
+    try {
+      diskExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          writeToDisk(key, entry, lookupGeneration);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOG.log(Level.FINE, "Audio not cached on disk because earlier audio is still being written", e);
+    }
+  }
+
+  private synchronized void putInMemory(String key, Entry entry, long lookupGeneration) {
+    if (entry.audio.length > maxMemoryBytes || lookupGeneration != generation) {
+      return;
+    }
+    Entry previous = memory.put(key, entry);
+    if (previous != null) {
+      memoryBytes -= previous.audio.length;
+    }
+    memoryBytes += entry.audio.length;
+    for (Iterator<Entry> it = memory.values().iterator(); memoryBytes > maxMemoryBytes && it.hasNext();) {
+      memoryBytes -= it.next().audio.length;
+      it.remove();
+    }
+  }
+
+  private void writeToDisk(String key, Entry entry, long lookupGeneration) {
+    synchronized (this) {
+      if (lookupGeneration != generation) {
+        return;
+      }
+    }
+    byte[] contentType = entry.contentType.getBytes(UTF_8);
+    ByteBuffer header = ByteBuffer.allocate(2 + contentType.length);
+    header.putShort((short) contentType.length).put(contentType).flip();
+    Path target = directory.resolve(fileName(entry.prefix, key));
+    long size = header.remaining() + entry.audio.length;
+
+    Path temp = null;
+    try {
+      // write to a temporary file first, so a crash never leaves a truncated entry behind
+      temp = Files.createTempFile(directory, "synthesis", ".tmp");
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        ByteBuffer audio = ByteBuffer.wrap(entry.audio);
+        ByteBuffer[] buffers = { header, audio };
+        while (header.hasRemaining() || audio.hasRemaining()) {
+          channel.write(buffers);
+        }
+      }
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Audio could not be cached in " + directory, e);
+      if (temp != null) {
+        delete(Collections.singletonList(temp));
+      }
+      return;
+    }
+
+    List<Path> deleted = new ArrayList<>();
+    synchronized (this) {
+      DiskEntry previous;
+      if (lookupGeneration != generation) {
+        // The cache was invalidated while the audio was being written. The file has replaced any earlier one of the
+        // same key, so that one is dropped as well.
+        previous = disk.remove(key);
+        deleted.add(target);
+      } else {
+        previous = disk.put(key, new DiskEntry(entry.prefix, target, size));
+        diskBytes += size;
+      }
+      if (previous != null) {
+        diskBytes -= previous.size;
+      }
+      evictFromDisk(deleted);
+    }
+    delete(deleted);
+  }
+
+  /**
+   * Removes the least recently used entries from the on-disk tier until it fits. Must be called while holding the
+   * lock.
+   *
+   * @param deleted the list to add the files to delete to
+   */
+  private void evictFromDisk(List<Path> deleted) {
+    for (Iterator<DiskEntry> it = disk.values().iterator(); diskBytes > maxDiskBytes && it.hasNext();) {
+      DiskEntry entry = it.next();
+      diskBytes -= entry.size;
+      deleted.add(entry.path);
+      it.remove();
+    }
+  }
+
+  private void loadDiskIndex() throws IOException {
+    final Map<Path, Long> modified = new LinkedHashMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+      for (Path file : files) {
+        modified.put(file, Files.getLastModifiedTime(file).toMillis());
+      }
+    }
+    List<Path> files = new ArrayList<>(modified.keySet());
+    // oldest first, so the access order of the index matches the age of the files
+    Collections.sort(files, new Comparator<Path>() {
+      @Override
+      public int compare(Path a, Path b) {
+        return modified.get(a).compareTo(modified.get(b));
+      }
+    });
+
+    List<Path> deleted = new ArrayList<>();
+    synchronized (this) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - FILE_SUFFIX.length());
+        int separator = name.indexOf(PREFIX_SEPARATOR);
+        String prefix = (separator >= 0) ? name.substring(0, separator) : null;
+        String key = name.substring(separator + 1);
+        long size = Files.size(file);
+        disk.put(key, new DiskEntry(prefix, file, size));
+        diskBytes += size;
+      }
+      evictFromDisk(deleted);
+    }
+    delete(deleted);
+  }
+
+  private static Executor newDiskExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(MAX_PENDING_DISK_WRITES), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, DISK_WRITER_THREAD);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static void delete(List<Path> files) {
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "Cached audio could not be deleted: " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Hashes the parameters of a synthesize request which determine the audio.
+   *
+   * @param request the request
+   * @return the key
+   * @throws IOException if the body cannot be read
+   */
+  private static String key(Request request) throws IOException {
+    Buffer buffer = new Buffer();
+    writeField(buffer, request.url().queryParameter(VOICE));
+    writeField(buffer, request.url().queryParameter(CUSTOMIZATION_ID));
+    writeField(buffer, request.header(ACCEPT));
+    if (request.body() != null) {
+      request.body().writeTo(buffer);
+    }
+    return buffer.sha256().hex();
+  }
+
+  private static void writeField(Buffer buffer, String value) {
+    if (value != null) {
+      buffer.writeUtf8(value);
+    }
+    buffer.writeByte(0);
+  }
+
+  /**
+   * Derives a file name safe prefix from a customization ID.
+   *
+   * @param customizationId the customization ID
+   * @return the prefix
+   */
+  private static String prefix(String customizationId) {
+    return ByteString.encodeUtf8(customizationId).sha256().hex().substring(0, PREFIX_LENGTH);
+  }
+
+  private static String fileName(String prefix, String key) {
+    return ((prefix != null) ? prefix + PREFIX_SEPARATOR : "") + key + FILE_SUFFIX;
+  }
+
+  /**
+   * Audio cached in memory.
+   */
+  private static final class Entry {
+    private final String prefix;
+    private final String contentType;
+    private final byte[] audio;
+
+    private Entry(String prefix, String contentType, byte[] audio) {
+      this.prefix = prefix;
+      this.contentType = contentType;
+      this.audio = audio;
+    }
+  }
+
+  /**
+   * Audio cached on disk.
+   */
+  private static final class DiskEntry {
+    private final String prefix;
+    private final Path path;
+    private final long size;
+
+    private DiskEntry(String prefix, Path path, long size) {
+      this.prefix = prefix;
+      this.path = path;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Reads a (memory-mapped) buffer without copying it to the heap first.
+   */
+  private static final class ByteBufferSource implements Source {
+    private final ByteBuffer buffer;
+
+    private ByteBufferSource(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      ByteBuffer chunk = buffer.duplicate();
+      chunk.limit(chunk.position() + (int) Math.min(byteCount, buffer.remaining()));
+      int read = sink.write(chunk);
+      buffer.position(buffer.position() + read);
+      return read;
+    }
+
+    @Override
+    public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
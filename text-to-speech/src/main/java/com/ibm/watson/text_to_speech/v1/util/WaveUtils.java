@@ -12,12 +12,16 @@
  */
 package com.ibm.watson.text_to_speech.v1.util;
 
+import com.ibm.cloud.sdk.core.util.Validator;
 import com.ibm.watson.text_to_speech.v1.TextToSpeech;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 
 /**
  * Utility class to write the data size header in wave(.wav) files synthesized with the {@link TextToSpeech} service.
@@ -32,6 +36,15 @@ public final class WaveUtils {
   /** The WAVE meta-data size position. (value is 4) */
   private static final int WAVE_SIZE_POS = 4;
 
+  /** The size of a header size field in bytes. (value is 4) */
+  private static final int SIZE_FIELD_LENGTH = 4;
+
+  /** The largest size a WAVE file can have, since the sizes are unsigned 32-bit values. */
+  private static final long MAX_WAVE_SIZE = 0xFFFFFFFFL + WAVE_HEADER_SIZE;
+
+  /** The buffer size used to copy audio. (value is 16 kb) */
+  private static final int BUFFER_SIZE = 16384;
+
   private WaveUtils() {
     // This is a utility class - no instantiation allowed.
   }
@@ -51,7 +64,10 @@ public final class WaveUtils {
 
   /**
    * Re-writes the data size in the header(bytes 4-8) of the WAVE(.wav) input stream.<br>
-   * It needs to be read in order to calculate the size.
+   * It needs to be read in order to calculate the size, so the whole audio is held in memory. Use
+   * {@link #reWriteWaveHeader(InputStream, long)} when the size is known in advance, or
+   * {@link #writeWave(InputStream, SeekableByteChannel)} to write the audio to a file, to process the audio with a
+   * constant amount of memory.
    *
    * @param is the input stream
    * @return A new input stream that includes the data header in the header
@@ -67,6 +83,72 @@ public final class WaveUtils {
     return new ByteArrayInputStream(audioBytes);
   }
 
+  /**
+   * Re-writes the data size in the header(bytes 4-8) of a WAVE(.wav) input stream whose total size is known in
+   * advance, for example from the {@code Content-Length} header of the response.<br>
+   * The returned stream patches the header as it passes through and emits the audio as it arrives, without buffering
+   * it.
+   *
+   * @param is the input stream
+   * @param size the total size of the WAVE stream in bytes
+   * @return A new input stream that includes the data header in the header
+   */
+  public static InputStream reWriteWaveHeader(InputStream is, long size) {
+    Validator.notNull(is, "is cannot be null");
+    Validator.isTrue(size >= WAVE_METADATA_POS + SIZE_FIELD_LENGTH && size <= MAX_WAVE_SIZE,
+        "size must be between " + (WAVE_METADATA_POS + SIZE_FIELD_LENGTH) + " and " + MAX_WAVE_SIZE);
+    return new WaveHeaderInputStream(is, size);
+  }
+
+  /**
+   * Writes a WAVE(.wav) input stream to a seekable channel, such as a {@link java.nio.channels.FileChannel}, and
+   * re-writes the data size in the header(bytes 4-8) once the size is known.<br>
+   * The audio is copied through a fixed-size buffer, so the memory used does not depend on the length of the audio.
+   * The header is written at the position the channel had when this method was called, and the channel is left
+   * positioned after the audio. Neither the stream nor the channel are closed.
+   *
+   * @param is the input stream
+   * @param channel the channel to write the audio to
+   * @return the number of bytes written
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static long writeWave(InputStream is, SeekableByteChannel channel) throws IOException {
+    Validator.notNull(is, "is cannot be null");
+    Validator.notNull(channel, "channel cannot be null");
+
+    long start = channel.position();
+    long size = 0;
+    byte[] data = new byte[BUFFER_SIZE];
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    int nRead;
+    while ((nRead = is.read(data, 0, data.length)) != -1) {
+      buffer.clear();
+      buffer.limit(nRead);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      size += nRead;
+    }
+
+    // a stream too short to hold the header is not a WAVE stream, so it is left as it is
+    if (size >= WAVE_METADATA_POS + SIZE_FIELD_LENGTH) {
+      int filesize = (int) (size - WAVE_HEADER_SIZE);
+      writeInt(filesize, data, 0);
+      writeInt(filesize - WAVE_HEADER_SIZE, data, SIZE_FIELD_LENGTH);
+      writeFully(channel, start + WAVE_SIZE_POS, ByteBuffer.wrap(data, 0, SIZE_FIELD_LENGTH));
+      writeFully(channel, start + WAVE_METADATA_POS, ByteBuffer.wrap(data, SIZE_FIELD_LENGTH, SIZE_FIELD_LENGTH));
+      channel.position(start + size);
+    }
+    return size;
+  }
+
+  private static void writeFully(SeekableByteChannel channel, long position, ByteBuffer buffer) throws IOException {
+    channel.position(position);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
   /**
    * Converts an {@link InputStream} to byte array.
    *
@@ -79,7 +161,7 @@ public final class WaveUtils {
     ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
     int nRead;
-    byte[] data = new byte[16384]; // 4 kb
+    byte[] data = new byte[BUFFER_SIZE];
 
     while ((nRead = is.read(data, 0, data.length)) != -1) {
       buffer.write(data, 0, nRead);
@@ -89,4 +171,72 @@ public final class WaveUtils {
     return buffer.toByteArray();
   }
 
+  /**
+   * Input stream which replaces the size fields of a WAVE header with the sizes of a stream of known length.
+   */
+  private static final class WaveHeaderInputStream extends FilterInputStream {
+    private final byte[] fileSize = new byte[SIZE_FIELD_LENGTH];
+    private final byte[] dataSize = new byte[SIZE_FIELD_LENGTH];
+    private long position;
+
+    WaveHeaderInputStream(InputStream in, long size) {
+      super(in);
+      int filesize = (int) (size - WAVE_HEADER_SIZE);
+      writeInt(filesize, fileSize, 0);
+      writeInt(filesize - WAVE_HEADER_SIZE, dataSize, 0);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        b = patch(position, (byte) b) & 0xFF;
+        position++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int nRead = super.read(b, off, len);
+      if (nRead > 0) {
+        for (int i = 0; i < nRead && position + i < WAVE_METADATA_POS + SIZE_FIELD_LENGTH; i++) {
+          b[off + i] = patch(position + i, b[off + i]);
+        }
+        position += nRead;
+      }
+      return nRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+      // mark is not supported, since the header would be patched twice
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+      throw new IOException("mark/reset not supported");
+    }
+
+    private byte patch(long offset, byte value) {
+      if (offset >= WAVE_SIZE_POS && offset < WAVE_SIZE_POS + SIZE_FIELD_LENGTH) {
+        return fileSize[(int) (offset - WAVE_SIZE_POS)];
+      } else if (offset >= WAVE_METADATA_POS && offset < WAVE_METADATA_POS + SIZE_FIELD_LENGTH) {
+        return dataSize[(int) (offset - WAVE_METADATA_POS)];
+      }
+      return value;
+    }
+  }
 }
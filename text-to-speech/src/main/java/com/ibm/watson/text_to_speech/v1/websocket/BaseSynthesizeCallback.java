@@ -3,10 +3,11 @@ package com.ibm.watson.text_to_speech.v1.websocket;
 import com.ibm.watson.text_to_speech.v1.model.Marks;
 import com.ibm.watson.text_to_speech.v1.model.Timings;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class BaseSynthesizeCallback implements SynthesizeCallback {
+public class BaseSynthesizeCallback implements SynthesizeBufferCallback {
   private static final Logger LOG = Logger.getLogger(BaseSynthesizeCallback.class.getName());
 
   /*
@@ -75,4 +76,17 @@ public class BaseSynthesizeCallback implements SynthesizeCallback {
   @Override
   public void onAudioStream(byte[] bytes) {
   }
+
+  /**
+   * Copies the audio into a new array and passes it to {@link #onAudioStream(byte[])}. Override this method instead
+   * of {@link #onAudioStream(byte[])} to receive the audio without the copy.
+   *
+   * @param audio a read-only buffer with the audio
+   */
+  @Override
+  public void onAudioBuffer(ByteBuffer audio) {
+    byte[] bytes = new byte[audio.remaining()];
+    audio.get(bytes);
+    onAudioStream(bytes);
+  }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.text_to_speech.v1.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link SynthesizeCallback} which receives the synthesized audio as read-only {@link ByteBuffer}s that wrap the
+ * frames received from the WebSocket, so the audio is not copied before it is delivered.
+ */
+public interface SynthesizeBufferCallback extends SynthesizeCallback {
+
+  /**
+   * Called when the service returns a frame of audio in the specified audio format as a result of synthesis. It is
+   * called instead of {@link #onAudioStream(byte[])}.
+   *
+   * @param audio a read-only buffer with the audio in the specified audio format or the default
+   *          (audio/ogg;codecs=opus)
+   */
+  void onAudioBuffer(ByteBuffer audio);
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.text_to_speech.v1.websocket;
+
+import com.ibm.watson.text_to_speech.v1.model.Marks;
+import com.ibm.watson.text_to_speech.v1.model.Timings;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An event of a {@link SynthesizePublisher}, which corresponds to a method of {@link SynthesizeCallback}.
+ */
+public final class SynthesizeEvent {
+
+  /**
+   * The types of events.
+   */
+  public enum Type {
+    /** The WebSocket connection was made. */
+    CONNECTED,
+    /** The content type of the audio was received; see {@link SynthesizeEvent#getContentType()}. */
+    CONTENT_TYPE,
+    /** Word timings were received; see {@link SynthesizeEvent#getTimings()}. */
+    TIMINGS,
+    /** SSML marks were received; see {@link SynthesizeEvent#getMarks()}. */
+    MARKS,
+    /** A frame of audio was received; see {@link SynthesizeEvent#getAudio()}. */
+    AUDIO,
+    /** The service returned a warning; see {@link SynthesizeEvent#getWarning()}. */
+    WARNING,
+    /** The WebSocket connection was closed. It is the last event. */
+    DISCONNECTED
+  }
+
+  private static final SynthesizeEvent CONNECTED = new SynthesizeEvent(Type.CONNECTED, null);
+  private static final SynthesizeEvent DISCONNECTED = new SynthesizeEvent(Type.DISCONNECTED, null);
+
+  private final Type type;
+  private final Object value;
+
+  private SynthesizeEvent(Type type, Object value) {
+    this.type = type;
+    this.value = value;
+  }
+
+  static SynthesizeEvent connected() {
+    return CONNECTED;
+  }
+
+  static SynthesizeEvent contentType(String contentType) {
+    return new SynthesizeEvent(Type.CONTENT_TYPE, contentType);
+  }
+
+  static SynthesizeEvent timings(Timings timings) {
+    return new SynthesizeEvent(Type.TIMINGS, timings);
+  }
+
+  static SynthesizeEvent marks(Marks marks) {
+    return new SynthesizeEvent(Type.MARKS, marks);
+  }
+
+  static SynthesizeEvent audio(ByteBuffer audio) {
+    return new SynthesizeEvent(Type.AUDIO, audio);
+  }
+
+  static SynthesizeEvent warning(Exception warning) {
+    return new SynthesizeEvent(Type.WARNING, warning);
+  }
+
+  static SynthesizeEvent disconnected() {
+    return DISCONNECTED;
+  }
+
+  /**
+   * Gets the type of the event.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Gets the content type of a {@link Type#CONTENT_TYPE} event.
+   *
+   * @return the content type, or null for other events
+   */
+  public String getContentType() {
+    return (type == Type.CONTENT_TYPE) ? (String) value : null;
+  }
+
+  /**
+   * Gets the timings of a {@link Type#TIMINGS} event.
+   *
+   * @return the timings, or null for other events
+   */
+  public Timings getTimings() {
+    return (type == Type.TIMINGS) ? (Timings) value : null;
+  }
+
+  /**
+   * Gets the marks of a {@link Type#MARKS} event.
+   *
+   * @return the marks, or null for other events
+   */
+  public Marks getMarks() {
+    return (type == Type.MARKS) ? (Marks) value : null;
+  }
+
+  /**
+   * Gets the audio of an {@link Type#AUDIO} event, a read-only buffer which wraps the WebSocket frame without copying
+   * it.
+   *
+   * @return the audio, or null for other events
+   */
+  public ByteBuffer getAudio() {
+    return (type == Type.AUDIO) ? (ByteBuffer) value : null;
+  }
+
+  /**
+   * Gets the warning of a {@link Type#WARNING} event.
+   *
+   * @return the warning, or null for other events
+   */
+  public Exception getWarning() {
+    return (type == Type.WARNING) ? (Exception) value : null;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return (value != null) ? type + " " + value : type.toString();
+  }
+}
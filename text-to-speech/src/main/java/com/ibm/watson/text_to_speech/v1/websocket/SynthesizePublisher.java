@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.text_to_speech.v1.websocket;
+
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.EventSubscription;
+import com.ibm.watson.common.WebSocketPublisher;
+import com.ibm.watson.text_to_speech.v1.TextToSpeech;
+import com.ibm.watson.text_to_speech.v1.model.Marks;
+import com.ibm.watson.text_to_speech.v1.model.SynthesizeOptions;
+import com.ibm.watson.text_to_speech.v1.model.Timings;
+import okhttp3.WebSocket;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A Reactive Streams {@link Publisher} of the events of a {@link WebSocket} synthesis by the {@link TextToSpeech}
+ * service, for applications which consume the audio with backpressure instead of through a
+ * {@link SynthesizeCallback}.<br>
+ * <br>
+ * The synthesis starts when a subscriber subscribes. Every method of {@link SynthesizeCallback} becomes a
+ * {@link SynthesizeEvent}, with the audio as read-only buffers which wrap the WebSocket frames without copying them;
+ * the publisher completes after the {@link SynthesizeEvent.Type#DISCONNECTED} event, and an error of the synthesis is
+ * signalled with {@link Subscriber#onError(Throwable)}. Buffering, cancellation and the single subscriber work as
+ * described in {@link WebSocketPublisher}; since the connection stops being read when the buffer is full, the service
+ * sends the audio no faster than it is consumed.
+ *
+ * @see TextToSpeech#createSynthesizePublisher(SynthesizeOptions)
+ */
+public final class SynthesizePublisher extends WebSocketPublisher<SynthesizeEvent> {
+
+  private final TextToSpeech service;
+  private final SynthesizeOptions options;
+
+  /**
+   * Instantiates a new synthesize publisher.
+   *
+   * @param service the Text to Speech service
+   * @param synthesizeOptions the synthesize options
+   * @param bufferSize the number of events buffered before the connection stops being read
+   */
+  public SynthesizePublisher(TextToSpeech service, SynthesizeOptions synthesizeOptions, int bufferSize) {
+    super(bufferSize);
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(synthesizeOptions, "synthesizeOptions cannot be null");
+    this.service = service;
+    this.options = synthesizeOptions;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.ibm.watson.common.WebSocketPublisher#newSession(com.ibm.watson.common.EventSubscription)
+   */
+  @Override
+  protected Session<SynthesizeEvent> newSession(EventSubscription<SynthesizeEvent> subscription) {
+    return new Synthesis(subscription);
+  }
+
+  /**
+   * A synthesis, which turns the calls of its {@link SynthesizeCallback} into events.
+   */
+  private final class Synthesis extends Session<SynthesizeEvent> implements SynthesizeBufferCallback {
+
+    Synthesis(EventSubscription<SynthesizeEvent> subscription) {
+      super(subscription);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.common.WebSocketPublisher.Session#connect()
+     */
+    @Override
+    protected WebSocket connect() {
+      return service.synthesizeUsingWebSocket(options, this);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onConnected()
+     */
+    @Override
+    public void onConnected() {
+      offer(SynthesizeEvent.connected());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onError(java.lang.Exception)
+     */
+    @Override
+    public void onError(Exception e) {
+      fail(e);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onWarning(java.lang.Exception)
+     */
+    @Override
+    public void onWarning(Exception e) {
+      offer(SynthesizeEvent.warning(e));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onDisconnected()
+     */
+    @Override
+    public void onDisconnected() {
+      offer(SynthesizeEvent.disconnected());
+      complete();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onContentType(java.lang.String)
+     */
+    @Override
+    public void onContentType(String contentType) {
+      offer(SynthesizeEvent.contentType(contentType));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onTimings(
+     * com.ibm.watson.text_to_speech.v1.model.Timings)
+     */
+    @Override
+    public void onTimings(Timings timings) {
+      offer(SynthesizeEvent.timings(timings));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onMarks(
+     * com.ibm.watson.text_to_speech.v1.model.Marks)
+     */
+    @Override
+    public void onMarks(Marks marks) {
+      offer(SynthesizeEvent.marks(marks));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeBufferCallback#onAudioBuffer(java.nio.ByteBuffer)
+     */
+    @Override
+    public void onAudioBuffer(ByteBuffer audio) {
+      offer(SynthesizeEvent.audio(audio));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.ibm.watson.text_to_speech.v1.websocket.SynthesizeCallback#onAudioStream(byte[])
+     */
+    @Override
+    public void onAudioStream(byte[] bytes) {
+      // The listener delivers the audio to onAudioBuffer instead; audio which arrives here is forwarded all the same.
+      onAudioBuffer(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+  }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.text_to_speech.v1.websocket;
+
+import com.ibm.cloud.sdk.core.http.HttpMediaType;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.text_to_speech.v1.TextToSpeech;
+import com.ibm.watson.text_to_speech.v1.model.Marks;
+import com.ibm.watson.text_to_speech.v1.model.SynthesizeOptions;
+import com.ibm.watson.text_to_speech.v1.model.Timings;
+import okhttp3.WebSocket;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Synthesizes text which becomes available a piece at a time, for example sentence by sentence from a dialog engine,
+ * over WebSocket connections to the {@link TextToSpeech} service.<br>
+ * <br>
+ * Each segment written to the stream is synthesized as soon as the segments before it have been synthesized, so the
+ * first audio arrives after the first segment rather than after the whole text. The audio of all segments is delivered
+ * in order to a single {@link SynthesizeCallback}; callbacks that implement {@link SynthesizeBufferCallback} receive
+ * it without copying.<br>
+ * <br>
+ * The service synthesizes one text per connection, so every segment uses its own connection. The number of segments
+ * waiting to be synthesized is bounded: {@link #write(String)} blocks while the limit is reached, which slows the
+ * producer down to the speed of the synthesis instead of queueing an unbounded amount of text.<br>
+ * <br>
+ * {@link SynthesizeCallback#onConnected()} and {@link SynthesizeCallback#onContentType(String)} are called once, for
+ * the first segment, and {@link SynthesizeCallback#onDisconnected()} once, after the last segment has been
+ * synthesized, the stream has been closed, or a segment has failed. Callbacks are never called while the stream holds
+ * its lock.<br>
+ * <br>
+ * The service returns every segment as a complete file in the requested format. For {@code audio/wav}, the stream
+ * removes the header of every segment after the first, so the audio of all segments forms a single WAVE file; as for
+ * any synthesis over a WebSocket, its size fields are not known up front and can be fixed with
+ * {@link com.ibm.watson.text_to_speech.v1.util.WaveUtils#writeWave}. The segments of headerless formats, such as
+ * {@code audio/l16} and {@code audio/mulaw}, join seamlessly. For the other formats, for example {@code audio/ogg} or
+ * {@code audio/flac}, the callback receives one complete file per segment, one after another, which is not a single
+ * playable file; use a headerless format or {@code audio/wav} to write the audio of a stream to one file.
+ *
+ * @see TextToSpeech#createSynthesizeStream(SynthesizeOptions, SynthesizeCallback)
+ */
+public final class SynthesizeStream implements Closeable {
+  /** The default maximum number of segments waiting to be synthesized. */
+  public static final int DEFAULT_MAX_PENDING_SEGMENTS = 16;
+
+  /** The length of the header of the WAVE audio returned by the service, as assumed by {@code WaveUtils}. */
+  private static final int WAVE_HEADER_LENGTH = 78;
+
+  /** The first bytes of a WAVE header. */
+  private static final byte[] RIFF = { 'R', 'I', 'F', 'F' };
+
+  private final TextToSpeech service;
+  private final SynthesizeOptions options;
+  private final SynthesizeCallback callback;
+  private final int maxPendingSegments;
+  private final boolean wave;
+
+  private final Object lock = new Object();
+  private final Queue<String> pending = new ArrayDeque<>();
+  private Segment current;
+  private WebSocket socket;
+  private boolean connected;
+  private boolean completed;
+  private boolean closed;
+  private long segments;
+
+  /**
+   * Instantiates a new synthesize stream.
+   *
+   * @param service the Text to Speech service
+   * @param options the options shared by all segments, such as the voice and the audio format. The text of the options,
+   *          if not empty, is synthesized as the first segment.
+   * @param callback the {@link SynthesizeCallback} instance where the audio of all segments will be sent
+   * @param maxPendingSegments the maximum number of segments waiting to be synthesized
+   */
+  public SynthesizeStream(TextToSpeech service, SynthesizeOptions options, SynthesizeCallback callback,
+      int maxPendingSegments) {
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(options, "options cannot be null");
+    Validator.notNull(callback, "callback cannot be null");
+    Validator.isTrue(maxPendingSegments > 0, "maxPendingSegments must be greater than 0");
+    this.service = service;
+    this.options = options;
+    this.callback = callback;
+    this.maxPendingSegments = maxPendingSegments;
+    this.wave = (options.accept() != null) && options.accept().startsWith(HttpMediaType.AUDIO_WAV);
+
+    if (!options.text().isEmpty()) {
+      boolean done;
+      synchronized (lock) {
+        pending.add(options.text());
+        done = startNext();
+      }
+      finishIf(done);
+    }
+  }
+
+  /**
+   * Adds a segment of text to synthesize. Blocks while the maximum number of segments is waiting to be synthesized.
+   *
+   * @param text the text of the segment
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void write(String text) throws InterruptedException {
+    Validator.notNull(text, "text cannot be null");
+    boolean done;
+    synchronized (lock) {
+      while (!closed && !completed && pending.size() >= maxPendingSegments) {
+        lock.wait();
+      }
+      if (closed || completed) {
+        throw new IllegalStateException("The stream has been completed or closed");
+      }
+      pending.add(text);
+      done = startNext();
+    }
+    finishIf(done);
+  }
+
+  /**
+   * Signals that no more segments will be written. The stream disconnects once the waiting segments have been
+   * synthesized.
+   */
+  public void complete() {
+    boolean done;
+    synchronized (lock) {
+      completed = true;
+      lock.notifyAll();
+      done = startNext();
+    }
+    finishIf(done);
+  }
+
+  /**
+   * Gets the number of segments which are waiting to be synthesized, not counting the one being synthesized.
+   *
+   * @return the number of waiting segments
+   */
+  public int getPendingSegments() {
+    synchronized (lock) {
+      return pending.size();
+    }
+  }
+
+  /**
+   * Gets the number of segments which have been sent to the service.
+   *
+   * @return the number of segments
+   */
+  public long getSegmentCount() {
+    synchronized (lock) {
+      return segments;
+    }
+  }
+
+  /**
+   * Stops the synthesis. The segment being synthesized is cancelled and the waiting segments are discarded.
+   */
+  @Override
+  public void close() {
+    finish(null);
+  }
+
+  /**
+   * Synthesizes the next waiting segment if no segment is being synthesized. Must be called while holding the lock.
+   *
+   * @return true if the stream is complete and all its segments have been synthesized, in which case the caller must
+   *         call {@link #finishIf(boolean)} once it has released the lock
+   */
+  private boolean startNext() {
+    if (closed || current != null) {
+      return false;
+    }
+    if (pending.isEmpty()) {
+      return completed;
+    }
+    String text = pending.poll();
+    lock.notifyAll();
+    current = new Segment(segments == 0);
+    segments++;
+    socket = service.synthesizeUsingWebSocket(options.newBuilder().text(text).build(), current);
+    return false;
+  }
+
+  /**
+   * Ends the stream if the last segment has been synthesized. Must be called without holding the lock.
+   *
+   * @param done the result of {@link #startNext()}
+   */
+  private void finishIf(boolean done) {
+    if (done) {
+      finish(null);
+    }
+  }
+
+  /**
+   * Ends the stream and notifies the callback once. Must be called without holding the lock.
+   *
+   * @param error the error which ended the stream, or null
+   */
+  private void finish(Exception error) {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      current = null;
+      pending.clear();
+      lock.notifyAll();
+      if (socket != null) {
+        socket.close(TextToSpeechWebSocketListener.CLOSE_NORMAL, "Stream closed");
+        socket = null;
+      }
+    }
+    if (error != null) {
+      callback.onError(error);
+    }
+    callback.onDisconnected();
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, byte[] prefix) {
+    if (buffer.remaining() < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(buffer.position() + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Receives the events of one segment and forwards them to the stream's callback.
+   */
+  private final class Segment implements SynthesizeBufferCallback {
+    private final boolean first;
+    private boolean checkHeader;
+    private int headerToSkip;
+
+    private Segment(boolean first) {
+      this.first = first;
+      this.checkHeader = !first && wave;
+    }
+
+    private boolean isCurrent() {
+      synchronized (lock) {
+        return current == this;
+      }
+    }
+
+    @Override
+    public void onConnected() {
+      synchronized (lock) {
+        if (current != this || connected) {
+          return;
+        }
+        connected = true;
+      }
+      callback.onConnected();
+    }
+
+    @Override
+    public void onError(Exception e) {
+      if (isCurrent()) {
+        finish(e);
+      }
+    }
+
+    @Override
+    public void onWarning(Exception e) {
+      if (isCurrent()) {
+        callback.onWarning(e);
+      }
+    }
+
+    @Override
+    public void onDisconnected() {
+      boolean done;
+      synchronized (lock) {
+        if (current != this) {
+          return;
+        }
+        current = null;
+        socket = null;
+        done = startNext();
+      }
+      finishIf(done);
+    }
+
+    @Override
+    public void onContentType(String contentType) {
+      if (first && isCurrent()) {
+        callback.onContentType(contentType);
+      }
+    }
+
+    @Override
+    public void onTimings(Timings timings) {
+      if (isCurrent()) {
+        callback.onTimings(timings);
+      }
+    }
+
+    @Override
+    public void onMarks(Marks marks) {
+      if (isCurrent()) {
+        callback.onMarks(marks);
+      }
+    }
+
+    @Override
+    public void onAudioStream(byte[] bytes) {
+      onAudioBuffer(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public void onAudioBuffer(ByteBuffer audio) {
+      if (!isCurrent()) {
+        return;
+      }
+      // Audio frames of a segment arrive on a single thread, so the header can be skipped without the lock.
+      if (checkHeader) {
+        checkHeader = false;
+        if (startsWith(audio, RIFF)) {
+          headerToSkip = WAVE_HEADER_LENGTH;
+        }
+      }
+      if (headerToSkip > 0) {
+        int skipped = Math.min(headerToSkip, audio.remaining());
+        audio.position(audio.position() + skipped);
+        headerToSkip -= skipped;
+      }
+      if (audio.hasRemaining()) {
+        TextToSpeechWebSocketListener.deliverAudio(callback, audio);
+      }
+    }
+  }
+}
@@ -1,11 +1,13 @@
 package com.ibm.watson.text_to_speech.v1.websocket;
 
-import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
+import com.ibm.watson.common.metrics.SdkTracer;
+import com.ibm.watson.common.metrics.SdkTracing;
 import com.ibm.watson.text_to_speech.v1.model.Marks;
 import com.ibm.watson.text_to_speech.v1.model.SynthesizeOptions;
 import com.ibm.watson.text_to_speech.v1.model.Timings;
@@ -15,19 +17,14 @@ import okhttp3.WebSocketListener;
 import okio.ByteString;
 
 import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 
 public class TextToSpeechWebSocketListener extends WebSocketListener {
-  private static final String TEXT_TO_WEB_SOCKET = "TextToWebSocketThread";
   private static final Gson GSON = GsonSingleton.getGsonWithoutPrettyPrinting();
-  private static final Logger LOG = Logger.getLogger(TextToSpeechWebSocketListener.class.getName());
 
-  private static final String VOICE = "voice";
-  private static final String CUSTOMIZATION_ID = "customization_id";
   private static final String ACTION = "action";
   private static final String START = "start";
-  private static final String STOP = "stop";
   private static final String ERROR = "error";
   private static final String WARNINGS = "warnings";
   private static final String BINARY_STREAMS = "binary_streams";
@@ -35,10 +32,14 @@ public class TextToSpeechWebSocketListener extends WebSocketListener {
   private static final String WORDS = "words";
   private static final String MARKS = "marks";
 
+  static final int CLOSE_NORMAL = 1000;
+
+  // The service and operation which tag the traced stages of a synthesis
+  private static final String SERVICE_NAME = "text_to_speech";
+  private static final String OPERATION_ID = "synthesizeUsingWebSocket";
+
   private final SynthesizeOptions options;
   private final SynthesizeCallback callback;
-  private WebSocket socket;
-  private boolean socketOpen = true;
 
   public TextToSpeechWebSocketListener(final SynthesizeOptions options, final SynthesizeCallback callback) {
     this.options = options;
@@ -51,7 +52,7 @@ public class TextToSpeechWebSocketListener extends WebSocketListener {
    */
   @Override
   public void onClosing(WebSocket webSocket, int code, String reason) {
-    socketOpen = false;
+    webSocket.close(CLOSE_NORMAL, null);
     callback.onDisconnected();
   }
 
@@ -61,7 +62,6 @@ public class TextToSpeechWebSocketListener extends WebSocketListener {
    */
   @Override
   public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-    socketOpen = false;
     if (t instanceof Exception) {
       callback.onError((Exception) t);
     } else {
@@ -75,6 +75,15 @@ public class TextToSpeechWebSocketListener extends WebSocketListener {
    */
   @Override
   public void onMessage(WebSocket webSocket, String message) {
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.WEBSOCKET_RECEIVE, SERVICE_NAME, OPERATION_ID);
+    try {
+      handleMessage(webSocket, message);
+    } finally {
+      span.end();
+    }
+  }
+
+  private void handleMessage(WebSocket webSocket, String message) {
     JsonObject json = new JsonParser().parse(message).getAsJsonObject();
     if (json.has(ERROR)) {
       String error = json.get(ERROR).getAsString();
@@ -104,7 +113,17 @@ public class TextToSpeechWebSocketListener extends WebSocketListener {
    */
   @Override
   public void onMessage(WebSocket webSocket, ByteString bytes) {
-    callback.onAudioStream(bytes.toByteArray());
+    SdkTracer.Span span = SdkTracing.begin(SdkTracer.Stage.WEBSOCKET_RECEIVE, SERVICE_NAME, OPERATION_ID);
+    try {
+      handleAudio(webSocket, bytes);
+    } finally {
+      span.end();
+    }
+  }
+
+  private void handleAudio(WebSocket webSocket, ByteString bytes) {
+    // asByteBuffer() wraps the frame without copying it
+    deliverAudio(callback, bytes.asByteBuffer());
   }
 
   /*
@@ -114,62 +133,61 @@ public class TextToSpeechWebSocketListener extends WebSocketListener {
   @Override
   public void onOpen(final WebSocket webSocket, Response response) {
     callback.onConnected();
-    this.socket = webSocket;
-    if (!this.socket.send(buildStartMessage(this.options))) {
+    // The text is part of the start message; the service sends the audio and closes the connection when it is done.
+    if (!webSocket.send(buildStartMessage(this.options))) {
       callback.onError(new IOException("WebSocket unavailable"));
-    } else {
-      new Thread(TEXT_TO_WEB_SOCKET) {
-        @Override
-        public void run() {
-          sendText();
-          if (socketOpen && !socket.send(buildStopMessage())) {
-            LOG.log(Level.SEVERE, "Stop message discarded because WebSocket is unavailable");
-          }
-        }
-      };
-    }
-  }
-
-  private void sendText() {
-    try {
-      while (socketOpen) {
-        socket.send(this.options.text());
-      }
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage(), e);
     }
   }
 
   /**
-   * Builds the start message.
+   * Delivers a frame of audio to the callback, as a read-only buffer if the callback accepts one and as a copy
+   * otherwise.
    *
-   * @param options the options
-   * @return the request
+   * @param callback the callback
+   * @param audio the audio
    */
-  private String buildStartMessage(SynthesizeOptions options) {
-    Gson gson = new GsonBuilder()
-        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-        .create();
-    JsonObject startMessage = new JsonParser()
-        .parse(gson.toJson(options))
-        .getAsJsonObject();
-
-    // remove options that are already in query string
-    startMessage.remove(VOICE);
-    startMessage.remove(CUSTOMIZATION_ID);
-
-    startMessage.addProperty(ACTION, START);
-    return startMessage.toString();
+  static void deliverAudio(SynthesizeCallback callback, ByteBuffer audio) {
+    if (callback instanceof SynthesizeBufferCallback) {
+      ((SynthesizeBufferCallback) callback).onAudioBuffer(audio);
+    } else {
+      byte[] bytes = new byte[audio.remaining()];
+      audio.get(bytes);
+      callback.onAudioStream(bytes);
+    }
   }
 
   /**
-   * Builds the stop message.
+   * Builds the start message. The options are written straight to a {@link JsonWriter} in the order and with the names
+   * Gson would use for {@link SynthesizeOptions}, leaving out null values and the options that are already part of the
+   * query string (voice and customization ID).
    *
-   * @return the string
+   * @param options the options
+   * @return the request
    */
-  private String buildStopMessage() {
-    JsonObject stopMessage = new JsonObject();
-    stopMessage.addProperty(ACTION, STOP);
-    return stopMessage.toString();
+  private static String buildStartMessage(SynthesizeOptions options) {
+    StringWriter out = new StringWriter();
+    JsonWriter writer = new JsonWriter(out);
+    try {
+      writer.beginObject();
+      if (options.text() != null) {
+        writer.name("text").value(options.text());
+      }
+      if (options.timings() != null) {
+        writer.name("timings").beginArray();
+        for (String timing : options.timings()) {
+          writer.value(timing);
+        }
+        writer.endArray();
+      }
+      if (options.accept() != null) {
+        writer.name("accept").value(options.accept());
+      }
+      writer.name(ACTION).value(START);
+      writer.endObject();
+      writer.close();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+    return out.toString();
   }
 }
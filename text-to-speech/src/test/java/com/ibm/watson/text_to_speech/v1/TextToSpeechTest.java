@@ -12,23 +12,39 @@
  */
 package com.ibm.watson.text_to_speech.v1;
 
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.gson.Gson;
+import com.google.gson.JsonParser;
 import com.ibm.cloud.sdk.core.http.HttpMediaType;
+import com.ibm.cloud.sdk.core.http.Response;
 import com.ibm.cloud.sdk.core.security.basicauth.BasicAuthConfig;
 import com.ibm.cloud.sdk.core.util.GsonSingleton;
 import com.ibm.watson.common.TestUtils;
 import com.ibm.watson.common.WatsonServiceUnitTest;
+import com.ibm.watson.common.metrics.HistogramMetricsRecorder;
+import com.ibm.watson.common.metrics.SdkMetrics;
+import com.ibm.watson.common.metrics.SdkTracer;
+import com.ibm.watson.common.metrics.SdkTracing;
+import com.ibm.watson.text_to_speech.v1.model.AddWordOptions;
 import com.ibm.watson.text_to_speech.v1.model.DeleteUserDataOptions;
 import com.ibm.watson.text_to_speech.v1.model.GetVoiceOptions;
 import com.ibm.watson.text_to_speech.v1.model.SynthesizeOptions;
 import com.ibm.watson.text_to_speech.v1.model.Voice;
 import com.ibm.watson.text_to_speech.v1.model.Voices;
+import com.ibm.watson.text_to_speech.v1.util.SynthesisCache;
 import com.ibm.watson.text_to_speech.v1.util.WaveUtils;
+import com.ibm.watson.text_to_speech.v1.websocket.BaseSynthesizeCallback;
+import com.ibm.watson.text_to_speech.v1.websocket.SynthesizeEvent;
+import com.ibm.watson.text_to_speech.v1.websocket.SynthesizeStream;
+import io.reactivex.subscribers.TestSubscriber;
 import okhttp3.HttpUrl;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
+import okio.ByteString;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.FixMethodOrder;
@@ -44,10 +60,25 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * The Class TextToSpeechTest.
@@ -59,6 +90,13 @@ public class TextToSpeechTest extends WatsonServiceUnitTest {
   private static final String GET_VOICES_PATH = "/v1/voices";
   private static final String SYNTHESIZE_PATH = "/v1/synthesize";
 
+  private static final Executor DIRECT = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
   private Voice getVoiceResponse;
   private Voices listVoicesResponse;
 
@@ -191,6 +229,115 @@ public class TextToSpeechTest extends WatsonServiceUnitTest {
     writeInputStreamToOutputStream(in, new FileOutputStream("build/output.wav"));
   }
 
+  /**
+   * Test answering synthesize requests from the memory and disk tiers of a {@link SynthesisCache}, and invalidating
+   * the audio of a custom voice model when the model changes.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  public void testSynthesizeWithCache() throws IOException {
+    File directory = java.nio.file.Files.createTempDirectory("synthesis").toFile();
+    byte[] audio = Files.toByteArray(new File("src/test/resources/text_to_speech/sample1.wav"));
+    String customizationId = "custom-voice";
+    SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text(text)
+        .voice(SynthesizeOptions.Voice.EN_US_LISAVOICE)
+        .customizationId(customizationId)
+        .accept(HttpMediaType.AUDIO_WAV)
+        .build();
+
+    SynthesisCache cache = new SynthesisCache.Builder()
+        .directory(directory)
+        .diskExecutor(DIRECT)
+        .build();
+    service.setSynthesisCache(cache);
+    server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.AUDIO_WAV).setBody(new Buffer().write(
+        audio)));
+    assertArrayEquals(audio, WaveUtils.toByteArray(service.synthesize(synthesizeOptions).execute().getResult()));
+    assertArrayEquals(audio, WaveUtils.toByteArray(service.synthesize(synthesizeOptions).execute().getResult()));
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, cache.getMemoryHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(audio.length, cache.getBytesSaved());
+    assertEquals(0.5, cache.getHitRatio(), 0);
+
+    // a new cache on the same directory finds the audio cached by the first one
+    SynthesisCache restarted = new SynthesisCache.Builder()
+        .maxMemoryBytes(0)
+        .directory(directory)
+        .build();
+    service.setSynthesisCache(restarted);
+    Response<InputStream> response = service.synthesize(synthesizeOptions).execute();
+    assertArrayEquals(audio, WaveUtils.toByteArray(response.getResult()));
+    assertEquals(HttpMediaType.AUDIO_WAV, response.getHeaders().values(CONTENT_TYPE).get(0));
+    assertEquals(1, restarted.getDiskHitCount());
+    assertEquals(1, server.getRequestCount());
+
+    // changing the custom voice model invalidates its audio
+    server.enqueue(new MockResponse());
+    service.addWord(new AddWordOptions.Builder()
+        .customizationId(customizationId)
+        .word("IBM")
+        .translation("eye bee em")
+        .build()).execute();
+    assertEquals(0, restarted.getDiskSize());
+    assertEquals(0, directory.listFiles().length);
+
+    server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.AUDIO_WAV).setBody(new Buffer().write(
+        audio)));
+    assertArrayEquals(audio, WaveUtils.toByteArray(service.synthesize(synthesizeOptions).execute().getResult()));
+    assertEquals(3, server.getRequestCount());
+    assertEquals(1, restarted.getMissCount());
+
+    service.setSynthesisCache(null);
+    restarted.clear();
+    directory.delete();
+  }
+
+  /**
+   * Test that audio whose synthesis was in flight when the cache was invalidated is not cached.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSynthesisCacheIgnoresAudioRequestedBeforeInvalidation() throws Exception {
+    final String customizationId = "custom-voice";
+    final SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text(text)
+        .customizationId(customizationId)
+        .accept(HttpMediaType.AUDIO_WAV)
+        .build();
+    SynthesisCache cache = new SynthesisCache.Builder().build();
+    service.setSynthesisCache(cache);
+    server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.AUDIO_WAV).setBody("stale")
+        .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+    server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.AUDIO_WAV).setBody("fresh"));
+
+    final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+    Thread inFlight = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          results.add(new String(WaveUtils.toByteArray(service.synthesize(synthesizeOptions).execute().getResult()),
+              "UTF-8"));
+        } catch (IOException e) {
+          results.add(e.toString());
+        }
+      }
+    });
+    inFlight.start();
+    server.takeRequest();
+    cache.invalidate(customizationId);
+
+    assertEquals("stale", results.poll(5, TimeUnit.SECONDS));
+    assertEquals(0, cache.getMemorySize());
+    InputStream fresh = service.synthesize(synthesizeOptions).execute().getResult();
+    assertEquals("fresh", new String(WaveUtils.toByteArray(fresh), "UTF-8"));
+    assertEquals(2, cache.getMissCount());
+    service.setSynthesisCache(null);
+  }
+
   /**
    * Test synthesize for WebM.
    *
@@ -261,6 +408,343 @@ public class TextToSpeechTest extends WatsonServiceUnitTest {
     assertNotNull(AudioSystem.getAudioFileFormat(tempFile));
   }
 
+  /**
+   * Test fixing the wave header of a stream with a known size, without buffering the audio.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  public void testFixHeaderWithKnownSize() throws IOException {
+    File audio = new File("src/test/resources/text_to_speech/numbers.wav");
+    byte[] expected = WaveUtils.toByteArray(WaveUtils.reWriteWaveHeader(new FileInputStream(audio)));
+
+    InputStream stream = WaveUtils.reWriteWaveHeader(new FileInputStream(audio), audio.length());
+    assertArrayEquals(expected, WaveUtils.toByteArray(stream));
+
+    // single-byte reads patch the header in the same way
+    stream = WaveUtils.reWriteWaveHeader(new FileInputStream(audio), audio.length());
+    byte[] header = new byte[100];
+    for (int i = 0; i < header.length; i++) {
+      header[i] = (byte) stream.read();
+    }
+    stream.close();
+    for (int i = 0; i < header.length; i++) {
+      assertEquals(expected[i], header[i]);
+    }
+  }
+
+  /**
+   * Test writing a wave stream to a file channel and fixing the header in place.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   * @throws UnsupportedAudioFileException the unsupported audio file exception
+   */
+  @Test
+  public void testWriteWaveToFileChannel() throws IOException, UnsupportedAudioFileException {
+    File audio = new File("src/test/resources/text_to_speech/numbers.wav");
+    byte[] expected = WaveUtils.toByteArray(WaveUtils.reWriteWaveHeader(new FileInputStream(audio)));
+
+    File tempFile = File.createTempFile("output", ".wav");
+    tempFile.deleteOnExit();
+    InputStream stream = new FileInputStream(audio);
+    try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+      assertEquals(audio.length(), WaveUtils.writeWave(stream, channel));
+      assertEquals(audio.length(), channel.position());
+    } finally {
+      stream.close();
+    }
+
+    assertArrayEquals(expected, Files.toByteArray(tempFile));
+    assertNotNull(AudioSystem.getAudioFileFormat(tempFile));
+  }
+
+  /**
+   * Test synthesizing text over a WebSocket: the text is sent in the start message and the audio is delivered
+   * without being copied.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testSynthesizeUsingWebSocket() throws InterruptedException {
+    List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new SynthesisServer(received)));
+
+    AudioCallback callback = new AudioCallback();
+    SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text(text)
+        .voice(SynthesizeOptions.Voice.EN_US_LISAVOICE)
+        .accept(SynthesizeOptions.Accept.AUDIO_WAV)
+        .build();
+    service.synthesizeUsingWebSocket(synthesizeOptions, callback);
+
+    assertTrue(callback.disconnected.await(5, TimeUnit.SECONDS));
+    assertEquals(1, received.size());
+    assertEquals("{\"text\":\"" + text + "\",\"accept\":\"audio/wav\",\"action\":\"start\"}", received.get(0));
+    assertEquals(text, callback.audio.toString());
+    assertEquals(1, callback.connected.get());
+    assertEquals(HttpMediaType.AUDIO_WAV, callback.contentType);
+    assertTrue(callback.readOnly);
+    assertNull(callback.error);
+  }
+
+  /**
+   * Test synthesizing text written to a {@link SynthesizeStream} segment by segment.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testSynthesizeStream() throws InterruptedException {
+    List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().withWebSocketUpgrade(new SynthesisServer(received)));
+    }
+
+    AudioCallback callback = new AudioCallback();
+    SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text("One. ")
+        .accept(SynthesizeOptions.Accept.AUDIO_WAV)
+        .build();
+    SynthesizeStream stream = service.createSynthesizeStream(synthesizeOptions, callback);
+    stream.write("Two. ");
+    stream.write("Three.");
+    stream.complete();
+
+    assertTrue(callback.disconnected.await(5, TimeUnit.SECONDS));
+    assertEquals("One. Two. Three.", callback.audio.toString());
+    assertEquals(3, received.size());
+    assertEquals("{\"text\":\"Two. \",\"accept\":\"audio/wav\",\"action\":\"start\"}", received.get(1));
+    assertEquals(3, stream.getSegmentCount());
+    assertEquals(0, stream.getPendingSegments());
+    assertEquals(1, callback.connected.get());
+    assertNull(callback.error);
+  }
+
+  /**
+   * Test that a synthesize publisher delivers the events of a synthesis, with the audio as read-only buffers, and then
+   * completes.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testSynthesizePublisher() throws InterruptedException {
+    List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new SynthesisServer(received)));
+
+    SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text(text)
+        .accept(SynthesizeOptions.Accept.AUDIO_WAV)
+        .build();
+    TestSubscriber<SynthesizeEvent> subscriber = new TestSubscriber<>();
+    service.createSynthesizePublisher(synthesizeOptions).subscribe(subscriber);
+
+    assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+    subscriber.assertNoErrors();
+    subscriber.assertComplete();
+    assertEquals(1, received.size());
+    List<SynthesizeEvent> events = subscriber.values();
+    assertEquals(4, events.size());
+    assertEquals(SynthesizeEvent.Type.CONNECTED, events.get(0).getType());
+    assertEquals(SynthesizeEvent.Type.CONTENT_TYPE, events.get(1).getType());
+    assertEquals(HttpMediaType.AUDIO_WAV, events.get(1).getContentType());
+    assertEquals(SynthesizeEvent.Type.AUDIO, events.get(2).getType());
+    ByteBuffer audio = events.get(2).getAudio();
+    assertTrue(audio.isReadOnly());
+    assertEquals(text, ByteString.of(audio).utf8());
+    assertEquals(SynthesizeEvent.Type.DISCONNECTED, events.get(3).getType());
+  }
+
+  /**
+   * Test that a {@link SynthesizeStream} of WAVE audio keeps the header of the first segment only, so the audio of all
+   * segments forms a single file.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testSynthesizeStreamJoinsWaveSegments() throws InterruptedException {
+    String header = "RIFF" + new String(new char[74]).replace('\0', 'H');
+    List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().withWebSocketUpgrade(new SynthesisServer(received, header)));
+    }
+
+    AudioCallback callback = new AudioCallback();
+    SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text("One. ")
+        .accept(SynthesizeOptions.Accept.AUDIO_WAV)
+        .build();
+    SynthesizeStream stream = service.createSynthesizeStream(synthesizeOptions, callback);
+    stream.write("Two. ");
+    stream.write("Three.");
+    stream.complete();
+
+    assertTrue(callback.disconnected.await(5, TimeUnit.SECONDS));
+    assertEquals(header + "One. Two. Three.", callback.audio.toString());
+    assertEquals(1, callback.contentTypes.get());
+    assertNull(callback.error);
+  }
+
+  /**
+   * Test that the HTTP and WebSocket syntheses of a service are measured once metrics are enabled.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testSynthesizeMetrics() throws IOException, InterruptedException {
+    HistogramMetricsRecorder metrics = new HistogramMetricsRecorder();
+    SdkMetrics.enable(service, metrics);
+    server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.AUDIO_WAV).setBody("audio"));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new SynthesisServer(
+        Collections.synchronizedList(new ArrayList<String>()))));
+
+    SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+        .text(text)
+        .accept(SynthesizeOptions.Accept.AUDIO_WAV)
+        .build();
+    InputStream in = service.synthesize(synthesizeOptions).execute().getResult();
+    assertEquals("audio", new String(ByteStreams.toByteArray(in), "UTF-8"));
+    in.close();
+    AudioCallback callback = new AudioCallback();
+    service.synthesizeUsingWebSocket(synthesizeOptions, callback);
+    assertTrue(callback.disconnected.await(5, TimeUnit.SECONDS));
+
+    HistogramMetricsRecorder.CallStats calls = metrics.getCallStats("text_to_speech", "synthesize");
+    assertEquals(1, calls.getTotalTime().getCount());
+    assertEquals(Long.valueOf(1), calls.getStatusCodes().get(200));
+    assertEquals(5, calls.getResponseBytes().getMax());
+    assertEquals(1, calls.getTimeToFirstByte().getCount());
+    assertTrue(calls.getTimeToFirstByte().getMax() <= calls.getTotalTime().getMax());
+
+    HistogramMetricsRecorder.WebSocketStats sessions = metrics.getWebSocketStats("text_to_speech",
+        "synthesizeUsingWebSocket");
+    assertEquals(1, sessions.getDuration().getCount());
+    assertEquals(1, sessions.getConnectTime().getCount());
+    assertEquals(1, sessions.getTimeToFirstResult().getCount());
+    assertEquals(0, sessions.getFailures());
+
+    SdkMetrics.disable(service);
+    assertNull(SdkMetrics.getRecorder(service));
+  }
+
+  /**
+   * Test that the stages of the HTTP and WebSocket syntheses are passed to the tracer, tagged with their operation.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  public void testSynthesizeTracing() throws IOException, InterruptedException {
+    final List<String> stages = Collections.synchronizedList(new ArrayList<String>());
+    SdkTracing.setTracer(new SdkTracer() {
+      @Override
+      public Span begin(final Stage stage, final String serviceName, final String operationId) {
+        return new Span() {
+          @Override
+          public void end() {
+            stages.add(stage + " " + serviceName + " " + operationId);
+          }
+        };
+      }
+    });
+    try {
+      SdkMetrics.enable(service, new HistogramMetricsRecorder());
+      server.enqueue(new MockResponse().addHeader(CONTENT_TYPE, HttpMediaType.AUDIO_WAV).setBody("audio"));
+      server.enqueue(new MockResponse().withWebSocketUpgrade(new SynthesisServer(
+          Collections.synchronizedList(new ArrayList<String>()))));
+
+      SynthesizeOptions synthesizeOptions = new SynthesizeOptions.Builder()
+          .text(text)
+          .accept(SynthesizeOptions.Accept.AUDIO_WAV)
+          .build();
+      service.synthesize(synthesizeOptions).execute().getResult().close();
+      AudioCallback callback = new AudioCallback();
+      service.synthesizeUsingWebSocket(synthesizeOptions, callback);
+      assertTrue(callback.disconnected.await(5, TimeUnit.SECONDS));
+    } finally {
+      SdkTracing.setTracer(null);
+    }
+
+    assertTrue(stages.contains("REQUEST_BUILD text_to_speech synthesize"));
+    assertTrue(stages.contains("AUTHENTICATION text_to_speech synthesize"));
+    assertTrue(stages.contains("NETWORK text_to_speech synthesize"));
+    assertTrue(stages.contains("DESERIALIZATION text_to_speech synthesize"));
+    assertTrue(stages.contains("WEBSOCKET_RECEIVE text_to_speech synthesizeUsingWebSocket"));
+  }
+
+  /**
+   * A Text to Speech WebSocket server which returns the text it receives as audio and closes the connection.
+   */
+  private static class SynthesisServer extends WebSocketListener {
+    private final List<String> received;
+    private final String header;
+
+    SynthesisServer(List<String> received) {
+      this(received, "");
+    }
+
+    SynthesisServer(List<String> received, String header) {
+      this.received = received;
+      this.header = header;
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String message) {
+      received.add(message);
+      String segment = new JsonParser().parse(message).getAsJsonObject().get("text").getAsString();
+      webSocket.send("{\"binary_streams\":[{\"content_type\":\"audio/wav\"}]}");
+      if (!header.isEmpty()) {
+        webSocket.send(ByteString.encodeUtf8(header));
+      }
+      webSocket.send(ByteString.encodeUtf8(segment));
+      webSocket.close(1000, null);
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+      webSocket.close(1000, null);
+    }
+  }
+
+  /**
+   * Collects the audio and events of a synthesis.
+   */
+  private static class AudioCallback extends BaseSynthesizeCallback {
+    private final StringBuffer audio = new StringBuffer();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger contentTypes = new AtomicInteger();
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+    private volatile String contentType;
+    private volatile boolean readOnly;
+    private volatile Exception error;
+
+    @Override
+    public void onConnected() {
+      connected.incrementAndGet();
+    }
+
+    @Override
+    public void onError(Exception e) {
+      error = e;
+    }
+
+    @Override
+    public void onDisconnected() {
+      disconnected.countDown();
+    }
+
+    @Override
+    public void onContentType(String contentType) {
+      this.contentType = contentType;
+      contentTypes.incrementAndGet();
+    }
+
+    @Override
+    public void onAudioBuffer(ByteBuffer buffer) {
+      readOnly = buffer.isReadOnly();
+      audio.append(ByteString.of(buffer).utf8());
+    }
+  }
+
   @Test
   public void testDeleteUserDataOptionsBuilder() {
     String customerId = "java_sdk_test_id";
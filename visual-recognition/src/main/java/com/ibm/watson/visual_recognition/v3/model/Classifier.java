@@ -15,8 +15,10 @@ package com.ibm.watson.visual_recognition.v3.model;
 import java.util.Date;
 import java.util.List;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import com.ibm.cloud.sdk.core.service.model.GenericModel;
+import com.ibm.watson.common.IsoDateTypeAdapter;
 
 /**
  * Information about a classifier.
@@ -45,9 +47,12 @@ public class Classifier extends GenericModel {
   @SerializedName("core_ml_enabled")
   private Boolean coreMlEnabled;
   private String explanation;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date created;
   private List<Class> classes;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date retrained;
+  @JsonAdapter(IsoDateTypeAdapter.class)
   private Date updated;
 
   /**
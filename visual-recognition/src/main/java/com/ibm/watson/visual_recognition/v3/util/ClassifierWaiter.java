@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.ibm.watson.visual_recognition.v3.util;
+
+import com.ibm.cloud.sdk.core.http.ServiceCall;
+import com.ibm.cloud.sdk.core.util.Validator;
+import com.ibm.watson.common.ResourceWaiter;
+import com.ibm.watson.common.ServiceFuture;
+import com.ibm.watson.common.WaitPolicy;
+import com.ibm.watson.visual_recognition.v3.VisualRecognition;
+import com.ibm.watson.visual_recognition.v3.model.Classifier;
+import com.ibm.watson.visual_recognition.v3.model.GetClassifierOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for a custom classifier created with {@link VisualRecognition#createClassifier} or retrained with
+ * {@link VisualRecognition#updateClassifier} to be ready.
+ *
+ * <pre>
+ * Classifier classifier = service.createClassifier(createClassifierOptions).execute().getResult();
+ * classifier = ClassifierWaiter.classifier(ResourceWaiter.getDefault(), service, classifier.getClassifierId()).get();
+ * </pre>
+ */
+public final class ClassifierWaiter {
+
+  /**
+   * Training a custom classifier takes from a few minutes to an hour depending on the number of images, so the
+   * classifier is first polled after 10 seconds and then at most every 2 minutes. The wait fails with a
+   * {@link java.util.concurrent.TimeoutException} if the classifier is still not ready after 6 hours.
+   */
+  public static final WaitPolicy TRAINING = new WaitPolicy.Builder()
+      .initialDelay(10, TimeUnit.SECONDS)
+      .maxDelay(2, TimeUnit.MINUTES)
+      .multiplier(1.5)
+      .timeout(6, TimeUnit.HOURS)
+      .build();
+
+  private ClassifierWaiter() {
+    // This is a utility class - no instantiation allowed.
+  }
+
+  /**
+   * Waits until a classifier is ready, polling with the {@link #TRAINING} policy.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param classifierId the classifier ID
+   * @return the future of the classifier, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<Classifier> classifier(ResourceWaiter waiter, VisualRecognition service,
+      String classifierId) {
+    return classifier(waiter, service, classifierId, TRAINING);
+  }
+
+  /**
+   * Waits until a classifier is ready.
+   *
+   * @param waiter the waiter
+   * @param service the service
+   * @param classifierId the classifier ID
+   * @param policy how often to poll the classifier
+   * @return the future of the classifier, which fails with a {@link com.ibm.watson.common.ResourceFailedException} if
+   *         training failed
+   */
+  public static ServiceFuture<Classifier> classifier(ResourceWaiter waiter, final VisualRecognition service,
+      final String classifierId, WaitPolicy policy) {
+    Validator.notNull(waiter, "waiter cannot be null");
+    Validator.notNull(service, "service cannot be null");
+    Validator.notNull(classifierId, "classifierId cannot be null");
+    return waiter.waitFor(new ResourceWaiter.Poll<Classifier>() {
+      @Override
+      public ServiceCall<Classifier> call() {
+        return service.getClassifier(new GetClassifierOptions.Builder(classifierId).build());
+      }
+
+      @Override
+      public ResourceWaiter.State state(Classifier classifier) {
+        String status = classifier.getStatus();
+        if (Classifier.Status.READY.equals(status)) {
+          return ResourceWaiter.State.DONE;
+        } else if (Classifier.Status.FAILED.equals(status)) {
+          return ResourceWaiter.State.FAILED;
+        }
+        return ResourceWaiter.State.PENDING;
+      }
+
+      @Override
+      public String toString() {
+        return "classifier " + classifierId;
+      }
+    }, policy);
+  }
+}